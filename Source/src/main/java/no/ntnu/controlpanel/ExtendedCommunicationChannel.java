@@ -11,4 +11,21 @@ public interface ExtendedCommunicationChannel extends CommunicationChannel {
     void closeSocketAndWriter();
 
     Socket getClientSocket();
+
+    /**
+     * The server has opened a UDP session for this client, sensor data may be sent as datagrams from now on.
+     *
+     * @param token   The session token to put in every datagram
+     * @param udpPort The UDP port of the server
+     */
+    void openUdpSession(long token, int udpPort);
+
+    /**
+     * The server has told the version of the state it knows for this client.
+     *
+     * @param stateVersion The state version, to present when resuming after a reconnection
+     * @param resumed      True if the server resumed the client from the known state
+     */
+    default void stateVersionReceived(long stateVersion, boolean resumed) {
+    }
 }
\ No newline at end of file
@@ -5,12 +5,10 @@ import static no.ntnu.tools.Parser.parseIntegerOrError;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
 
-import com.google.gson.JsonObject;
 import no.ntnu.greenhouse.Actuator;
 import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.greenhouse.SimulationScheduler;
 import no.ntnu.tools.Logger;
 
 /**
@@ -32,15 +30,7 @@ public class FakeCommunicationChannel implements CommunicationChannel {
   }
   @Override
   public void sendSensorData(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType, double sensorValue) {
-    JsonObject jsonMessage = new JsonObject();
-    jsonMessage.addProperty("type", "SENSOR_DATA");
-    jsonMessage.addProperty("nodeId", nodeId);
-    jsonMessage.addProperty("actuatorId", actuatorId);
-    jsonMessage.addProperty("actuatorType", actuatorType);
-    jsonMessage.addProperty("isOn", isOn);
-    jsonMessage.addProperty("sensorType", sensorType);
-    jsonMessage.addProperty("sensorValue", sensorValue);
-
+    // The fake greenhouse has nowhere to send the data, and nothing to do per message
   }
   private SensorActuatorNodeInfo createSensorNodeInfoFrom(String specification) {
     if (specification == null || specification.isEmpty()) {
@@ -92,13 +82,7 @@ public class FakeCommunicationChannel implements CommunicationChannel {
    */
   public void spawnNode(String specification, int delay) {
     SensorActuatorNodeInfo nodeInfo = createSensorNodeInfoFrom(specification);
-    Timer timer = new Timer();
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        logic.onNodeAdded(nodeInfo);
-      }
-    }, delay * 1000L);
+    SimulationScheduler.schedule(() -> logic.onNodeAdded(nodeInfo), delay * 1000L);
   }
 
   /**
@@ -124,13 +108,7 @@ public class FakeCommunicationChannel implements CommunicationChannel {
     }
     int nodeId = parseIntegerOrError(parts[0], "Invalid node ID:" + parts[0]);
     List<SensorReading> sensors = parseSensors(parts[1]);
-    Timer timer = new Timer();
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        logic.onSensorData(nodeId, sensors);
-      }
-    }, delay * 1000L);
+    SimulationScheduler.schedule(() -> logic.onSensorData(nodeId, sensors), delay * 1000L);
   }
 
   /**
@@ -140,13 +118,7 @@ public class FakeCommunicationChannel implements CommunicationChannel {
    * @param delay  Delay in seconds
    */
   public void advertiseRemovedNode(int nodeId, int delay) {
-    Timer timer = new Timer();
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        logic.onNodeRemoved(nodeId);
-      }
-    }, delay * 1000L);
+    SimulationScheduler.schedule(() -> logic.onNodeRemoved(nodeId), delay * 1000L);
   }
 
   private List<SensorReading> parseSensors(String sensorInfo) {
@@ -182,13 +154,8 @@ public class FakeCommunicationChannel implements CommunicationChannel {
    * @param delay      The delay in seconds after which the advertisement will be generated
    */
   public void advertiseActuatorState(int nodeId, int actuatorId, boolean on, int delay) {
-    Timer timer = new Timer();
-    timer.schedule(new TimerTask() {
-      @Override
-      public void run() {
-        logic.onActuatorStateChanged(nodeId, actuatorId, on);
-      }
-    }, delay * 1000L);
+    SimulationScheduler.schedule(() -> logic.onActuatorStateChanged(nodeId, actuatorId, on),
+        delay * 1000L);
   }
 
   @Override
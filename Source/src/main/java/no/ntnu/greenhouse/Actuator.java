@@ -1,7 +1,6 @@
 package no.ntnu.greenhouse;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 import no.ntnu.listeners.common.ActuatorListener;
 
 /**
@@ -11,9 +10,14 @@ import no.ntnu.listeners.common.ActuatorListener;
 public class Actuator {
   private static int nextId = 1;
   private final String type;
+  private final int typeId;
   private final int nodeId;
   private final int id;
-  private Map<String, Double> impacts = new HashMap<>();
+  // The impacts, as parallel arrays: sensor type ID and the delta when active
+  private int[] impactTypeIds = new int[0];
+  private double[] impacts = new double[0];
+  // Built by the node this actuator is applied to
+  private ActuatorImpactIndex impactIndex;
 
   private ActuatorListener listener;
 
@@ -27,6 +31,7 @@ public class Actuator {
    */
   public Actuator(String type, int nodeId) {
     this.type = type;
+    this.typeId = TypeRegistry.actuatorTypeId(type);
     this.nodeId = nodeId;
     this.on = false;
     this.id = generateUniqueId();
@@ -41,6 +46,7 @@ public class Actuator {
    */
   public Actuator(int id, String type, int nodeId) {
     this.type = type;
+    this.typeId = TypeRegistry.actuatorTypeId(type);
     this.nodeId = nodeId;
     this.on = false;
     this.id = id;
@@ -70,22 +76,55 @@ public class Actuator {
    *                       same node by +2 degrees".
    */
   public void setImpact(String sensorType, double diffWhenActive) {
-    impacts.put(sensorType, diffWhenActive);
+    int sensorTypeId = TypeRegistry.sensorTypeId(sensorType);
+    int i = 0;
+    while (i < impactTypeIds.length && impactTypeIds[i] != sensorTypeId) {
+      ++i;
+    }
+    if (i == impactTypeIds.length) {
+      impactTypeIds = Arrays.copyOf(impactTypeIds, i + 1);
+      impacts = Arrays.copyOf(impacts, i + 1);
+      impactTypeIds[i] = sensorTypeId;
+    } else {
+      // The arrays may be shared with clones, which must keep their impacts
+      impacts = impacts.clone();
+    }
+    impacts[i] = diffWhenActive;
+    impactIndex = null;
   }
 
   public String getType() {
     return type;
   }
 
+  /**
+   * Get the interned ID of the actuator type.
+   *
+   * @return The type ID, see TypeRegistry
+   */
+  public int getTypeId() {
+    return typeId;
+  }
+
   /**
    * Create a clone of this actuator.
    *
    * @return A clone of this actuator, where all the fields are the same
    */
   public Actuator createClone() {
+    return createClone(nodeId);
+  }
+
+  /**
+   * Create a clone of this actuator, connected to another node.
+   *
+   * @param nodeId ID of the node to which the clone will be connected
+   * @return A clone of this actuator, with a new ID and the same type and impacts
+   */
+  public Actuator createClone(int nodeId) {
     Actuator a = new Actuator(type, nodeId);
-    // Note - we pass a reference to the same map! This should not be problem, as long as we
-    // don't modify the impacts AFTER creating the template
+    // The clone shares the impact arrays, setImpact replaces them instead of changing them
+    a.impactTypeIds = impactTypeIds;
     a.impacts = impacts;
     return a;
   }
@@ -119,14 +158,20 @@ public class Actuator {
    * @param node The sensor node to be affected by this actuator.
    */
   public void applyImpact(SensorActuatorNode node) {
-    for (Map.Entry<String, Double> impactEntry : impacts.entrySet()) {
-      String sensorType = impactEntry.getKey();
-      double impact = impactEntry.getValue();
-      if (!on) {
-        impact = -impact;
-      }
-      node.applyActuatorImpact(sensorType, impact);
+    getImpactIndex(node.getSensorBank()).apply(on ? 1.0 : -1.0);
+  }
+
+  /**
+   * Get the precomputed impact of this actuator on a sensor bank, building it when needed.
+   *
+   * @param bank The sensors of the node this actuator is attached to
+   * @return The impact index for the bank
+   */
+  ActuatorImpactIndex getImpactIndex(SensorBank bank) {
+    if (impactIndex == null || !impactIndex.isValidFor(bank)) {
+      impactIndex = ActuatorImpactIndex.build(bank, impactTypeIds, impacts);
     }
+    return impactIndex;
   }
 
   @Override
@@ -171,6 +216,21 @@ public class Actuator {
     return nodeId;
   }
 
+  /**
+   * Set the actuator to the desired state without notifying the listener. Used by the node when
+   * it applies a batch of changes and notifies about all of them at once.
+   *
+   * @param on Turn on when true, turn off when false
+   * @return True if the state changed, false if the actuator already was in that state
+   */
+  boolean setSilently(boolean on) {
+    if (this.on == on) {
+      return false;
+    }
+    this.on = on;
+    return true;
+  }
+
   /**
    * Set the actuator to the desired state.
    *
@@ -40,6 +40,22 @@ public class ActuatorCollection implements Iterable<Actuator> {
     return actuators.get(id);
   }
 
+  /**
+   * Find the actuator of a given type with the lowest ID.
+   *
+   * @param type The type of the actuator, for example "fan"
+   * @return The actuator, or null if there is no actuator of that type
+   */
+  public Actuator findFirstOfType(String type) {
+    Actuator first = null;
+    for (Actuator actuator : actuators.values()) {
+      if (actuator.getType().equals(type) && (first == null || actuator.getId() < first.getId())) {
+        first = actuator;
+      }
+    }
+    return first;
+  }
+
   @Override
   public Iterator<Actuator> iterator() {
     return actuators.values().iterator();
@@ -0,0 +1,81 @@
+package no.ntnu.greenhouse;
+
+import java.util.Arrays;
+
+/**
+ * The precomputed impact of one actuator on the sensors of one node: the indices of the affected
+ * sensors in the sensor bank of the node, and the delta for each of them when the actuator is
+ * turned on. Toggling the actuator then touches only these entries.
+ */
+class ActuatorImpactIndex {
+  private final SensorBank bank;
+  // The number of sensors in the bank when the index was built; sensors are only ever appended
+  private final int bankSize;
+  private final int[] sensorIndices;
+  private final double[] deltas;
+
+  private ActuatorImpactIndex(SensorBank bank, int[] sensorIndices, double[] deltas) {
+    this.bank = bank;
+    this.bankSize = bank.size();
+    this.sensorIndices = sensorIndices;
+    this.deltas = deltas;
+  }
+
+  /**
+   * Build the impact index of an actuator on a sensor bank.
+   *
+   * @param bank          The sensors of the node
+   * @param impactTypeIds The sensor type IDs the actuator affects
+   * @param impacts       The delta per affected sensor type, when the actuator is on
+   * @return The index
+   */
+  static ActuatorImpactIndex build(SensorBank bank, int[] impactTypeIds, double[] impacts) {
+    int count = 0;
+    int[] sensorIndices = new int[bank.size()];
+    double[] deltas = new double[bank.size()];
+    for (int i = 0; i < bank.size(); ++i) {
+      int typeId = bank.getTypeId(i);
+      for (int j = 0; j < impactTypeIds.length; ++j) {
+        if (impactTypeIds[j] == typeId) {
+          sensorIndices[count] = i;
+          deltas[count] = impacts[j];
+          ++count;
+          break;
+        }
+      }
+    }
+    return new ActuatorImpactIndex(bank, Arrays.copyOf(sensorIndices, count),
+        Arrays.copyOf(deltas, count));
+  }
+
+  /**
+   * Check whether the index still describes the given bank.
+   *
+   * @param bank The sensors of the node the actuator is applied to
+   * @return True if the index can be used, false if it must be rebuilt
+   */
+  boolean isValidFor(SensorBank bank) {
+    return this.bank == bank && this.bankSize == bank.size();
+  }
+
+  /**
+   * Apply the impact to the sensors.
+   *
+   * @param sign 1 when the actuator is turned on, -1 when it is turned off
+   */
+  void apply(double sign) {
+    bank.applyImpact(sensorIndices, deltas, sign);
+  }
+
+  /**
+   * Add the impact to a combined impact vector, holding one delta per sensor of the bank.
+   *
+   * @param combined The combined deltas, indexed like the sensor bank
+   * @param sign     1 when the actuator is turned on, -1 when it is turned off
+   */
+  void accumulate(double[] combined, double sign) {
+    for (int i = 0; i < sensorIndices.length; ++i) {
+      combined[sensorIndices[i]] += sign * deltas[i];
+    }
+  }
+}
@@ -132,7 +132,7 @@ public class DeviceFactory {
    * @return a randomized value within the desired range
    */
   private static double randomize(double x, double d) {
-    final double zeroToDoubleD = Math.random() * 2 * d;
+    final double zeroToDoubleD = SimulationRandom.nextFactoryDouble() * 2 * d;
     final double plusMinusD = zeroToDoubleD - d;
     return x + plusMinusD;
   }
@@ -142,7 +142,7 @@ public class DeviceFactory {
    *
    * @return a Unique ID for sensor/actuator nodes
    */
-  private static int generateUniqueNodeId() {
+  static int generateUniqueNodeId() {
     return nextNodeId++;
   }
 
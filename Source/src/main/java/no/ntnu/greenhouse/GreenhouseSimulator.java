@@ -1,5 +1,11 @@
 package no.ntnu.greenhouse;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -15,6 +21,7 @@ public class GreenhouseSimulator {
 
   private final List<PeriodicSwitch> periodicSwitches = new LinkedList<>();
   private final boolean fake;
+  private ParallelStepper stepper;
 
   /**
    * Create a greenhouse simulator.
@@ -36,12 +43,52 @@ public class GreenhouseSimulator {
     Logger.info("Greenhouse initialized");
   }
 
+  /**
+   * Initialise the greenhouse from a scenario file, but don't start the simulation just yet.
+   * See ScenarioLoader for the format of the file.
+   *
+   * @param scenarioFile The scenario to load
+   * @throws IOException              If the file can't be read
+   * @throws IllegalArgumentException If the scenario is invalid
+   */
+  public void initialize(Path scenarioFile) throws IOException {
+    long startedAt = System.nanoTime();
+    int nodeCount;
+    try (BufferedReader reader = Files.newBufferedReader(scenarioFile, StandardCharsets.UTF_8)) {
+      nodeCount = new ScenarioLoader(this).load(reader);
+    }
+    Logger.info("Greenhouse initialized from " + scenarioFile + ": " + nodeCount + " nodes, "
+        + periodicSwitches.size() + " switches in " + (System.nanoTime() - startedAt) / 1_000_000
+        + " ms");
+  }
+
+  void addNode(SensorActuatorNode node) {
+    nodes.put(node.getId(), node);
+  }
+
+  SensorActuatorNode getNode(int nodeId) {
+    return nodes.get(nodeId);
+  }
+
+  void addPeriodicSwitch(PeriodicSwitch periodicSwitch) {
+    periodicSwitches.add(periodicSwitch);
+  }
+
   private void createNode(int temperature, int humidity, int windows, int fans, int heaters) {
     SensorActuatorNode node = DeviceFactory.createNode(
         temperature, humidity, windows, fans, heaters);
     nodes.put(node.getId(), node);
   }
 
+  /**
+   * Step all the nodes together in parallel ticks, instead of letting each node generate sensor
+   * values on its own schedule. The ticks have the same period as the sensing delay of the nodes.
+   * Must be called after initialize() and before start().
+   */
+  public void enableParallelStepping() {
+    stepper = new ParallelStepper(nodes.values(), SensorActuatorNode.SENSING_DELAY);
+  }
+
   /**
    * Start a simulation of a greenhouse - all the sensor and actuator nodes inside it.
    */
@@ -50,6 +97,9 @@ public class GreenhouseSimulator {
     for (SensorActuatorNode node : nodes.values()) {
       node.start();
     }
+    if (stepper != null) {
+      stepper.start();
+    }
     for (PeriodicSwitch periodicSwitch : periodicSwitches) {
       periodicSwitch.start();
     }
@@ -79,17 +129,19 @@ public class GreenhouseSimulator {
    */
   public void stop() {
     stopCommunication();
+    if (stepper != null) {
+      stepper.stop();
+    }
     for (SensorActuatorNode node : nodes.values()) {
       node.stop();
     }
   }
 
   private void stopCommunication() {
-    if (fake) {
-      for (PeriodicSwitch periodicSwitch : periodicSwitches) {
-        periodicSwitch.stop();
-      }
-    } else {
+    for (PeriodicSwitch periodicSwitch : periodicSwitches) {
+      periodicSwitch.stop();
+    }
+    if (!fake) {
       // TODO - here you stop the TCP/UDP communication
     }
   }
@@ -104,4 +156,13 @@ public class GreenhouseSimulator {
       node.addStateListener(listener);
     }
   }
+
+  /**
+   * Get all the nodes of the simulated greenhouse.
+   *
+   * @return The sensor/actuator nodes
+   */
+  public Collection<SensorActuatorNode> getNodes() {
+    return nodes.values();
+  }
 }
@@ -0,0 +1,19 @@
+package no.ntnu.greenhouse;
+
+/**
+ * The per-tick computation of a sensor bank: add noise to every value, round it to two decimals
+ * and clamp it to the range of the sensor.
+ * The noise of sensor i is (uniform[i] * 2 - 1) percent of the range [min, max] of the sensor.
+ */
+public interface NoiseKernel {
+  /**
+   * Apply noise, rounding and clamping to the first size values.
+   *
+   * @param values  The sensor values, updated in place
+   * @param uniform Random numbers in the range [0, 1), one per sensor
+   * @param mins    The minimum allowed value of each sensor
+   * @param maxs    The maximum allowed value of each sensor
+   * @param size    The number of sensors to update
+   */
+  void addNoise(double[] values, double[] uniform, double[] mins, double[] maxs, int size);
+}
@@ -0,0 +1,54 @@
+package no.ntnu.greenhouse;
+
+import no.ntnu.tools.Logger;
+
+/**
+ * Selects the noise kernel used by all the sensor banks.
+ * The Vector API kernel is only compiled by the {@code vector} Maven profile, and only used when
+ * the JVM is started with {@code --add-modules jdk.incubator.vector}. Otherwise, or when the
+ * system property {@code greenhouse.noiseKernel=scalar} is set, the scalar kernel is used.
+ */
+public class NoiseKernels {
+  private static final String VECTOR_KERNEL_CLASS = "no.ntnu.greenhouse.VectorNoiseKernel";
+  private static final NoiseKernel kernel = selectKernel();
+
+  private NoiseKernels() {
+  }
+
+  /**
+   * Get the kernel to use.
+   *
+   * @return The fastest kernel supported by this JVM
+   */
+  public static NoiseKernel get() {
+    return kernel;
+  }
+
+  private static NoiseKernel selectKernel() {
+    if (!"scalar".equalsIgnoreCase(System.getProperty("greenhouse.noiseKernel"))) {
+      NoiseKernel vectorKernel = vector();
+      if (vectorKernel != null) {
+        Logger.info("Using the Vector API noise kernel");
+        return vectorKernel;
+      }
+      Logger.info("Vector API not available, using the scalar noise kernel");
+    }
+    return new ScalarNoiseKernel();
+  }
+
+  /**
+   * Create the Vector API kernel.
+   *
+   * @return The kernel, or null if it is not compiled in or the module is not available
+   */
+  static NoiseKernel vector() {
+    try {
+      // Loaded by name: the class is missing without the vector profile, and referencing it
+      // directly fails when the module is not resolved
+      return (NoiseKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor()
+          .newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+}
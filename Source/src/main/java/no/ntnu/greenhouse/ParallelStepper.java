@@ -0,0 +1,130 @@
+package no.ntnu.greenhouse;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import no.ntnu.tools.Logger;
+
+/**
+ * Steps all the nodes of a simulation in lockstep, on a fork/join pool. Every tick has two
+ * phases: first the sensor values of all the nodes are advanced in parallel, split in ranges of
+ * nodes; then, once every node has been advanced, the listeners of all the nodes are notified.
+ * Listeners therefore always see the state of the whole greenhouse at the same tick.
+ * The listeners are notified one node at a time, in the order of the nodes, on the thread which
+ * steps the simulation, so a listener shared by several nodes is never called concurrently.
+ */
+public class ParallelStepper {
+  // Nodes per leaf task: big enough to amortize the task overhead, small enough to balance
+  private static final int NODES_PER_TASK = 256;
+
+  private final SensorActuatorNode[] nodes;
+  private final ForkJoinPool pool;
+  private final long tickPeriod;
+  private ScheduledTask tickTask;
+  private long tickCount = 0;
+
+  /**
+   * Create a stepper.
+   *
+   * @param nodes      The nodes to step
+   * @param tickPeriod Time between two ticks, in milliseconds
+   */
+  public ParallelStepper(Collection<SensorActuatorNode> nodes, long tickPeriod) {
+    this.nodes = nodes.toArray(new SensorActuatorNode[0]);
+    this.pool = ForkJoinPool.commonPool();
+    this.tickPeriod = tickPeriod;
+    for (SensorActuatorNode node : this.nodes) {
+      node.setSteppedExternally(true);
+    }
+  }
+
+  /**
+   * Start ticking periodically on the simulation scheduler.
+   */
+  public void start() {
+    if (tickTask == null) {
+      Logger.info("Stepping " + nodes.length + " nodes in parallel, parallelism "
+          + pool.getParallelism());
+      tickTask = SimulationScheduler.scheduleAtFixedRate(this::step, tickPeriod, tickPeriod);
+    }
+  }
+
+  /**
+   * Stop ticking.
+   */
+  public void stop() {
+    if (tickTask != null) {
+      tickTask.cancel();
+      tickTask = null;
+    }
+  }
+
+  /**
+   * Advance the simulation by one tick: advance all the running nodes, then notify the listeners.
+   * Returns when the whole tick is done.
+   */
+  public void step() {
+    pool.invoke(new StepTask(nodes, 0, nodes.length));
+    // The invoke above is the barrier: all the nodes are at the new tick now
+    for (SensorActuatorNode node : nodes) {
+      if (node.isRunning()) {
+        try {
+          node.publishSensorValues();
+        } catch (RuntimeException e) {
+          Logger.error("Failed to notify the listeners of node " + node.getId() + ": "
+              + e.getMessage());
+        }
+      }
+    }
+    ++tickCount;
+  }
+
+  /**
+   * Get the number of ticks done so far.
+   *
+   * @return The number of completed ticks
+   */
+  public long getTickCount() {
+    return tickCount;
+  }
+
+  /**
+   * Advances the sensor values of a range of nodes, splitting the range while it is big.
+   */
+  private static class StepTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final SensorActuatorNode[] nodes;
+    private final int from;
+    private final int to;
+
+    StepTask(SensorActuatorNode[] nodes, int from, int to) {
+      this.nodes = nodes;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= NODES_PER_TASK) {
+        for (int i = from; i < to; ++i) {
+          stepNode(nodes[i]);
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new StepTask(nodes, from, middle), new StepTask(nodes, middle, to));
+      }
+    }
+
+    private void stepNode(SensorActuatorNode node) {
+      if (!node.isRunning()) {
+        return;
+      }
+      try {
+        node.advanceSensorValues();
+      } catch (RuntimeException e) {
+        Logger.error("Failed to step node " + node.getId() + ": " + e.getMessage());
+      }
+    }
+  }
+}
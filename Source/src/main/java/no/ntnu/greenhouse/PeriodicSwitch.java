@@ -1,7 +1,5 @@
 package no.ntnu.greenhouse;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import no.ntnu.tools.Logger;
 
 /**
@@ -9,11 +7,11 @@ import no.ntnu.tools.Logger;
  * Note: this class is used only for debugging, you can remove it in your final project!
  */
 public class PeriodicSwitch {
-  private final Timer timer;
   private final SensorActuatorNode node;
   private final int actuatorId;
   private final long delay;
   private final String name;
+  private ScheduledTask task;
 
   /**
    * Create a periodic switcher.
@@ -28,31 +26,34 @@ public class PeriodicSwitch {
     this.actuatorId = actuatorId;
     this.delay = m;
     this.name = name;
-
-    timer = new Timer(name);
   }
 
   /**
    * Start the periodic actuator toggling.
    */
   public void start() {
-    timer.scheduleAtFixedRate(new TimerTask() {
-      @Override
-      public void run() {
-        Logger.info(" > " + name + ": toggle actuator " + actuatorId + " on node " + node.getId());
-        if (node.isRunning()) {
-          try {
-            node.toggleActuator(actuatorId);
-          } catch (Exception e) {
-            Logger.error("Failed to toggle an actuator: " + e.getMessage());
-            timer.cancel();
-          }
-        } else {
-          Logger.info("   Node stopped, stopping the switch");
-          timer.cancel();
-        }
+    task = SimulationScheduler.scheduleAtFixedRate(this::toggle, delay, delay);
+  }
+
+  private void toggle() {
+    Logger.info(" > " + name + ": toggle actuator " + actuatorId + " on node " + node.getId());
+    if (node.isRunning()) {
+      try {
+        node.toggleActuator(actuatorId);
+      } catch (Exception e) {
+        Logger.error("Failed to toggle an actuator: " + e.getMessage());
+        cancel();
       }
-    }, delay, delay);
+    } else {
+      Logger.info("   Node stopped, stopping the switch");
+      cancel();
+    }
+  }
+
+  private void cancel() {
+    if (task != null) {
+      task.cancel();
+    }
   }
 
   /**
@@ -60,6 +61,6 @@ public class PeriodicSwitch {
    */
   public void stop() {
     Logger.info("-- Stopping " + this.name);
-    timer.cancel();
+    cancel();
   }
 }
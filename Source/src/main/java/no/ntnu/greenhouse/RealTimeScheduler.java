@@ -0,0 +1,108 @@
+package no.ntnu.greenhouse;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.ntnu.tools.Logger;
+
+/**
+ * Runs the simulation tasks on the wall clock. All tasks share a fixed number of threads, so the
+ * number of simulated nodes is not limited by the number of threads the JVM can create.
+ * The threads are not daemons and keep the application alive while tasks are scheduled. An idle
+ * thread is kept for twice the longest period of the periodic tasks, so the threads running them
+ * are reused from one period to the next instead of being created again every period. The threads
+ * exit when no task has been due for that long, after the last task is cancelled or has run.
+ */
+public class RealTimeScheduler implements TaskScheduler {
+  private static final long IDLE_THREAD_TIMEOUT_MS = 1000;
+  private final ScheduledThreadPoolExecutor executor;
+  private long idleThreadTimeout = IDLE_THREAD_TIMEOUT_MS;
+
+  /**
+   * Create a scheduler with one thread per available processor.
+   */
+  public RealTimeScheduler() {
+    int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+    executor = new ScheduledThreadPoolExecutor(threadCount, new SimulationThreadFactory());
+    // Cancelled tasks of stopped nodes must not pile up in the queue
+    executor.setRemoveOnCancelPolicy(true);
+    executor.setKeepAliveTime(IDLE_THREAD_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay, long period) {
+    keepThreadsFor(period);
+    return handleOf(executor.scheduleAtFixedRate(guarded(task), initialDelay, period,
+        TimeUnit.MILLISECONDS));
+  }
+
+  @Override
+  public ScheduledTask schedule(Runnable task, long delay) {
+    return handleOf(executor.schedule(guarded(task), delay, TimeUnit.MILLISECONDS));
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  /**
+   * Get the number of threads the simulation is allowed to use.
+   *
+   * @return The maximum number of simulation threads
+   */
+  public int getThreadCount() {
+    return executor.getCorePoolSize();
+  }
+
+  /**
+   * Make sure that idle threads outlive a period, so that periodic tasks don't create a new thread
+   * every time they run.
+   */
+  private synchronized void keepThreadsFor(long period) {
+    long timeout = period > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : 2 * period;
+    if (timeout > idleThreadTimeout) {
+      idleThreadTimeout = timeout;
+      executor.setKeepAliveTime(timeout, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Get how long an idle simulation thread is kept before it exits.
+   *
+   * @return The idle time, in milliseconds
+   */
+  long getIdleThreadTimeout() {
+    return executor.getKeepAliveTime(TimeUnit.MILLISECONDS);
+  }
+
+  private static ScheduledTask handleOf(ScheduledFuture<?> future) {
+    return () -> future.cancel(false);
+  }
+
+  /**
+   * Wrap a task so that an exception is logged, instead of being swallowed by the executor and
+   * silently ending the periodic runs of the task.
+   */
+  private static Runnable guarded(Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        Logger.error("Simulation task failed: " + e.getMessage());
+      }
+    };
+  }
+
+  private static class SimulationThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      return new Thread(r, "simulation-" + threadNumber.getAndIncrement());
+    }
+  }
+}
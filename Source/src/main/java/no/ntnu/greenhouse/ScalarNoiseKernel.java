@@ -0,0 +1,30 @@
+package no.ntnu.greenhouse;
+
+/**
+ * Plain loop implementation of the noise kernel, works on every JVM.
+ */
+public class ScalarNoiseKernel implements NoiseKernel {
+  @Override
+  public void addNoise(double[] values, double[] uniform, double[] mins, double[] maxs,
+                       int size) {
+    addNoise(values, uniform, mins, maxs, 0, size);
+  }
+
+  /**
+   * Apply the kernel to the sensors from index from (inclusive) to index to (exclusive).
+   */
+  static void addNoise(double[] values, double[] uniform, double[] mins, double[] maxs,
+                       int from, int to) {
+    for (int i = from; i < to; ++i) {
+      double onePercentOfRange = (maxs[i] - mins[i]) / 100.0;
+      double noise = uniform[i] * onePercentOfRange * 2 - onePercentOfRange;
+      double rounded = Math.round((values[i] + noise) * 100.0) / 100.0;
+      if (rounded < mins[i]) {
+        rounded = mins[i];
+      } else if (rounded > maxs[i]) {
+        rounded = maxs[i];
+      }
+      values[i] = rounded;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+package no.ntnu.greenhouse;
+
+import static no.ntnu.tools.Parser.parseDoubleOrError;
+import static no.ntnu.tools.Parser.parseIntegerOrError;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads a greenhouse topology from a scenario file. The file is read line by line, so only the
+ * templates are kept in memory, never the whole file. Sensor and actuator templates are shared
+ * by all the nodes using them: a node stores only primitive copies of the sensor ranges in its
+ * sensor bank, and actuator clones share the impact arrays of their template.
+ *
+ * <p>Each line is one declaration, words separated by whitespace. Empty lines and lines
+ * starting with # are ignored. Templates must be declared before they are used.
+ * <pre>
+ * sensor   [name] [type] [min] [max] [initial] [spread] [unit]
+ * actuator [name] [type] [sensorType]=[impact] ...
+ * node     [count] [templateName]:[n] ...
+ * switch   [name] [nodeId] [actuatorType] [periodMs]
+ * </pre>
+ * A sensor starts at a random value within [initial - spread, initial + spread], where the
+ * initial value must lie within [min, max] and the spread must not be negative. A node line
+ * creates count identical nodes, with n devices of each listed template; the nodes get the next
+ * free node IDs, in file order. A switch toggles the first actuator of the given type on the
+ * node periodically; the period must be positive.
+ */
+class ScenarioLoader {
+  private final GreenhouseSimulator simulator;
+  private final Map<String, SensorTemplate> sensorTemplates = new HashMap<>();
+  private final Map<String, Actuator> actuatorTemplates = new HashMap<>();
+  private int lineNumber = 0;
+  private int nodeCount = 0;
+
+  /**
+   * Create a loader which adds the loaded nodes and switches to a simulator.
+   *
+   * @param simulator The simulator to populate
+   */
+  ScenarioLoader(GreenhouseSimulator simulator) {
+    this.simulator = simulator;
+  }
+
+  /**
+   * Load a scenario.
+   *
+   * @param reader The scenario, read line by line
+   * @return The number of nodes created
+   * @throws IOException              If reading fails
+   * @throws IllegalArgumentException If the scenario is invalid, the message tells the line
+   */
+  int load(BufferedReader reader) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      ++lineNumber;
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#")) {
+        try {
+          parseLine(line.split("\\s+"));
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Scenario line " + lineNumber + ": "
+              + e.getMessage());
+        }
+      }
+    }
+    return nodeCount;
+  }
+
+  private void parseLine(String[] words) {
+    switch (words[0]) {
+      case "sensor":
+        parseSensorTemplate(words);
+        break;
+      case "actuator":
+        parseActuatorTemplate(words);
+        break;
+      case "node":
+        parseNodes(words);
+        break;
+      case "switch":
+        parseSwitch(words);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown declaration: " + words[0]);
+    }
+  }
+
+  private void parseSensorTemplate(String[] words) {
+    expectWordCount(words, 8);
+    double min = parseDoubleOrError(words[3], "Invalid minimum: " + words[3]);
+    double max = parseDoubleOrError(words[4], "Invalid maximum: " + words[4]);
+    double initial = parseDoubleOrError(words[5], "Invalid initial value: " + words[5]);
+    double spread = parseDoubleOrError(words[6], "Invalid spread: " + words[6]);
+    if (min > max) {
+      throw new IllegalArgumentException("Minimum is larger than maximum");
+    }
+    if (initial < min || initial > max) {
+      throw new IllegalArgumentException("Initial value " + words[5] + " is outside ["
+          + words[3] + ", " + words[4] + "]");
+    }
+    if (spread < 0) {
+      throw new IllegalArgumentException("Negative spread: " + words[6]);
+    }
+    Sensor sensor = new Sensor(words[2], min, max, initial, words[7]);
+    addTemplate(words[1], sensorTemplates, new SensorTemplate(sensor, spread));
+  }
+
+  private void parseActuatorTemplate(String[] words) {
+    if (words.length < 3) {
+      throw new IllegalArgumentException(
+          "Expected: actuator [name] [type] [sensorType]=[impact] ...");
+    }
+    Actuator actuator = new Actuator(0, words[2], 0);
+    for (int i = 3; i < words.length; ++i) {
+      String[] impact = words[i].split("=");
+      if (impact.length != 2) {
+        throw new IllegalArgumentException("Invalid impact: " + words[i]);
+      }
+      double diffWhenActive = parseDoubleOrError(impact[1], "Invalid impact: " + words[i]);
+      actuator.setImpact(impact[0], diffWhenActive);
+    }
+    addTemplate(words[1], actuatorTemplates, actuator);
+  }
+
+  private <T> void addTemplate(String name, Map<String, T> templates, T template) {
+    if (sensorTemplates.containsKey(name) || actuatorTemplates.containsKey(name)) {
+      throw new IllegalArgumentException("Template declared twice: " + name);
+    }
+    templates.put(name, template);
+  }
+
+  private void parseNodes(String[] words) {
+    if (words.length < 2) {
+      throw new IllegalArgumentException("Expected: node [count] [templateName]:[n] ...");
+    }
+    int count = parseIntegerOrError(words[1], "Invalid node count: " + words[1]);
+    if (count < 0) {
+      throw new IllegalArgumentException("Invalid node count: " + words[1]);
+    }
+    String[] names = new String[words.length - 2];
+    int[] deviceCounts = new int[names.length];
+    for (int i = 0; i < names.length; ++i) {
+      String[] device = words[i + 2].split(":");
+      if (device.length != 2) {
+        throw new IllegalArgumentException("Invalid device: " + words[i + 2]);
+      }
+      names[i] = device[0];
+      deviceCounts[i] = parseIntegerOrError(device[1], "Invalid device count: " + words[i + 2]);
+      if (deviceCounts[i] < 0) {
+        throw new IllegalArgumentException("Invalid device count: " + words[i + 2]);
+      }
+      if (!sensorTemplates.containsKey(names[i]) && !actuatorTemplates.containsKey(names[i])) {
+        throw new IllegalArgumentException("Unknown template: " + names[i]);
+      }
+    }
+    for (int n = 0; n < count; ++n) {
+      SensorActuatorNode node = new SensorActuatorNode(DeviceFactory.generateUniqueNodeId());
+      for (int i = 0; i < names.length; ++i) {
+        SensorTemplate sensorTemplate = sensorTemplates.get(names[i]);
+        if (sensorTemplate != null) {
+          node.addSensors(sensorTemplate.sensor, deviceCounts[i], sensorTemplate.spread);
+        } else {
+          Actuator actuatorTemplate = actuatorTemplates.get(names[i]);
+          for (int k = 0; k < deviceCounts[i]; ++k) {
+            node.addActuator(actuatorTemplate.createClone(node.getId()));
+          }
+        }
+      }
+      simulator.addNode(node);
+      ++nodeCount;
+    }
+  }
+
+  private void parseSwitch(String[] words) {
+    expectWordCount(words, 5);
+    int nodeId = parseIntegerOrError(words[2], "Invalid node ID: " + words[2]);
+    long period = parseIntegerOrError(words[4], "Invalid period: " + words[4]);
+    if (period <= 0) {
+      throw new IllegalArgumentException("The period must be positive: " + words[4]);
+    }
+    SensorActuatorNode node = simulator.getNode(nodeId);
+    if (node == null) {
+      throw new IllegalArgumentException("Unknown node: " + nodeId);
+    }
+    Actuator actuator = node.getActuators().findFirstOfType(words[3]);
+    if (actuator == null) {
+      throw new IllegalArgumentException("No " + words[3] + " on node " + nodeId);
+    }
+    simulator.addPeriodicSwitch(new PeriodicSwitch(words[1], node, actuator.getId(), period));
+  }
+
+  private static void expectWordCount(String[] words, int count) {
+    if (words.length != count) {
+      throw new IllegalArgumentException("Expected " + (count - 1) + " values after "
+          + words[0] + ", got " + (words.length - 1));
+    }
+  }
+
+  /**
+   * A sensor template with the spread of the initial values.
+   */
+  private static class SensorTemplate {
+    private final Sensor sensor;
+    private final double spread;
+
+    SensorTemplate(Sensor sensor, double spread) {
+      this.sensor = sensor;
+      this.spread = spread;
+    }
+  }
+}
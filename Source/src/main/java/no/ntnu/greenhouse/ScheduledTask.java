@@ -0,0 +1,11 @@
+package no.ntnu.greenhouse;
+
+/**
+ * A handle to a task scheduled on a TaskScheduler.
+ */
+public interface ScheduledTask {
+  /**
+   * Cancel the task. A run which has already started is completed, but no new runs are started.
+   */
+  void cancel();
+}
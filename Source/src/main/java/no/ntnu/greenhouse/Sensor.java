@@ -2,11 +2,13 @@ package no.ntnu.greenhouse;
 
 /**
  * A sensor which can sense the environment in a specific way.
+ * The state of the sensor lives in a slot of a SensorBank, this object is only a view on it,
+ * reading the latest snapshot published by the bank.
  */
 public class Sensor {
+  private final SensorBank bank;
+  private final int index;
   private final SensorReading reading;
-  private final double min;
-  private final double max;
 
   /**
    * Create a sensor.
@@ -18,14 +20,26 @@ public class Sensor {
    * @param unit    The measurement unit. Examples: "%", "C", "lux"
    */
   public Sensor(String type, double min, double max, double current, String unit) {
-    this.reading = new SensorReading(type, current, unit);
-    this.min = min;
-    this.max = max;
-    ensureValueBoundsAndPrecision(current);
+    this.bank = new SensorBank();
+    this.index = bank.add(TypeRegistry.sensorTypeId(type), min, max, current,
+        TypeRegistry.unitId(unit));
+    this.reading = new BankSensorReading(bank, index);
+  }
+
+  /**
+   * Create a view on a sensor stored in a bank.
+   *
+   * @param bank  The bank holding the sensor
+   * @param index The index of the sensor in the bank
+   */
+  Sensor(SensorBank bank, int index) {
+    this.bank = bank;
+    this.index = index;
+    this.reading = new BankSensorReading(bank, index);
   }
 
   public String getType() {
-    return reading.getType();
+    return bank.getSnapshot().getType(index);
   }
 
   /**
@@ -43,37 +57,26 @@ public class Sensor {
    * @return A clone of this sensor, where all the fields are the same
    */
   public Sensor createClone() {
-    return new Sensor(this.reading.getType(), this.min, this.max,
-        this.reading.getValue(), this.reading.getUnit());
+    SensorBank cloneBank = new SensorBank();
+    return new Sensor(cloneBank, copyTo(cloneBank));
   }
 
   /**
-   * Add a random noise to the sensors to simulate realistic values.
+   * Copy this sensor into a bank.
+   *
+   * @param target The bank to copy the sensor into
+   * @return The index of the copy in the target bank
    */
-  public void addRandomNoise() {
-    double newValue = this.reading.getValue() + generateRealisticNoise();
-    ensureValueBoundsAndPrecision(newValue);
+  int copyTo(SensorBank target) {
+    return target.add(bank.getTypeId(index), bank.getMin(index), bank.getMax(index),
+        bank.getValue(index), bank.getUnitId(index));
   }
 
-  private void ensureValueBoundsAndPrecision(double newValue) {
-    newValue = roundToTwoDecimals(newValue);
-    if (newValue < min) {
-      newValue = min;
-    } else if (newValue > max) {
-      newValue = max;
-    }
-    reading.setValue(newValue);
-  }
-
-  private double roundToTwoDecimals(double value) {
-    return Math.round(value * 100.0) / 100.0;
-  }
-
-  private double generateRealisticNoise() {
-    final double wholeRange = max - min;
-    final double onePercentOfRange = wholeRange / 100.0;
-    final double zeroToTwoPercent = Math.random() * onePercentOfRange * 2;
-    return zeroToTwoPercent - onePercentOfRange; // In the range [-1%..+1%]
+  /**
+   * Add a random noise to the sensors to simulate realistic values.
+   */
+  public void addRandomNoise() {
+    bank.addRandomNoise(index);
   }
 
   /**
@@ -82,12 +85,46 @@ public class Sensor {
    * @param impact The impact to apply - the delta for the value
    */
   public void applyImpact(double impact) {
-    double newValue = this.reading.getValue() + impact;
-    ensureValueBoundsAndPrecision(newValue);
+    bank.applyImpact(index, impact);
   }
 
   @Override
   public String toString() {
     return reading.toString();
   }
+
+  /**
+   * A sensor reading which reads the latest published value of the bank. Safe to read from any
+   * thread; read SensorBank.getSnapshot() directly to get several values from the same moment.
+   */
+  private static class BankSensorReading extends SensorReading {
+    private final SensorBank bank;
+    private final int index;
+
+    BankSensorReading(SensorBank bank, int index) {
+      super(null, 0, null);
+      this.bank = bank;
+      this.index = index;
+    }
+
+    @Override
+    public String getType() {
+      return bank.getSnapshot().getType(index);
+    }
+
+    @Override
+    public double getValue() {
+      return bank.getSnapshot().getValue(index);
+    }
+
+    @Override
+    public String getUnit() {
+      return bank.getSnapshot().getUnit(index);
+    }
+
+    @Override
+    public void setValue(double newValue) {
+      bank.setValue(index, newValue);
+    }
+  }
 }
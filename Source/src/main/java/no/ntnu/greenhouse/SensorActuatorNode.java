@@ -1,10 +1,12 @@
 package no.ntnu.greenhouse;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Map;
+import java.util.SplittableRandom;
 import no.ntnu.listeners.common.ActuatorListener;
 import no.ntnu.listeners.common.CommunicationChannelListener;
 import no.ntnu.listeners.greenhouse.NodeStateListener;
@@ -16,20 +18,26 @@ import no.ntnu.tools.Logger;
  */
 public class SensorActuatorNode implements ActuatorListener, CommunicationChannelListener {
   // How often to generate new sensor values, in seconds.
-  private static final long SENSING_DELAY = 5000;
+  static final long SENSING_DELAY = 5000;
   private final int id;
 
-  private final List<Sensor> sensors = new LinkedList<>();
+  private final SplittableRandom random;
+  private final SensorBank sensorBank;
+  // Views on the slots of the sensor bank
+  private final List<Sensor> sensors = new ArrayList<>();
+  // Indices of the sensors changed since the previous notification, reused for every notification
+  private final BitSet changedSensors = new BitSet();
   private final ActuatorCollection actuators = new ActuatorCollection();
 
   private final List<SensorListener> sensorListeners = new LinkedList<>();
   private final List<ActuatorListener> actuatorListeners = new LinkedList<>();
   private final List<NodeStateListener> stateListeners = new LinkedList<>();
 
-  Timer sensorReadingTimer;
+  private ScheduledTask sensorReadingTask;
 
-  private boolean running;
-  private final Random random = new Random();
+  private volatile boolean running;
+  // When true, a ParallelStepper advances this node instead of its own periodic task
+  private boolean steppedExternally = false;
 
   /**
    * Create a sensor/actuator node. Note: the node itself does not check whether the ID is unique.
@@ -40,6 +48,8 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
   public SensorActuatorNode(int id) {
     this.id = id;
     this.running = false;
+    this.random = SimulationRandom.forNode(id);
+    this.sensorBank = new SensorBank(random);
   }
 
   /**
@@ -72,7 +82,23 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
     }
 
     for (int i = 0; i < n; ++i) {
-      sensors.add(template.createClone());
+      sensors.add(new Sensor(sensorBank, template.copyTo(sensorBank)));
+    }
+  }
+
+  /**
+   * Add sensors to the node, each starting at a random value around the value of the template.
+   *
+   * @param template The template to use for the sensors, it is not modified
+   * @param n        The number of sensors to add to the node
+   * @param spread   The start values are within [value - spread, value + spread] of the template
+   */
+  public void addSensors(Sensor template, int n, double spread) {
+    int first = sensorBank.size();
+    addSensors(template, n);
+    for (int i = first; i < sensorBank.size(); ++i) {
+      double offset = spread > 0 ? random.nextDouble(-spread, spread) : 0;
+      sensorBank.setValue(i, sensorBank.getValue(i) + offset);
     }
   }
 
@@ -126,7 +152,9 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
    */
   public void start() {
     if (!running) {
-      startPeriodicSensorReading();
+      if (!steppedExternally) {
+        startPeriodicSensorReading();
+      }
       running = true;
       notifyStateChanges(true);
     }
@@ -154,20 +182,16 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
   }
 
   private void startPeriodicSensorReading() {
-    sensorReadingTimer = new Timer();
-    TimerTask newSensorValueTask = new TimerTask() {
-      @Override
-      public void run() {
-        generateNewSensorValues();
-      }
-    };
+    // A random phase offset spreads the readings of all the nodes over the sensing period
     long randomStartDelay = random.nextLong(SENSING_DELAY);
-    sensorReadingTimer.scheduleAtFixedRate(newSensorValueTask, randomStartDelay, SENSING_DELAY);
+    sensorReadingTask = SimulationScheduler.scheduleAtFixedRate(
+        this::generateNewSensorValues, randomStartDelay, SENSING_DELAY);
   }
 
   private void stopPeriodicSensorReading() {
-    if (sensorReadingTimer != null) {
-      sensorReadingTimer.cancel();
+    if (sensorReadingTask != null) {
+      sensorReadingTask.cancel();
+      sensorReadingTask = null;
     }
   }
 
@@ -181,10 +205,33 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
     debugPrint();
   }
 
+  /**
+   * Generate new sensor values without notifying the listeners. Used by the ParallelStepper, which
+   * notifies the listeners of all the nodes once every node has been advanced.
+   */
+  void advanceSensorValues() {
+    addRandomNoiseToSensors();
+  }
+
+  /**
+   * Notify all the listeners about the current sensor values. Used by the ParallelStepper.
+   */
+  void publishSensorValues() {
+    notifySensorChanges();
+  }
+
+  /**
+   * Let a ParallelStepper drive this node, instead of its own periodic sensor reading task.
+   * Must be called before the node is started.
+   *
+   * @param stepped True when the node is stepped externally
+   */
+  void setSteppedExternally(boolean stepped) {
+    this.steppedExternally = stepped;
+  }
+
   private void addRandomNoiseToSensors() {
-    for (Sensor sensor : sensors) {
-      sensor.addRandomNoise();
-    }
+    sensorBank.addRandomNoise();
   }
 
   private void debugPrint() {
@@ -215,8 +262,11 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
   }
 
   private void notifySensorChanges() {
-    for (SensorListener listener : sensorListeners) {
-      listener.sensorsUpdated(sensors);
+    synchronized (changedSensors) {
+      sensorBank.collectChanges(changedSensors);
+      for (SensorListener listener : sensorListeners) {
+        listener.sensorsChanged(sensors, changedSensors);
+      }
     }
   }
 
@@ -226,6 +276,37 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
     notifyActuatorChange(actuator);
   }
 
+  /**
+   * Set several actuators of this node in one batch. The states are changed first, then the
+   * combined impact of all the changes is applied to the sensors in one pass, and the listeners
+   * get one actuatorsUpdated event listing the changed actuators.
+   * Unknown actuator IDs are ignored, as in {@link #setActuator(int, boolean)}.
+   *
+   * @param states The desired state (on = true) per actuator ID
+   */
+  public void setActuators(Map<Integer, Boolean> states) {
+    List<Actuator> changed = new ArrayList<>(states.size());
+    double[] combinedImpact = new double[sensorBank.size()];
+    for (Map.Entry<Integer, Boolean> state : states.entrySet()) {
+      Actuator actuator = getActuator(state.getKey());
+      if (actuator != null && actuator.setSilently(state.getValue())) {
+        actuator.getImpactIndex(sensorBank).accumulate(combinedImpact, actuator.isOn() ? 1 : -1);
+        changed.add(actuator);
+      }
+    }
+    if (!changed.isEmpty()) {
+      sensorBank.applyImpact(combinedImpact);
+      notifyActuatorChanges(changed);
+    }
+  }
+
+  private void notifyActuatorChanges(List<Actuator> changed) {
+    Logger.info(" => " + changed.size() + " actuators changed on node " + id);
+    for (ActuatorListener listener : actuatorListeners) {
+      listener.actuatorsUpdated(id, changed);
+    }
+  }
+
   private void notifyActuatorChange(Actuator actuator) {
     String onOff = actuator.isOn() ? "ON" : "off";
     Logger.info(" => " + actuator.getType() + " on node " + id + " " + onOff);
@@ -259,10 +340,9 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
    * @param impact     The impact to apply
    */
   public void applyActuatorImpact(String sensorType, double impact) {
-    for (Sensor sensor : sensors) {
-      if (sensor.getType().equals(sensorType)) {
-        sensor.applyImpact(impact);
-      }
+    int typeId = TypeRegistry.findSensorTypeId(sensorType);
+    if (typeId >= 0) {
+      sensorBank.applyTypeImpact(typeId, impact);
     }
   }
 
@@ -275,6 +355,15 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
     return sensors;
   }
 
+  /**
+   * Get the columnar storage of the sensors of this node.
+   *
+   * @return The sensor bank, in the same order as {@link #getSensors()}
+   */
+  public SensorBank getSensorBank() {
+    return sensorBank;
+  }
+
   /**
    * Get all the actuators available on the node.
    *
@@ -309,8 +398,10 @@ public class SensorActuatorNode implements ActuatorListener, CommunicationChanne
    * @param on Whether the actuators should be on (true) or off (false)
    */
   public void setAllActuators(boolean on) {
+    Map<Integer, Boolean> states = new HashMap<>();
     for (Actuator actuator : actuators) {
-      actuator.set(on);
+      states.put(actuator.getId(), on);
     }
+    setActuators(states);
   }
 }
@@ -0,0 +1,277 @@
+package no.ntnu.greenhouse;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Columnar storage for the sensors of one node. Every sensor is an index into parallel primitive
+ * arrays, so noise and actuator impacts are applied in tight loops over contiguous memory instead
+ * of walking a list of sensor objects.
+ * Sensor and SensorReading objects handed out by the node are views on a slot of a bank.
+ *
+ * <p>The arrays are only touched by writers, which take the lock of the bank. Readers on other
+ * threads read the latest published SensorSnapshot instead, through a volatile field, so they
+ * never see a half-updated set of values. The bulk noise step publishes when the node collects
+ * its changes for the listeners. The other updates only mark the snapshot as stale, and the
+ * next reader publishes it, so a burst of updates, like building a node, copies the values once.
+ */
+public class SensorBank {
+  private static final int INITIAL_CAPACITY = 4;
+
+  private final SplittableRandom random;
+
+  private double[] values = new double[INITIAL_CAPACITY];
+  private double[] mins = new double[INITIAL_CAPACITY];
+  private double[] maxs = new double[INITIAL_CAPACITY];
+  private int[] typeIds = new int[INITIAL_CAPACITY];
+  private int[] unitIds = new int[INITIAL_CAPACITY];
+  // The values as last reported by collectChanges(), NaN for sensors never reported
+  private double[] reported = new double[INITIAL_CAPACITY];
+  // Scratch space for the random numbers of one noise step
+  private double[] uniform = new double[INITIAL_CAPACITY];
+  private int size = 0;
+  // Version of the current values; equal to the snapshot version when they are published
+  private long version = 0;
+  // Set by the updates which the next reader should see, cleared when a snapshot is published
+  private volatile boolean stale = false;
+  private volatile SensorSnapshot snapshot = new SensorSnapshot(0, 0, new double[0], typeIds,
+      unitIds);
+
+  /**
+   * Create a sensor bank with its own random stream, split from the simulation seed.
+   */
+  public SensorBank() {
+    this(SimulationRandom.split());
+  }
+
+  /**
+   * Create a sensor bank.
+   *
+   * @param random The random stream used for the noise, must not be shared with other threads
+   */
+  public SensorBank(SplittableRandom random) {
+    this.random = random;
+  }
+
+  /**
+   * Add a sensor to the bank.
+   *
+   * @param typeId  ID of the sensor type, see TypeRegistry
+   * @param min     Minimum allowed value
+   * @param max     Maximum allowed value
+   * @param current The current (starting) value, will be rounded and clamped to [min, max]
+   * @param unitId  ID of the measurement unit, see TypeRegistry
+   * @return The index of the new sensor in the bank
+   */
+  public synchronized int add(int typeId, double min, double max, double current, int unitId) {
+    if (size == values.length) {
+      grow();
+    }
+    int index = size++;
+    typeIds[index] = typeId;
+    unitIds[index] = unitId;
+    mins[index] = min;
+    maxs[index] = max;
+    values[index] = boundedValue(current, min, max);
+    reported[index] = Double.NaN;
+    markStale();
+    return index;
+  }
+
+  private void grow() {
+    int capacity = values.length * 2;
+    values = Arrays.copyOf(values, capacity);
+    mins = Arrays.copyOf(mins, capacity);
+    maxs = Arrays.copyOf(maxs, capacity);
+    typeIds = Arrays.copyOf(typeIds, capacity);
+    unitIds = Arrays.copyOf(unitIds, capacity);
+    reported = Arrays.copyOf(reported, capacity);
+    uniform = new double[capacity];
+  }
+
+  /**
+   * Get the number of sensors in the bank.
+   *
+   * @return The number of sensors
+   */
+  public int size() {
+    return size;
+  }
+
+  // The getters below read the working values, for use by the thread updating the bank.
+  // Other threads read the published values through getSnapshot().
+
+  public double getValue(int index) {
+    return values[index];
+  }
+
+  public double getMin(int index) {
+    return mins[index];
+  }
+
+  public double getMax(int index) {
+    return maxs[index];
+  }
+
+  public int getTypeId(int index) {
+    return typeIds[index];
+  }
+
+  public int getUnitId(int index) {
+    return unitIds[index];
+  }
+
+  /**
+   * Set the value of one sensor.
+   *
+   * @param index    Index of the sensor
+   * @param newValue The new value, will be rounded and clamped to the range of the sensor
+   */
+  public synchronized void setValue(int index, double newValue) {
+    values[index] = boundedValue(newValue, mins[index], maxs[index]);
+    markStale();
+  }
+
+  /**
+   * Add a random noise in the range [-1%..+1%] of the value range to every sensor.
+   */
+  public synchronized void addRandomNoise() {
+    for (int i = 0; i < size; ++i) {
+      uniform[i] = random.nextDouble();
+    }
+    NoiseKernels.get().addNoise(values, uniform, mins, maxs, size);
+    ++version;
+  }
+
+  /**
+   * Add a random noise in the range [-1%..+1%] of the value range to one sensor.
+   *
+   * @param index Index of the sensor
+   */
+  public synchronized void addRandomNoise(int index) {
+    double onePercentOfRange = (maxs[index] - mins[index]) / 100.0;
+    double noise = random.nextDouble() * onePercentOfRange * 2
+        - onePercentOfRange;
+    setValue(index, values[index] + noise);
+  }
+
+  /**
+   * Apply an external impact (from an actuator) to one sensor. The value is read and written
+   * under the lock, so concurrent impacts on the same sensor are not lost.
+   *
+   * @param index Index of the sensor
+   * @param delta The delta for the value
+   */
+  public synchronized void applyImpact(int index, double delta) {
+    values[index] = boundedValue(values[index] + delta, mins[index], maxs[index]);
+    markStale();
+  }
+
+  /**
+   * Apply an external impact (from an actuator) to all the sensors of a given type.
+   *
+   * @param typeId ID of the affected sensor type
+   * @param impact The delta for the values
+   */
+  public synchronized void applyTypeImpact(int typeId, double impact) {
+    for (int i = 0; i < size; ++i) {
+      if (typeIds[i] == typeId) {
+        values[i] = boundedValue(values[i] + impact, mins[i], maxs[i]);
+      }
+    }
+    markStale();
+  }
+
+  /**
+   * Apply precomputed impacts to a set of sensors.
+   *
+   * @param indices The indices of the affected sensors
+   * @param deltas  The delta for each affected sensor
+   * @param sign    The factor for all the deltas: 1 to apply them, -1 to revert them
+   */
+  public synchronized void applyImpact(int[] indices, double[] deltas, double sign) {
+    for (int i = 0; i < indices.length; ++i) {
+      int index = indices[i];
+      values[index] = boundedValue(values[index] + sign * deltas[i], mins[index], maxs[index]);
+    }
+    markStale();
+  }
+
+  /**
+   * Apply a combined impact vector, holding one delta per sensor, in one pass.
+   *
+   * @param deltas The delta for every sensor of the bank, indexed like the bank
+   */
+  public synchronized void applyImpact(double[] deltas) {
+    for (int i = 0; i < size; ++i) {
+      if (deltas[i] != 0) {
+        values[i] = boundedValue(values[i] + deltas[i], mins[i], maxs[i]);
+      }
+    }
+    markStale();
+  }
+
+  /**
+   * Find the sensors whose value has changed since the previous call, and remember the current
+   * values for the next call. A new sensor counts as changed the first time. Publishes a new
+   * snapshot when anything has changed, so the listeners notified about the changes can read
+   * them from the snapshot.
+   *
+   * @param changed Cleared, then receives the indices of the changed sensors
+   */
+  public synchronized void collectChanges(BitSet changed) {
+    changed.clear();
+    for (int i = 0; i < size; ++i) {
+      if (Double.compare(values[i], reported[i]) != 0) {
+        changed.set(i);
+        reported[i] = values[i];
+      }
+    }
+    if (!changed.isEmpty() && snapshot.getVersion() != version) {
+      publish();
+    }
+  }
+
+  /**
+   * Get the latest published values, publishing the pending updates first. Lock-free unless
+   * there are pending updates, may be called from any thread.
+   *
+   * @return The latest snapshot, which never changes
+   */
+  public SensorSnapshot getSnapshot() {
+    if (stale) {
+      synchronized (this) {
+        if (stale) {
+          publish();
+        }
+      }
+    }
+    return snapshot;
+  }
+
+  private void markStale() {
+    ++version;
+    stale = true;
+  }
+
+  /**
+   * Publish a snapshot of the current values. The values are copied once per publication,
+   * however many readers there are.
+   */
+  private void publish() {
+    ++version;
+    snapshot = new SensorSnapshot(version, size, Arrays.copyOf(values, size), typeIds, unitIds);
+    stale = false;
+  }
+
+  private static double boundedValue(double value, double min, double max) {
+    double rounded = Math.round(value * 100.0) / 100.0;
+    if (rounded < min) {
+      return min;
+    } else if (rounded > max) {
+      return max;
+    }
+    return rounded;
+  }
+}
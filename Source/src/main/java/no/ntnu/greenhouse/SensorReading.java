@@ -41,7 +41,7 @@ public class SensorReading {
 
   @Override
   public String toString() {
-    return "{ type=" + type + ", value=" + value + ", unit=" + unit + " }";
+    return "{ type=" + getType() + ", value=" + getValue() + ", unit=" + getUnit() + " }";
   }
 
   /**
@@ -50,7 +50,7 @@ public class SensorReading {
    * @return The sensor reading and the unit
    */
   public String getFormatted() {
-    return value + unit;
+    return getValue() + getUnit();
   }
 
   @Override
@@ -58,17 +58,17 @@ public class SensorReading {
     if (this == o) {
       return true;
     }
-    if (o == null || getClass() != o.getClass()) {
+    if (!(o instanceof SensorReading)) {
       return false;
     }
     SensorReading that = (SensorReading) o;
-    return Double.compare(value, that.value) == 0
-        && Objects.equals(type, that.type)
-        && Objects.equals(unit, that.unit);
+    return Double.compare(getValue(), that.getValue()) == 0
+        && Objects.equals(getType(), that.getType())
+        && Objects.equals(getUnit(), that.getUnit());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(type, value, unit);
+    return Objects.hash(getType(), getValue(), getUnit());
   }
 }
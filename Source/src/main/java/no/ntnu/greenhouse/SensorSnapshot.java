@@ -0,0 +1,63 @@
+package no.ntnu.greenhouse;
+
+/**
+ * An immutable, versioned copy of the sensor values of one node, published by its SensorBank.
+ * Readers on other threads (the GUI, network publishers) get a consistent view of all the
+ * sensors at one point in time, without locking and without a copy per reader.
+ */
+public class SensorSnapshot {
+  private final long version;
+  private final int size;
+  private final double[] values;
+  // Shared with the bank: the entries below size are never changed once written
+  private final int[] typeIds;
+  private final int[] unitIds;
+
+  SensorSnapshot(long version, int size, double[] values, int[] typeIds, int[] unitIds) {
+    this.version = version;
+    this.size = size;
+    this.values = values;
+    this.typeIds = typeIds;
+    this.unitIds = unitIds;
+  }
+
+  /**
+   * Get the version of the snapshot. Every snapshot published by a bank has a higher version than
+   * the previous one.
+   *
+   * @return The version
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Get the number of sensors in the snapshot.
+   *
+   * @return The number of sensors
+   */
+  public int size() {
+    return size;
+  }
+
+  public double getValue(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  public String getType(int index) {
+    checkIndex(index);
+    return TypeRegistry.sensorTypeName(typeIds[index]);
+  }
+
+  public String getUnit(int index) {
+    checkIndex(index);
+    return TypeRegistry.unitName(unitIds[index]);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Sensor " + index + " not in snapshot of " + size);
+    }
+  }
+}
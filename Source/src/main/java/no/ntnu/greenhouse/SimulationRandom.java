@@ -0,0 +1,80 @@
+package no.ntnu.greenhouse;
+
+import java.util.SplittableRandom;
+import no.ntnu.tools.Logger;
+
+/**
+ * The source of all the randomness in the simulation. Every node gets its own random stream,
+ * derived from the simulation seed and the node ID, so nodes never contend on a shared generator,
+ * and a simulation started with the same seed generates the same sequence of values per node.
+ * The seed is taken from the system property {@code greenhouse.seed} when it is set, otherwise it
+ * is random. Either way it is logged, so that a run can be repeated.
+ */
+public class SimulationRandom {
+  // The increment SplittableRandom uses between seeds, spreads the node streams apart
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private static long seed;
+  private static SplittableRandom factoryStream;
+
+  static {
+    String seedProperty = System.getProperty("greenhouse.seed");
+    setSeed(seedProperty != null ? Long.parseLong(seedProperty) : new SplittableRandom().nextLong());
+  }
+
+  private SimulationRandom() {
+  }
+
+  /**
+   * Set the simulation seed. Only affects the random streams created after the call, so this
+   * must be called before the nodes are created.
+   *
+   * @param newSeed The seed of the simulation
+   */
+  public static synchronized void setSeed(long newSeed) {
+    seed = newSeed;
+    factoryStream = new SplittableRandom(mix(newSeed));
+    Logger.info("Simulation seed: " + newSeed);
+  }
+
+  public static synchronized long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Create the random stream of a node.
+   *
+   * @param nodeId The ID of the node
+   * @return A generator which must only be used by that node
+   */
+  public static synchronized SplittableRandom forNode(int nodeId) {
+    return new SplittableRandom(mix(seed + (nodeId + 1) * GOLDEN_GAMMA));
+  }
+
+  /**
+   * Create an independent random stream, split from the stream of the device factory.
+   *
+   * @return A new generator, for use by a single thread
+   */
+  public static synchronized SplittableRandom split() {
+    return factoryStream.split();
+  }
+
+  /**
+   * Get a random number from the stream used to set up devices (initial values etc).
+   *
+   * @return A random number in the range [0, 1)
+   */
+  static synchronized double nextFactoryDouble() {
+    return factoryStream.nextDouble();
+  }
+
+  /**
+   * The 64-bit finalizer of MurmurHash3, makes seeds which differ in few bits independent.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return z ^ (z >>> 33);
+  }
+}
@@ -0,0 +1,69 @@
+package no.ntnu.greenhouse;
+
+/**
+ * The scheduler which drives the whole simulation: sensor readings of all the nodes, periodic
+ * switches and fake events. By default, the tasks run on the wall clock, on a RealTimeScheduler.
+ * Calling {@link #useVirtualClock(long)} before the simulation is started switches to a
+ * discrete-event simulation on a virtual clock instead.
+ */
+public class SimulationScheduler {
+  private static volatile TaskScheduler scheduler = new RealTimeScheduler();
+
+  private SimulationScheduler() {
+  }
+
+  /**
+   * Run the simulation on a virtual clock. Only affects tasks scheduled after the call, so this
+   * must be called before the simulation is started.
+   *
+   * @param startTime The virtual time to start at, in milliseconds since the epoch
+   * @return The virtual clock scheduler, which must be driven with runUntil or runFor
+   */
+  public static VirtualClockScheduler useVirtualClock(long startTime) {
+    VirtualClockScheduler virtualClock = new VirtualClockScheduler(startTime);
+    scheduler = virtualClock;
+    return virtualClock;
+  }
+
+  /**
+   * Get the scheduler currently in use.
+   *
+   * @return The scheduler
+   */
+  public static TaskScheduler getScheduler() {
+    return scheduler;
+  }
+
+  /**
+   * Run a task periodically.
+   *
+   * @param task         The task to run
+   * @param initialDelay Delay before the first run, in milliseconds
+   * @param period       Time between the start of two runs, in milliseconds
+   * @return A handle which can be used to cancel the task
+   */
+  public static ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay,
+                                                  long period) {
+    return scheduler.scheduleAtFixedRate(task, initialDelay, period);
+  }
+
+  /**
+   * Run a task once, after a delay.
+   *
+   * @param task  The task to run
+   * @param delay The delay, in milliseconds
+   * @return A handle which can be used to cancel the task
+   */
+  public static ScheduledTask schedule(Runnable task, long delay) {
+    return scheduler.schedule(task, delay);
+  }
+
+  /**
+   * Get the current time of the simulation: the wall clock, or the virtual clock when used.
+   *
+   * @return The time, in milliseconds since the epoch
+   */
+  public static long currentTimeMillis() {
+    return scheduler.currentTimeMillis();
+  }
+}
@@ -0,0 +1,34 @@
+package no.ntnu.greenhouse;
+
+/**
+ * Runs the timed tasks of the simulation, and defines what "now" is for it.
+ * Implementations: RealTimeScheduler follows the wall clock, VirtualClockScheduler jumps from
+ * event to event on a virtual clock.
+ */
+public interface TaskScheduler {
+  /**
+   * Run a task periodically.
+   *
+   * @param task         The task to run
+   * @param initialDelay Delay before the first run, in milliseconds
+   * @param period       Time between the start of two runs, in milliseconds
+   * @return A handle which can be used to cancel the task
+   */
+  ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay, long period);
+
+  /**
+   * Run a task once, after a delay.
+   *
+   * @param task  The task to run
+   * @param delay The delay, in milliseconds
+   * @return A handle which can be used to cancel the task
+   */
+  ScheduledTask schedule(Runnable task, long delay);
+
+  /**
+   * Get the current time of the simulation.
+   *
+   * @return The time, in milliseconds since the epoch
+   */
+  long currentTimeMillis();
+}
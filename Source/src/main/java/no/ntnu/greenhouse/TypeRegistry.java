@@ -0,0 +1,121 @@
+package no.ntnu.greenhouse;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns sensor types, measurement units and actuator types to small integer IDs, shared by the
+ * whole simulation. Sensor banks and actuators store these IDs instead of the strings, so that
+ * matching a sensor type is an integer comparison. The strings are looked up only when a reading
+ * is read through the Sensor or SensorReading view.
+ * IDs are never removed, so an ID stays valid for the lifetime of the application.
+ */
+public class TypeRegistry {
+  private static final Names sensorTypes = new Names();
+  private static final Names units = new Names();
+  private static final Names actuatorTypes = new Names();
+
+  private TypeRegistry() {
+  }
+
+  /**
+   * Get the ID of a sensor type, registering the type if it is new.
+   *
+   * @param type The sensor type, for example "temperature"
+   * @return The ID of the type
+   */
+  public static int sensorTypeId(String type) {
+    return sensorTypes.idOf(type);
+  }
+
+  /**
+   * Get the ID of an already registered sensor type.
+   *
+   * @param type The sensor type
+   * @return The ID of the type, or -1 when the type has never been registered
+   */
+  public static int findSensorTypeId(String type) {
+    return sensorTypes.find(type);
+  }
+
+  /**
+   * Get the sensor type with the given ID.
+   *
+   * @param id The ID of the type
+   * @return The type
+   */
+  public static String sensorTypeName(int id) {
+    return sensorTypes.nameOf(id);
+  }
+
+  /**
+   * Get the ID of a measurement unit, registering the unit if it is new.
+   *
+   * @param unit The unit, for example "%"
+   * @return The ID of the unit
+   */
+  public static int unitId(String unit) {
+    return units.idOf(unit);
+  }
+
+  /**
+   * Get the measurement unit with the given ID.
+   *
+   * @param id The ID of the unit
+   * @return The unit
+   */
+  public static String unitName(int id) {
+    return units.nameOf(id);
+  }
+
+  /**
+   * Get the ID of an actuator type, registering the type if it is new.
+   *
+   * @param type The actuator type, for example "fan"
+   * @return The ID of the type
+   */
+  public static int actuatorTypeId(String type) {
+    return actuatorTypes.idOf(type);
+  }
+
+  /**
+   * Get the actuator type with the given ID.
+   *
+   * @param id The ID of the type
+   * @return The type
+   */
+  public static String actuatorTypeName(int id) {
+    return actuatorTypes.nameOf(id);
+  }
+
+  /**
+   * One namespace of interned names. Registration is synchronized, lookups by ID read a
+   * copy-on-write array without locking.
+   */
+  private static class Names {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile String[] names = new String[0];
+
+    synchronized int idOf(String name) {
+      Integer id = ids.get(name);
+      if (id == null) {
+        id = names.length;
+        ids.put(name, id);
+        String[] extended = Arrays.copyOf(names, names.length + 1);
+        extended[id] = name;
+        names = extended;
+      }
+      return id;
+    }
+
+    synchronized int find(String name) {
+      Integer id = ids.get(name);
+      return id != null ? id : -1;
+    }
+
+    String nameOf(int id) {
+      return names[id];
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package no.ntnu.greenhouse;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the noise kernel, using the incubating Vector API. Gives the same results
+ * as ScalarNoiseKernel, bit for bit. Only compiled by the {@code vector} Maven profile, and only
+ * usable when the JVM is started with {@code --add-modules jdk.incubator.vector}, see NoiseKernels.
+ * Banks too small to fill a few vectors, like the 3-5 sensors of a typical node, are handed to
+ * the scalar loop, which is faster for them.
+ */
+public class VectorNoiseKernel implements NoiseKernel {
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final int MIN_VECTOR_SIZE = 4 * SPECIES.length();
+  // Adding and subtracting 1.5 * 2^52 rounds to the nearest integer, for |x| below 2^51
+  private static final double ROUNDING_CONSTANT = 0x1.8p52;
+  private static final double ROUNDING_LIMIT = 0x1p51;
+
+  @Override
+  public void addNoise(double[] values, double[] uniform, double[] mins, double[] maxs,
+                       int size) {
+    int i = 0;
+    if (size >= MIN_VECTOR_SIZE) {
+      int upperBound = SPECIES.loopBound(size);
+      for (; i < upperBound; i += SPECIES.length()) {
+        DoubleVector min = DoubleVector.fromArray(SPECIES, mins, i);
+        DoubleVector max = DoubleVector.fromArray(SPECIES, maxs, i);
+        DoubleVector onePercentOfRange = max.sub(min).div(100.0);
+        DoubleVector noise = DoubleVector.fromArray(SPECIES, uniform, i)
+            .mul(onePercentOfRange).mul(2.0).sub(onePercentOfRange);
+        DoubleVector scaled = DoubleVector.fromArray(SPECIES, values, i).add(noise).mul(100.0);
+        if (!scaled.abs().lt(ROUNDING_LIMIT).allTrue()) {
+          // Huge, infinite or NaN values, which round() can't handle
+          ScalarNoiseKernel.addNoise(values, uniform, mins, maxs, i, i + SPECIES.length());
+          continue;
+        }
+        DoubleVector rounded = round(scaled).div(100.0);
+        // Blends instead of max/min, which would turn -0.0 into 0.0 where the scalar loop does not
+        rounded = rounded.blend(min, rounded.lt(min));
+        rounded.blend(max, rounded.compare(VectorOperators.GT, max)).intoArray(values, i);
+      }
+    }
+    ScalarNoiseKernel.addNoise(values, uniform, mins, maxs, i, size);
+  }
+
+  /**
+   * Round to the nearest integer, ties rounding up, exactly like Math.round: floor(x + 1/2)
+   * computed without rounding error. Adding 0.5 first would round 0.49999999999999994 up to 1.
+   * There is no floor operation on vectors, and converting to long and back is slow, so floor(x)
+   * is x rounded to the nearest integer with the constant, minus one where that went up.
+   * x - floor(x) is then exact, and is compared with 1/2. Only valid while |x| < 2^51.
+   */
+  private static DoubleVector round(DoubleVector x) {
+    DoubleVector nearest = x.add(ROUNDING_CONSTANT).sub(ROUNDING_CONSTANT);
+    DoubleVector floor = nearest.sub(1.0, nearest.compare(VectorOperators.GT, x));
+    VectorMask<Double> roundsUp = x.sub(floor).compare(VectorOperators.GE, 0.5);
+    return floor.add(1.0, roundsUp);
+  }
+}
@@ -0,0 +1,148 @@
+package no.ntnu.greenhouse;
+
+import java.util.PriorityQueue;
+import no.ntnu.tools.Logger;
+
+/**
+ * Discrete-event scheduler: the simulation time is a virtual clock, and instead of waiting, the
+ * clock jumps straight to the next scheduled event. Weeks of simulated time can then be run in
+ * minutes. Events run one at a time, in time order, on the thread calling runUntil or runFor;
+ * events at the same time run in the order they were scheduled.
+ */
+public class VirtualClockScheduler implements TaskScheduler {
+  private final PriorityQueue<Event> events = new PriorityQueue<>();
+  private long now;
+  private long nextSequence = 0;
+  private long executedCount = 0;
+
+  /**
+   * Create a virtual clock scheduler.
+   *
+   * @param startTime The virtual time to start at, in milliseconds since the epoch
+   */
+  public VirtualClockScheduler(long startTime) {
+    this.now = startTime;
+  }
+
+  @Override
+  public synchronized ScheduledTask scheduleAtFixedRate(Runnable task, long initialDelay,
+                                                        long period) {
+    if (period <= 0) {
+      throw new IllegalArgumentException("The period must be positive");
+    }
+    return add(new Event(task, now + Math.max(0, initialDelay), period));
+  }
+
+  @Override
+  public synchronized ScheduledTask schedule(Runnable task, long delay) {
+    return add(new Event(task, now + Math.max(0, delay), 0));
+  }
+
+  @Override
+  public synchronized long currentTimeMillis() {
+    return now;
+  }
+
+  private Event add(Event event) {
+    event.sequence = nextSequence++;
+    events.add(event);
+    return event;
+  }
+
+  /**
+   * Run all the events up to and including the given virtual time, then set the clock to it.
+   *
+   * @param endTime The virtual time to run to, in milliseconds since the epoch
+   */
+  public void runUntil(long endTime) {
+    Event event;
+    while ((event = nextEventBefore(endTime)) != null) {
+      try {
+        event.task.run();
+      } catch (RuntimeException e) {
+        Logger.error("Simulation task failed: " + e.getMessage());
+      }
+      reschedule(event);
+    }
+    synchronized (this) {
+      now = Math.max(now, endTime);
+    }
+  }
+
+  /**
+   * Run all the events within a duration of virtual time from now.
+   *
+   * @param duration The duration of virtual time, in milliseconds
+   */
+  public void runFor(long duration) {
+    runUntil(currentTimeMillis() + duration);
+  }
+
+  private synchronized Event nextEventBefore(long endTime) {
+    Event event = events.peek();
+    while (event != null && event.cancelled) {
+      events.poll();
+      event = events.peek();
+    }
+    if (event == null || event.time > endTime) {
+      return null;
+    }
+    events.poll();
+    now = event.time;
+    ++executedCount;
+    return event;
+  }
+
+  private synchronized void reschedule(Event event) {
+    if (event.period > 0 && !event.cancelled) {
+      event.time += event.period;
+      add(event);
+    }
+  }
+
+  /**
+   * Get the number of events run so far.
+   *
+   * @return The number of executed events
+   */
+  public synchronized long getExecutedCount() {
+    return executedCount;
+  }
+
+  /**
+   * Get the number of scheduled events, including cancelled ones not yet discarded.
+   *
+   * @return The number of pending events
+   */
+  public synchronized int getPendingCount() {
+    return events.size();
+  }
+
+  /**
+   * One scheduled task; a periodic task is the same event, re-added after each run.
+   */
+  private static class Event implements ScheduledTask, Comparable<Event> {
+    private final Runnable task;
+    private final long period;
+    private long time;
+    private long sequence;
+    private volatile boolean cancelled = false;
+
+    Event(Runnable task, long time, long period) {
+      this.task = task;
+      this.time = time;
+      this.period = period;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public int compareTo(Event other) {
+      int byTime = Long.compare(time, other.time);
+      return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package no.ntnu.gui.common;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -95,4 +97,25 @@ public class ActuatorPane extends TitledPane {
       actuatorSelected.set(actuator.isOn());
     });
   }
+
+  /**
+   * Several actuators have been updated in one batch, update the GUI in one go.
+   *
+   * @param actuators The actuators which have been updated
+   */
+  public void update(List<Actuator> actuators) {
+    List<Runnable> updates = new ArrayList<>(actuators.size());
+    for (Actuator actuator : actuators) {
+      SimpleStringProperty actuatorText = actuatorValue.get(actuator);
+      SimpleBooleanProperty actuatorSelected = actuatorActive.get(actuator);
+      if (actuatorText == null || actuatorSelected == null) {
+        throw new IllegalStateException("Can't update GUI for an unknown actuator: " + actuator);
+      }
+      updates.add(() -> {
+        actuatorText.set(generateActuatorText(actuator));
+        actuatorSelected.set(actuator.isOn());
+      });
+    }
+    Platform.runLater(() -> updates.forEach(Runnable::run));
+  }
 }
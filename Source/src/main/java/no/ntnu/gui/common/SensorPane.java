@@ -1,6 +1,7 @@
 package no.ntnu.gui.common;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import javafx.application.Platform;
@@ -76,6 +77,18 @@ public class SensorPane extends TitledPane {
     update(sensors.stream().map(Sensor::getReading).toList());
   }
 
+  /**
+   * Update only the labels of the sensors which have changed.
+   *
+   * @param sensors All the sensors of the node
+   * @param changed The indices of the changed sensors
+   */
+  public void update(List<Sensor> sensors, BitSet changed) {
+    for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+      updateSensorLabel(sensors.get(i).getReading(), i);
+    }
+  }
+
   private Label createAndRememberSensorLabel(SensorReading sensor) {
     SimpleStringProperty props = new SimpleStringProperty(generateSensorText(sensor));
     sensorProps.add(props);
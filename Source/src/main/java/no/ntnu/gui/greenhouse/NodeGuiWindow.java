@@ -1,5 +1,6 @@
 package no.ntnu.gui.greenhouse;
 
+import java.util.BitSet;
 import java.util.List;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -72,10 +73,24 @@ public class NodeGuiWindow extends Stage implements SensorListener, ActuatorList
     }
   }
 
+  @Override
+  public void sensorsChanged(List<Sensor> sensors, BitSet changed) {
+    if (sensorPane != null) {
+      sensorPane.update(sensors, changed);
+    }
+  }
+
   @Override
   public void actuatorUpdated(int nodeId, Actuator actuator) {
     if (actuatorPane != null) {
       actuatorPane.update(actuator);
     }
   }
+
+  @Override
+  public void actuatorsUpdated(int nodeId, List<Actuator> actuators) {
+    if (actuatorPane != null) {
+      actuatorPane.update(actuators);
+    }
+  }
 }
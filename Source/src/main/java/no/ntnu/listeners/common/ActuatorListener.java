@@ -1,5 +1,6 @@
 package no.ntnu.listeners.common;
 
+import java.util.List;
 import no.ntnu.greenhouse.Actuator;
 
 /**
@@ -15,4 +16,17 @@ public interface ActuatorListener {
    * @param actuator The actuator that has changed its state
    */
   void actuatorUpdated(int nodeId, Actuator actuator);
+
+  /**
+   * An event that is fired once when several actuators of a node have changed state in one batch.
+   * By default, handled as one actuatorUpdated event per actuator.
+   *
+   * @param nodeId    ID of the node on which the actuators are placed
+   * @param actuators The actuators that have changed their state
+   */
+  default void actuatorsUpdated(int nodeId, List<Actuator> actuators) {
+    for (Actuator actuator : actuators) {
+      actuatorUpdated(nodeId, actuator);
+    }
+  }
 }
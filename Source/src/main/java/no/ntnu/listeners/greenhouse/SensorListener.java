@@ -1,5 +1,6 @@
 package no.ntnu.listeners.greenhouse;
 
+import java.util.BitSet;
 import java.util.List;
 import no.ntnu.greenhouse.Sensor;
 
@@ -8,6 +9,8 @@ import no.ntnu.greenhouse.Sensor;
  * This will (probably) be usable only on the sensor/actuator node (greenhouse) side, where the
  * real sensor objects are available. The control panel side has only sensor reading values
  * available, not the sensors themselves.
+ * Listeners are called on the thread which updates the sensors. When a ParallelStepper steps the
+ * nodes, the listeners of all the nodes are called one at a time, on the stepping thread.
  */
 public interface SensorListener {
   /**
@@ -16,4 +19,17 @@ public interface SensorListener {
    * @param sensors A list of sensors having new values (readings)
    */
   void sensorsUpdated(List<Sensor> sensors);
+
+  /**
+   * An event that is fired every time sensor values are updated, telling which sensors actually
+   * changed value since the previous event. Listeners can override this to do work only for the
+   * changed sensors. By default, forwarded to sensorsUpdated.
+   *
+   * @param sensors All the sensors of the node
+   * @param changed The indices (in sensors) of the sensors whose value has changed. Only valid
+   *                during the call, the node reuses the bitset
+   */
+  default void sensorsChanged(List<Sensor> sensors, BitSet changed) {
+    sensorsUpdated(sensors);
+  }
 }
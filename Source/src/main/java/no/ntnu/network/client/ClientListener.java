@@ -1,5 +1,6 @@
 package no.ntnu.network.client;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import no.ntnu.controlpanel.ExtendedCommunicationChannel;
 import no.ntnu.tools.Logger;
@@ -11,6 +12,7 @@ import java.io.InputStreamReader;
 public class ClientListener implements Runnable {
 
     private final ExtendedCommunicationChannel communicationChannel;
+    private static final Gson gson = new Gson();
 
     public ClientListener(ExtendedCommunicationChannel communicationChannel) {
         this.communicationChannel = communicationChannel;
@@ -30,6 +32,16 @@ public class ClientListener implements Runnable {
                     communicationChannel.closeSocketAndWriter();
                     break;
                 }
+                if (isUdpSessionNotification(serverMessage)) {
+                    JsonObject sessionObject = gson.fromJson(serverMessage, JsonObject.class);
+                    communicationChannel.openUdpSession(sessionObject.getAsJsonPrimitive("token").getAsLong(),
+                            sessionObject.getAsJsonPrimitive("port").getAsInt());
+                }
+                if (isStateVersionNotification(serverMessage)) {
+                    JsonObject versionObject = gson.fromJson(serverMessage, JsonObject.class);
+                    communicationChannel.stateVersionReceived(versionObject.getAsJsonPrimitive("version").getAsLong(),
+                            versionObject.getAsJsonPrimitive("resumed").getAsBoolean());
+                }
 
             }
         } catch (IOException e) {
@@ -41,4 +53,12 @@ public class ClientListener implements Runnable {
     private boolean isShutdownNotification(String serverMessage) {
         return serverMessage.contains("SHUT_DOWN");
     }
+
+    private boolean isUdpSessionNotification(String serverMessage) {
+        return serverMessage.contains("\"udp_session\"");
+    }
+
+    private boolean isStateVersionNotification(String serverMessage) {
+        return serverMessage.contains("\"state_version\"");
+    }
 }
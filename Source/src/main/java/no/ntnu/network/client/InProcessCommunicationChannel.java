@@ -0,0 +1,303 @@
+package no.ntnu.network.client;
+
+import no.ntnu.controlpanel.CommunicationChannel;
+import no.ntnu.controlpanel.ControlPanelLogic;
+import no.ntnu.controlpanel.SensorActuatorNodeInfo;
+import no.ntnu.greenhouse.Actuator;
+import no.ntnu.greenhouse.Sensor;
+import no.ntnu.greenhouse.SensorActuatorNode;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.greenhouse.SensorSnapshot;
+import no.ntnu.greenhouse.SimulationScheduler;
+import no.ntnu.listeners.common.ActuatorListener;
+import no.ntnu.listeners.greenhouse.SensorListener;
+import no.ntnu.network.client.clientinfo.ControlPanelClientInfo;
+import no.ntnu.network.client.clientinfo.SensorActuatorClientInfo;
+import no.ntnu.network.server.SmartFarmingServer;
+import no.ntnu.tools.Logger;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An in-process communication channel which connects a control panel and a set of sensor/actuator nodes
+ * living in the same JVM directly to the routing logic of the SmartFarmingServer.
+ * Messages are handed over as objects through a lock-free queue instead of being encoded as JSON text and
+ * sent through sockets. All of them are routed on one dispatcher thread, the same way a ClientHandler thread
+ * handles the messages of one socket client.
+ */
+public class InProcessCommunicationChannel implements CommunicationChannel {
+
+    private static final String IN_PROCESS_ADDRESS = "in-process";
+
+    private final int nodeId;
+    private final ControlPanelLogic logic;
+    private final List<SensorActuatorNode> nodes = new CopyOnWriteArrayList<>();
+    private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = false;
+    private volatile Thread dispatcher;
+
+    /**
+     * Creates a new in-process communication channel for a control panel.
+     *
+     * @param nodeId The node ID the control panel is registered with on the server
+     * @param logic  The logic of the control panel receiving sensor data and actuator changes
+     */
+    public InProcessCommunicationChannel(int nodeId, ControlPanelLogic logic) {
+        this.nodeId = nodeId;
+        this.logic = logic;
+    }
+
+    /**
+     * Connects a sensor/actuator node to the server through this channel.
+     * Nodes should be added before they are started and before the channel is opened.
+     *
+     * @param node The node to connect
+     */
+    public void addNode(SensorActuatorNode node) {
+        nodes.add(node);
+        node.addSensorListener(new SensorListener() {
+            @Override
+            public void sensorsUpdated(List<Sensor> sensors) {
+                submit(createSensorDataMessage(node.getId(), SimulationScheduler.currentTimeMillis(),
+                        node.getSensorBank().getSnapshot()));
+            }
+
+            @Override
+            public void sensorsChanged(List<Sensor> sensors, BitSet changed) {
+                // The control panel matches readings by position, so a changed node sends all its readings
+                if (!changed.isEmpty()) {
+                    sensorsUpdated(sensors);
+                }
+            }
+        });
+        node.addActuatorListener(new ActuatorListener() {
+            @Override
+            public void actuatorUpdated(int actuatorNodeId, Actuator actuator) {
+                int actuatorId = actuator.getId();
+                boolean isOn = actuator.isOn();
+                submit(() -> SmartFarmingServer.handleActuatorState(actuatorNodeId, actuatorId, isOn));
+            }
+
+            @Override
+            public void actuatorsUpdated(int actuatorNodeId, List<Actuator> actuators) {
+                // Capture the states now, and hand the whole batch over as one message
+                int[] actuatorIds = new int[actuators.size()];
+                boolean[] states = new boolean[actuators.size()];
+                for (int i = 0; i < actuatorIds.length; ++i) {
+                    actuatorIds[i] = actuators.get(i).getId();
+                    states[i] = actuators.get(i).isOn();
+                }
+                submit(() -> SmartFarmingServer.handleActuatorStates(actuatorNodeId, actuatorIds, states));
+            }
+        });
+    }
+
+    /**
+     * Sends an actuator command to the server. It is forwarded on the command thread of the server, not on the
+     * dispatcher, so that waiting for the command log to reach the disk doesn't hold up the sensor data.
+     */
+    @Override
+    public void sendActuatorChange(int nodeId, int actuatorId, boolean isOn) {
+        SmartFarmingServer.queueCommandToClient(SmartFarmingServer.ACTUATOR_CONTROL_COMMAND, "in_process",
+                nodeId, actuatorId, isOn);
+    }
+
+    @Override
+    public void sendSensorData(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType, double sensorValue) {
+        List<SensorReading> readings = List.of(new SensorReading(sensorType, sensorValue, ""));
+        long timestamp = SimulationScheduler.currentTimeMillis();
+        submit(() -> SmartFarmingServer.handleSensorData(nodeId, timestamp, readings));
+    }
+
+    /**
+     * Open the communication channel: start the dispatcher thread, register the control panel
+     * and all the added nodes on the server, and announce the nodes to the control panel logic.
+     * The channel should be opened before the nodes are started, so that their first readings are routed at once.
+     * Opening it again, for example once the control panel listens to the logic, announces the nodes again.
+     *
+     * @param clientType The type of the client, not used for the in-process channel
+     * @return true, opening an in-process channel can't fail
+     */
+    @Override
+    public boolean open(String clientType) {
+        if (!running) {
+            Thread thread = new Thread(this::dispatchMessages, "in-process-dispatcher");
+            thread.setDaemon(true);
+            // Set before running, so that a thread which sees the channel running also sees the dispatcher
+            dispatcher = thread;
+            running = true;
+            thread.start();
+            submit(this::registerClients);
+            Logger.info("In-process communication channel opened with " + nodes.size() + " nodes");
+        } else {
+            submit(this::announceNodes);
+        }
+        return true;
+    }
+
+    /**
+     * Close the communication channel: unregister all the clients from the server and stop the dispatcher thread.
+     */
+    public void close() {
+        submit(() -> {
+            unregisterClients();
+            running = false;
+        });
+    }
+
+    private void registerClients() {
+        SmartFarmingServer.registerControlPanelClient(new InProcessControlPanelClientInfo(nodeId, logic));
+        for (SensorActuatorNode node : nodes) {
+            SmartFarmingServer.registerSensorActuatorClient(new InProcessSensorActuatorClientInfo(node));
+        }
+        announceNodes();
+    }
+
+    private void announceNodes() {
+        for (SensorActuatorNode node : nodes) {
+            logic.onNodeAdded(createNodeInfo(node));
+        }
+    }
+
+    private void unregisterClients() {
+        SmartFarmingServer.removeControlPanelClient(nodeId);
+        for (SensorActuatorNode node : nodes) {
+            SmartFarmingServer.removeSensorActuatorClient(node.getId());
+        }
+        logic.onCommunicationChannelClosed();
+    }
+
+    /**
+     * Hands a message over to the dispatcher thread.
+     *
+     * @param message The message, in the form of the server call to make
+     */
+    private void submit(Runnable message) {
+        inbox.offer(message);
+        Thread thread = dispatcher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Routes queued messages until the channel is closed. Parks the thread while the queue is empty.
+     */
+    private void dispatchMessages() {
+        while (running) {
+            Runnable message = inbox.poll();
+            if (message != null) {
+                try {
+                    message.run();
+                } catch (Exception e) {
+                    Logger.error("Error handling in-process message: " + e.getMessage());
+                }
+            } else {
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * Creates the message handing the sensor values over to the server. The snapshot never changes, so the
+     * readings are created later, on the dispatcher thread, while the node keeps updating its sensors.
+     *
+     * @param nodeId    The node the sensors are attached to
+     * @param timestamp The time the sensor values were taken, by the clock of the simulation
+     * @param snapshot  The sensor values of the node
+     * @return The message handing the readings over to the server
+     */
+    private Runnable createSensorDataMessage(int nodeId, long timestamp, SensorSnapshot snapshot) {
+        return () -> {
+            List<SensorReading> readings = new ArrayList<>(snapshot.size());
+            for (int i = 0; i < snapshot.size(); ++i) {
+                readings.add(new SensorReading(snapshot.getType(i), snapshot.getValue(i), snapshot.getUnit(i)));
+            }
+            SmartFarmingServer.handleSensorData(nodeId, timestamp, readings);
+        };
+    }
+
+    private SensorActuatorNodeInfo createNodeInfo(SensorActuatorNode node) {
+        SensorActuatorNodeInfo nodeInfo = new SensorActuatorNodeInfo(node.getId());
+        for (Actuator actuator : node.getActuators()) {
+            Actuator actuatorInfo = new Actuator(actuator.getId(), actuator.getType(), node.getId());
+            actuatorInfo.set(actuator.isOn());
+            actuatorInfo.setListener(logic);
+            nodeInfo.addActuator(actuatorInfo);
+        }
+        return nodeInfo;
+    }
+
+    /**
+     * Server-side information about an in-process control panel. Delivers events directly to the control panel logic.
+     */
+    private static class InProcessControlPanelClientInfo extends ControlPanelClientInfo {
+        private final ControlPanelLogic logic;
+
+        InProcessControlPanelClientInfo(int nodeId, ControlPanelLogic logic) {
+            super(nodeId, IN_PROCESS_ADDRESS, 0, null);
+            this.logic = logic;
+        }
+
+        @Override
+        public void deliverSensorData(int nodeId, List<SensorReading> readings) {
+            logic.onSensorData(nodeId, readings);
+        }
+
+        @Override
+        public void deliverActuatorState(int nodeId, int actuatorId, boolean isOn) {
+            logic.onActuatorStateChanged(nodeId, actuatorId, isOn);
+        }
+
+        @Override
+        public void deliverActuatorStates(int nodeId, int[] actuatorIds, boolean[] states) {
+            for (int i = 0; i < actuatorIds.length; ++i) {
+                logic.onActuatorStateChanged(nodeId, actuatorIds[i], states[i]);
+            }
+        }
+    }
+
+    /**
+     * Server-side information about an in-process sensor/actuator node. Delivers commands directly to the node.
+     */
+    private static class InProcessSensorActuatorClientInfo extends SensorActuatorClientInfo {
+        private final SensorActuatorNode node;
+
+        InProcessSensorActuatorClientInfo(SensorActuatorNode node) {
+            super(node.getId(), firstActuatorId(node), firstActuatorType(node), false,
+                    firstSensorType(node), 0, IN_PROCESS_ADDRESS, 0, null);
+            this.node = node;
+        }
+
+        @Override
+        public boolean deliverControlCommand(int actuatorId, boolean isOn) {
+            node.setActuator(actuatorId, isOn);
+            return true;
+        }
+
+        private static int firstActuatorId(SensorActuatorNode node) {
+            for (Actuator actuator : node.getActuators()) {
+                return actuator.getId();
+            }
+            return -1;
+        }
+
+        private static String firstActuatorType(SensorActuatorNode node) {
+            for (Actuator actuator : node.getActuators()) {
+                return actuator.getType();
+            }
+            return "";
+        }
+
+        private static String firstSensorType(SensorActuatorNode node) {
+            List<Sensor> sensors = node.getSensors();
+            return sensors.isEmpty() ? "" : sensors.get(0).getType();
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package no.ntnu.network.client;
 
-import no.ntnu.controlpanel.CommunicationChannel;
 import no.ntnu.tools.Logger;
+
+import java.nio.file.Path;
+
 import static no.ntnu.network.server.SmartFarmingServer.PORT;
 
 public class MainSensorActuatorClass {
@@ -9,7 +11,7 @@ public class MainSensorActuatorClass {
     public static void main(String[] args) {
         // Check if there are enough command-line arguments
         if (args.length < 6) {
-            Logger.error("Usage: java MainSensorActuatorClass <nodeId> <actuatorId> <actuatorType> <isOn> <sensorType> <sensorValue>");
+            Logger.error("Usage: java MainSensorActuatorClass <nodeId> <actuatorId> <actuatorType> <isOn> <sensorType> <sensorValue> [stateFile]");
             System.exit(1);
         }
 
@@ -22,9 +24,17 @@ public class MainSensorActuatorClass {
         double sensorValue = Double.parseDouble(args[5]);
 
         // Create an instance of the SocketSensorActuatorCommunicationChannel
-        CommunicationChannel communicationChannel = new SocketSensorActuatorCommunicationChannel("localhost", PORT);
+        SocketSensorActuatorCommunicationChannel communicationChannel =
+                new SocketSensorActuatorCommunicationChannel("localhost", PORT);
+        // The file keeps the state version the server gave this node, to resume without sending the full state
+        long stateVersion = args.length > 6 ? communicationChannel.keepStateVersionIn(Path.of(args[6])) : 0;
         if (communicationChannel.open("SENSOR_ACTUATOR")) {
-            communicationChannel.sendSensorData(nodeId, actuatorId,actuatorType, isOn, sensorType, sensorValue);
+            if (stateVersion > 0) {
+                communicationChannel.resume(nodeId, stateVersion, actuatorId, actuatorType, isOn, sensorType,
+                        sensorValue);
+            } else {
+                communicationChannel.sendSensorData(nodeId, actuatorId, actuatorType, isOn, sensorType, sensorValue);
+            }
         } else {
             Logger.error("Failed to open communication channel. Exiting....");
         }
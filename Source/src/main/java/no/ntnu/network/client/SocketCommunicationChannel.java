@@ -5,11 +5,14 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import no.ntnu.controlpanel.CommunicationChannel;
 import no.ntnu.controlpanel.ExtendedCommunicationChannel;
+import no.ntnu.greenhouse.SimulationScheduler;
+import no.ntnu.network.message.MessageEncoder;
 import no.ntnu.tools.Logger;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
 
@@ -23,6 +26,7 @@ public class SocketCommunicationChannel implements ExtendedCommunicationChannel
     private final int serverPort;
     private Socket clientSocket;
     private PrintWriter writer;
+    private OutputStream outputStream;
     private static final Gson gson = new Gson();
 
     private volatile boolean serverShutdownReceived = false;
@@ -41,45 +45,34 @@ public class SocketCommunicationChannel implements ExtendedCommunicationChannel
 
     @Override
     public void sendGetSensorData(int nodeId, long timer) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "GET_SENSOR_DATA");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("timer", timer);
-
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
-        }
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("GET_SENSOR_DATA")
+                .field("nodeId", nodeId)
+                .field("timer", timer)
+                .endMessage());
     }
     @Override
     public void sendActuatorChange(int nodeId, int actuatorId, boolean isOn) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "ACTUATOR_CONTROL");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("actuatorId", actuatorId);
-        jsonMessage.addProperty("isOn", isOn);
-
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
-        }
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("ACTUATOR_CONTROL")
+                .field("nodeId", nodeId)
+                .field("actuatorId", actuatorId)
+                .field("isOn", isOn)
+                .endMessage());
     }
 
     @Override
     public void sendSensorData(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType, double sensorValue) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "SENSOR_DATA");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("actuatorId", actuatorId);
-        jsonMessage.addProperty("actuatorType", actuatorType);
-        jsonMessage.addProperty("isOn", isOn);
-        jsonMessage.addProperty("sensorType", sensorType);
-        jsonMessage.addProperty("sensorValue", sensorValue);
-
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
-        }
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("SENSOR_DATA")
+                .field("nodeId", nodeId)
+                .field("actuatorId", actuatorId)
+                .field("actuatorType", actuatorType)
+                .field("isOn", isOn)
+                .field("sensorType", sensorType)
+                .field("sensorValue", sensorValue)
+                .field("timestamp", SimulationScheduler.currentTimeMillis())
+                .endMessage());
     }
     /**
      * Open the communication channel with the client type
@@ -117,7 +110,8 @@ public class SocketCommunicationChannel implements ExtendedCommunicationChannel
      */
     private boolean initializeWriter(Socket socket, String clientType) {
         try {
-            writer = new PrintWriter(socket.getOutputStream(), true);
+            outputStream = socket.getOutputStream();
+            writer = new PrintWriter(outputStream, true);
             writer.println(clientType);
             Logger.info("Writer initialized with client type: " + clientType);
             return true;
@@ -183,12 +177,28 @@ public class SocketCommunicationChannel implements ExtendedCommunicationChannel
      *
      * @param message The message to be sent to the server
      */
-    private void sendMessage(String message) {
+    private synchronized void sendMessage(String message) {
         if (writer != null) {
             writer.println(message);
         }
     }
 
+    /**
+     * Sends a message encoded by the MessageEncoder of the calling thread, straight to the socket stream.
+     * The writer flushes after every line, so the encoded bytes never interleave with buffered text.
+     *
+     * @param encoder The encoder holding the message
+     */
+    private synchronized void sendEncodedMessage(MessageEncoder encoder) {
+        if (outputStream != null) {
+            try {
+                encoder.writeTo(outputStream);
+            } catch (IOException e) {
+                Logger.error("Error sending message: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Creates a socket connection to the server.
      *
@@ -248,4 +258,15 @@ public class SocketCommunicationChannel implements ExtendedCommunicationChannel
     public Socket getClientSocket() {
         return clientSocket;
     }
-}
\ No newline at end of file
+
+    /**
+     * Control panels send no sensor data, so the UDP session is not used.
+     *
+     * @param token   The session token
+     * @param udpPort The UDP port of the server
+     */
+    @Override
+    public void openUdpSession(long token, int udpPort) {
+        Logger.info("UDP session ignored, control panels send no sensor data");
+    }
+}
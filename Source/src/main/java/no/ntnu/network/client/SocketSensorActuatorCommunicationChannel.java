@@ -4,13 +4,18 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import no.ntnu.controlpanel.ExtendedCommunicationChannel;
+import no.ntnu.greenhouse.SimulationScheduler;
+import no.ntnu.network.message.MessageEncoder;
 import no.ntnu.tools.Logger;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Socket-based communication channel for the Sensor-Actuator client.
@@ -22,9 +27,16 @@ public class SocketSensorActuatorCommunicationChannel implements ExtendedCommuni
     private final int serverPort;
     private Socket clientSocket;
     private PrintWriter writer;
+    private OutputStream outputStream;
     private static final Gson gson = new Gson();
 
     private volatile boolean serverShutdownReceived = false;
+    private volatile UdpSensorDataSender udpSender;
+    private volatile long stateVersion = 0;
+    // The file keeping the last state version for the next run of the client, if any
+    private volatile Path stateVersionFile;
+    // The full state to register with when the server can't resume the state version presented
+    private volatile Runnable pendingRegistration;
 
     /**
      * Creates a new SocketSensorActuatorCommunicationChannel with the specified server address and port.
@@ -39,45 +51,117 @@ public class SocketSensorActuatorCommunicationChannel implements ExtendedCommuni
 
     @Override
     public void sendGetSensorData(int nodeId, long timer) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "GET_SENSOR_DATA");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("timer", timer);
-
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
-        }
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("GET_SENSOR_DATA")
+                .field("nodeId", nodeId)
+                .field("timer", timer)
+                .endMessage());
     }
 
     @Override
     public void sendActuatorChange(int nodeId, int actuatorId, boolean isOn) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "ACTUATOR_CONTROL");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("actuatorId", actuatorId);
-        jsonMessage.addProperty("isOn", isOn);
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("ACTUATOR_CONTROL")
+                .field("nodeId", nodeId)
+                .field("actuatorId", actuatorId)
+                .field("isOn", isOn)
+                .endMessage());
+    }
+    @Override
+    public void sendSensorData(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType, double sensorValue) {
+        // The time of the simulation, which runs on a virtual clock in tests and benchmarks
+        long timestamp = SimulationScheduler.currentTimeMillis();
+        UdpSensorDataSender sender = udpSender;
+        if (sender != null) {
+            try {
+                sender.send(nodeId, timestamp, sensorType, sensorValue, "");
+                return;
+            } catch (IOException e) {
+                Logger.error("Error sending sensor data over UDP, falling back to TCP: " + e.getMessage());
+            }
+        }
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("SENSOR_DATA")
+                .field("nodeId", nodeId)
+                .field("actuatorId", actuatorId)
+                .field("actuatorType", actuatorType)
+                .field("isOn", isOn)
+                .field("sensorType", sensorType)
+                .field("sensorValue", sensorValue)
+                .field("timestamp", timestamp)
+                .endMessage());
+    }
 
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
+    /**
+     * Registers with the server by presenting the state version received from the server before a reconnection,
+     * instead of the full state. If the server does not know that version any more, for example after it lost
+     * its registry snapshot, the full state is sent after all.
+     *
+     * @param nodeId       The node of this client
+     * @param stateVersion The state version the server told this node last time
+     * @param actuatorId   The actuator to register with, if the full state is needed
+     * @param actuatorType The type of the actuator
+     * @param isOn         The state of the actuator
+     * @param sensorType   The sensor type to register with
+     * @param sensorValue  The current value of the sensor
+     */
+    public void resume(int nodeId, long stateVersion, int actuatorId, String actuatorType, boolean isOn,
+                       String sensorType, double sensorValue) {
+        pendingRegistration = () -> sendSensorData(nodeId, actuatorId, actuatorType, isOn, sensorType, sensorValue);
+        sendEncodedMessage(MessageEncoder.forCurrentThread()
+                .beginMessage("RESUME")
+                .field("nodeId", nodeId)
+                .field("stateVersion", stateVersion)
+                .endMessage());
+    }
+
+    /**
+     * Keeps every state version received from the server in a file, so that the next run of the client can resume
+     * with the last one.
+     *
+     * @param file The file to keep the state version in
+     * @return The state version kept in the file by the previous run, or 0 if there is none
+     */
+    public long keepStateVersionIn(Path file) {
+        stateVersionFile = file;
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(file).trim());
+        } catch (IOException | NumberFormatException e) {
+            Logger.warning("Could not read the state version from " + file + ", registering with the full state: "
+                    + e.getMessage());
+            return 0;
         }
     }
+
     @Override
-    public void sendSensorData(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType, double sensorValue) {
-        JsonObject jsonMessage = new JsonObject();
-        jsonMessage.addProperty("type", "SENSOR_DATA");
-        jsonMessage.addProperty("nodeId", nodeId);
-        jsonMessage.addProperty("actuatorId", actuatorId);
-        jsonMessage.addProperty("actuatorType", actuatorType);
-        jsonMessage.addProperty("isOn", isOn);
-        jsonMessage.addProperty("sensorType", sensorType);
-        jsonMessage.addProperty("sensorValue", sensorValue);
-
-        String message = jsonMessage.toString();
-        if (writer != null) {
-            writer.println(message);
+    public void stateVersionReceived(long stateVersion, boolean resumed) {
+        this.stateVersion = stateVersion;
+        Path file = stateVersionFile;
+        if (file != null) {
+            try {
+                Files.writeString(file, Long.toString(stateVersion));
+            } catch (IOException e) {
+                Logger.error("Could not keep the state version in " + file + ": " + e.getMessage());
+            }
         }
+        Runnable registration = pendingRegistration;
+        pendingRegistration = null;
+        if (registration != null && !resumed) {
+            Logger.info("Server could not resume the node state, sending the full state");
+            registration.run();
+        }
+    }
+
+    /**
+     * Get the version of the state of this node known by the server, to resume with after a reconnection.
+     *
+     * @return The state version, 0 if the server has not told it yet
+     */
+    public long getStateVersion() {
+        return stateVersion;
     }
 
     @Override
@@ -110,7 +194,8 @@ public class SocketSensorActuatorCommunicationChannel implements ExtendedCommuni
      */
     private boolean initializeWriter(Socket socket, String clientType) {
         try {
-            writer = new PrintWriter(socket.getOutputStream(), true);
+            outputStream = socket.getOutputStream();
+            writer = new PrintWriter(outputStream, true);
             writer.println(clientType);
             Logger.info("Writer initialized with client type: " + clientType);
             return true;
@@ -177,12 +262,28 @@ public class SocketSensorActuatorCommunicationChannel implements ExtendedCommuni
      *
      * @param message The message to send.
      */
-    private void sendMessage(String message) {
+    private synchronized void sendMessage(String message) {
         if (writer != null) {
             writer.println(message);
         }
     }
 
+    /**
+     * Sends a message encoded by the MessageEncoder of the calling thread, straight to the socket stream.
+     * The writer flushes after every line, so the encoded bytes never interleave with buffered text.
+     *
+     * @param encoder The encoder holding the message
+     */
+    private synchronized void sendEncodedMessage(MessageEncoder encoder) {
+        if (outputStream != null) {
+            try {
+                encoder.writeTo(outputStream);
+            } catch (IOException e) {
+                Logger.error("Error sending message: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Creates a new socket to the specified server address and port.
      *
@@ -234,10 +335,40 @@ public class SocketSensorActuatorCommunicationChannel implements ExtendedCommuni
      * Closes both the socket and the PrintWriter.
      */
     public void closeSocketAndWriter() {
+        closeUdpSender();
         closeWriter();
         closeSocket(clientSocket);
     }
 
+    /**
+     * Starts sending sensor data as UDP datagrams, using the session token issued by the server.
+     *
+     * @param token   The session token to put in every datagram
+     * @param udpPort The UDP port of the server
+     */
+    @Override
+    public void openUdpSession(long token, int udpPort) {
+        try {
+            closeUdpSender();
+            udpSender = new UdpSensorDataSender(serverAddress, udpPort, token);
+            Logger.info("UDP session opened, sensor data is sent to UDP port " + udpPort);
+        } catch (IOException e) {
+            Logger.error("Failed to open UDP socket: " + e.getMessage());
+        }
+    }
+
+    private void closeUdpSender() {
+        UdpSensorDataSender sender = udpSender;
+        udpSender = null;
+        if (sender != null) {
+            try {
+                sender.close();
+            } catch (IOException e) {
+                Logger.error("Failed to close UDP socket: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Gets the client socket.
      *
@@ -0,0 +1,104 @@
+package no.ntnu.network.client;
+
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrameCodec;
+import no.ntnu.network.server.UdpTelemetryListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+
+/**
+ * Sends sensor readings to the server as UDP datagrams, using the session token the server issued when the
+ * client connected over TCP. See UdpTelemetryListener for the datagram layout.
+ */
+public class UdpSensorDataSender implements Closeable {
+
+    private final DatagramChannel channel;
+    private final long token;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(UdpTelemetryListener.MAX_DATAGRAM_LENGTH);
+    private int sequence = 0;
+    private int frameCount = 0;
+
+    /**
+     * Creates a new sender.
+     *
+     * @param serverAddress The server address
+     * @param serverPort    The UDP port of the server
+     * @param token         The session token received from the server
+     * @throws IOException If the UDP socket can't be opened
+     */
+    public UdpSensorDataSender(String serverAddress, int serverPort, long token) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.channel.connect(new InetSocketAddress(serverAddress, serverPort));
+        this.token = token;
+    }
+
+    /**
+     * Sends the readings of one node. The readings are split over several datagrams when they don't fit in one.
+     *
+     * @param nodeId    The node the readings belong to
+     * @param timestamp The time the readings were taken, in milliseconds
+     * @param readings  The readings to send
+     * @throws IOException If a datagram can't be sent
+     */
+    public synchronized void send(int nodeId, long timestamp, List<SensorReading> readings) throws IOException {
+        startDatagram();
+        for (SensorReading reading : readings) {
+            appendFrame(nodeId, timestamp, reading.getType(), reading.getValue(), reading.getUnit());
+        }
+        if (frameCount > 0) {
+            sendDatagram();
+        }
+    }
+
+    /**
+     * Sends a single reading of one node in its own datagram.
+     *
+     * @param nodeId    The node the reading belongs to
+     * @param timestamp The time the reading was taken, in milliseconds
+     * @param type      The type of the sensor
+     * @param value     The value of the reading
+     * @param unit      The unit of the reading
+     * @throws IOException If the datagram can't be sent
+     */
+    public synchronized void send(int nodeId, long timestamp, String type, double value, String unit)
+            throws IOException {
+        startDatagram();
+        appendFrame(nodeId, timestamp, type, value, unit);
+        sendDatagram();
+    }
+
+    private void appendFrame(int nodeId, long timestamp, String type, double value, String unit) throws IOException {
+        int length = SensorFrameCodec.encodedLength(type, unit);
+        if (buffer.remaining() < length || frameCount == 255) {
+            sendDatagram();
+            startDatagram();
+        }
+        SensorFrameCodec.encode(buffer, nodeId, timestamp, type, value, unit);
+        ++frameCount;
+    }
+
+    private void startDatagram() {
+        buffer.clear();
+        buffer.putLong(token);
+        buffer.putInt(0);
+        buffer.put((byte) 0);
+        frameCount = 0;
+    }
+
+    private void sendDatagram() throws IOException {
+        buffer.putInt(Long.BYTES, sequence++);
+        buffer.put(UdpTelemetryListener.HEADER_LENGTH - 1, (byte) frameCount);
+        buffer.flip();
+        channel.write(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
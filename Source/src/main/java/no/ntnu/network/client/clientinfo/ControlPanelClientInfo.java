@@ -1,9 +1,82 @@
 package no.ntnu.network.client.clientinfo;
 
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.MessageHandler;
+import no.ntnu.network.server.alarms.AlarmEvent;
+
 import java.io.PrintWriter;
+import java.util.List;
 
 public class ControlPanelClientInfo extends BaseClientInfo {
+    private volatile boolean alarmsSubscribed;
+
     public ControlPanelClientInfo(int nodeId, String clientAddress, int clientPort, PrintWriter clientWriter) {
         super(nodeId, clientAddress, clientPort, clientWriter);
     }
-}
\ No newline at end of file
+
+    /**
+     * Delivers the sensor readings of a node to this control panel.
+     *
+     * @param nodeId   The node the readings belong to
+     * @param readings The sensor readings
+     */
+    public void deliverSensorData(int nodeId, List<SensorReading> readings) {
+        PrintWriter clientWriter = getClientWriter();
+        if (clientWriter != null) {
+            clientWriter.println(MessageHandler.createSensorDataMessage(nodeId, readings));
+        }
+    }
+
+    /**
+     * Delivers an actuator state change of a node to this control panel.
+     *
+     * @param nodeId     The node the actuator is attached to
+     * @param actuatorId The actuator which changed state
+     * @param isOn       The current state of the actuator
+     */
+    public void deliverActuatorState(int nodeId, int actuatorId, boolean isOn) {
+        PrintWriter clientWriter = getClientWriter();
+        if (clientWriter != null) {
+            clientWriter.println(MessageHandler.createActuatorStateMessage(nodeId, actuatorId, isOn));
+        }
+    }
+
+    /**
+     * Delivers the state changes of several actuators of a node to this control panel, as one message.
+     *
+     * @param nodeId      The node the actuators are attached to
+     * @param actuatorIds The actuators which changed state
+     * @param states      The current states of the actuators, in the same order
+     */
+    public void deliverActuatorStates(int nodeId, int[] actuatorIds, boolean[] states) {
+        PrintWriter clientWriter = getClientWriter();
+        if (clientWriter != null) {
+            clientWriter.println(MessageHandler.createActuatorStatesMessage(nodeId, actuatorIds, states));
+        }
+    }
+
+    /**
+     * Tells whether this control panel gets the alarms raised and cleared by the server.
+     *
+     * @return True if subscribed to alarms
+     */
+    public boolean isAlarmsSubscribed() {
+        return alarmsSubscribed;
+    }
+
+    public void setAlarmsSubscribed(boolean alarmsSubscribed) {
+        this.alarmsSubscribed = alarmsSubscribed;
+    }
+
+    /**
+     * Delivers an alarm raised or cleared on a node to this control panel.
+     *
+     * @param event The alarm event
+     */
+    public void deliverAlarm(AlarmEvent event) {
+        PrintWriter clientWriter = getClientWriter();
+        if (clientWriter != null) {
+            clientWriter.println(MessageHandler.createAlarmMessage(event));
+        }
+    }
+}
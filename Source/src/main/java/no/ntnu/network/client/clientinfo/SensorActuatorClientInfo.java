@@ -1,5 +1,7 @@
 package no.ntnu.network.client.clientinfo;
 
+import no.ntnu.network.message.MessageHandler;
+
 import java.io.PrintWriter;
 
 public class SensorActuatorClientInfo extends BaseClientInfo {
@@ -41,4 +43,20 @@ public class SensorActuatorClientInfo extends BaseClientInfo {
     public void setSensorValue(double sensorValue) {
         this.sensorValue = sensorValue;
     }
-}
\ No newline at end of file
+
+    /**
+     * Delivers a control command to this sensor/actuator client.
+     *
+     * @param actuatorId The actuator to switch on the client's node
+     * @param isOn       The new state of the actuator
+     * @return true if the command was handed over to the client, false if the client can't be reached
+     */
+    public boolean deliverControlCommand(int actuatorId, boolean isOn) {
+        PrintWriter clientWriter = getClientWriter();
+        if (clientWriter == null) {
+            return false;
+        }
+        clientWriter.println(MessageHandler.createControlCommandMessage(actuatorId, isOn));
+        return true;
+    }
+}
@@ -0,0 +1,57 @@
+package no.ntnu.network.message;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import no.ntnu.greenhouse.Actuator;
+
+import java.io.IOException;
+
+/**
+ * Streaming JSON codec for the state of an actuator: {"id":2,"nodeid":1,"type":"window","ison":true}.
+ * Field names are matched case-insensitively, as messages received by the server are lowercased.
+ * Decoded actuators have no listener attached.
+ */
+public class ActuatorStateTypeAdapter extends TypeAdapter<Actuator> {
+
+    @Override
+    public void write(JsonWriter out, Actuator actuator) throws IOException {
+        if (actuator == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(actuator.getId());
+        out.name("nodeid").value(actuator.getNodeId());
+        out.name("type").value(actuator.getType());
+        out.name("ison").value(actuator.isOn());
+        out.endObject();
+    }
+
+    @Override
+    public Actuator read(JsonReader in) throws IOException {
+        int id = -1;
+        int nodeId = -1;
+        String type = null;
+        boolean isOn = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("id".equalsIgnoreCase(name) || "actuatorid".equalsIgnoreCase(name)) {
+                id = in.nextInt();
+            } else if ("nodeid".equalsIgnoreCase(name)) {
+                nodeId = in.nextInt();
+            } else if ("type".equalsIgnoreCase(name)) {
+                type = in.nextString().trim();
+            } else if ("ison".equalsIgnoreCase(name)) {
+                isOn = in.nextBoolean();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        Actuator actuator = new Actuator(id, type, nodeId);
+        actuator.set(isOn);
+        return actuator;
+    }
+}
@@ -0,0 +1,40 @@
+package no.ntnu.network.message;
+
+/**
+ * A command from a control panel to switch one actuator of a sensor/actuator node on or off.
+ */
+public class ControlCommand {
+    private final int nodeId;
+    private final int actuatorId;
+    private final boolean isOn;
+
+    /**
+     * Creates a new control command.
+     *
+     * @param nodeId     The node the actuator is attached to
+     * @param actuatorId The actuator to switch
+     * @param isOn       The requested state of the actuator
+     */
+    public ControlCommand(int nodeId, int actuatorId, boolean isOn) {
+        this.nodeId = nodeId;
+        this.actuatorId = actuatorId;
+        this.isOn = isOn;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getActuatorId() {
+        return actuatorId;
+    }
+
+    public boolean getIsOn() {
+        return isOn;
+    }
+
+    @Override
+    public String toString() {
+        return "ControlCommand{nodeId=" + nodeId + ", actuatorId=" + actuatorId + ", isOn=" + isOn + "}";
+    }
+}
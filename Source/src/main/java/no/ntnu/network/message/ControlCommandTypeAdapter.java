@@ -0,0 +1,49 @@
+package no.ntnu.network.message;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming JSON codec for control commands: {"nodeid":1,"actuatorid":2,"ison":true}.
+ * Field names are matched case-insensitively, as messages received by the server are lowercased.
+ */
+public class ControlCommandTypeAdapter extends TypeAdapter<ControlCommand> {
+
+    @Override
+    public void write(JsonWriter out, ControlCommand command) throws IOException {
+        if (command == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("nodeid").value(command.getNodeId());
+        out.name("actuatorid").value(command.getActuatorId());
+        out.name("ison").value(command.getIsOn());
+        out.endObject();
+    }
+
+    @Override
+    public ControlCommand read(JsonReader in) throws IOException {
+        int nodeId = -1;
+        int actuatorId = -1;
+        boolean isOn = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("nodeid".equalsIgnoreCase(name)) {
+                nodeId = in.nextInt();
+            } else if ("actuatorid".equalsIgnoreCase(name)) {
+                actuatorId = in.nextInt();
+            } else if ("ison".equalsIgnoreCase(name)) {
+                isOn = in.nextBoolean();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ControlCommand(nodeId, actuatorId, isOn);
+    }
+}
@@ -0,0 +1,256 @@
+package no.ntnu.network.message;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes the frequent outgoing messages of the clients as one line of UTF-8 JSON, straight into a reusable
+ * byte buffer. Numbers are formatted without boxing, so sending a message allocates nothing once the buffers
+ * have grown to their working size.
+ * Each thread uses its own encoder, see {@link #forCurrentThread()}. A message is built with
+ * {@link #beginMessage(String)}, the field methods and {@link #endMessage()}, and stays in the encoder until
+ * the next message is begun on the same thread.
+ */
+public class MessageEncoder {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final ThreadLocal<MessageEncoder> encoders = ThreadLocal.withInitial(MessageEncoder::new);
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length = 0;
+    // Scratch space for formatting doubles, StringBuilder formats them without allocating
+    private final StringBuilder numberText = new StringBuilder(32);
+
+    private MessageEncoder() {
+    }
+
+    /**
+     * Get the encoder of the calling thread.
+     *
+     * @return The encoder, reused for every message sent from this thread
+     */
+    public static MessageEncoder forCurrentThread() {
+        return encoders.get();
+    }
+
+    /**
+     * Starts a new message, dropping the previous one.
+     *
+     * @param type The type of the message
+     * @return This encoder
+     */
+    public MessageEncoder beginMessage(String type) {
+        length = 0;
+        appendAscii('{');
+        appendString("type");
+        appendAscii(':');
+        appendString(type);
+        return this;
+    }
+
+    /**
+     * Adds an integer field to the message.
+     *
+     * @param name  The name of the field
+     * @param value The value of the field
+     * @return This encoder
+     */
+    public MessageEncoder field(String name, long value) {
+        appendName(name);
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Adds a boolean field to the message.
+     *
+     * @param name  The name of the field
+     * @param value The value of the field
+     * @return This encoder
+     */
+    public MessageEncoder field(String name, boolean value) {
+        appendName(name);
+        if (value) {
+            appendAscii('t');
+            appendAscii('r');
+            appendAscii('u');
+            appendAscii('e');
+        } else {
+            appendAscii('f');
+            appendAscii('a');
+            appendAscii('l');
+            appendAscii('s');
+            appendAscii('e');
+        }
+        return this;
+    }
+
+    /**
+     * Adds a floating point field to the message.
+     *
+     * @param name  The name of the field
+     * @param value The value of the field, must be finite
+     * @return This encoder
+     * @throws IllegalArgumentException If the value is NaN or infinite, which JSON can't represent
+     */
+    public MessageEncoder field(String name, double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("JSON can't represent the value " + value + " of " + name);
+        }
+        appendName(name);
+        numberText.setLength(0);
+        numberText.append(value);
+        for (int i = 0; i < numberText.length(); ++i) {
+            appendAscii(numberText.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Adds a text field to the message.
+     *
+     * @param name  The name of the field
+     * @param value The value of the field, null is encoded as JSON null
+     * @return This encoder
+     */
+    public MessageEncoder field(String name, String value) {
+        appendName(name);
+        if (value == null) {
+            appendAscii('n');
+            appendAscii('u');
+            appendAscii('l');
+            appendAscii('l');
+        } else {
+            appendString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Ends the message, including the line break separating it from the next message.
+     *
+     * @return This encoder
+     */
+    public MessageEncoder endMessage() {
+        appendAscii('}');
+        appendAscii('\n');
+        return this;
+    }
+
+    /**
+     * Writes the encoded message to a stream and flushes the stream.
+     *
+     * @param out The stream to write to
+     * @throws IOException If the message can't be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Get the number of bytes of the encoded message.
+     *
+     * @return The length of the message in bytes, including the line break
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Decodes the message into a string. Allocates, use for logging and debugging only.
+     *
+     * @return The message, without the line break
+     */
+    @Override
+    public String toString() {
+        int end = length > 0 && bytes[length - 1] == '\n' ? length - 1 : length;
+        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private void appendName(String name) {
+        appendAscii(',');
+        appendString(name);
+        appendAscii(':');
+    }
+
+    private void appendLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            // Can't be negated, a message never holds it in practice
+            String text = Long.toString(value);
+            for (int i = 0; i < text.length(); ++i) {
+                appendAscii(text.charAt(i));
+            }
+            return;
+        }
+        if (value < 0) {
+            appendAscii('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            ++digits;
+        }
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; --i) {
+            bytes[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendString(String text) {
+        appendAscii('"');
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                appendAscii('\\');
+                appendAscii(c);
+            } else if (c < 0x20) {
+                appendControlCharacter(c);
+            } else if (c < 0x80) {
+                appendAscii(c);
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                bytes[length++] = (byte) (0xC0 | (c >> 6));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensureCapacity(4);
+                bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                ensureCapacity(3);
+                bytes[length++] = (byte) (0xE0 | (c >> 12));
+                bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        appendAscii('"');
+    }
+
+    private void appendControlCharacter(char c) {
+        appendAscii('\\');
+        appendAscii('u');
+        appendAscii('0');
+        appendAscii('0');
+        appendAscii(Character.forDigit(c >> 4, 16));
+        appendAscii(Character.forDigit(c & 0xF, 16));
+    }
+
+    private void appendAscii(char c) {
+        ensureCapacity(1);
+        bytes[length++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
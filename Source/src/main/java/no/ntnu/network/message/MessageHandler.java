@@ -1,12 +1,30 @@
 package no.ntnu.network.message;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import no.ntnu.greenhouse.Actuator;
 import no.ntnu.greenhouse.SensorReading;
-import no.ntnu.controlpanel.ControlPanelLogic;
+import no.ntnu.network.server.alarms.AlarmEvent;
+import no.ntnu.network.server.alarms.AlarmRule;
+import no.ntnu.network.server.history.ExportFormat;
+import no.ntnu.network.server.history.HistoryBucket;
+import no.ntnu.network.server.history.HistoryTier;
+import no.ntnu.network.server.rules.Comparison;
+import no.ntnu.network.server.rules.Rule;
+import no.ntnu.network.server.schedule.CronExpression;
+import no.ntnu.network.server.schedule.FixedRate;
+import no.ntnu.network.server.schedule.Recurrence;
+import no.ntnu.network.server.schedule.Schedule;
 import no.ntnu.tools.Logger;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,36 +32,68 @@ import java.util.List;
  */
 public class MessageHandler {
 
+    private static final TypeAdapter<SensorReading> sensorReadingAdapter = new SensorReadingTypeAdapter();
+    private static final TypeAdapter<Actuator> actuatorStateAdapter = new ActuatorStateTypeAdapter();
+    private static final TypeAdapter<ControlCommand> controlCommandAdapter = new ControlCommandTypeAdapter();
+
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(String.class, new TrimStringDeserializer())
+            .registerTypeAdapter(SensorReading.class, sensorReadingAdapter)
+            .registerTypeAdapter(Actuator.class, actuatorStateAdapter)
+            .registerTypeAdapter(ControlCommand.class, controlCommandAdapter)
             .create();
 
+    // Outgoing messages are written into one reusable buffer per thread
+    private static final ThreadLocal<StringWriter> messageBuffer = ThreadLocal.withInitial(StringWriter::new);
+
     /**
-     * Validates the format of a JSON message string by attempting to parse it into a JsonObject.
+     * Validates the format of a JSON message string by checking that it is a single JSON object.
      * The method performs the following validations:
      * 1. Converts the entire message to lowercase.
      * 2. Removes all spaces from the message.
-     * 3. Attempts to parse the modified message into a JsonObject using Gson.
+     * 3. Streams through the modified message to check that it is one JSON object, without building a JsonObject.
      *
      * @param userInput The input JSON message string to be validated.
      * @return The validated and modified JSON message string.
      * @throws IllegalArgumentException If the provided message is not a valid JSON format.
      */
     public static String validateMessageFormat(String userInput) {
-        try {
-            // Turn all message to lowercase
-            userInput = userInput.toLowerCase();
+        // Turn all message to lowercase
+        userInput = userInput.toLowerCase();
 
-            // remove all spaces from the message
-            userInput = userInput.replaceAll("\\s", "");
-            gson.fromJson(userInput, JsonObject.class);
+        // remove all spaces from the message
+        userInput = removeWhitespace(userInput);
+        try (JsonReader in = new JsonReader(new StringReader(userInput))) {
+            // As lenient as Gson.fromJson, which this check used to be
+            in.setLenient(true);
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new IllegalStateException("Expected a JSON object but was " + in.peek());
+            }
+            in.skipValue();
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalStateException("JSON document was not fully consumed.");
+            }
             return userInput;
-        } catch (JsonSyntaxException e) {
+        } catch (IOException | IllegalStateException e) {
             Logger.error("Error parsing JSON: " + e.getMessage());
             throw new IllegalArgumentException(e.getMessage());
         }
     }
 
+    // Removes the characters matched by \s in a regular expression, without the cost of one
+    private static String removeWhitespace(String text) {
+        StringBuilder stripped = null;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            boolean whitespace = c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+            if (whitespace && stripped == null) {
+                stripped = new StringBuilder(text.length()).append(text, 0, i);
+            } else if (!whitespace && stripped != null) {
+                stripped.append(c);
+            }
+        }
+        return stripped == null ? text : stripped.toString();
+    }
 
     /**
      * Creates a warning message with the specified content.
@@ -81,27 +131,27 @@ public class MessageHandler {
      * @throws IllegalArgumentException If there is an error parsing the JSON or if the message does not contain a type attribute.
      */
     public static String getMessageType(String message) {
-        try {
-            if (message == null) {
-                Logger.error("Input message is null.");
-            }
-
-            JsonObject jsonMessage = gson.fromJson(message, JsonObject.class);
-
-            if (jsonMessage == null) {
-                Logger.error("Invalid JSON format. Unable to parse the message.");
-            }
-
-            if (!jsonMessage.has("type")) {
-                Logger.error("Message does not contain a 'type' attribute");
+        if (message == null) {
+            Logger.error("Input message is null.");
+            throw new IllegalArgumentException("Input message is null.");
+        }
+        // Streams up to the type field, usually the first one, instead of building a JsonObject of the message
+        try (JsonReader in = new JsonReader(new StringReader(message))) {
+            in.setLenient(true);
+            in.beginObject();
+            while (in.hasNext()) {
+                if (in.nextName().equals("type")) {
+                    return in.nextString();
+                }
+                in.skipValue();
             }
-
-            return jsonMessage.get("type").getAsString();
-        } catch (JsonSyntaxException e) {
+        } catch (IOException | IllegalStateException e) {
             String errorMessage = "Error parsing JSON: " + e.getMessage();
             Logger.error(errorMessage);
             throw new IllegalArgumentException(errorMessage);
         }
+        Logger.error("Message does not contain a 'type' attribute");
+        throw new IllegalArgumentException("Message does not contain a 'type' attribute");
     }
 
     /**
@@ -120,6 +170,19 @@ public class MessageHandler {
         commandsArray.add("ALL_CONTROL_PANELS");
         commandsArray.add("ALL_SENSORS");
         commandsArray.add("COMMAND_TO_SENSOR_ACTUATOR");
+        commandsArray.add("HISTORY");
+        commandsArray.add("EXPORT_HISTORY");
+        commandsArray.add("ADD_RULE");
+        commandsArray.add("REMOVE_RULE");
+        commandsArray.add("LIST_RULES");
+        commandsArray.add("ADD_SCHEDULE");
+        commandsArray.add("CANCEL_SCHEDULE");
+        commandsArray.add("LIST_SCHEDULES");
+        commandsArray.add("ADD_ALARM");
+        commandsArray.add("REMOVE_ALARM");
+        commandsArray.add("LIST_ALARMS");
+        commandsArray.add("SUBSCRIBE_ALARMS");
+        commandsArray.add("UNSUBSCRIBE_ALARMS");
         // Add more commands as needed
 
         commandList.add("commands", commandsArray);
@@ -162,6 +225,593 @@ public class MessageHandler {
         return successResponse.toString();
     }
 
+    /**
+     * Creates a control command message telling a sensor/actuator client to switch one of its actuators.
+     *
+     * @param actuatorId The actuator to switch on the receiving node
+     * @param isOn       The new state of the actuator
+     * @return The JSON message representing the control command
+     */
+    public static String createControlCommandMessage(int actuatorId, boolean isOn) {
+        try {
+            JsonWriter out = beginMessage("control_command");
+            out.name("actuatorid").value(actuatorId);
+            out.name("ison").value(isOn);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding control command: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a sensor data message forwarding the readings of one node to a control panel.
+     *
+     * @param nodeId   The node the readings belong to
+     * @param readings The sensor readings
+     * @return The JSON message representing the sensor data
+     */
+    public static String createSensorDataMessage(int nodeId, List<SensorReading> readings) {
+        try {
+            JsonWriter out = beginMessage("sensor_data");
+            out.name("nodeid").value(nodeId);
+            out.name("sensordata").beginArray();
+            for (SensorReading reading : readings) {
+                sensorReadingAdapter.write(out, reading);
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding sensor data: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an actuator state message forwarding an actuator change of one node to a control panel.
+     *
+     * @param nodeId     The node the actuator is attached to
+     * @param actuatorId The actuator which changed state
+     * @param isOn       The current state of the actuator
+     * @return The JSON message representing the actuator state
+     */
+    public static String createActuatorStateMessage(int nodeId, int actuatorId, boolean isOn) {
+        try {
+            JsonWriter out = beginMessage("actuator_state");
+            out.name("nodeid").value(nodeId);
+            out.name("actuatorid").value(actuatorId);
+            out.name("ison").value(isOn);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding actuator state: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an actuator states message forwarding the changes of several actuators of one node to a control
+     * panel, such as {"type":"actuator_states","nodeid":3,"actuators":[{"actuatorid":1,"ison":true}]}.
+     *
+     * @param nodeId      The node the actuators are attached to
+     * @param actuatorIds The actuators which changed state
+     * @param states      The current states of the actuators, in the same order
+     * @return The JSON message representing the actuator states
+     */
+    public static String createActuatorStatesMessage(int nodeId, int[] actuatorIds, boolean[] states) {
+        try {
+            JsonWriter out = beginMessage("actuator_states");
+            out.name("nodeid").value(nodeId);
+            out.name("actuators").beginArray();
+            for (int i = 0; i < actuatorIds.length; ++i) {
+                out.beginObject();
+                out.name("actuatorid").value(actuatorIds[i]);
+                out.name("ison").value(states[i]);
+                out.endObject();
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding actuator states: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates an actuator status message holding the state of several actuators.
+     *
+     * @param actuators The actuators to report
+     * @return The JSON message representing the actuator status
+     */
+    public static String createActuatorStatusMessage(Iterable<Actuator> actuators) {
+        try {
+            JsonWriter out = beginMessage("actuator_status");
+            out.name("actuatorstatus").beginArray();
+            for (Actuator actuator : actuators) {
+                actuatorStateAdapter.write(out, actuator);
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding actuator status: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a control commands message holding several control commands.
+     *
+     * @param commands The control commands
+     * @return The JSON message representing the control commands
+     */
+    public static String createControlCommandsMessage(List<ControlCommand> commands) {
+        try {
+            JsonWriter out = beginMessage("control_commands");
+            out.name("controlcommands").beginArray();
+            for (ControlCommand command : commands) {
+                controlCommandAdapter.write(out, command);
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding control commands: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts writing a message of the given type into the reusable buffer of this thread.
+     *
+     * @param type The type of the message
+     * @return The writer positioned inside the message object, after the type
+     * @throws IOException If the message can't be written
+     */
+    private static JsonWriter beginMessage(String type) throws IOException {
+        StringWriter buffer = messageBuffer.get();
+        buffer.getBuffer().setLength(0);
+        JsonWriter out = new JsonWriter(buffer);
+        out.beginObject();
+        out.name("type").value(type);
+        return out;
+    }
+
+    private static String endMessage(JsonWriter out) throws IOException {
+        out.endObject();
+        out.flush();
+        return messageBuffer.get().toString();
+    }
+
+    /**
+     * Creates a history message answering a history query with the aggregated buckets of one sensor type of one node.
+     *
+     * @param nodeId       The node the history belongs to
+     * @param sensorType   The sensor type
+     * @param bucketMillis The bucket size, in milliseconds
+     * @param buckets      The buckets holding samples, oldest first
+     * @return The JSON message representing the history
+     */
+    public static String createHistoryMessage(int nodeId, String sensorType, long bucketMillis,
+                                              List<HistoryBucket> buckets) {
+        try {
+            JsonWriter out = beginMessage("history");
+            out.name("nodeid").value(nodeId);
+            out.name("sensortype").value(sensorType);
+            out.name("bucket").value(bucketMillis);
+            out.name("tier").value(HistoryTier.forBucketSize(bucketMillis).name().toLowerCase());
+            out.name("buckets").beginArray();
+            for (HistoryBucket bucket : buckets) {
+                out.beginObject();
+                out.name("start").value(bucket.getStart());
+                out.name("count").value(bucket.getCount());
+                out.name("min").value(bucket.getMin());
+                out.name("max").value(bucket.getMax());
+                out.name("avg").value(bucket.getAverage());
+                out.endObject();
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding history: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a state version message telling a sensor/actuator client the version of its state known by the
+     * server. The client can present this version when it reconnects, to resume without sending its full state.
+     *
+     * @param nodeId       The node of the client
+     * @param stateVersion The version of the state of the node, 0 if the server does not know the node
+     * @param resumed      True if the client resumed from the known state, false if it registered or must
+     *                     send its full state
+     * @return The JSON message representing the state version
+     */
+    public static String createStateVersionMessage(int nodeId, long stateVersion, boolean resumed) {
+        try {
+            JsonWriter out = beginMessage("state_version");
+            out.name("nodeid").value(nodeId);
+            out.name("version").value(stateVersion);
+            out.name("resumed").value(resumed);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding state version: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client that its history export is queued.
+     *
+     * @param exportId The ID of the export
+     * @param format   The format of the exported rows
+     * @return The JSON message representing the start of the export
+     */
+    public static String createExportStartedMessage(int exportId, ExportFormat format) {
+        try {
+            JsonWriter out = beginMessage("export_started");
+            out.name("exportid").value(exportId);
+            out.name("format").value(format.name().toLowerCase());
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding export start: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message carrying one chunk of the rows of a history export streamed to a client.
+     *
+     * @param exportId The ID of the export
+     * @param data     The rows, whole or split at any character
+     * @return The JSON message representing the chunk
+     */
+    public static String createExportChunkMessage(int exportId, CharSequence data) {
+        try {
+            JsonWriter out = beginMessage("export_chunk");
+            out.name("exportid").value(exportId);
+            out.name("data").value(data.toString());
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding export chunk: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client that its history export is done.
+     *
+     * @param exportId The ID of the export
+     * @param rows     The number of rows exported
+     * @param file     The file the rows were written to, or null if they were streamed to the client
+     * @param error    The reason the export failed, or null if it succeeded
+     * @return The JSON message representing the end of the export
+     */
+    public static String createExportEndMessage(int exportId, long rows, String file, String error) {
+        try {
+            JsonWriter out = beginMessage("export_end");
+            out.name("exportid").value(exportId);
+            out.name("rows").value(rows);
+            if (file != null) {
+                out.name("file").value(file);
+            }
+            if (error != null) {
+                out.name("error").value(error);
+            }
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding export end: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a UDP session message, giving a sensor/actuator client the token to put in its sensor data datagrams.
+     *
+     * @param token   The session token
+     * @param udpPort The UDP port of the server
+     * @return The JSON message representing the UDP session
+     */
+    public static String createUdpSessionMessage(long token, int udpPort) {
+        JsonObject sessionMessage = new JsonObject();
+        sessionMessage.addProperty("type", "udp_session");
+        sessionMessage.addProperty("token", token);
+        sessionMessage.addProperty("port", udpPort);
+        return sessionMessage.toString();
+    }
+
+    /**
+     * Parses a sensor data message from a node in one streaming pass, without building a JsonObject: either a
+     * batch of readings, {"type":"sensor_data","nodeid":3,"sensordata":[{"type":"temperature","value":27.4,"unit":"°C"}]},
+     * or a single reading, {"type":"sensor_data","nodeid":3,"sensortype":"temperature","sensorvalue":27.4}.
+     * An optional "timestamp" tells when the readings were taken, in milliseconds since the epoch.
+     *
+     * @param message The validated JSON message
+     * @return The node and its readings, or null if the message has no node ID
+     * @throws IllegalArgumentException If the message is not valid JSON, or a reading has no type
+     */
+    public static SensorDataMessage parseSensorData(String message) {
+        int nodeId = 0;
+        boolean hasNodeId = false;
+        long timestamp = SensorDataMessage.NO_TIMESTAMP;
+        List<SensorReading> readings = new ArrayList<>();
+        String sensorType = null;
+        double sensorValue = 0;
+        try (JsonReader in = new JsonReader(new StringReader(message))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if ("nodeid".equalsIgnoreCase(name)) {
+                    nodeId = in.nextInt();
+                    hasNodeId = true;
+                } else if ("sensordata".equalsIgnoreCase(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        readings.add(sensorReadingAdapter.read(in));
+                    }
+                    in.endArray();
+                } else if ("timestamp".equalsIgnoreCase(name)) {
+                    timestamp = in.nextLong();
+                } else if ("sensortype".equalsIgnoreCase(name)) {
+                    sensorType = in.nextString();
+                } else if ("sensorvalue".equalsIgnoreCase(name)) {
+                    sensorValue = in.nextDouble();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException | JsonParseException e) {
+            String errorMessage = "Error parsing JSON: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+        if (!hasNodeId) {
+            return null;
+        }
+        if (readings.isEmpty() && sensorType != null) {
+            readings.add(new SensorReading(sensorType, sensorValue, ""));
+        }
+        return new SensorDataMessage(nodeId, timestamp, readings);
+    }
+
+    /**
+     * Creates a message telling a client that its rule is added.
+     *
+     * @param rule The added rule
+     * @return The JSON message representing the added rule
+     */
+    public static String createRuleAddedMessage(Rule rule) {
+        try {
+            JsonWriter out = beginMessage("rule_added");
+            out.name("rule");
+            writeRule(rule, out);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding rule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client whether its rule is removed.
+     *
+     * @param ruleId  The ID of the rule
+     * @param removed True if the rule was removed, false if there was no rule with that ID
+     * @return The JSON message representing the removal
+     */
+    public static String createRuleRemovedMessage(int ruleId, boolean removed) {
+        try {
+            JsonWriter out = beginMessage("rule_removed");
+            out.name("ruleid").value(ruleId);
+            out.name("removed").value(removed);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding rule removal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message listing control rules.
+     *
+     * @param rules The rules
+     * @return The JSON message representing the rules
+     */
+    public static String createRulesMessage(Collection<Rule> rules) {
+        try {
+            JsonWriter out = beginMessage("rules");
+            out.name("rules").beginArray();
+            for (Rule rule : rules) {
+                writeRule(rule, out);
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding rules: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeRule(Rule rule, JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("ruleid").value(rule.getRuleId());
+        out.name("nodeid").value(rule.getNodeId());
+        out.name("sensortype").value(rule.getSensorType());
+        out.name("operator").value(rule.getComparison().getSymbol());
+        out.name("threshold").value(rule.getThreshold());
+        if (rule.isHysteresisRule()) {
+            out.name("hysteresis").value(rule.getHysteresis());
+        }
+        out.name("targetnodeid").value(rule.getTargetNodeId());
+        out.name("actuatorid").value(rule.getActuatorId());
+        out.name("ison").value(rule.isOn());
+        out.name("triggered").value(rule.isTriggered());
+        out.endObject();
+    }
+
+    /**
+     * Creates a message telling a client that its schedule is added.
+     *
+     * @param schedule The added schedule
+     * @return The JSON message representing the added schedule
+     */
+    public static String createScheduleAddedMessage(Schedule schedule) {
+        try {
+            JsonWriter out = beginMessage("schedule_added");
+            out.name("schedule");
+            writeSchedule(schedule, out);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding schedule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client whether its schedule is cancelled.
+     *
+     * @param scheduleId The ID of the schedule
+     * @param cancelled  True if the schedule was cancelled, false if there was no schedule with that ID
+     * @return The JSON message representing the cancellation
+     */
+    public static String createScheduleCancelledMessage(int scheduleId, boolean cancelled) {
+        try {
+            JsonWriter out = beginMessage("schedule_cancelled");
+            out.name("scheduleid").value(scheduleId);
+            out.name("cancelled").value(cancelled);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding schedule cancellation: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message listing actuator schedules.
+     *
+     * @param schedules The schedules
+     * @return The JSON message representing the schedules
+     */
+    public static String createSchedulesMessage(Collection<Schedule> schedules) {
+        try {
+            JsonWriter out = beginMessage("schedules");
+            out.name("schedules").beginArray();
+            for (Schedule schedule : schedules) {
+                writeSchedule(schedule, out);
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding schedules: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeSchedule(Schedule schedule, JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("scheduleid").value(schedule.getScheduleId());
+        out.name("nodeid").value(schedule.getNodeId());
+        out.name("actuatorid").value(schedule.getActuatorId());
+        out.name("ison").value(schedule.isOn());
+        if (schedule.getRecurrence() instanceof FixedRate) {
+            out.name("period").value(((FixedRate) schedule.getRecurrence()).getPeriod());
+        } else {
+            out.name("cron").value(schedule.getRecurrence().toString());
+        }
+        out.name("duration").value(schedule.getDuration());
+        if (schedule.getNextStart() != Long.MAX_VALUE) {
+            out.name("next").value(schedule.getNextStart());
+        }
+        out.endObject();
+    }
+
+    /**
+     * Creates an alarm message telling a subscribed control panel that an alarm is raised or cleared.
+     *
+     * @param event The alarm event
+     * @return The JSON message representing the alarm event
+     */
+    public static String createAlarmMessage(AlarmEvent event) {
+        try {
+            JsonWriter out = beginMessage("alarm");
+            writeAlarmEventFields(event, out);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding alarm: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client that its alarm rule is added.
+     *
+     * @param rule The added alarm rule
+     * @return The JSON message representing the added alarm rule
+     */
+    public static String createAlarmAddedMessage(AlarmRule rule) {
+        try {
+            JsonWriter out = beginMessage("alarm_added");
+            out.name("alarm");
+            writeAlarmRule(rule, out);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding alarm rule: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message telling a client whether its alarm rule is removed.
+     *
+     * @param alarmId The ID of the alarm rule
+     * @param removed True if the rule was removed, false if there was no rule with that ID
+     * @return The JSON message representing the removal
+     */
+    public static String createAlarmRemovedMessage(int alarmId, boolean removed) {
+        try {
+            JsonWriter out = beginMessage("alarm_removed");
+            out.name("alarmid").value(alarmId);
+            out.name("removed").value(removed);
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding alarm rule removal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates a message listing the alarm rules and the alarms which are raised now.
+     *
+     * @param rules  The alarm rules
+     * @param active The events which raised the active alarms
+     * @return The JSON message representing the alarms
+     */
+    public static String createAlarmsMessage(Collection<AlarmRule> rules, List<AlarmEvent> active) {
+        try {
+            JsonWriter out = beginMessage("alarms");
+            out.name("rules").beginArray();
+            for (AlarmRule rule : rules) {
+                writeAlarmRule(rule, out);
+            }
+            out.endArray();
+            out.name("active").beginArray();
+            for (AlarmEvent event : active) {
+                out.beginObject();
+                writeAlarmEventFields(event, out);
+                out.endObject();
+            }
+            out.endArray();
+            return endMessage(out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding alarms: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeAlarmRule(AlarmRule rule, JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("alarmid").value(rule.getAlarmId());
+        out.name("name").value(rule.getName());
+        if (rule.getNodeId() != AlarmRule.ANY_NODE) {
+            out.name("nodeid").value(rule.getNodeId());
+        }
+        out.name("sensortype").value(rule.getSensorType());
+        out.name("operator").value(rule.getComparison().getSymbol());
+        out.name("threshold").value(rule.getThreshold());
+        out.name("hysteresis").value(rule.getHysteresis());
+        out.name("delay").value(rule.getDelay());
+        out.endObject();
+    }
+
+    private static void writeAlarmEventFields(AlarmEvent event, JsonWriter out) throws IOException {
+        out.name("alarmid").value(event.getRule().getAlarmId());
+        out.name("name").value(event.getRule().getName());
+        out.name("nodeid").value(event.getNodeId());
+        out.name("sensorindex").value(event.getSensorIndex());
+        out.name("sensortype").value(event.getRule().getSensorType());
+        out.name("state").value(event.isRaised() ? "raised" : "cleared");
+        out.name("value").value(event.getValue());
+        out.name("timestamp").value(event.getTimestamp());
+    }
+
     /**
      * Parses a JSON sensor data message and returns the list of sensor readings.
      *
@@ -169,8 +819,7 @@ public class MessageHandler {
      * @return The list of sensor readings parsed from the message
      */
     public static List<SensorReading> parseSensorDataMessage(String message) {
-        JsonObject jsonMessage = gson.fromJson(message, JsonObject.class);
-        return gson.fromJson(jsonMessage.getAsJsonArray("sensorData"), List.class);
+        return parseArrayField(message, "sensorData", sensorReadingAdapter);
     }
 
     /**
@@ -180,8 +829,7 @@ public class MessageHandler {
      * @return The list of actuators parsed from the message
      */
     public static List<Actuator> parseActuatorStatusMessage(String message) {
-        JsonObject jsonMessage = gson.fromJson(message, JsonObject.class);
-        return gson.fromJson(jsonMessage.getAsJsonArray("actuatorStatus"), List.class);
+        return parseArrayField(message, "actuatorStatus", actuatorStateAdapter);
     }
 
     /**
@@ -190,8 +838,161 @@ public class MessageHandler {
      * @param message The JSON message containing control commands
      * @return The list of control commands parsed from the message.
      */
-    public static List<ControlPanelLogic> parseControlCommandMessage(String message) {
-        JsonObject jsonMessage = gson.fromJson(message, JsonObject.class);
-        return gson.fromJson(jsonMessage.getAsJsonArray("controlCommands"), List.class);
+    public static List<ControlCommand> parseControlCommandMessage(String message) {
+        return parseArrayField(message, "controlCommands", controlCommandAdapter);
+    }
+
+    /**
+     * Parses a single JSON control command message, such as {"type":"actuator_control","nodeid":3,"actuatorid":2,"ison":true}.
+     *
+     * @param message The JSON message containing the control command
+     * @return The control command parsed from the message
+     * @throws IllegalArgumentException If the message is not valid JSON, or a number in it is not valid
+     */
+    public static ControlCommand parseControlCommand(String message) {
+        try (JsonReader in = new JsonReader(new StringReader(message))) {
+            return controlCommandAdapter.read(in);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            String errorMessage = "Error parsing JSON: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
+    /**
+     * Parses a rule message, such as
+     * {"type":"add_rule","nodeid":4,"sensortype":"temperature","operator":"<","threshold":18,"hysteresis":1,"actuatorid":2,"ison":true}.
+     * Without a hysteresis the rule is a threshold rule, without a target node it switches an actuator of the node
+     * it checks, and without an actuator ID it switches the actuator the target node registered with.
+     *
+     * @param message The validated JSON message containing the rule
+     * @return The rule parsed from the message, without a rule ID
+     * @throws IllegalArgumentException If the message is not a valid rule
+     */
+    public static Rule parseRule(String message) {
+        try {
+            JsonObject rule = gson.fromJson(message, JsonObject.class);
+            int nodeId = rule.getAsJsonPrimitive("nodeid").getAsInt();
+            return new Rule(nodeId,
+                    rule.getAsJsonPrimitive("sensortype").getAsString(),
+                    Comparison.fromSymbol(rule.getAsJsonPrimitive("operator").getAsString()),
+                    rule.getAsJsonPrimitive("threshold").getAsDouble(),
+                    rule.has("hysteresis") ? rule.getAsJsonPrimitive("hysteresis").getAsDouble() : Double.NaN,
+                    rule.has("targetnodeid") ? rule.getAsJsonPrimitive("targetnodeid").getAsInt() : nodeId,
+                    rule.has("actuatorid") ? rule.getAsJsonPrimitive("actuatorid").getAsInt() : -1,
+                    rule.getAsJsonPrimitive("ison").getAsBoolean());
+        } catch (JsonParseException | NullPointerException | ClassCastException | NumberFormatException e) {
+            String errorMessage = "Invalid rule: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
+    /**
+     * Parses a schedule message. With a "period", the schedule starts now and then every period, for example
+     * {"type":"add_schedule","nodeid":3,"actuatorid":1,"ison":true,"period":3600000,"duration":600000}.
+     * Otherwise it starts at the minutes matching the cron fields "minute" (0 by default), "hour", "dayofmonth",
+     * "month" and "dayofweek" (* by default), for example
+     * {"type":"add_schedule","nodeid":3,"actuatorid":1,"ison":true,"hour":"22","dayofweek":"1-5","duration":28800000}.
+     * Without a duration the actuator is only switched at every start, without an actuator ID the schedule
+     * switches the actuator the node registered with.
+     *
+     * @param message The validated JSON message containing the schedule
+     * @return The schedule parsed from the message, without a schedule ID
+     * @throws IllegalArgumentException If the message is not a valid schedule
+     */
+    public static Schedule parseSchedule(String message) {
+        try {
+            JsonObject schedule = gson.fromJson(message, JsonObject.class);
+            Recurrence recurrence;
+            if (schedule.has("period")) {
+                recurrence = new FixedRate(System.currentTimeMillis(),
+                        schedule.getAsJsonPrimitive("period").getAsLong());
+            } else if (schedule.has("minute") || schedule.has("hour") || schedule.has("dayofmonth")
+                    || schedule.has("month") || schedule.has("dayofweek")) {
+                recurrence = new CronExpression(getCronField(schedule, "minute", "0"),
+                        getCronField(schedule, "hour", "*"),
+                        getCronField(schedule, "dayofmonth", "*"),
+                        getCronField(schedule, "month", "*"),
+                        getCronField(schedule, "dayofweek", "*"));
+            } else {
+                throw new IllegalArgumentException("A schedule needs a period or cron fields");
+            }
+            return new Schedule(schedule.getAsJsonPrimitive("nodeid").getAsInt(),
+                    schedule.has("actuatorid") ? schedule.getAsJsonPrimitive("actuatorid").getAsInt() : -1,
+                    schedule.getAsJsonPrimitive("ison").getAsBoolean(),
+                    recurrence,
+                    schedule.has("duration") ? schedule.getAsJsonPrimitive("duration").getAsLong() : 0);
+        } catch (JsonParseException | NullPointerException | ClassCastException | IllegalArgumentException e) {
+            String errorMessage = "Invalid schedule: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
+    private static String getCronField(JsonObject schedule, String name, String defaultValue) {
+        return schedule.has(name) ? schedule.getAsJsonPrimitive(name).getAsString() : defaultValue;
+    }
+
+    /**
+     * Parses an alarm rule message, such as
+     * {"type":"add_alarm","name":"wet","sensortype":"humidity","operator":">","threshold":95,"hysteresis":2,"delay":120000}.
+     * Without a node ID the rule applies to every node, without a name it is named after its condition, and the
+     * hysteresis and the delay are 0 by default.
+     *
+     * @param message The validated JSON message containing the alarm rule
+     * @return The alarm rule parsed from the message, without an alarm ID
+     * @throws IllegalArgumentException If the message is not a valid alarm rule
+     */
+    public static AlarmRule parseAlarmRule(String message) {
+        try {
+            JsonObject alarm = gson.fromJson(message, JsonObject.class);
+            return new AlarmRule(alarm.has("name") ? alarm.getAsJsonPrimitive("name").getAsString() : null,
+                    alarm.has("nodeid") ? alarm.getAsJsonPrimitive("nodeid").getAsInt() : AlarmRule.ANY_NODE,
+                    alarm.getAsJsonPrimitive("sensortype").getAsString(),
+                    Comparison.fromSymbol(alarm.getAsJsonPrimitive("operator").getAsString()),
+                    alarm.getAsJsonPrimitive("threshold").getAsDouble(),
+                    alarm.has("hysteresis") ? alarm.getAsJsonPrimitive("hysteresis").getAsDouble() : 0,
+                    alarm.has("delay") ? alarm.getAsJsonPrimitive("delay").getAsLong() : 0);
+        } catch (JsonParseException | NullPointerException | ClassCastException | NumberFormatException e) {
+            String errorMessage = "Invalid alarm rule: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+    }
+
+    /**
+     * Streams through a JSON message and decodes the elements of one top-level array field, without building
+     * a tree of the whole message.
+     *
+     * @param message   The JSON message
+     * @param fieldName The name of the array field, matched case-insensitively
+     * @param adapter   The codec for the array elements
+     * @param <T>       The type of the array elements
+     * @return The decoded elements, an empty list if the message has no such field
+     * @throws IllegalArgumentException If the message is not valid JSON
+     */
+    private static <T> List<T> parseArrayField(String message, String fieldName, TypeAdapter<T> adapter) {
+        List<T> elements = new ArrayList<>();
+        try (JsonReader in = new JsonReader(new StringReader(message))) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if (fieldName.equalsIgnoreCase(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        elements.add(adapter.read(in));
+                    }
+                    in.endArray();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException | JsonParseException e) {
+            String errorMessage = "Error parsing JSON: " + e.getMessage();
+            Logger.error(errorMessage);
+            throw new IllegalArgumentException(errorMessage);
+        }
+        return elements;
     }
 }
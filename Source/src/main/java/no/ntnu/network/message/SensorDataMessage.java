@@ -0,0 +1,49 @@
+package no.ntnu.network.message;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.util.List;
+
+/**
+ * The readings reported by a sensor/actuator node in one sensor data message.
+ */
+public class SensorDataMessage {
+    /**
+     * The timestamp of a message which doesn't tell when its readings were taken.
+     */
+    public static final long NO_TIMESTAMP = -1;
+
+    private final int nodeId;
+    private final long timestamp;
+    private final List<SensorReading> readings;
+
+    /**
+     * Creates a new sensor data message.
+     *
+     * @param nodeId    The node which reported the readings
+     * @param timestamp When the readings were taken, in milliseconds since the epoch, or NO_TIMESTAMP
+     * @param readings  The readings, empty if the message held none
+     */
+    public SensorDataMessage(int nodeId, long timestamp, List<SensorReading> readings) {
+        this.nodeId = nodeId;
+        this.timestamp = timestamp;
+        this.readings = readings;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public List<SensorReading> getReadings() {
+        return readings;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorDataMessage{nodeId=" + nodeId + ", timestamp=" + timestamp + ", readings=" + readings + "}";
+    }
+}
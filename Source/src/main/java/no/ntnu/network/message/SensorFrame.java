@@ -0,0 +1,37 @@
+package no.ntnu.network.message;
+
+import no.ntnu.greenhouse.SensorReading;
+
+/**
+ * One sensor reading of one node at one point in time, as carried by the binary sensor frames.
+ */
+public class SensorFrame {
+    private final int nodeId;
+    private final long timestamp;
+    private final SensorReading reading;
+
+    /**
+     * Creates a new sensor frame.
+     *
+     * @param nodeId    The node the reading belongs to
+     * @param timestamp When the reading was taken, in milliseconds since the epoch
+     * @param reading   The sensor reading
+     */
+    public SensorFrame(int nodeId, long timestamp, SensorReading reading) {
+        this.nodeId = nodeId;
+        this.timestamp = timestamp;
+        this.reading = reading;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public SensorReading getReading() {
+        return reading;
+    }
+}
@@ -0,0 +1,108 @@
+package no.ntnu.network.message;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The binary encoding of sensor readings, used where JSON text is too expensive, for example on the
+ * shared-memory transport between the simulator and the server.
+ * A frame has the following layout (big endian, as ByteBuffer defaults to):
+ * [int nodeId] [long timestamp] [double value] [byte typeLength] [type, UTF-8] [byte unitLength] [unit, UTF-8]
+ */
+public class SensorFrameCodec {
+
+    /**
+     * The maximum length of one encoded frame, in bytes.
+     */
+    public static final int MAX_FRAME_LENGTH = 64;
+    private static final int FIXED_LENGTH = Integer.BYTES + Long.BYTES + Double.BYTES + 2;
+    private static final int MAX_TEXT_LENGTH = MAX_FRAME_LENGTH - FIXED_LENGTH;
+
+    // Sensor types and units are a small set of strings, encode each of them only once. The texts come from the
+    // clients, so the cache is bounded: once full, other texts are encoded on every use.
+    private static final int MAX_CACHED_TEXTS = 256;
+    private static final Map<String, byte[]> encodedText = new ConcurrentHashMap<>();
+
+    /**
+     * Not allowed to create instances of this class.
+     */
+    private SensorFrameCodec() {
+    }
+
+    /**
+     * Writes one sensor frame at the current position of the buffer.
+     *
+     * @param buffer    The buffer to write to
+     * @param nodeId    The node the reading belongs to
+     * @param timestamp When the reading was taken, in milliseconds since the epoch
+     * @param type      The type of the sensor
+     * @param value     The value of the reading
+     * @param unit      The unit of the reading
+     * @throws IllegalArgumentException If the type and unit are too long to fit in one frame
+     */
+    public static void encode(ByteBuffer buffer, int nodeId, long timestamp, String type, double value, String unit) {
+        byte[] typeBytes = encodeText(type);
+        byte[] unitBytes = encodeText(unit);
+        if (typeBytes.length + unitBytes.length > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Sensor type and unit too long for a frame: " + type + ", " + unit);
+        }
+        buffer.putInt(nodeId);
+        buffer.putLong(timestamp);
+        buffer.putDouble(value);
+        buffer.put((byte) typeBytes.length);
+        buffer.put(typeBytes);
+        buffer.put((byte) unitBytes.length);
+        buffer.put(unitBytes);
+    }
+
+    /**
+     * Reads one sensor frame from the current position of the buffer.
+     *
+     * @param buffer The buffer to read from
+     * @return The decoded frame
+     */
+    public static SensorFrame decode(ByteBuffer buffer) {
+        int nodeId = buffer.getInt();
+        long timestamp = buffer.getLong();
+        double value = buffer.getDouble();
+        String type = decodeText(buffer);
+        String unit = decodeText(buffer);
+        return new SensorFrame(nodeId, timestamp, new SensorReading(type, value, unit));
+    }
+
+    /**
+     * Get the encoded length of a frame.
+     *
+     * @param type The type of the sensor
+     * @param unit The unit of the reading
+     * @return The number of bytes the frame takes
+     */
+    public static int encodedLength(String type, String unit) {
+        return FIXED_LENGTH + encodeText(type).length + encodeText(unit).length;
+    }
+
+    private static byte[] encodeText(String text) {
+        if (text == null) {
+            text = "";
+        }
+        byte[] bytes = encodedText.get(text);
+        if (bytes == null) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            if (encodedText.size() < MAX_CACHED_TEXTS) {
+                encodedText.putIfAbsent(text, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    private static String decodeText(ByteBuffer buffer) {
+        int length = buffer.get() & 0xFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,55 @@
+package no.ntnu.network.message;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import no.ntnu.greenhouse.SensorReading;
+
+import java.io.IOException;
+
+/**
+ * Streaming JSON codec for sensor readings: {"type":"temperature","value":27.4,"unit":"°C"}.
+ * Field names are matched case-insensitively, as messages received by the server are lowercased.
+ * A reading without a type is rejected with a JsonParseException.
+ */
+public class SensorReadingTypeAdapter extends TypeAdapter<SensorReading> {
+
+    @Override
+    public void write(JsonWriter out, SensorReading reading) throws IOException {
+        if (reading == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("type").value(reading.getType());
+        out.name("value").value(reading.getValue());
+        out.name("unit").value(reading.getUnit());
+        out.endObject();
+    }
+
+    @Override
+    public SensorReading read(JsonReader in) throws IOException {
+        String type = null;
+        double value = 0;
+        String unit = "";
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("type".equalsIgnoreCase(name)) {
+                type = in.nextString().trim();
+            } else if ("value".equalsIgnoreCase(name)) {
+                value = in.nextDouble();
+            } else if ("unit".equalsIgnoreCase(name)) {
+                unit = in.nextString().trim();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (type == null || type.isEmpty()) {
+            throw new JsonParseException("Sensor reading without a type");
+        }
+        return new SensorReading(type, value, unit);
+    }
+}
@@ -0,0 +1,229 @@
+package no.ntnu.network.recording;
+
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrameCodec;
+import no.ntnu.tools.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records a stream of sensor readings to a file, to be replayed later with a SensorReplayer.
+ * The file starts with a header, followed by the readings as binary sensor frames (see SensorFrameCodec),
+ * in the order they were recorded:
+ * [int magic] [int version] [frame] [frame] ...
+ * The timestamp of each frame is the time the reading was recorded, so that replaying the file reproduces
+ * the original inter-arrival times.
+ * Recording may be done from several threads, and never waits for the file: the readings are queued and a
+ * single recorder thread encodes them, collects the frames in a direct buffer and writes them in large chunks.
+ * When the queue is full, because the disk can't keep up, the readings are dropped from the recording and
+ * counted. A reading which can't be encoded as a frame is skipped and counted as well.
+ */
+public class SensorRecorder implements Closeable {
+
+    static final int MAGIC = 0x53465243; // "SFRC"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 2 * Integer.BYTES;
+    static final int BUFFER_SIZE = 64 * 1024;
+    // Messages waiting for the recorder thread
+    private static final int QUEUE_CAPACITY = 16 * 1024;
+
+    /**
+     * The readings of one message, copied so that the caller may reuse its readings.
+     */
+    private static final class Message {
+        private final int nodeId;
+        private final long timestamp;
+        private final String[] types;
+        private final double[] values;
+        private final String[] units;
+
+        private Message(int nodeId, long timestamp, List<SensorReading> readings) {
+            this.nodeId = nodeId;
+            this.timestamp = timestamp;
+            int count = readings.size();
+            types = new String[count];
+            values = new double[count];
+            units = new String[count];
+            for (int i = 0; i < count; ++i) {
+                SensorReading reading = readings.get(i);
+                types[i] = reading.getType();
+                values[i] = reading.getValue();
+                units[i] = reading.getUnit();
+            }
+        }
+    }
+
+    // Tells the recorder thread to write the rest and stop
+    private static final Message END = new Message(0, 0, List.of());
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final BlockingQueue<Message> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread recorderThread;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile long recordedFrames = 0;
+    private volatile long skippedFrames = 0;
+    private volatile boolean closed = false;
+    private IOException failure;
+
+    private SensorRecorder(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        recorderThread = new Thread(this::writeFrames, "sensor-recorder");
+        recorderThread.setDaemon(true);
+        recorderThread.start();
+    }
+
+    /**
+     * Creates a new recording, replacing the file if it exists.
+     *
+     * @param file The file to record to
+     * @return The recorder
+     * @throws IOException If the file can't be created
+     */
+    public static SensorRecorder create(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new SensorRecorder(file, channel);
+    }
+
+    /**
+     * Records the readings reported by one node. Returns at once, the readings are written by the recorder
+     * thread.
+     *
+     * @param nodeId    The node which reported the readings
+     * @param timestamp When the readings were received, in milliseconds since the epoch
+     * @param readings  The readings
+     */
+    public void record(int nodeId, long timestamp, List<SensorReading> readings) {
+        if (closed || readings.isEmpty()) {
+            return;
+        }
+        if (!queue.offer(new Message(nodeId, timestamp, readings))) {
+            droppedFrames.addAndGet(readings.size());
+        }
+    }
+
+    private void writeFrames() {
+        try {
+            for (Message message = queue.take(); message != END; message = queue.take()) {
+                writeMessage(message);
+                if (queue.isEmpty() && buffer.position() > 0) {
+                    // Nothing else to batch with for now, don't keep the frames in memory
+                    flushBuffer();
+                }
+            }
+            flushBuffer();
+        } catch (IOException e) {
+            Logger.error("Error writing the sensor data recording " + file + ", recording stopped: "
+                    + e.getMessage());
+            synchronized (this) {
+                failure = e;
+            }
+            closed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queue.clear();
+        }
+    }
+
+    private void writeMessage(Message message) throws IOException {
+        for (int i = 0; i < message.types.length; ++i) {
+            if (buffer.remaining() < SensorFrameCodec.MAX_FRAME_LENGTH) {
+                flushBuffer();
+            }
+            try {
+                SensorFrameCodec.encode(buffer, message.nodeId, message.timestamp, message.types[i],
+                        message.values[i], message.units[i]);
+                ++recordedFrames;
+            } catch (IllegalArgumentException e) {
+                // The frame is checked before anything is written, so the buffer is unchanged
+                if (skippedFrames++ == 0) {
+                    Logger.error("Skipping sensor readings which can't be recorded: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Get the number of frames recorded so far. Frames are counted when the recorder thread has encoded them,
+     * before they are written to the file.
+     *
+     * @return The number of recorded frames
+     */
+    public long getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    /**
+     * Get the number of readings left out of the recording because the recorder thread couldn't keep up.
+     *
+     * @return The number of dropped readings
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Get the number of readings left out of the recording because they can't be encoded as a sensor frame,
+     * for example because their type and unit are too long.
+     *
+     * @return The number of skipped readings
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Writes the queued readings and closes the file. Readings recorded afterwards are ignored.
+     *
+     * @throws IOException If writing to the file failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (channel.isOpen() && !closed) {
+                closed = true;
+                try {
+                    // The recorder thread takes a message at a time, so there is room for END shortly
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    recorderThread.interrupt();
+                }
+            }
+        }
+        try {
+            recorderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package no.ntnu.network.recording;
+
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrame;
+import no.ntnu.network.message.SensorFrameCodec;
+import no.ntnu.network.server.SmartFarmingServer;
+import no.ntnu.tools.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a file recorded by a SensorRecorder into the same ingest path as sensor data received over a
+ * socket, at a multiple of the original speed. The readings are handed to SmartFarmingServer.handleSensorData
+ * in-process, as if they had been received and parsed, so the socket and parsing costs are not included.
+ * The time between two readings is the recorded time divided by the speed; speed 0 replays as fast as
+ * possible, which can be used to find the maximum ingest rate of the server. The readings keep their recorded
+ * timestamps. The file is streamed, so recordings larger than the memory can be replayed.
+ * Consecutive frames of the same node with the same timestamp are handled as one sensor data message, as
+ * they were received.
+ */
+public class SensorReplayer implements Runnable {
+
+    // Sleeping for shorter than this costs more than it saves, the readings are handled a bit early instead
+    private static final long MIN_SLEEP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path file;
+    private final double speed;
+    private volatile boolean running = true;
+    private long replayedFrames = 0;
+
+    /**
+     * Creates a new replayer.
+     *
+     * @param file  The recording to replay
+     * @param speed The speed multiple, for example 100 to replay a day in about 15 minutes;
+     *              0 to replay as fast as possible
+     */
+    public SensorReplayer(Path file, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed can't be negative: " + speed);
+        }
+        this.file = file;
+        this.speed = speed;
+    }
+
+    /**
+     * Replays the whole recording, or until stopped.
+     */
+    @Override
+    public void run() {
+        Logger.info("Replaying " + file + (speed > 0 ? " at " + speed + "x" : " as fast as possible"));
+        long startNanos = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            replay(channel, startNanos);
+        } catch (IOException | IllegalStateException e) {
+            Logger.error("Error replaying " + file + ": " + e.getMessage());
+        } catch (BufferUnderflowException e) {
+            Logger.error("Recording " + file + " ends with a truncated frame");
+        }
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        Logger.info("Replayed " + replayedFrames + " frames in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + " ms, " + (long) (replayedFrames * 1e9 / elapsedNanos) + " frames/s");
+    }
+
+    private void replay(FileChannel channel, long startNanos) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SensorRecorder.BUFFER_SIZE);
+        buffer.flip(); // Start empty, fill reads the file
+        if (!fill(channel, buffer, SensorRecorder.HEADER_LENGTH)) {
+            throw new IllegalStateException("Not a sensor recording");
+        }
+        if (buffer.getInt() != SensorRecorder.MAGIC || buffer.getInt() != SensorRecorder.VERSION) {
+            throw new IllegalStateException("Not a sensor recording, or an unsupported version");
+        }
+        List<SensorReading> batch = new ArrayList<>();
+        int batchNodeId = 0;
+        long batchTimestamp = 0;
+        long firstTimestamp = 0;
+        boolean first = true;
+        while (running && fill(channel, buffer, SensorFrameCodec.MAX_FRAME_LENGTH)) {
+            SensorFrame frame = SensorFrameCodec.decode(buffer);
+            if (!batch.isEmpty()
+                    && (frame.getNodeId() != batchNodeId || frame.getTimestamp() != batchTimestamp)) {
+                deliver(batchNodeId, batchTimestamp, batch);
+                batch = new ArrayList<>();
+            }
+            if (first) {
+                firstTimestamp = frame.getTimestamp();
+                first = false;
+            }
+            if (batch.isEmpty()) {
+                batchNodeId = frame.getNodeId();
+                batchTimestamp = frame.getTimestamp();
+                waitUntil(startNanos, batchTimestamp - firstTimestamp);
+            }
+            batch.add(frame.getReading());
+        }
+        if (running && !batch.isEmpty()) {
+            deliver(batchNodeId, batchTimestamp, batch);
+        }
+    }
+
+    /**
+     * Makes sure the buffer holds the next frame, reading more of the file when needed.
+     *
+     * @return False if the end of the file is reached
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() >= needed) {
+            return true;
+        }
+        buffer.compact();
+        int read = 0;
+        while (buffer.position() < needed && read >= 0) {
+            read = channel.read(buffer);
+        }
+        buffer.flip();
+        // The last frames of the file are shorter than the maximum frame length
+        return buffer.hasRemaining();
+    }
+
+    private void waitUntil(long startNanos, long recordedOffsetMillis) {
+        if (speed == 0) {
+            return;
+        }
+        long dueNanos = startNanos + (long) (TimeUnit.MILLISECONDS.toNanos(recordedOffsetMillis) / speed);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos >= MIN_SLEEP_NANOS) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    private void deliver(int nodeId, long timestamp, List<SensorReading> readings) {
+        try {
+            SmartFarmingServer.handleSensorData(nodeId, timestamp, readings);
+        } catch (Exception e) {
+            Logger.error("Error handling replayed sensor data: " + e.getMessage());
+        }
+        replayedFrames += readings.size();
+    }
+
+    /**
+     * Stops the replay after the current message.
+     */
+    public void stop() {
+        running = false;
+    }
+}
@@ -1,12 +1,21 @@
 package no.ntnu.network.server;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import no.ntnu.network.client.clientinfo.BaseClientInfo;
 import no.ntnu.network.client.clientinfo.ControlPanelClientInfo;
 import no.ntnu.network.client.clientinfo.SensorActuatorClientInfo;
+import no.ntnu.network.message.ControlCommand;
 import no.ntnu.network.message.MessageHandler;
-import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorDataMessage;
+import no.ntnu.network.server.alarms.AlarmEngine;
+import no.ntnu.network.server.alarms.AlarmRule;
+import no.ntnu.network.server.history.ExportFormat;
+import no.ntnu.network.server.history.HistoryBucket;
+import no.ntnu.network.server.history.HistoryExport;
+import no.ntnu.network.server.rules.Rule;
+import no.ntnu.network.server.schedule.Schedule;
 import no.ntnu.tools.Logger;
 
 import java.io.BufferedReader;
@@ -15,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -41,8 +51,21 @@ public class ClientHandler implements Runnable {
      * @throws IOException If an I/O error occurs while setting up the input and output streams
      */
     public ClientHandler(Socket clientSocket, PrintWriter writer, String clientType) throws IOException {
+        this(clientSocket, new BufferedReader(new InputStreamReader(clientSocket.getInputStream())), writer,
+                clientType);
+    }
+
+    /**
+     * Constructs a new ClientHandler instance going on reading with the reader which read the handshake
+     *
+     * @param clientSocket The socket associated with the client
+     * @param reader       The reader of the client's input stream, positioned after the handshake
+     * @param writer       The PrintWriter used for sending messages to the client
+     * @param clientType   The type of the client (e.g., SENSOR, ACTUATOR).
+     */
+    public ClientHandler(Socket clientSocket, BufferedReader reader, PrintWriter writer, String clientType) {
         this.clientSocket = clientSocket;
-        this.reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+        this.reader = reader;
         this.writer = writer;
         this.clientType = clientType;
     }
@@ -59,6 +82,7 @@ public class ClientHandler implements Runnable {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
+            SmartFarmingServer.getHistoryExporter().cancelExports(writer);
             try {
                 clientSocket.close();
             } catch (IOException e) {
@@ -84,8 +108,6 @@ public class ClientHandler implements Runnable {
             }
 
             while ((clientMessage = reader.readLine()) != null) {
-                Logger.info("Received message from client " + clientType + " (NodeID: " + getClientNodeID() + "): " + MessageHandler.validateMessageFormat(clientMessage));
-
                 handleMessage(clientMessage);
             }
         } catch (SocketException e) {
@@ -126,6 +148,7 @@ public class ClientHandler implements Runnable {
         try {
             // validate message
             clientMessage = MessageHandler.validateMessageFormat(clientMessage);
+            Logger.info("Received message from client " + clientType + " (NodeID: " + getClientNodeID() + "): " + clientMessage);
             String messageType = MessageHandler.getMessageType(clientMessage);
 
             switch (messageType) {
@@ -141,6 +164,10 @@ public class ClientHandler implements Runnable {
                     // send a command to a control panel, example {"type":"command_to_sensor_actuator","nodeid":"3", "ison":false}
                     handleCommandToSensorActuator(clientMessage);
                     break;
+                case "actuator_control":
+                    // switch one actuator of a node, example {"type":"actuator_control","nodeid":3,"actuatorid":2,"ison":true}
+                    handleActuatorControl(clientMessage);
+                    break;
 
                     //TODO: get all sensor data at once
                 case "sensor_data":
@@ -151,6 +178,57 @@ public class ClientHandler implements Runnable {
                     // send a command to a control panel, example {"type":"command_to_control_panel","nodeid":"4"}
                     handleCommandToSensorActuator(clientMessage);
                     break;
+                case "history":
+                    // aggregated sensor history, example {"type":"history","nodeid":3,"sensortype":"temperature","from":0,"to":1700000000000,"bucket":3600000}
+                    handleHistoryQuery(clientMessage);
+                    break;
+                case "export_history":
+                    // export readings as csv or ndjson, example {"type":"export_history","nodeids":[1,2],"from":0,"to":1700000000000,"format":"csv"}
+                    handleExportHistory(clientMessage);
+                    break;
+                case "add_rule":
+                    // add a control rule, example {"type":"add_rule","nodeid":4,"sensortype":"temperature","operator":"<","threshold":18,"hysteresis":1,"actuatorid":2,"ison":true}
+                    handleAddRule(clientMessage);
+                    break;
+                case "remove_rule":
+                    // remove a control rule, example {"type":"remove_rule","ruleid":3}
+                    handleRemoveRule(clientMessage);
+                    break;
+                case "list_rules":
+                    writer.println(MessageHandler.createRulesMessage(SmartFarmingServer.getRulesEngine().getRules()));
+                    break;
+                case "add_schedule":
+                    // add a recurring actuator program, example {"type":"add_schedule","nodeid":3,"actuatorid":1,"ison":true,"hour":"6","duration":900000}
+                    handleAddSchedule(clientMessage);
+                    break;
+                case "cancel_schedule":
+                    // cancel a recurring actuator program, example {"type":"cancel_schedule","scheduleid":2}
+                    handleCancelSchedule(clientMessage);
+                    break;
+                case "list_schedules":
+                    writer.println(MessageHandler.createSchedulesMessage(
+                            SmartFarmingServer.getScheduleService().getSchedules()));
+                    break;
+                case "add_alarm":
+                    // add an alarm rule, example {"type":"add_alarm","name":"wet","sensortype":"humidity","operator":">","threshold":95,"hysteresis":2,"delay":120000}
+                    handleAddAlarm(clientMessage);
+                    break;
+                case "remove_alarm":
+                    // remove an alarm rule, example {"type":"remove_alarm","alarmid":1}
+                    handleRemoveAlarm(clientMessage);
+                    break;
+                case "list_alarms":
+                    sendAlarms();
+                    break;
+                case "subscribe_alarms":
+                    // get alarm messages when alarms are raised or cleared, starting with the current alarms
+                    setAlarmsSubscribed(true);
+                    sendAlarms();
+                    break;
+                case "unsubscribe_alarms":
+                    setAlarmsSubscribed(false);
+                    writer.println(MessageHandler.createSuccessResponse("UNSUBSCRIBE_ALARMS"));
+                    break;
                 case "all_control_commands":
                     // TODO: send all control commands available for contorlpanel, store this case switch in a nice class first.
                     handleSensorData(clientMessage);
@@ -164,6 +242,15 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    /**
+     * Describes the connected client for the command log: its type, Node ID and address.
+     *
+     * @return The description, for example "control_panel 4 /127.0.0.1:51234"
+     */
+    private String describeClient() {
+        return clientType.toLowerCase() + " " + getClientNodeID() + " " + clientSocket.getRemoteSocketAddress();
+    }
+
     /**
      * Retrieves the Node ID of the connected client based on its type (Control Panel or Sensor Actuator).
      *
@@ -208,24 +295,223 @@ public class ClientHandler implements Runnable {
         String response = MessageHandler.createSuccessResponse("SENSOR_DATA");
         writer.println(response);
         // Forward the command to the specified client
-        SmartFarmingServer.forwardCommandToClient(nodeId,isOn);
+        SmartFarmingServer.forwardCommandToClient("command_to_sensor_actuator", describeClient(), nodeId, -1, isOn);
     }
 
     /**
-     * Handles sensor data received from the client, parsing and processing the data
+     * Handles an actuator control command from a control panel client. Parses the command message to extract the
+     * nodeId, actuatorId and isOn values, then forwards the command to the specified client.
+     *
+     * @param clientMessage The command message received from the control panel client.
+     */
+    private void handleActuatorControl(String clientMessage) {
+        ControlCommand command;
+        try {
+            command = MessageHandler.parseControlCommand(clientMessage);
+        } catch (IllegalArgumentException e) {
+            writer.println(MessageHandler.createWarningMessage("Invalid actuator command: " + e.getMessage()));
+            return;
+        }
+        SmartFarmingServer.forwardCommandToClient(SmartFarmingServer.ACTUATOR_CONTROL_COMMAND, describeClient(),
+                command.getNodeId(), command.getActuatorId(), command.getIsOn());
+    }
+
+    /**
+     * Handles sensor data received from the client, parsing and processing the data.
+     * The readings are stored for the node the client registered as, whatever node ID the message names, so a
+     * client can't report readings for another node. Only sensor/actuator clients can report readings, and
+     * invalid readings are answered with a warning.
      *
      * @param clientMessage The sensor data message received from the client
      */
     private void handleSensorData(String clientMessage) {
-        List<SensorReading> sensorDataList = MessageHandler.parseSensorDataMessage(clientMessage);
-
-        // TODO: Implement sensor data handling logic
+        int nodeId = getClientNodeID();
+        if (!"SENSOR_ACTUATOR".equalsIgnoreCase(clientType) || nodeId == -1) {
+            writer.println(MessageHandler.createWarningMessage(
+                    "Only registered sensor/actuator nodes can send sensor data"));
+            return;
+        }
+        // Either a batch of readings in a "sensordata" array, or a single reading, decoded in one streaming pass
+        SensorDataMessage sensorData;
+        try {
+            sensorData = MessageHandler.parseSensorData(clientMessage);
+        } catch (IllegalArgumentException e) {
+            writer.println(MessageHandler.createWarningMessage("Invalid sensor data: " + e.getMessage()));
+            return;
+        }
+        if (sensorData != null && !sensorData.getReadings().isEmpty()) {
+            if (sensorData.getNodeId() != nodeId) {
+                Logger.error("Sensor data for node " + sensorData.getNodeId() + " from " + describeClient()
+                        + ", stored for node " + nodeId);
+            }
+            // Messages from clients which don't tell when the readings were taken are stamped on arrival
+            long timestamp = sensorData.getTimestamp() != SensorDataMessage.NO_TIMESTAMP
+                    ? sensorData.getTimestamp() : System.currentTimeMillis();
+            SmartFarmingServer.handleSensorData(nodeId, timestamp, sensorData.getReadings());
+        }
 
         // Respond to the client if needed
         String response = MessageHandler.createSuccessResponse("SENSOR_DATA");
         writer.println(response);
     }
 
+    /**
+     * Handles a history query, answering with the sensor history of one sensor type of one node, aggregated in
+     * buckets of the requested size. The query is answered from the coarsest rollup tier which fits the bucket size.
+     *
+     * @param clientMessage The history query received from the client.
+     */
+    private void handleHistoryQuery(String clientMessage) {
+        JsonObject query = gson.fromJson(clientMessage, JsonObject.class);
+        int nodeId = query.getAsJsonPrimitive("nodeid").getAsInt();
+        String sensorType = query.getAsJsonPrimitive("sensortype").getAsString();
+        long from = query.getAsJsonPrimitive("from").getAsLong();
+        long to = query.getAsJsonPrimitive("to").getAsLong();
+        long bucket = query.getAsJsonPrimitive("bucket").getAsLong();
+        List<HistoryBucket> buckets = SmartFarmingServer.getSensorHistory().query(nodeId, sensorType, from, to, bucket);
+        writer.println(MessageHandler.createHistoryMessage(nodeId, sensorType, bucket, buckets));
+    }
+
+    /**
+     * Handles a request to add a control rule. The rule is checked against every reading from then on, and the
+     * client gets the added rule back with its ID.
+     *
+     * @param clientMessage The rule received from the client.
+     */
+    private void handleAddRule(String clientMessage) {
+        Rule rule = MessageHandler.parseRule(clientMessage);
+        SmartFarmingServer.getRulesEngine().add(rule);
+        Logger.info("Added " + rule + " from " + describeClient());
+        writer.println(MessageHandler.createRuleAddedMessage(rule));
+    }
+
+    /**
+     * Handles a request to remove a control rule.
+     *
+     * @param clientMessage The request received from the client, holding the rule ID.
+     */
+    private void handleRemoveRule(String clientMessage) {
+        JsonObject request = gson.fromJson(clientMessage, JsonObject.class);
+        int ruleId = request.getAsJsonPrimitive("ruleid").getAsInt();
+        Rule rule = SmartFarmingServer.getRulesEngine().remove(ruleId);
+        if (rule != null) {
+            Logger.info("Removed " + rule + " from " + describeClient());
+        }
+        writer.println(MessageHandler.createRuleRemovedMessage(ruleId, rule != null));
+    }
+
+    /**
+     * Handles a request to add a recurring actuator program. The client gets the added schedule back with its ID
+     * and next start.
+     *
+     * @param clientMessage The schedule received from the client.
+     */
+    private void handleAddSchedule(String clientMessage) {
+        Schedule schedule = MessageHandler.parseSchedule(clientMessage);
+        SmartFarmingServer.getScheduleService().add(schedule);
+        Logger.info("Added " + schedule + " from " + describeClient());
+        writer.println(MessageHandler.createScheduleAddedMessage(schedule));
+    }
+
+    /**
+     * Handles a request to cancel a recurring actuator program.
+     *
+     * @param clientMessage The request received from the client, holding the schedule ID.
+     */
+    private void handleCancelSchedule(String clientMessage) {
+        JsonObject request = gson.fromJson(clientMessage, JsonObject.class);
+        int scheduleId = request.getAsJsonPrimitive("scheduleid").getAsInt();
+        Schedule schedule = SmartFarmingServer.getScheduleService().cancel(scheduleId);
+        if (schedule != null) {
+            Logger.info("Cancelled " + schedule + " from " + describeClient());
+        }
+        writer.println(MessageHandler.createScheduleCancelledMessage(scheduleId, schedule != null));
+    }
+
+    /**
+     * Handles a request to add an alarm rule. The client gets the added rule back with its ID.
+     *
+     * @param clientMessage The alarm rule received from the client.
+     */
+    private void handleAddAlarm(String clientMessage) {
+        AlarmRule rule = MessageHandler.parseAlarmRule(clientMessage);
+        SmartFarmingServer.getAlarmEngine().add(rule);
+        Logger.info("Added " + rule + " from " + describeClient());
+        writer.println(MessageHandler.createAlarmAddedMessage(rule));
+    }
+
+    /**
+     * Handles a request to remove an alarm rule. The alarms it raised are cleared.
+     *
+     * @param clientMessage The request received from the client, holding the alarm ID.
+     */
+    private void handleRemoveAlarm(String clientMessage) {
+        JsonObject request = gson.fromJson(clientMessage, JsonObject.class);
+        int alarmId = request.getAsJsonPrimitive("alarmid").getAsInt();
+        AlarmRule rule = SmartFarmingServer.getAlarmEngine().remove(alarmId);
+        if (rule != null) {
+            Logger.info("Removed " + rule + " from " + describeClient());
+        }
+        writer.println(MessageHandler.createAlarmRemovedMessage(alarmId, rule != null));
+    }
+
+    /**
+     * Sends the alarm rules and the alarms which are raised now to the client.
+     */
+    private void sendAlarms() {
+        AlarmEngine alarmEngine = SmartFarmingServer.getAlarmEngine();
+        writer.println(MessageHandler.createAlarmsMessage(alarmEngine.getRules(), alarmEngine.getActiveAlarms()));
+    }
+
+    /**
+     * Subscribes or unsubscribes the connected control panel to alarms.
+     *
+     * @param subscribed True to subscribe, false to unsubscribe
+     */
+    private void setAlarmsSubscribed(boolean subscribed) {
+        BaseClientInfo clientInfo = getClientInfoByPortNumber(clientSocket.getPort());
+        if (clientInfo instanceof ControlPanelClientInfo) {
+            ((ControlPanelClientInfo) clientInfo).setAlarmsSubscribed(subscribed);
+        } else {
+            Logger.error("Only control panels can subscribe to alarms");
+        }
+    }
+
+    /**
+     * Handles a history export request. Queues an export of the readings of the requested nodes (all the nodes when
+     * "nodeids" is missing or empty) in the requested time range, streamed to the client in chunk messages, or
+     * written to a file in the export directory of the server when a "file" name is given. The client gets a warning
+     * if the file name or the format is not valid.
+     *
+     * @param clientMessage The export request received from the client.
+     */
+    private void handleExportHistory(String clientMessage) {
+        JsonObject request = gson.fromJson(clientMessage, JsonObject.class);
+        List<Integer> nodeIds = new ArrayList<>();
+        if (request.has("nodeids")) {
+            for (JsonElement nodeId : request.getAsJsonArray("nodeids")) {
+                nodeIds.add(nodeId.getAsInt());
+            }
+        }
+        long from = request.has("from") ? request.getAsJsonPrimitive("from").getAsLong() : Long.MIN_VALUE;
+        long to = request.has("to") ? request.getAsJsonPrimitive("to").getAsLong() : Long.MAX_VALUE;
+        try {
+            ExportFormat format = request.has("format")
+                    ? ExportFormat.fromName(request.getAsJsonPrimitive("format").getAsString()) : ExportFormat.CSV;
+            HistoryExport export = new HistoryExport(SmartFarmingServer.getSensorHistory(), nodeIds, from, to, format);
+            if (request.has("file")) {
+                SmartFarmingServer.getHistoryExporter().exportToFile(export,
+                        request.getAsJsonPrimitive("file").getAsString(), writer);
+            } else {
+                SmartFarmingServer.getHistoryExporter().exportToClient(export, writer);
+            }
+        } catch (IllegalArgumentException e) {
+            Logger.error("Rejected history export from client " + clientType + " (NodeID: " + getClientNodeID()
+                    + "): " + e.getMessage());
+            writer.println(MessageHandler.createWarningMessage(e.getMessage()));
+        }
+    }
+
     /**
      * Handles a command related to sensor values. Parses the command message to extract the nodeId and timer values,
      * then forwards the command to the specified client.
@@ -239,7 +525,7 @@ public class ClientHandler implements Runnable {
         boolean isOn = commandObject.getAsJsonPrimitive("timer").getAsBoolean();
 
         // Forward the command to the specified client
-        SmartFarmingServer.forwardCommandToClient(nodeId,isOn);
+        SmartFarmingServer.forwardCommandToClient("get_sensorvalue", describeClient(), nodeId, -1, isOn);
     }
 
 
@@ -0,0 +1,213 @@
+package no.ntnu.network.server;
+
+import no.ntnu.network.message.MessageHandler;
+import no.ntnu.network.server.history.HistoryExport;
+import no.ntnu.network.server.history.ThrottledWriter;
+import no.ntnu.tools.Logger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Runs history exports in the background, either streamed to a client connection in chunk messages or written
+ * to a file in the export directory of the server.
+ * The exports of a client run one at a time on a low-priority thread of their own, and each export is throttled,
+ * so that even multi-gigabyte exports don't take the processor, network or disk away from live traffic. A client
+ * which reads its export slowly only holds up its own exports, not those of the other clients.
+ */
+public class HistoryExporter {
+
+    /**
+     * The maximum number of characters in one export chunk message.
+     */
+    public static final int CHUNK_SIZE = 32 * 1024;
+    /**
+     * The maximum average rate of an export, in characters per second.
+     */
+    public static final long EXPORT_RATE = 8L * 1024 * 1024;
+    // File names are lowercased by the message validation, and must not leave the export directory
+    private static final Pattern FILE_NAME = Pattern.compile("[a-z0-9][a-z0-9._-]*");
+    // How long the export thread of a client is kept after its last export, in seconds
+    private static final long IDLE_THREAD_TIMEOUT = 30;
+
+    private final Path exportDirectory;
+    private final AtomicInteger nextExportId = new AtomicInteger(1);
+    // Client connection -> the thread running the exports of that client
+    private final Map<PrintWriter, ExecutorService> clientExecutors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an exporter.
+     *
+     * @param exportDirectory The directory exports to files are written to
+     */
+    public HistoryExporter(Path exportDirectory) {
+        this.exportDirectory = exportDirectory;
+    }
+
+    private ExecutorService getExecutor(PrintWriter client) {
+        return clientExecutors.computeIfAbsent(client, c -> {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, IDLE_THREAD_TIMEOUT, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "history-export");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    /**
+     * Queues an export streamed to a client. The client gets an export_started message at once, then
+     * export_chunk messages holding the rows, then an export_end message.
+     *
+     * @param export The export
+     * @param client The writer of the client connection
+     * @return The ID of the export, given in all its messages
+     */
+    public int exportToClient(HistoryExport export, PrintWriter client) {
+        int exportId = nextExportId.getAndIncrement();
+        client.println(MessageHandler.createExportStartedMessage(exportId, export.getFormat()));
+        getExecutor(client).execute(() -> {
+            try (Writer out = new ThrottledWriter(new ChunkWriter(exportId, client), EXPORT_RATE)) {
+                long rows = export.writeTo(out);
+                client.println(MessageHandler.createExportEndMessage(exportId, rows, null, null));
+            } catch (IOException | RuntimeException e) {
+                Logger.error("Error in history export " + exportId + ": " + e.getMessage());
+                client.println(MessageHandler.createExportEndMessage(exportId, export.getRowCount(), null,
+                        e.getMessage()));
+            }
+        });
+        return exportId;
+    }
+
+    /**
+     * Queues an export to a file in the export directory. The client gets an export_started message at once
+     * and an export_end message when the file is complete.
+     *
+     * @param export   The export
+     * @param fileName The name of the file, replaced if it exists
+     * @param client   The writer of the client connection
+     * @return The ID of the export, given in all its messages
+     * @throws IllegalArgumentException If the file name is not a plain file name
+     */
+    public int exportToFile(HistoryExport export, String fileName, PrintWriter client) {
+        if (!FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Invalid export file name: " + fileName);
+        }
+        Path file = exportDirectory.resolve(fileName);
+        int exportId = nextExportId.getAndIncrement();
+        client.println(MessageHandler.createExportStartedMessage(exportId, export.getFormat()));
+        getExecutor(client).execute(() -> {
+            try {
+                Files.createDirectories(exportDirectory);
+                try (Writer out = new ThrottledWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8),
+                        EXPORT_RATE)) {
+                    long rows = export.writeTo(out);
+                    Logger.info("Exported " + rows + " readings to " + file);
+                    client.println(MessageHandler.createExportEndMessage(exportId, rows, fileName, null));
+                }
+            } catch (IOException | RuntimeException e) {
+                Logger.error("Error in history export " + exportId + ": " + e.getMessage());
+                client.println(MessageHandler.createExportEndMessage(exportId, export.getRowCount(), fileName,
+                        e.getMessage()));
+            }
+        });
+        return exportId;
+    }
+
+    /**
+     * Abandons the running and queued exports of a client, when its connection is closed.
+     *
+     * @param client The writer of the client connection
+     */
+    public void cancelExports(PrintWriter client) {
+        ExecutorService executor = clientExecutors.remove(client);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops the exporter, abandoning the running and queued exports.
+     */
+    public void stop() {
+        for (PrintWriter client : clientExecutors.keySet()) {
+            cancelExports(client);
+        }
+    }
+
+    /**
+     * Collects the exported text and sends it to the client in export_chunk messages of at most CHUNK_SIZE
+     * characters. Each chunk is a single line on the connection, so it never splits another message.
+     */
+    private static class ChunkWriter extends Writer {
+        private final int exportId;
+        private final PrintWriter client;
+        private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+
+        ChunkWriter(int exportId, PrintWriter client) {
+            this.exportId = exportId;
+            this.client = client;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = Math.min(length, CHUNK_SIZE - chunk.length());
+                chunk.append(buffer, offset, count);
+                offset += count;
+                length -= count;
+                if (chunk.length() == CHUNK_SIZE) {
+                    sendChunk();
+                }
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = Math.min(length, CHUNK_SIZE - chunk.length());
+                chunk.append(text, offset, offset + count);
+                offset += count;
+                length -= count;
+                if (chunk.length() == CHUNK_SIZE) {
+                    sendChunk();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (chunk.length() > 0) {
+                sendChunk();
+            }
+        }
+
+        private void sendChunk() throws IOException {
+            client.println(MessageHandler.createExportChunkMessage(exportId, chunk));
+            chunk.setLength(0);
+            if (client.checkError()) {
+                throw new IOException("Client connection lost");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -3,10 +3,26 @@ package no.ntnu.network.server;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import no.ntnu.greenhouse.SensorReading;
 import no.ntnu.network.client.clientinfo.ControlPanelClientInfo;
 import no.ntnu.network.client.clientinfo.SensorActuatorClientInfo;
 import no.ntnu.network.message.MessageHandler;
+import no.ntnu.network.recording.SensorRecorder;
+import no.ntnu.network.recording.SensorReplayer;
+import no.ntnu.network.server.alarms.AlarmEngine;
+import no.ntnu.network.server.alarms.AlarmEvent;
+import no.ntnu.network.server.history.HistoryCompactor;
+import no.ntnu.network.server.history.SensorHistory;
+import no.ntnu.network.server.registry.NodeRegistry;
+import no.ntnu.network.server.registry.NodeState;
+import no.ntnu.network.server.registry.RegistryCheckpointer;
+import no.ntnu.network.server.rules.RulesEngine;
+import no.ntnu.network.server.schedule.ScheduleService;
+import no.ntnu.network.server.wal.CommandLog;
+import no.ntnu.network.sharedmemory.SharedMemoryIngestor;
+import no.ntnu.network.sharedmemory.SharedMemoryRingBuffer;
 import no.ntnu.tools.Logger;
+import no.ntnu.tools.Parser;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -14,6 +30,8 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
@@ -26,6 +44,21 @@ import java.util.concurrent.Executors;
 public class SmartFarmingServer {
 
     public static final int PORT = 6019;
+    public static final int SHARED_MEMORY_CAPACITY = 1 << 16;
+    private static final String SHARED_MEMORY_OPTION = "--shm=";
+    private static final String UDP_OPTION = "--udp";
+    private static final String RECORD_OPTION = "--record=";
+    private static final String REPLAY_OPTION = "--replay=";
+    private static final String REPLAY_SPEED_OPTION = "--replay-speed=";
+    private static final String EXPORT_DIRECTORY_OPTION = "--export-dir=";
+    private static final Path DEFAULT_EXPORT_DIRECTORY = Path.of("exports");
+    private static final String SNAPSHOT_OPTION = "--snapshot=";
+    private static final String COMMAND_LOG_OPTION = "--command-log=";
+    private static final String RULES_OPTION = "--rules=";
+    public static final String ACTUATOR_CONTROL_COMMAND = "actuator_control";
+    private static final String SERVER_COMMAND_SOURCE = "server";
+    private static final String RULE_COMMAND = "rule";
+    private static final String SCHEDULE_COMMAND = "schedule";
     private static final ExecutorService executorService = Executors.newFixedThreadPool(10);
     private static final List<PrintWriter> connectedClients = new ArrayList<>();
     public static final List<ControlPanelClientInfo> controlPanelClients = new CopyOnWriteArrayList<>();
@@ -37,13 +70,54 @@ public class SmartFarmingServer {
     private static final Map<Integer, Long> lastHeartbeatMap = new HashMap<>();
 
     private static final Gson gson = new Gson();
+    private static final SensorHistory sensorHistory = new SensorHistory();
+    private static final HistoryCompactor historyCompactor = new HistoryCompactor(sensorHistory);
+    private static HistoryExporter historyExporter = new HistoryExporter(DEFAULT_EXPORT_DIRECTORY);
+    private static final NodeRegistry nodeRegistry = new NodeRegistry();
+    private static RegistryCheckpointer registryCheckpointer;
+
+    private static SharedMemoryIngestor sharedMemoryIngestor;
+    private static UdpTelemetryListener udpTelemetryListener;
+    private static volatile SensorRecorder sensorRecorder;
+    private static SensorReplayer sensorReplayer;
+    private static volatile CommandLog commandLog;
+    // Rule, schedule and in-process commands are logged without waiting for the disk, and forwarded on their own
+    // thread once logged, so that logging and sending them never holds up readings, timers or the in-process
+    // dispatcher
+    private static final ExecutorService automationCommandExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "automation-commands");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final RulesEngine rulesEngine = new RulesEngine((rule, isOn) ->
+            queueCommandToClient(RULE_COMMAND, "rule " + rule.getRuleId(), rule.getTargetNodeId(),
+                    rule.getActuatorId(), isOn));
+    // Alarms are logged and sent to the control panels on their own thread, one at a time so that they arrive in
+    // order, instead of on the threads handling the readings
+    private static final AlarmEngine alarmEngine = new AlarmEngine(SmartFarmingServer::handleAlarm,
+            Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "alarm-events");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    private static final ScheduleService scheduleService = new ScheduleService((schedule, isOn) ->
+            queueCommandToClient(SCHEDULE_COMMAND, "schedule " + schedule.getScheduleId(), schedule.getNodeId(),
+                    schedule.getActuatorId(), isOn));
 
 
     /**
      * The main entry point for starting the Smart Farming Server
      * It initializes the server socket, listens for incoming connections, and delegates handling to ClientHandler threads
      *
-     * @param args Command-line arguments (not used in this implementation)
+     * @param args Command-line arguments: --shm=[file] additionally ingests sensor data from a shared-memory
+     *             ring buffer in the given file, --udp additionally accepts sensor data datagrams on the UDP port
+     *             with the same number as the TCP port, --record=[file] records all received sensor data to the
+     *             given file, --replay=[file] replays a recording into the server and --replay-speed=[n]
+     *             replays it at n times the recorded speed (0 for as fast as possible, 1 by default),
+     *             --export-dir=[dir] sets the directory history exports to files are written to (exports by default),
+     *             --snapshot=[file] restores the node registry from the given file at start and checkpoints it there,
+     *             --command-log=[file] appends every actuator command to the given write-ahead log before forwarding it,
+     *             --rules=[file] loads control rules from the given file, one add_rule message per line
      */
     public static void main(String[] args) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -51,32 +125,60 @@ public class SmartFarmingServer {
             // Call the method to send a warning to all connected clients before shutting down
             sendShutdownToAllClients("Server is closing...");
             // Perform cleanup tasks
+            stopSharedMemoryIngestion();
+            stopUdpTelemetry();
+            stopReplay();
+            stopRecording();
+            stopServices();
+            historyExporter.stop();
+            stopRegistryCheckpoints();
+            automationCommandExecutor.shutdown();
+            closeCommandLog();
             executorService.shutdown();
         }));
+        startServices();
+        Path replayFile = null;
+        double replaySpeed = 1;
+        for (String arg : args) {
+            if (arg.startsWith(SHARED_MEMORY_OPTION)) {
+                startSharedMemoryIngestion(Path.of(arg.substring(SHARED_MEMORY_OPTION.length())));
+            }
+            if (arg.equals(UDP_OPTION)) {
+                startUdpTelemetry(PORT);
+            }
+            if (arg.startsWith(RECORD_OPTION)) {
+                startRecording(Path.of(arg.substring(RECORD_OPTION.length())));
+            }
+            if (arg.startsWith(REPLAY_OPTION)) {
+                replayFile = Path.of(arg.substring(REPLAY_OPTION.length()));
+            }
+            if (arg.startsWith(REPLAY_SPEED_OPTION)) {
+                String speed = arg.substring(REPLAY_SPEED_OPTION.length());
+                replaySpeed = Parser.parseDoubleOrError(speed, "Invalid replay speed: " + speed);
+            }
+            if (arg.startsWith(EXPORT_DIRECTORY_OPTION)) {
+                historyExporter = new HistoryExporter(Path.of(arg.substring(EXPORT_DIRECTORY_OPTION.length())));
+            }
+            if (arg.startsWith(SNAPSHOT_OPTION)) {
+                startRegistryCheckpoints(Path.of(arg.substring(SNAPSHOT_OPTION.length())));
+            }
+            if (arg.startsWith(COMMAND_LOG_OPTION)) {
+                openCommandLog(Path.of(arg.substring(COMMAND_LOG_OPTION.length())));
+            }
+            if (arg.startsWith(RULES_OPTION)) {
+                loadRules(Path.of(arg.substring(RULES_OPTION.length())));
+            }
+        }
+        if (replayFile != null) {
+            startReplay(replayFile, replaySpeed);
+        }
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
             Logger.info("Smart Farming Server started, waiting for client connections...");
 
             while (true) {
                 Socket clientSocket = serverSocket.accept();
-                PrintWriter clientWriter = new PrintWriter(clientSocket.getOutputStream(), true);
-                BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-                String clientType = getClientType(reader);
-                Logger.info("Client connected: " + clientType +" "+ clientSocket.getInetAddress().getHostName() +
-                        " [" + clientSocket.getPort() + "]");
-
-                connectedClients.add(clientWriter);
-
-                if ("CONTROL_PANEL".equalsIgnoreCase(clientType)) {
-                    processControlPanelClient(clientSocket, clientWriter, reader);
-                    // Send the connected control panel clients to the new control panel
-                    sendConnectedControlPanelClients(clientWriter);
-                }
-                if ("SENSOR_ACTUATOR".equalsIgnoreCase(clientType)) {
-                    processSensorActuatorClient(clientSocket, clientWriter, reader);
-                    sendConnectedSensorActuatorClients(clientWriter);
-                }
-
-                executorService.execute(new ClientHandler(clientSocket, clientWriter, clientType));
+                // The handshake waits for the client, so it runs on the thread of the client, not on this one
+                executorService.execute(() -> handleNewClient(clientSocket));
             }
         } catch (IOException e) {
             Logger.error("Error starting the server: " + e.getMessage());
@@ -89,6 +191,309 @@ public class SmartFarmingServer {
         }
     }
 
+    /**
+     * Registers a newly connected client from its handshake, then handles its messages until it disconnects.
+     * Runs on the thread of the client, so a client which is slow to send its handshake holds up no one else.
+     *
+     * @param clientSocket The socket of the client
+     */
+    private static void handleNewClient(Socket clientSocket) {
+        ClientHandler clientHandler;
+        try {
+            PrintWriter clientWriter = new PrintWriter(clientSocket.getOutputStream(), true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
+            String clientType = getClientType(reader);
+            Logger.info("Client connected: " + clientType +" "+ clientSocket.getInetAddress().getHostName() +
+                    " [" + clientSocket.getPort() + "]");
+
+            connectedClients.add(clientWriter);
+
+            if ("CONTROL_PANEL".equalsIgnoreCase(clientType)) {
+                processControlPanelClient(clientSocket, clientWriter, reader);
+                // Send the connected control panel clients to the new control panel
+                sendConnectedControlPanelClients(clientWriter);
+            }
+            if ("SENSOR_ACTUATOR".equalsIgnoreCase(clientType)) {
+                processSensorActuatorClient(clientSocket, clientWriter, reader);
+                sendConnectedSensorActuatorClients(clientWriter);
+            }
+
+            // The handler goes on with the reader of the handshake, which may already hold the next messages
+            clientHandler = new ClientHandler(clientSocket, reader, clientWriter, clientType);
+        } catch (IOException | RuntimeException e) {
+            Logger.error("Error registering client " + clientSocket.getInetAddress().getHostName() + " ["
+                    + clientSocket.getPort() + "]: " + e.getMessage());
+            try {
+                clientSocket.close();
+            } catch (IOException closeError) {
+                Logger.error("Error closing client socket: " + closeError.getMessage());
+            }
+            return;
+        }
+        clientHandler.run();
+    }
+
+    /**
+     * Starts the background services of the server: the compaction of the sensor history and the schedules.
+     * Called by main, and by anything else running the server logic in its own process, such as an embedded
+     * greenhouse. Starting them again while they run does nothing.
+     */
+    public static void startServices() {
+        historyCompactor.start();
+        scheduleService.start();
+    }
+
+    /**
+     * Stops the background services started by startServices.
+     */
+    public static void stopServices() {
+        historyCompactor.stop();
+        scheduleService.stop();
+    }
+
+    /**
+     * Starts ingesting sensor data from a shared-memory ring buffer, next to the socket connections.
+     * The ring buffer is polled by its own event-loop thread.
+     *
+     * @param file The memory-mapped file holding the ring buffer
+     */
+    public static void startSharedMemoryIngestion(Path file) {
+        try {
+            SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.create(file, SHARED_MEMORY_CAPACITY);
+            sharedMemoryIngestor = new SharedMemoryIngestor(ringBuffer);
+            Thread ingestionThread = new Thread(sharedMemoryIngestor, "shared-memory-ingestion");
+            ingestionThread.setDaemon(true);
+            ingestionThread.start();
+        } catch (IOException e) {
+            Logger.error("Error opening shared-memory ring buffer: " + e.getMessage());
+        }
+    }
+
+    private static void stopSharedMemoryIngestion() {
+        if (sharedMemoryIngestor != null) {
+            sharedMemoryIngestor.stop();
+        }
+    }
+
+    /**
+     * Starts accepting sensor data as UDP datagrams. Sensor/actuator clients connecting over TCP afterwards
+     * get a session token for their datagrams. Actuator commands are still sent over TCP only.
+     *
+     * @param udpPort The UDP port to listen on
+     */
+    public static void startUdpTelemetry(int udpPort) {
+        try {
+            udpTelemetryListener = UdpTelemetryListener.open(udpPort);
+            Thread listenerThread = new Thread(udpTelemetryListener, "udp-telemetry");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        } catch (IOException e) {
+            Logger.error("Error starting the UDP telemetry listener: " + e.getMessage());
+        }
+    }
+
+    private static void stopUdpTelemetry() {
+        if (udpTelemetryListener != null) {
+            udpTelemetryListener.stop();
+        }
+    }
+
+    /**
+     * Get the sensor readings retained by the server.
+     *
+     * @return The sensor history
+     */
+    public static SensorHistory getSensorHistory() {
+        return sensorHistory;
+    }
+
+    /**
+     * Get the exporter running the history exports requested by clients.
+     *
+     * @return The history exporter
+     */
+    public static HistoryExporter getHistoryExporter() {
+        return historyExporter;
+    }
+
+    /**
+     * Get the last known state of all the sensor/actuator nodes which have connected.
+     *
+     * @return The node registry
+     */
+    public static NodeRegistry getNodeRegistry() {
+        return nodeRegistry;
+    }
+
+    /**
+     * Restores the node registry from a snapshot file, if it exists, and checkpoints the registry to that file
+     * periodically and at shutdown. Nodes known from the snapshot can resume without sending their full state.
+     *
+     * @param file The snapshot file
+     */
+    public static void startRegistryCheckpoints(Path file) {
+        registryCheckpointer = new RegistryCheckpointer(nodeRegistry, file);
+        registryCheckpointer.start();
+    }
+
+    private static void stopRegistryCheckpoints() {
+        if (registryCheckpointer != null) {
+            registryCheckpointer.stop();
+        }
+    }
+
+    /**
+     * Get the rules engine, which checks every sensor reading against the control rules.
+     *
+     * @return The rules engine
+     */
+    public static RulesEngine getRulesEngine() {
+        return rulesEngine;
+    }
+
+    /**
+     * Get the alarm engine, which raises and clears alarms from the sensor readings.
+     *
+     * @return The alarm engine
+     */
+    public static AlarmEngine getAlarmEngine() {
+        return alarmEngine;
+    }
+
+    /**
+     * Handles an alarm raised or cleared by the alarm engine, by forwarding it to all the control panels which
+     * subscribed to alarms. Called on the alarm-events thread, in the order the alarms changed.
+     *
+     * @param event The alarm event
+     */
+    private static void handleAlarm(AlarmEvent event) {
+        Logger.info(event.toString());
+        for (ControlPanelClientInfo controlPanelClientInfo : controlPanelClients) {
+            if (controlPanelClientInfo.isAlarmsSubscribed()) {
+                controlPanelClientInfo.deliverAlarm(event);
+            }
+        }
+    }
+
+    /**
+     * Get the schedule service, which runs the recurring actuator programs.
+     *
+     * @return The schedule service
+     */
+    public static ScheduleService getScheduleService() {
+        return scheduleService;
+    }
+
+    /**
+     * Loads control rules from a file holding one add_rule message per line. Empty lines and lines starting
+     * with # are skipped, as are invalid rules.
+     *
+     * @param file The rules file
+     */
+    public static void loadRules(Path file) {
+        try {
+            int ruleCount = 0;
+            for (String line : Files.readAllLines(file)) {
+                if (line.isBlank() || line.trim().startsWith("#")) {
+                    continue;
+                }
+                try {
+                    rulesEngine.add(MessageHandler.parseRule(MessageHandler.validateMessageFormat(line)));
+                    ++ruleCount;
+                } catch (IllegalArgumentException e) {
+                    Logger.error("Skipping rule in " + file + ": " + e.getMessage());
+                }
+            }
+            Logger.info("Loaded " + ruleCount + " rules from " + file);
+        } catch (IOException e) {
+            Logger.error("Error loading the rules: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens a write-ahead log which every actuator command forwarded by the server is appended to, as an audit
+     * trail. Appends to the log if it exists.
+     *
+     * @param file The command log
+     */
+    public static void openCommandLog(Path file) {
+        try {
+            commandLog = CommandLog.open(file);
+            Logger.info("Logging actuator commands to " + file);
+        } catch (IOException e) {
+            Logger.error("Error opening the command log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the command log, after writing the commands appended so far.
+     */
+    public static void closeCommandLog() {
+        CommandLog log = commandLog;
+        commandLog = null;
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                Logger.error("Error closing the command log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts recording all the sensor data the server receives, over any transport, to a file which can be
+     * replayed later.
+     *
+     * @param file The file to record to, replaced if it exists
+     */
+    public static void startRecording(Path file) {
+        try {
+            sensorRecorder = SensorRecorder.create(file);
+            Logger.info("Recording sensor data to " + file);
+        } catch (IOException e) {
+            Logger.error("Error creating the sensor data recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops recording sensor data, writing the rest of the recording to its file.
+     */
+    public static void stopRecording() {
+        SensorRecorder recorder = sensorRecorder;
+        sensorRecorder = null;
+        if (recorder != null) {
+            try {
+                recorder.close();
+                Logger.info("Recorded " + recorder.getRecordedFrames() + " sensor frames, dropped "
+                        + recorder.getDroppedFrames() + " the disk couldn't keep up with, skipped "
+                        + recorder.getSkippedFrames() + " which can't be encoded");
+            } catch (IOException e) {
+                Logger.error("Error closing the sensor data recording: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts replaying a recording into the server, on its own thread. Replayed sensor data is handed straight
+     * to handleSensorData, like sensor data received from the nodes once it is parsed; the sockets and the
+     * message parsing are not part of the replay.
+     *
+     * @param file  The recording to replay
+     * @param speed The speed multiple of the replay, 0 for as fast as possible
+     */
+    public static void startReplay(Path file, double speed) {
+        sensorReplayer = new SensorReplayer(file, speed);
+        Thread replayThread = new Thread(sensorReplayer, "sensor-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    private static void stopReplay() {
+        if (sensorReplayer != null) {
+            sensorReplayer.stop();
+        }
+    }
+
     /**
      * Forwards a control command to the Sensor Actuator client with the specified nodeId.
      * Updates the client's isOn status, creates a structured command message, and sends it to the client.
@@ -97,18 +502,83 @@ public class SmartFarmingServer {
      * @param isOn   The new status to set for the client.
      */
     public static void forwardCommandToClient(int nodeId, boolean isOn) {
+        forwardCommandToClient(nodeId, -1, isOn);
+    }
+
+    /**
+     * Forwards a control command for one specific actuator to the Sensor Actuator client with the specified nodeId.
+     *
+     * @param nodeId     The identifier of the target Sensor Actuator client.
+     * @param actuatorId The actuator to switch, or -1 for the actuator the client registered with.
+     * @param isOn       The new status to set for the actuator.
+     */
+    public static void forwardCommandToClient(int nodeId, int actuatorId, boolean isOn) {
+        forwardCommandToClient(ACTUATOR_CONTROL_COMMAND, SERVER_COMMAND_SOURCE, nodeId, actuatorId, isOn);
+    }
+
+    /**
+     * Forwards a control command for one specific actuator to the Sensor Actuator client with the specified nodeId.
+     * If a command log is open, the command is appended to it, and the call waits until it is on disk before it is
+     * forwarded. A command which can't be logged is not forwarded.
+     *
+     * @param command    The command which switches the actuator, as logged.
+     * @param source     Who sent the command, as logged.
+     * @param nodeId     The identifier of the target Sensor Actuator client.
+     * @param actuatorId The actuator to switch, or -1 for the actuator the client registered with.
+     * @param isOn       The new status to set for the actuator.
+     */
+    public static void forwardCommandToClient(String command, String source, int nodeId, int actuatorId,
+                                              boolean isOn) {
+        CommandLog log = commandLog;
+        if (log != null && !log.append(command, source, nodeId, actuatorId, isOn)) {
+            logUnloggedCommand(source, nodeId);
+            return;
+        }
+        deliverCommandToClient(nodeId, actuatorId, isOn);
+    }
+
+    /**
+     * Forwards a control command like forwardCommandToClient, but without waiting for the command log: the command
+     * is appended to the log at once, and forwarded on the command thread of the server once it is on disk, so
+     * commands queued together share one write to disk. Commands queued this way are forwarded in the order they
+     * were queued.
+     *
+     * @param command    The command which switches the actuator, as logged.
+     * @param source     Who sent the command, as logged.
+     * @param nodeId     The identifier of the target Sensor Actuator client.
+     * @param actuatorId The actuator to switch, or -1 for the actuator the client registered with.
+     * @param isOn       The new status to set for the actuator.
+     */
+    public static void queueCommandToClient(String command, String source, int nodeId, int actuatorId,
+                                            boolean isOn) {
+        CommandLog log = commandLog;
+        if (log == null) {
+            automationCommandExecutor.execute(() -> deliverCommandToClient(nodeId, actuatorId, isOn));
+            return;
+        }
+        // The log completes the appends in order, so the commands reach the executor in the order they were queued
+        log.appendAsync(command, source, nodeId, actuatorId, isOn).thenAcceptAsync(logged -> {
+            if (logged) {
+                deliverCommandToClient(nodeId, actuatorId, isOn);
+            } else {
+                logUnloggedCommand(source, nodeId);
+            }
+        }, automationCommandExecutor);
+    }
+
+    private static void logUnloggedCommand(String source, int nodeId) {
+        Logger.error("Command to node " + nodeId + " from " + source
+                + " not forwarded, it could not be written to the command log");
+    }
+
+    private static void deliverCommandToClient(int nodeId, int actuatorId, boolean isOn) {
         for (SensorActuatorClientInfo sensorActuatorClientInfo : sensorActuatorClients) {
             if (sensorActuatorClientInfo.getNodeId() == nodeId) {
-                sensorActuatorClientInfo.setOn(isOn);
-                PrintWriter clientWriter = sensorActuatorClientInfo.getClientWriter();
-                if (clientWriter != null) {
-                    // Create a structured command message
-                    JsonObject commandObject = new JsonObject();
-                    commandObject.addProperty("type", "control_command");
-                    commandObject.addProperty("ison", isOn);
-
-                    // Send the command message to the client
-                    clientWriter.println(commandObject.toString());
+                int targetActuatorId = actuatorId >= 0 ? actuatorId : sensorActuatorClientInfo.getActuatorId();
+                if (targetActuatorId == sensorActuatorClientInfo.getActuatorId()) {
+                    sensorActuatorClientInfo.setOn(isOn);
+                }
+                if (sensorActuatorClientInfo.deliverControlCommand(targetActuatorId, isOn)) {
                     return; // Command forwarded successfully
                 }
             }
@@ -117,6 +587,105 @@ public class SmartFarmingServer {
         Logger.error("Client with nodeId " + nodeId + " not found");
     }
 
+    /**
+     * Handles sensor readings reported by a sensor/actuator node.
+     * Stores the readings in the sensor history, updates the stored sensor value of the node and forwards the
+     * readings to all control panels. The history, the alarm delays and the recording use the time the readings
+     * were taken, so a simulation on a virtual clock keeps its own timeline.
+     *
+     * @param nodeId    The node which reported the readings.
+     * @param timestamp When the readings were taken, in milliseconds since the epoch, on the clock of the sender.
+     * @param readings  The reported sensor readings.
+     */
+    public static void handleSensorData(int nodeId, long timestamp, List<SensorReading> readings) {
+        sensorHistory.append(nodeId, timestamp, readings);
+        nodeRegistry.updateSensorValues(nodeId, timestamp, readings);
+        rulesEngine.evaluate(nodeId, readings);
+        alarmEngine.evaluate(nodeId, timestamp, readings);
+        SensorRecorder recorder = sensorRecorder;
+        if (recorder != null) {
+            recorder.record(nodeId, timestamp, readings);
+        }
+        for (SensorActuatorClientInfo sensorActuatorClientInfo : sensorActuatorClients) {
+            if (sensorActuatorClientInfo.getNodeId() == nodeId) {
+                for (SensorReading reading : readings) {
+                    if (reading.getType().equalsIgnoreCase(sensorActuatorClientInfo.getSensorType())) {
+                        sensorActuatorClientInfo.setSensorValue(reading.getValue());
+                    }
+                }
+            }
+        }
+        for (ControlPanelClientInfo controlPanelClientInfo : controlPanelClients) {
+            controlPanelClientInfo.deliverSensorData(nodeId, readings);
+        }
+    }
+
+    /**
+     * Handles an actuator state change reported by a sensor/actuator node.
+     * Updates the stored actuator state of the node and forwards the change to all control panels.
+     *
+     * @param nodeId     The node which reported the change.
+     * @param actuatorId The actuator which changed state.
+     * @param isOn       The current state of the actuator.
+     */
+    public static void handleActuatorState(int nodeId, int actuatorId, boolean isOn) {
+        nodeRegistry.updateActuatorState(nodeId, actuatorId, isOn);
+        for (SensorActuatorClientInfo sensorActuatorClientInfo : sensorActuatorClients) {
+            if (sensorActuatorClientInfo.getNodeId() == nodeId
+                    && sensorActuatorClientInfo.getActuatorId() == actuatorId) {
+                sensorActuatorClientInfo.setOn(isOn);
+            }
+        }
+        for (ControlPanelClientInfo controlPanelClientInfo : controlPanelClients) {
+            controlPanelClientInfo.deliverActuatorState(nodeId, actuatorId, isOn);
+        }
+    }
+
+    /**
+     * Handles the state changes of several actuators reported together by a sensor/actuator node.
+     * Updates the stored actuator states of the node once, and forwards the changes to each control panel as
+     * one message.
+     *
+     * @param nodeId      The node which reported the changes.
+     * @param actuatorIds The actuators which changed state.
+     * @param states      The current states of the actuators, in the same order.
+     */
+    public static void handleActuatorStates(int nodeId, int[] actuatorIds, boolean[] states) {
+        nodeRegistry.updateActuatorStates(nodeId, actuatorIds, states);
+        for (SensorActuatorClientInfo sensorActuatorClientInfo : sensorActuatorClients) {
+            if (sensorActuatorClientInfo.getNodeId() == nodeId) {
+                for (int i = 0; i < actuatorIds.length; ++i) {
+                    if (sensorActuatorClientInfo.getActuatorId() == actuatorIds[i]) {
+                        sensorActuatorClientInfo.setOn(states[i]);
+                    }
+                }
+            }
+        }
+        for (ControlPanelClientInfo controlPanelClientInfo : controlPanelClients) {
+            controlPanelClientInfo.deliverActuatorStates(nodeId, actuatorIds, states);
+        }
+    }
+
+    /**
+     * Registers a Control Panel client which is not connected through a socket, for example an in-process client.
+     *
+     * @param controlPanelClientInfo The client information to register.
+     */
+    public static void registerControlPanelClient(ControlPanelClientInfo controlPanelClientInfo) {
+        controlPanelClients.add(controlPanelClientInfo);
+        Logger.info("Control Panel client registered: nodeId=" + controlPanelClientInfo.getNodeId());
+    }
+
+    /**
+     * Registers a Sensor Actuator client which is not connected through a socket, for example an in-process client.
+     *
+     * @param sensorActuatorClientInfo The client information to register.
+     */
+    public static void registerSensorActuatorClient(SensorActuatorClientInfo sensorActuatorClientInfo) {
+        sensorActuatorClients.add(sensorActuatorClientInfo);
+        Logger.info("Sensor Actuator client registered: nodeId=" + sensorActuatorClientInfo.getNodeId());
+    }
+
     /**
      * Removes a Control Panel client from the server's records based on the specified nodeId.
      * Removes the client information from the list and the map.
@@ -144,6 +713,10 @@ public class SmartFarmingServer {
         // Remove from the map as well
         sensorActuatorClientInfoMap.values().removeIf(sensorActuatorClientInfo -> sensorActuatorClientInfo.getNodeId() == nodeId);
 
+        if (udpTelemetryListener != null) {
+            udpTelemetryListener.closeSessions(nodeId);
+        }
+
         Logger.info("Sensor Actuator client removed: nodeId=" + nodeId);
     }
 
@@ -179,6 +752,8 @@ public class SmartFarmingServer {
     /**
      * Processes a new Sensor Actuator client by reading additional information from the provided BufferedReader,
      * parsing the JSON string, and storing the client information in the server's records.
+     * The client either sends its full state, or a resume message with the state version it got from the server
+     * last time; when that version is outdated, the client sends its full state after all.
      *
      * @param clientSocket The socket associated with the Sensor Actuator client.
      * @param writer The PrintWriter for the Sensor Actuator client.
@@ -193,34 +768,99 @@ public class SmartFarmingServer {
         // Parse the JSON string to extract the required information
         JsonObject infoObject = gson.fromJson(jsonInfo, JsonObject.class);
 
-        int nodeId = infoObject.getAsJsonPrimitive("nodeId").getAsInt();
-        int actuatorId = infoObject.getAsJsonPrimitive("actuatorId").getAsInt();
-        String actuatorType = infoObject.getAsJsonPrimitive("actuatorType").getAsString();
-        boolean isOn = infoObject.getAsJsonPrimitive("isOn").getAsBoolean();
-        String sensorType = infoObject.getAsJsonPrimitive("sensorType").getAsString();
-        double sensorValue = infoObject.getAsJsonPrimitive("sensorValue").getAsDouble();
-
-        // Store the client information in the list (**!!important order of params!!**)
-        SensorActuatorClientInfo sensorActuatorClientInfo = new SensorActuatorClientInfo(
-                nodeId,
-                actuatorId,
-                actuatorType,
-                isOn,
-                sensorType,
-                sensorValue,
-                clientSocket.getInetAddress().getHostName(),
-                clientSocket.getPort(),
-                writer
-        );
+        SensorActuatorClientInfo sensorActuatorClientInfo = null;
+        if (infoObject.has("type") && "RESUME".equalsIgnoreCase(infoObject.getAsJsonPrimitive("type").getAsString())) {
+            sensorActuatorClientInfo = resumeSensorActuatorClient(infoObject, clientSocket, writer);
+            if (sensorActuatorClientInfo == null) {
+                // The server does not know this state, the client sends its full state next
+                infoObject = gson.fromJson(reader.readLine(), JsonObject.class);
+            }
+        }
+        if (sensorActuatorClientInfo == null) {
+            int nodeId = infoObject.getAsJsonPrimitive("nodeId").getAsInt();
+            int actuatorId = infoObject.getAsJsonPrimitive("actuatorId").getAsInt();
+            String actuatorType = infoObject.getAsJsonPrimitive("actuatorType").getAsString();
+            boolean isOn = infoObject.getAsJsonPrimitive("isOn").getAsBoolean();
+            String sensorType = infoObject.getAsJsonPrimitive("sensorType").getAsString();
+            double sensorValue = infoObject.getAsJsonPrimitive("sensorValue").getAsDouble();
+
+            // Store the client information in the list (**!!important order of params!!**)
+            sensorActuatorClientInfo = new SensorActuatorClientInfo(
+                    nodeId,
+                    actuatorId,
+                    actuatorType,
+                    isOn,
+                    sensorType,
+                    sensorValue,
+                    clientSocket.getInetAddress().getHostName(),
+                    clientSocket.getPort(),
+                    writer
+            );
+            NodeState nodeState = nodeRegistry.register(nodeId, actuatorId, actuatorType, isOn, sensorType,
+                    sensorValue);
+            writer.println(MessageHandler.createStateVersionMessage(nodeId, nodeState.getVersion(), false));
+        }
+        int nodeId = sensorActuatorClientInfo.getNodeId();
         sensorActuatorClients.add(sensorActuatorClientInfo);
 
         // Store ClientInfo in the map for future reference
         sensorActuatorClientInfoMap.put(clientSocket.getPort(), sensorActuatorClientInfo);
 
+        // Let the client send its sensor data over UDP as well
+        if (udpTelemetryListener != null) {
+            long token = udpTelemetryListener.openSession(nodeId);
+            writer.println(MessageHandler.createUdpSessionMessage(token, udpTelemetryListener.getPort()));
+        }
+
         return writer;
     }
 
 
+    /**
+     * Resumes a Sensor Actuator client from the state the server already knows, when the client presents the
+     * current version of that state. Tells the client whether the state was resumed.
+     *
+     * @param resumeObject The resume message, with the nodeId and the stateVersion the client knows
+     * @param clientSocket The socket associated with the Sensor Actuator client.
+     * @param writer The PrintWriter for the Sensor Actuator client.
+     * @return The client information built from the known state, or null if the client must send its full state
+     */
+    private static SensorActuatorClientInfo resumeSensorActuatorClient(JsonObject resumeObject, Socket clientSocket,
+                                                                       PrintWriter writer) {
+        int nodeId = resumeObject.getAsJsonPrimitive("nodeId").getAsInt();
+        long stateVersion = resumeObject.getAsJsonPrimitive("stateVersion").getAsLong();
+        NodeState nodeState = nodeRegistry.get(nodeId);
+        if (nodeState == null) {
+            writer.println(MessageHandler.createStateVersionMessage(nodeId, 0, false));
+            return null;
+        }
+        SensorActuatorClientInfo sensorActuatorClientInfo = null;
+        synchronized (nodeState) {
+            Map<Integer, String> actuatorTypes = nodeState.getActuatorTypes();
+            Map<String, Double> sensorValues = nodeState.getSensorValues();
+            if (nodeState.getVersion() == stateVersion && !actuatorTypes.isEmpty() && !sensorValues.isEmpty()) {
+                Map.Entry<Integer, String> actuator = actuatorTypes.entrySet().iterator().next();
+                Map.Entry<String, Double> sensor = sensorValues.entrySet().iterator().next();
+                sensorActuatorClientInfo = new SensorActuatorClientInfo(
+                        nodeId,
+                        actuator.getKey(),
+                        actuator.getValue(),
+                        nodeState.getActuatorState(actuator.getKey()),
+                        sensor.getKey(),
+                        sensor.getValue(),
+                        clientSocket.getInetAddress().getHostName(),
+                        clientSocket.getPort(),
+                        writer
+                );
+            }
+        }
+        boolean resumed = sensorActuatorClientInfo != null;
+        writer.println(MessageHandler.createStateVersionMessage(nodeId, nodeState.getVersion(), resumed));
+        Logger.info("Sensor Actuator client " + nodeId + (resumed ? " resumed at state version " + stateVersion
+                : " has an outdated state version, full state requested"));
+        return sensorActuatorClientInfo;
+    }
+
     /**
      * Sends a message to the specified Control Panel client containing information about all connected Control Panel clients.
      *
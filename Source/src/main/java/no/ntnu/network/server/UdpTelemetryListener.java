@@ -0,0 +1,232 @@
+package no.ntnu.network.server;
+
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrame;
+import no.ntnu.network.message.SensorFrameCodec;
+import no.ntnu.tools.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives sensor readings sent as UDP datagrams, next to the TCP connections.
+ * A sensor/actuator client gets a session token when it connects over TCP, and must put that token in every
+ * datagram. A datagram has the following layout:
+ * [long token] [int sequence] [byte frameCount] [frameCount sensor frames, see SensorFrameCodec]
+ * The sequence numbers of a session are used to detect lost and duplicated datagrams. Readings of accepted
+ * datagrams go through the same ingest path as sensor data received over TCP.
+ */
+public class UdpTelemetryListener implements Runnable {
+
+    public static final int MAX_DATAGRAM_LENGTH = 1400;
+    public static final int HEADER_LENGTH = Long.BYTES + Integer.BYTES + 1;
+    // Datagrams arriving up to this many sequence numbers late are still accepted
+    private static final int REORDER_WINDOW = 64;
+
+    private final DatagramChannel channel;
+    private final int port;
+    private final Map<Long, UdpSession> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean running = true;
+
+    private UdpTelemetryListener(DatagramChannel channel, int port) {
+        this.channel = channel;
+        this.port = port;
+    }
+
+    /**
+     * Opens a UDP listener on the given port.
+     *
+     * @param port The UDP port to listen on
+     * @return The listener, which must be run on its own thread
+     * @throws IOException If the port can't be bound
+     */
+    public static UdpTelemetryListener open(int port) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        return new UdpTelemetryListener(channel, port);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Opens a UDP session for a sensor/actuator node which has connected over TCP.
+     *
+     * @param nodeId The node the session belongs to
+     * @return The session token the node must put in its datagrams
+     */
+    public long openSession(int nodeId) {
+        long token;
+        do {
+            token = random.nextLong();
+        } while (sessions.putIfAbsent(token, new UdpSession(nodeId)) != null);
+        return token;
+    }
+
+    /**
+     * Closes all the UDP sessions of a node, for example when its TCP connection is closed.
+     *
+     * @param nodeId The node whose sessions are closed
+     */
+    public void closeSessions(int nodeId) {
+        sessions.values().removeIf(session -> {
+            if (session.nodeId == nodeId) {
+                Logger.info("UDP session closed for node " + nodeId + ": received " + session.received
+                        + ", lost " + session.lost + ", duplicates " + session.duplicates);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Receives and handles datagrams until stopped.
+     */
+    @Override
+    public void run() {
+        Logger.info("UDP telemetry listener started on port " + port);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM_LENGTH);
+        while (running) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+                handleDatagram(buffer);
+            } catch (ClosedChannelException e) {
+                running = false;
+            } catch (IOException e) {
+                Logger.error("Error receiving UDP datagram: " + e.getMessage());
+            }
+        }
+        Logger.info("UDP telemetry listener stopped");
+    }
+
+    private void handleDatagram(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return;
+        }
+        UdpSession session = sessions.get(buffer.getLong());
+        if (session == null) {
+            // Unknown or revoked token, the datagram is not authenticated
+            return;
+        }
+        int sequence = buffer.getInt();
+        if (!session.accept(sequence)) {
+            return;
+        }
+        int frameCount = buffer.get() & 0xFF;
+        List<SensorReading> readings = new ArrayList<>(frameCount);
+        // The frames of a datagram are sent together, they are stored at the time of the first one
+        long timestamp = 0;
+        try {
+            for (int i = 0; i < frameCount; ++i) {
+                SensorFrame frame = SensorFrameCodec.decode(buffer);
+                if (frame.getNodeId() == session.nodeId) {
+                    if (readings.isEmpty()) {
+                        timestamp = frame.getTimestamp();
+                    }
+                    readings.add(frame.getReading());
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            Logger.error("Truncated UDP datagram from node " + session.nodeId);
+        }
+        if (!readings.isEmpty()) {
+            try {
+                SmartFarmingServer.handleSensorData(session.nodeId, timestamp, readings);
+            } catch (Exception e) {
+                Logger.error("Error handling UDP sensor data: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stops the listener and closes the UDP socket.
+     */
+    public void stop() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Logger.error("Failed to close UDP socket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The state of one UDP session. Only touched by the listener thread once created.
+     */
+    static class UdpSession {
+        private final int nodeId;
+        private boolean started = false;
+        private int highestSequence;
+        // Bit i is set when datagram (highestSequence - i) has been received
+        private long receivedWindow = 0;
+        private long received = 0;
+        private long lost = 0;
+        private long duplicates = 0;
+
+        UdpSession(int nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        /**
+         * Registers a received sequence number. Sequence numbers wrap around, a number is newer than another
+         * when it is less than 2^31 steps ahead of it.
+         *
+         * @param sequence The sequence number of the datagram
+         * @return true if the datagram is new, false if it is a duplicate or too old
+         */
+        boolean accept(int sequence) {
+            if (!started) {
+                started = true;
+                highestSequence = sequence;
+                receivedWindow = 1;
+                ++received;
+                return true;
+            }
+            // Wraps around together with the sequence numbers
+            int distance = sequence - highestSequence;
+            if (distance > 0) {
+                lost += distance - 1;
+                receivedWindow = distance >= REORDER_WINDOW ? 0 : receivedWindow << distance;
+                receivedWindow |= 1;
+                highestSequence = sequence;
+                ++received;
+                return true;
+            }
+            long age = -(long) distance;
+            if (age >= REORDER_WINDOW || (receivedWindow & (1L << age)) != 0) {
+                ++duplicates;
+                return false;
+            }
+            // A late datagram which was counted as lost
+            receivedWindow |= 1L << age;
+            --lost;
+            ++received;
+            return true;
+        }
+
+        long getReceived() {
+            return received;
+        }
+
+        long getLost() {
+            return lost;
+        }
+
+        long getDuplicates() {
+            return duplicates;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package no.ntnu.network.server.alarms;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Raises and clears alarms from the live sensor readings, without looking at the history.
+ * Each alarm rule keeps a small state per sensor, updated in constant time by each reading, so the cost of a
+ * reading only depends on the number of alarm rules on its node and sensor type. Rules are indexed by node and
+ * sensor type, with the rules for any node indexed by sensor type alone, in arrays which are replaced when a rule
+ * is added or removed, so readings are checked without any locking.
+ * The events of an alarm are handed to the dispatcher while its state is locked, so a single-threaded dispatcher
+ * delivers them to the listener in the order they happen: an alarm is never reported cleared before it is reported
+ * raised.
+ */
+public class AlarmEngine {
+
+    private static final AlarmRule[] NO_RULES = new AlarmRule[0];
+
+    private final AlarmListener publisher;
+    // Node ID -> sensor type -> rules for that node
+    private final Map<Integer, Map<String, AlarmRule[]>> nodeRules = new ConcurrentHashMap<>();
+    // Sensor type -> rules for any node
+    private final Map<String, AlarmRule[]> anyNodeRules = new ConcurrentHashMap<>();
+    private final Map<Integer, AlarmRule> rules = new ConcurrentHashMap<>();
+    private int nextAlarmId = 1;
+
+    /**
+     * Creates an alarm engine which delivers the events on the thread which handles the reading, while the state
+     * of the alarm is locked. The listener must therefore be quick.
+     *
+     * @param listener Gets the raised and cleared alarms
+     */
+    public AlarmEngine(AlarmListener listener) {
+        this.publisher = listener;
+    }
+
+    /**
+     * Creates an alarm engine which delivers the events through a dispatcher, keeping slow listeners off the
+     * threads which handle the readings.
+     *
+     * @param listener   Gets the raised and cleared alarms, on the thread of the dispatcher
+     * @param dispatcher Runs the deliveries; must run them one at a time, in order, for the events of an alarm to
+     *                   arrive in order
+     */
+    public AlarmEngine(AlarmListener listener, Executor dispatcher) {
+        this.publisher = event -> dispatcher.execute(() -> listener.alarmChanged(event));
+    }
+
+    /**
+     * Adds an alarm rule. It is checked from the next reading on.
+     *
+     * @param rule The rule
+     * @return The ID given to the rule
+     */
+    public synchronized int add(AlarmRule rule) {
+        int alarmId = nextAlarmId++;
+        rule.setAlarmId(alarmId);
+        Map<String, AlarmRule[]> sensorTypes = getSensorTypes(rule.getNodeId());
+        AlarmRule[] current = sensorTypes.getOrDefault(rule.getSensorType(), NO_RULES);
+        AlarmRule[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = rule;
+        sensorTypes.put(rule.getSensorType(), updated);
+        rules.put(alarmId, rule);
+        return alarmId;
+    }
+
+    /**
+     * Removes an alarm rule. The alarms it raised are cleared, and readings being checked against the rule at the
+     * same time don't raise them again.
+     *
+     * @param alarmId The ID of the rule
+     * @return The removed rule, or null if there is no rule with that ID
+     */
+    public AlarmRule remove(int alarmId) {
+        AlarmRule rule;
+        synchronized (this) {
+            rule = rules.remove(alarmId);
+            if (rule == null) {
+                return null;
+            }
+            rule.markRemoved();
+            Map<String, AlarmRule[]> sensorTypes = getSensorTypes(rule.getNodeId());
+            List<AlarmRule> remaining = new ArrayList<>(Arrays.asList(sensorTypes.get(rule.getSensorType())));
+            remaining.remove(rule);
+            if (remaining.isEmpty()) {
+                sensorTypes.remove(rule.getSensorType());
+            } else {
+                sensorTypes.put(rule.getSensorType(), remaining.toArray(NO_RULES));
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (AlarmState state : rule.getStates()) {
+            state.clear(now, publisher);
+        }
+        return rule;
+    }
+
+    private Map<String, AlarmRule[]> getSensorTypes(int nodeId) {
+        return nodeId == AlarmRule.ANY_NODE
+                ? anyNodeRules : nodeRules.computeIfAbsent(nodeId, id -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Get all the alarm rules.
+     *
+     * @return The rules, in no particular order
+     */
+    public Collection<AlarmRule> getRules() {
+        return new ArrayList<>(rules.values());
+    }
+
+    /**
+     * Get the alarms which are raised now.
+     *
+     * @return The events which raised them
+     */
+    public List<AlarmEvent> getActiveAlarms() {
+        List<AlarmEvent> active = new ArrayList<>();
+        for (AlarmRule rule : rules.values()) {
+            for (AlarmState state : rule.getStates()) {
+                AlarmEvent raisedBy = state.getRaisedBy();
+                if (raisedBy != null) {
+                    active.add(raisedBy);
+                }
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Checks the readings of a node against the alarm rules on that node, and on any node, for the sensor types
+     * of the readings. A sensor is identified by the position of its reading, since the nodes report the readings
+     * of their sensors in the same order every time.
+     *
+     * @param nodeId    The node which reported the readings
+     * @param timestamp When the readings were taken, in milliseconds since the epoch
+     * @param readings  The readings, one per sensor
+     */
+    public void evaluate(int nodeId, long timestamp, List<SensorReading> readings) {
+        Map<String, AlarmRule[]> sensorTypes = nodeRules.get(nodeId);
+        if (sensorTypes == null && anyNodeRules.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < readings.size(); ++i) {
+            SensorReading reading = readings.get(i);
+            String sensorType = reading.getType().toLowerCase(Locale.ROOT);
+            if (sensorTypes != null) {
+                evaluate(sensorTypes.get(sensorType), nodeId, i, reading.getValue(), timestamp);
+            }
+            evaluate(anyNodeRules.get(sensorType), nodeId, i, reading.getValue(), timestamp);
+        }
+    }
+
+    private void evaluate(AlarmRule[] matching, int nodeId, int sensorIndex, double value, long timestamp) {
+        if (matching != null) {
+            for (AlarmRule rule : matching) {
+                rule.evaluate(nodeId, sensorIndex, value, timestamp, publisher);
+            }
+        }
+    }
+}
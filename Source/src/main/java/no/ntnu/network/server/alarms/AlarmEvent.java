@@ -0,0 +1,63 @@
+package no.ntnu.network.server.alarms;
+
+/**
+ * An alarm raised or cleared on a sensor of a node.
+ */
+public class AlarmEvent {
+
+    private final AlarmRule rule;
+    private final int nodeId;
+    private final int sensorIndex;
+    private final boolean raised;
+    private final double value;
+    private final long timestamp;
+
+    /**
+     * Creates an alarm event.
+     *
+     * @param rule        The alarm rule
+     * @param nodeId      The node the alarm is on
+     * @param sensorIndex The position of the reading of the sensor among the readings of the node
+     * @param raised      True if the alarm was raised, false if it was cleared
+     * @param value       The reading which raised or cleared the alarm
+     * @param timestamp   When the reading was taken, in milliseconds since the epoch
+     */
+    public AlarmEvent(AlarmRule rule, int nodeId, int sensorIndex, boolean raised, double value, long timestamp) {
+        this.rule = rule;
+        this.nodeId = nodeId;
+        this.sensorIndex = sensorIndex;
+        this.raised = raised;
+        this.value = value;
+        this.timestamp = timestamp;
+    }
+
+    public AlarmRule getRule() {
+        return rule;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getSensorIndex() {
+        return sensorIndex;
+    }
+
+    public boolean isRaised() {
+        return raised;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "Alarm " + rule.getAlarmId() + " (" + rule.getName() + ") " + (raised ? "raised" : "cleared")
+                + " on node " + nodeId + " sensor " + sensorIndex + ": " + rule.getSensorType() + " " + value;
+    }
+}
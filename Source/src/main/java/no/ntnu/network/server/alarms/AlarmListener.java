@@ -0,0 +1,15 @@
+package no.ntnu.network.server.alarms;
+
+/**
+ * Gets the alarms raised and cleared by an AlarmEngine.
+ */
+@FunctionalInterface
+public interface AlarmListener {
+
+    /**
+     * Called when an alarm is raised or cleared.
+     *
+     * @param event The event
+     */
+    void alarmChanged(AlarmEvent event);
+}
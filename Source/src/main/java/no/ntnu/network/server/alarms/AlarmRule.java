@@ -0,0 +1,171 @@
+package no.ntnu.network.server.alarms;
+
+import no.ntnu.network.server.rules.Comparison;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoublePredicate;
+
+/**
+ * An alarm condition on a sensor type, for example "humidity &gt; 95 for 2 minutes on any node".
+ * The alarm is raised on a sensor of a node when the condition has held on every reading of the sensor for at least
+ * the delay, and cleared when a reading is past the threshold by the hysteresis the other way. Each sensor has its
+ * own state, so two sensors of the type on one node don't start each other's delay over or clear each other's
+ * alarm. A reading between the threshold and the
+ * hysteresis band starts the delay over but keeps a raised alarm raised, so the alarm doesn't flap around the
+ * threshold.
+ */
+public class AlarmRule {
+
+    /**
+     * The node ID of rules which apply to every node.
+     */
+    public static final int ANY_NODE = -1;
+
+    private volatile int alarmId;
+    private final String name;
+    private final int nodeId;
+    private final String sensorType;
+    private final Comparison comparison;
+    private final double threshold;
+    private final double hysteresis;
+    private final long delay;
+    private final DoublePredicate trigger;
+    private final DoublePredicate release;
+    // The state of the alarm on each sensor the rule has seen readings from: node ID -> states by sensor index.
+    // The arrays are replaced when a state is added, so a state is found without locking
+    private final Map<Integer, AlarmState[]> states = new ConcurrentHashMap<>();
+    // Set when the rule is removed, after which readings are ignored
+    private volatile boolean removed;
+
+    /**
+     * Creates an alarm rule.
+     *
+     * @param name       The name of the alarm, or null to name it after its condition
+     * @param nodeId     The node the rule applies to, or ANY_NODE
+     * @param sensorType The sensor type the rule checks
+     * @param comparison The comparison of the value with the threshold
+     * @param threshold  The threshold
+     * @param hysteresis How far past the threshold the other way a value clears the alarm, not negative
+     * @param delay      How long the condition must hold before the alarm is raised, in milliseconds
+     * @throws IllegalArgumentException If the hysteresis or the delay is negative
+     */
+    public AlarmRule(String name, int nodeId, String sensorType, Comparison comparison, double threshold,
+                     double hysteresis, long delay) {
+        if (hysteresis < 0 || delay < 0) {
+            throw new IllegalArgumentException("Negative hysteresis or delay: " + hysteresis + ", " + delay);
+        }
+        this.sensorType = sensorType.toLowerCase(Locale.ROOT);
+        this.name = name != null ? name : this.sensorType + comparison.getSymbol() + threshold;
+        this.nodeId = nodeId;
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.hysteresis = hysteresis;
+        this.delay = delay;
+        this.trigger = comparison.compile(threshold);
+        this.release = comparison.compileRelease(threshold, hysteresis);
+    }
+
+    /**
+     * Checks a reading from a sensor of a node against the rule.
+     *
+     * @param sensorIndex The position of the reading among the readings of the node, which identifies the sensor
+     * @param publisher   Gets the event if the reading raised or cleared the alarm on the sensor
+     */
+    void evaluate(int readingNodeId, int sensorIndex, double value, long timestamp, AlarmListener publisher) {
+        AlarmState[] nodeStates = states.get(readingNodeId);
+        AlarmState state = nodeStates != null && sensorIndex < nodeStates.length ? nodeStates[sensorIndex] : null;
+        if (state == null) {
+            state = addState(readingNodeId, sensorIndex);
+        }
+        state.update(this, value, timestamp, publisher);
+    }
+
+    private synchronized AlarmState addState(int readingNodeId, int sensorIndex) {
+        AlarmState[] nodeStates = states.get(readingNodeId);
+        if (nodeStates != null && sensorIndex < nodeStates.length && nodeStates[sensorIndex] != null) {
+            return nodeStates[sensorIndex];
+        }
+        AlarmState[] updated = nodeStates == null ? new AlarmState[sensorIndex + 1]
+                : Arrays.copyOf(nodeStates, Math.max(nodeStates.length, sensorIndex + 1));
+        AlarmState state = new AlarmState(readingNodeId, sensorIndex);
+        updated[sensorIndex] = state;
+        states.put(readingNodeId, updated);
+        return state;
+    }
+
+    boolean triggers(double value) {
+        return trigger.test(value);
+    }
+
+    boolean releases(double value) {
+        return release.test(value);
+    }
+
+    boolean isRemoved() {
+        return removed;
+    }
+
+    void markRemoved() {
+        removed = true;
+    }
+
+    List<AlarmState> getStates() {
+        List<AlarmState> all = new ArrayList<>();
+        for (AlarmState[] nodeStates : states.values()) {
+            for (AlarmState state : nodeStates) {
+                if (state != null) {
+                    all.add(state);
+                }
+            }
+        }
+        return all;
+    }
+
+    public int getAlarmId() {
+        return alarmId;
+    }
+
+    void setAlarmId(int alarmId) {
+        this.alarmId = alarmId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    @Override
+    public String toString() {
+        return "alarm " + alarmId + " (" + name + "): " + sensorType + " on "
+                + (nodeId == ANY_NODE ? "any node" : "node " + nodeId) + " " + comparison.getSymbol() + " "
+                + threshold + " for " + delay + " ms, hysteresis " + hysteresis;
+    }
+}
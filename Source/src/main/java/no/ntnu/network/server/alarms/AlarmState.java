@@ -0,0 +1,69 @@
+package no.ntnu.network.server.alarms;
+
+/**
+ * The state of one alarm rule on one sensor of a node: since when the condition has held, and whether the alarm is
+ * raised. Updated in constant time per reading, however long the node has been reporting.
+ */
+class AlarmState {
+
+    private static final long NOT_HOLDING = Long.MIN_VALUE;
+
+    private final int nodeId;
+    private final int sensorIndex;
+
+    private long conditionSince = NOT_HOLDING;
+    // The event which raised the alarm, null while the alarm is clear
+    private AlarmEvent raisedBy;
+
+    AlarmState(int nodeId, int sensorIndex) {
+        this.nodeId = nodeId;
+        this.sensorIndex = sensorIndex;
+    }
+
+    /**
+     * Updates the state with a reading. A raised or cleared alarm is published before the state is unlocked, so
+     * the events of one alarm are published in the order they happen. Readings for a removed rule are ignored.
+     *
+     * @param publisher Gets the event if the reading raised or cleared the alarm
+     */
+    synchronized void update(AlarmRule rule, double value, long timestamp, AlarmListener publisher) {
+        if (rule.isRemoved()) {
+            return;
+        }
+        if (rule.triggers(value)) {
+            if (conditionSince == NOT_HOLDING) {
+                conditionSince = timestamp;
+            }
+            if (raisedBy == null && timestamp - conditionSince >= rule.getDelay()) {
+                raisedBy = new AlarmEvent(rule, nodeId, sensorIndex, true, value, timestamp);
+                publisher.alarmChanged(raisedBy);
+            }
+            return;
+        }
+        conditionSince = NOT_HOLDING;
+        if (raisedBy != null && rule.releases(value)) {
+            raisedBy = null;
+            publisher.alarmChanged(new AlarmEvent(rule, nodeId, sensorIndex, false, value, timestamp));
+        }
+    }
+
+    /**
+     * Clears the alarm, when its rule is removed. The rule must be marked as removed first, so that no reading
+     * raises the alarm again afterwards.
+     *
+     * @param publisher Gets the event if the alarm was raised
+     */
+    synchronized void clear(long timestamp, AlarmListener publisher) {
+        AlarmEvent raised = raisedBy;
+        raisedBy = null;
+        conditionSince = NOT_HOLDING;
+        if (raised != null) {
+            publisher.alarmChanged(new AlarmEvent(raised.getRule(), nodeId, sensorIndex, false, raised.getValue(),
+                    timestamp));
+        }
+    }
+
+    synchronized AlarmEvent getRaisedBy() {
+        return raisedBy;
+    }
+}
@@ -0,0 +1,53 @@
+package no.ntnu.network.server.history;
+
+/**
+ * Reads a stream of bits written by a BitWriter.
+ */
+class BitReader {
+
+    private final long[] words;
+    private long position = 0;
+
+    /**
+     * Creates a reader at the start of the bits.
+     *
+     * @param words The bits, as returned by BitWriter.toArray
+     */
+    BitReader(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Reads the next bits.
+     *
+     * @param count The number of bits to read, 0 to 64
+     * @return The bits, in the lowest count bits of the result
+     */
+    long readBits(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int wordIndex = (int) (position >>> 6);
+        int bitOffset = (int) (position & 63);
+        int availableBits = 64 - bitOffset;
+        long value;
+        if (count <= availableBits) {
+            value = words[wordIndex] << bitOffset >>> (64 - count);
+        } else {
+            int overflow = count - availableBits;
+            long high = words[wordIndex] << bitOffset >>> bitOffset;
+            value = (high << overflow) | (words[wordIndex + 1] >>> (64 - overflow));
+        }
+        position += count;
+        return value;
+    }
+
+    /**
+     * Reads the next bit.
+     *
+     * @return The bit
+     */
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+}
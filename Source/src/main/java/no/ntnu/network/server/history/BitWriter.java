@@ -0,0 +1,71 @@
+package no.ntnu.network.server.history;
+
+import java.util.Arrays;
+
+/**
+ * Writes a stream of bits into a growing array of longs, most significant bit first.
+ */
+class BitWriter {
+
+    private long[] words = new long[16];
+    private long bitCount = 0;
+
+    /**
+     * Appends the lowest bits of a value.
+     *
+     * @param value The bits to write, in the lowest bitCount bits of the value
+     * @param count The number of bits to write, 0 to 64
+     */
+    void writeBits(long value, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        int wordIndex = (int) (bitCount >>> 6);
+        int freeBits = 64 - (int) (bitCount & 63);
+        ensureCapacity(wordIndex + 2);
+        if (count <= freeBits) {
+            words[wordIndex] |= value << (freeBits - count);
+        } else {
+            int overflow = count - freeBits;
+            words[wordIndex] |= value >>> overflow;
+            words[wordIndex + 1] |= value << (64 - overflow);
+        }
+        bitCount += count;
+    }
+
+    /**
+     * Appends a single bit.
+     *
+     * @param bit The bit to write
+     */
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Get the number of bits written so far.
+     *
+     * @return The number of bits
+     */
+    long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Get a copy of the bits written so far, just large enough to hold them.
+     *
+     * @return The bits, most significant bit of the first word first
+     */
+    long[] toArray() {
+        return Arrays.copyOf(words, (int) ((bitCount + 63) >>> 6));
+    }
+
+    private void ensureCapacity(int wordCount) {
+        if (wordCount > words.length) {
+            words = Arrays.copyOf(words, Math.max(wordCount, words.length * 2));
+        }
+    }
+}
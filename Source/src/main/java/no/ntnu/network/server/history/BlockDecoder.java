@@ -0,0 +1,86 @@
+package no.ntnu.network.server.history;
+
+/**
+ * Decompresses the samples of a HistoryBlock one by one, reversing the BlockEncoder.
+ */
+class BlockDecoder {
+
+    private final BitReader bits;
+    private final int count;
+    private int index = 0;
+    private long timestamp;
+    private long delta = 0;
+    private long valueBits;
+    private int leadingZeros;
+    private int trailingZeros;
+
+    /**
+     * Creates a decoder before the first sample of the block.
+     *
+     * @param block The block to decode
+     */
+    BlockDecoder(HistoryBlock block) {
+        this.bits = new BitReader(block.getBits());
+        this.count = block.getCount();
+    }
+
+    /**
+     * Moves to the next sample.
+     *
+     * @return False if there are no more samples
+     */
+    boolean next() {
+        if (index >= count) {
+            return false;
+        }
+        if (index == 0) {
+            timestamp = bits.readBits(64);
+            valueBits = bits.readBits(64);
+        } else {
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            readValue();
+        }
+        ++index;
+        return true;
+    }
+
+    private long readDeltaOfDelta() {
+        if (!bits.readBit()) {
+            return 0;
+        } else if (!bits.readBit()) {
+            return signExtend(bits.readBits(7), 7);
+        } else if (!bits.readBit()) {
+            return signExtend(bits.readBits(9), 9);
+        } else if (!bits.readBit()) {
+            return signExtend(bits.readBits(12), 12);
+        } else {
+            return bits.readBits(64);
+        }
+    }
+
+    private static long signExtend(long value, int bitCount) {
+        return value << (64 - bitCount) >> (64 - bitCount);
+    }
+
+    private void readValue() {
+        if (!bits.readBit()) {
+            return;
+        }
+        if (bits.readBit()) {
+            leadingZeros = (int) bits.readBits(5);
+            int meaningfulBits = (int) bits.readBits(6) + 1;
+            trailingZeros = 64 - leadingZeros - meaningfulBits;
+        }
+        long xor = bits.readBits(64 - leadingZeros - trailingZeros) << trailingZeros;
+        valueBits ^= xor;
+    }
+
+    long getTimestamp() {
+        return timestamp;
+    }
+
+    double getValue() {
+        return Double.longBitsToDouble(valueBits);
+    }
+}
@@ -0,0 +1,125 @@
+package no.ntnu.network.server.history;
+
+/**
+ * Compresses samples of one series into a HistoryBlock, as in Facebook's Gorilla time series database.
+ * The first timestamp and value are stored as is. After that, each timestamp is stored as the difference
+ * between its delta and the previous delta, which is 0 (a single bit) for readings at a fixed period.
+ * Each value is XOR-ed with the previous value: an unchanged value takes a single bit, and a slowly
+ * drifting value only stores the few bits which differ, reusing the position of the previous differing
+ * bits when they fit.
+ */
+class BlockEncoder {
+
+    private final BitWriter bits = new BitWriter();
+    private int count = 0;
+    private long previousTimestamp;
+    private long previousDelta;
+    private long previousValueBits;
+    private int previousLeadingZeros = -1;
+    private int previousTrailingZeros;
+
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private double minValue = Double.POSITIVE_INFINITY;
+    private double maxValue = Double.NEGATIVE_INFINITY;
+    private double sum = 0;
+
+    /**
+     * Appends a sample.
+     *
+     * @param timestamp When the value was received, in milliseconds since the epoch
+     * @param value     The value
+     */
+    void append(long timestamp, double value) {
+        long valueBits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            bits.writeBits(timestamp, 64);
+            bits.writeBits(valueBits, 64);
+            previousDelta = 0;
+        } else {
+            long delta = timestamp - previousTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            writeValue(valueBits);
+            previousDelta = delta;
+        }
+        previousTimestamp = timestamp;
+        previousValueBits = valueBits;
+        ++count;
+        minTimestamp = Math.min(minTimestamp, timestamp);
+        maxTimestamp = Math.max(maxTimestamp, timestamp);
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+        sum += value;
+    }
+
+    private void writeDeltaOfDelta(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            bits.writeBits(0b0, 1);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+            bits.writeBits(0b10, 2);
+            bits.writeBits(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+            bits.writeBits(0b110, 3);
+            bits.writeBits(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+            bits.writeBits(0b1110, 4);
+            bits.writeBits(deltaOfDelta, 12);
+        } else {
+            bits.writeBits(0b1111, 4);
+            bits.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long valueBits) {
+        long xor = valueBits ^ previousValueBits;
+        if (xor == 0) {
+            bits.writeBit(false);
+            return;
+        }
+        bits.writeBit(true);
+        // The leading zero count is stored in 5 bits
+        int leadingZeros = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailingZeros = Long.numberOfTrailingZeros(xor);
+        if (previousLeadingZeros >= 0 && leadingZeros >= previousLeadingZeros
+                && trailingZeros >= previousTrailingZeros) {
+            bits.writeBit(false);
+            bits.writeBits(xor >>> previousTrailingZeros, 64 - previousLeadingZeros - previousTrailingZeros);
+        } else {
+            int meaningfulBits = 64 - leadingZeros - trailingZeros;
+            bits.writeBit(true);
+            bits.writeBits(leadingZeros, 5);
+            // 1 to 64 meaningful bits, stored as 0 to 63 in 6 bits
+            bits.writeBits(meaningfulBits - 1, 6);
+            bits.writeBits(xor >>> trailingZeros, meaningfulBits);
+            previousLeadingZeros = leadingZeros;
+            previousTrailingZeros = trailingZeros;
+        }
+    }
+
+    /**
+     * Get the number of samples appended so far.
+     *
+     * @return The number of samples
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the number of bits the samples take so far.
+     *
+     * @return The compressed size, in bits
+     */
+    long getBitCount() {
+        return bits.getBitCount();
+    }
+
+    /**
+     * Creates an immutable block of the samples appended so far. The encoder can still be appended to.
+     *
+     * @return The block
+     */
+    HistoryBlock toBlock() {
+        return new HistoryBlock(count, minTimestamp, maxTimestamp, minValue, maxValue, sum, bits.toArray());
+    }
+}
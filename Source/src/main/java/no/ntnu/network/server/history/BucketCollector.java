@@ -0,0 +1,40 @@
+package no.ntnu.network.server.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects samples and rollup rows, in time order, into buckets of a fixed size aligned to multiples of
+ * that size since the epoch.
+ */
+class BucketCollector {
+
+    private final long bucketMillis;
+    private final List<HistoryBucket> buckets = new ArrayList<>();
+    private HistoryBucket current;
+
+    BucketCollector(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    void add(long timestamp, double value) {
+        bucketAt(timestamp).add(value);
+    }
+
+    void add(long timestamp, long count, double min, double max, double sum) {
+        bucketAt(timestamp).add(count, min, max, sum);
+    }
+
+    private HistoryBucket bucketAt(long timestamp) {
+        long start = Math.floorDiv(timestamp, bucketMillis) * bucketMillis;
+        if (current == null || current.getStart() != start) {
+            current = new HistoryBucket(start);
+            buckets.add(current);
+        }
+        return current;
+    }
+
+    List<HistoryBucket> getBuckets() {
+        return buckets;
+    }
+}
@@ -0,0 +1,88 @@
+package no.ntnu.network.server.history;
+
+/**
+ * The text formats the sensor history can be exported in. Both have one line per reading, so an export can
+ * be split in chunks at any line end.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values, with a header line: nodeid,sensortype,timestamp,value.
+     */
+    CSV,
+    /**
+     * Newline-delimited JSON, one object per line: {"nodeid":1,"sensortype":"temperature",...}.
+     */
+    NDJSON;
+
+    /**
+     * Finds a format by name, ignoring case.
+     *
+     * @param name The name, "csv" or "ndjson"
+     * @return The format
+     * @throws IllegalArgumentException If there is no format with that name
+     */
+    public static ExportFormat fromName(String name) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+
+    void appendHeader(StringBuilder out) {
+        if (this == CSV) {
+            out.append("nodeid,sensortype,timestamp,value\n");
+        }
+    }
+
+    void appendRow(StringBuilder out, int nodeId, String sensorType, long timestamp, double value) {
+        if (this == CSV) {
+            out.append(nodeId).append(',');
+            appendCsvText(out, sensorType);
+            out.append(',').append(timestamp).append(',').append(value).append('\n');
+        } else {
+            out.append("{\"nodeid\":").append(nodeId).append(",\"sensortype\":");
+            appendJsonText(out, sensorType);
+            out.append(",\"timestamp\":").append(timestamp).append(",\"value\":");
+            if (Double.isFinite(value)) {
+                out.append(value);
+            } else {
+                out.append("null");
+            }
+            out.append("}\n");
+        }
+    }
+
+    private static void appendCsvText(StringBuilder out, String text) {
+        boolean quote = text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0;
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private static void appendJsonText(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,65 @@
+package no.ntnu.network.server.history;
+
+/**
+ * The count, minimum, maximum and average of the values of a series in a time range.
+ */
+public class HistoryAggregate {
+
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum = 0;
+
+    void add(double value) {
+        ++count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+    }
+
+    void add(HistoryBlock block) {
+        add(block.getCount(), block.getMinValue(), block.getMaxValue(), block.getSum());
+    }
+
+    void add(long count, double min, double max, double sum) {
+        this.count += count;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+        this.sum += sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the smallest value.
+     *
+     * @return The minimum, or NaN when there are no values
+     */
+    public double getMin() {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    /**
+     * Get the largest value.
+     *
+     * @return The maximum, or NaN when there are no values
+     */
+    public double getMax() {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the average value.
+     *
+     * @return The average, or NaN when there are no values
+     */
+    public double getAverage() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+}
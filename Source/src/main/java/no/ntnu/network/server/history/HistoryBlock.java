@@ -0,0 +1,88 @@
+package no.ntnu.network.server.history;
+
+/**
+ * An immutable block of compressed samples of one series, with a header summarizing the samples.
+ * The header holds the count, the time range, the minimum, the maximum and the sum of the values, so
+ * aggregate queries over blocks which are completely inside the queried time range don't need to
+ * decompress them.
+ */
+public class HistoryBlock {
+
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final double minValue;
+    private final double maxValue;
+    private final double sum;
+    private final long[] bits;
+
+    HistoryBlock(int count, long minTimestamp, long maxTimestamp, double minValue, double maxValue,
+                 double sum, long[] bits) {
+        this.count = count;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.sum = sum;
+        this.bits = bits;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public double getMinValue() {
+        return minValue;
+    }
+
+    public double getMaxValue() {
+        return maxValue;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the size of the compressed samples.
+     *
+     * @return The size, in bytes
+     */
+    public int getSizeInBytes() {
+        return bits.length * Long.BYTES;
+    }
+
+    /**
+     * Checks whether the block may hold samples in a time range.
+     *
+     * @param from The start of the range, inclusive
+     * @param to   The end of the range, exclusive
+     * @return True if the block overlaps the range
+     */
+    public boolean overlaps(long from, long to) {
+        return minTimestamp < to && maxTimestamp >= from;
+    }
+
+    /**
+     * Checks whether all the samples of the block are in a time range.
+     *
+     * @param from The start of the range, inclusive
+     * @param to   The end of the range, exclusive
+     * @return True if the block is completely inside the range
+     */
+    public boolean isInside(long from, long to) {
+        return minTimestamp >= from && maxTimestamp < to;
+    }
+
+    long[] getBits() {
+        return bits;
+    }
+}
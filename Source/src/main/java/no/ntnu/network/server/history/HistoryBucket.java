@@ -0,0 +1,22 @@
+package no.ntnu.network.server.history;
+
+/**
+ * The aggregate of the values of a series in one time bucket.
+ */
+public class HistoryBucket extends HistoryAggregate {
+
+    private final long start;
+
+    HistoryBucket(long start) {
+        this.start = start;
+    }
+
+    /**
+     * Get the start of the bucket.
+     *
+     * @return The start, in milliseconds since the epoch; a multiple of the bucket size
+     */
+    public long getStart() {
+        return start;
+    }
+}
@@ -0,0 +1,99 @@
+package no.ntnu.network.server.history;
+
+import no.ntnu.tools.Logger;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The background job which rolls the sensor history up into the one-minute and one-hour tiers and removes
+ * what has expired from each tier. It runs periodically on its own low-priority thread, one series at a
+ * time, so ingestion into a series is only blocked while that series is rolled up or purged.
+ */
+public class HistoryCompactor {
+
+    public static final long DEFAULT_RAW_RETENTION = TimeUnit.DAYS.toMillis(7);
+    public static final long DEFAULT_MINUTE_RETENTION = TimeUnit.DAYS.toMillis(90);
+    public static final long DEFAULT_HOUR_RETENTION = TimeUnit.DAYS.toMillis(5 * 365);
+    private static final long COMPACTION_PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    private final SensorHistory history;
+    private final long rawRetention;
+    private final long minuteRetention;
+    private final long hourRetention;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Creates a compactor with the default retention of each tier.
+     *
+     * @param history The history to compact
+     */
+    public HistoryCompactor(SensorHistory history) {
+        this(history, DEFAULT_RAW_RETENTION, DEFAULT_MINUTE_RETENTION, DEFAULT_HOUR_RETENTION);
+    }
+
+    /**
+     * Creates a compactor.
+     *
+     * @param history         The history to compact
+     * @param rawRetention    How long the raw samples are kept, in milliseconds
+     * @param minuteRetention How long the one-minute rollups are kept, in milliseconds
+     * @param hourRetention   How long the one-hour rollups are kept, in milliseconds
+     */
+    public HistoryCompactor(SensorHistory history, long rawRetention, long minuteRetention, long hourRetention) {
+        this.history = history;
+        this.rawRetention = rawRetention;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+    }
+
+    /**
+     * Starts compacting periodically.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "history-compaction");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+            executor.scheduleWithFixedDelay(this::compactNow, COMPACTION_PERIOD, COMPACTION_PERIOD,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops compacting, after the current run.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private void compactNow() {
+        try {
+            compact(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            Logger.error("Error compacting the sensor history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rolls up every series to the given time and removes what expired before it.
+     *
+     * @param now The current time, in milliseconds since the epoch
+     * @return The number of removed blocks and rollups
+     */
+    public int compact(long now) {
+        int[] removed = {0};
+        history.forEachSeries(series -> {
+            series.compact(now);
+            removed[0] += series.purge(now - rawRetention, now - minuteRetention, now - hourRetention);
+        });
+        return removed[0];
+    }
+}
@@ -0,0 +1,72 @@
+package no.ntnu.network.server.history;
+
+import java.util.List;
+
+/**
+ * Iterates over the samples of a series in a time range, in the order they were stored. Blocks which
+ * don't overlap the range are skipped without being decompressed, and only one block is decompressed
+ * at a time, so a cursor takes constant memory however long the range is.
+ */
+public class HistoryCursor {
+
+    private final List<HistoryBlock> blocks;
+    private final long from;
+    private final long to;
+    private int blockIndex = 0;
+    private BlockDecoder decoder;
+
+    HistoryCursor(List<HistoryBlock> blocks, long from, long to) {
+        this.blocks = blocks;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Moves to the next sample in the time range.
+     *
+     * @return False if there are no more samples
+     */
+    public boolean next() {
+        while (true) {
+            if (decoder == null && !nextBlock()) {
+                return false;
+            }
+            while (decoder.next()) {
+                long timestamp = decoder.getTimestamp();
+                if (timestamp >= from && timestamp < to) {
+                    return true;
+                }
+            }
+            decoder = null;
+        }
+    }
+
+    private boolean nextBlock() {
+        while (blockIndex < blocks.size()) {
+            HistoryBlock block = blocks.get(blockIndex++);
+            if (block.overlaps(from, to)) {
+                decoder = new BlockDecoder(block);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the timestamp of the current sample.
+     *
+     * @return When the value was received, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return decoder.getTimestamp();
+    }
+
+    /**
+     * Get the value of the current sample.
+     *
+     * @return The value
+     */
+    public double getValue() {
+        return decoder.getValue();
+    }
+}
@@ -0,0 +1,83 @@
+package no.ntnu.network.server.history;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Exports the sensor history of a set of nodes in a time range as text, one line per reading. The rows are
+ * written straight from the history cursors, one compressed block at a time, through a single reused
+ * line buffer, so an export takes constant memory however many readings it holds.
+ * The rows are ordered by node ID, then sensor type, then time.
+ */
+public class HistoryExport {
+
+    private final SensorHistory history;
+    private final Collection<Integer> nodeIds;
+    private final long from;
+    private final long to;
+    private final ExportFormat format;
+    private volatile long rowCount = 0;
+
+    /**
+     * Creates an export.
+     *
+     * @param history The history to export from
+     * @param nodeIds The nodes to export, or an empty collection for all the nodes
+     * @param from    The start of the time range, inclusive, in milliseconds since the epoch
+     * @param to      The end of the time range, exclusive
+     * @param format  The format of the rows
+     */
+    public HistoryExport(SensorHistory history, Collection<Integer> nodeIds, long from, long to,
+                         ExportFormat format) {
+        this.history = history;
+        this.nodeIds = nodeIds;
+        this.from = from;
+        this.to = to;
+        this.format = format;
+    }
+
+    /**
+     * Writes the export. The writer is not closed.
+     *
+     * @param out The writer to write the rows to
+     * @return The number of rows written
+     * @throws IOException If writing fails
+     */
+    public long writeTo(Writer out) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        format.appendHeader(line);
+        flushLine(line, out);
+        for (int nodeId : new TreeSet<>(nodeIds.isEmpty() ? history.getNodeIds() : nodeIds)) {
+            for (String sensorType : new TreeSet<>(history.getSensorTypes(nodeId))) {
+                HistoryCursor cursor = history.getSeries(nodeId, sensorType).query(from, to);
+                while (cursor.next()) {
+                    format.appendRow(line, nodeId, sensorType, cursor.getTimestamp(), cursor.getValue());
+                    flushLine(line, out);
+                    ++rowCount;
+                }
+            }
+        }
+        out.flush();
+        return rowCount;
+    }
+
+    private static void flushLine(StringBuilder line, Writer out) throws IOException {
+        out.append(line);
+        line.setLength(0);
+    }
+
+    /**
+     * Get the number of rows written so far. May be called from another thread to follow the progress.
+     *
+     * @return The number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public ExportFormat getFormat() {
+        return format;
+    }
+}
@@ -0,0 +1,43 @@
+package no.ntnu.network.server.history;
+
+/**
+ * The resolutions the sensor history is kept at. Raw samples are rolled up into one-minute buckets, and
+ * one-minute buckets into one-hour buckets, each tier being retained longer than the previous one.
+ */
+public enum HistoryTier {
+    RAW(0),
+    MINUTE(60_000),
+    HOUR(3_600_000);
+
+    private final long bucketMillis;
+
+    HistoryTier(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * Get the size of the buckets of the tier.
+     *
+     * @return The bucket size, in milliseconds; 0 for the raw samples
+     */
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * Finds the coarsest tier which can answer a query for buckets of the given size: the tier buckets
+     * must divide the requested buckets exactly.
+     *
+     * @param bucketMillis The requested bucket size, in milliseconds
+     * @return The tier to read
+     */
+    public static HistoryTier forBucketSize(long bucketMillis) {
+        HistoryTier[] tiers = values();
+        for (int i = tiers.length - 1; i > 0; --i) {
+            if (bucketMillis % tiers[i].bucketMillis == 0) {
+                return tiers[i];
+            }
+        }
+        return RAW;
+    }
+}
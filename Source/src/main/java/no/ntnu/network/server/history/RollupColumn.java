@@ -0,0 +1,138 @@
+package no.ntnu.network.server.history;
+
+import java.util.Arrays;
+
+/**
+ * The rollups of one series at one tier: one row per bucket holding the start, count, minimum, maximum and
+ * sum of the values, stored as parallel arrays. Rows are appended in time order by the compaction and
+ * removed from the oldest end when they expire. A sample arriving after its bucket was rolled up is added to
+ * the row of its bucket.
+ */
+class RollupColumn {
+
+    private long[] starts = new long[64];
+    private long[] counts = new long[64];
+    private double[] mins = new double[64];
+    private double[] maxs = new double[64];
+    private double[] sums = new double[64];
+    // Rows before head have expired, rows from head up to size are live
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Appends a row, after all the existing rows.
+     *
+     * @param start     The start of the bucket
+     * @param aggregate The values in the bucket
+     */
+    synchronized void append(long start, HistoryAggregate aggregate) {
+        if (size == starts.length) {
+            grow();
+        }
+        starts[size] = start;
+        counts[size] = aggregate.getCount();
+        mins[size] = aggregate.getMin();
+        maxs[size] = aggregate.getMax();
+        sums[size] = aggregate.getSum();
+        ++size;
+    }
+
+    /**
+     * Adds a value to the row of a bucket, inserting the row in time order if the bucket has none.
+     *
+     * @param start The start of the bucket
+     * @param value The value
+     */
+    synchronized void add(long start, double value) {
+        int index = Arrays.binarySearch(starts, head, size, start);
+        if (index >= 0) {
+            ++counts[index];
+            mins[index] = Math.min(mins[index], value);
+            maxs[index] = Math.max(maxs[index], value);
+            sums[index] += value;
+            return;
+        }
+        if (size == starts.length) {
+            grow();
+        }
+        // The head may have moved while growing
+        index = -Arrays.binarySearch(starts, head, size, start) - 1;
+        int moved = size - index;
+        System.arraycopy(starts, index, starts, index + 1, moved);
+        System.arraycopy(counts, index, counts, index + 1, moved);
+        System.arraycopy(mins, index, mins, index + 1, moved);
+        System.arraycopy(maxs, index, maxs, index + 1, moved);
+        System.arraycopy(sums, index, sums, index + 1, moved);
+        starts[index] = start;
+        counts[index] = 1;
+        mins[index] = value;
+        maxs[index] = value;
+        sums[index] = value;
+        ++size;
+    }
+
+    /**
+     * Adds the rows starting in a time range to query results.
+     *
+     * @param from    The start of the range, inclusive
+     * @param to      The end of the range, exclusive
+     * @param buckets The results to add to
+     */
+    synchronized void collect(long from, long to, BucketCollector buckets) {
+        for (int i = firstRowFrom(from); i < size && starts[i] < to; ++i) {
+            buckets.add(starts[i], counts[i], mins[i], maxs[i], sums[i]);
+        }
+    }
+
+    /**
+     * Removes the rows which ended before a point in time.
+     *
+     * @param cutoff       The oldest time to keep
+     * @param bucketMillis The size of the buckets of this column
+     * @return The number of removed rows
+     */
+    synchronized int purge(long cutoff, long bucketMillis) {
+        int oldHead = head;
+        while (head < size && starts[head] + bucketMillis <= cutoff) {
+            ++head;
+        }
+        if (head > starts.length / 2) {
+            compact();
+        }
+        return head - oldHead;
+    }
+
+    synchronized int getRowCount() {
+        return size - head;
+    }
+
+    private int firstRowFrom(long from) {
+        int index = Arrays.binarySearch(starts, head, size, from);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private void grow() {
+        if (head > 0) {
+            compact();
+        }
+        if (size == starts.length) {
+            int capacity = starts.length * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+            mins = Arrays.copyOf(mins, capacity);
+            maxs = Arrays.copyOf(maxs, capacity);
+            sums = Arrays.copyOf(sums, capacity);
+        }
+    }
+
+    private void compact() {
+        int live = size - head;
+        System.arraycopy(starts, head, starts, 0, live);
+        System.arraycopy(counts, head, counts, 0, live);
+        System.arraycopy(mins, head, mins, 0, live);
+        System.arraycopy(maxs, head, maxs, 0, live);
+        System.arraycopy(sums, head, sums, 0, live);
+        head = 0;
+        size = live;
+    }
+}
@@ -0,0 +1,127 @@
+package no.ntnu.network.server.history;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The sensor readings retained by the server, one compressed SensorSeries per node and sensor type.
+ * A sample takes a few bits for readings arriving at a fixed period with slowly drifting values, instead
+ * of the 16 bytes of a raw timestamp and value.
+ */
+public class SensorHistory {
+
+    private final Map<Integer, Map<String, SensorSeries>> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the readings reported by one node.
+     *
+     * @param nodeId    The node which reported the readings
+     * @param timestamp When the readings were received, in milliseconds since the epoch
+     * @param readings  The readings
+     */
+    public void append(int nodeId, long timestamp, List<SensorReading> readings) {
+        Map<String, SensorSeries> nodeSeries = nodes.computeIfAbsent(nodeId, id -> new ConcurrentHashMap<>());
+        for (SensorReading reading : readings) {
+            SensorSeries series = nodeSeries.get(reading.getType());
+            if (series == null) {
+                series = nodeSeries.computeIfAbsent(reading.getType(), type -> new SensorSeries());
+            }
+            series.append(timestamp, reading.getValue());
+        }
+    }
+
+    /**
+     * Get the history of one sensor type of one node.
+     *
+     * @param nodeId     The node
+     * @param sensorType The sensor type
+     * @return The series, or null if the node never reported that sensor type
+     */
+    public SensorSeries getSeries(int nodeId, String sensorType) {
+        Map<String, SensorSeries> nodeSeries = nodes.get(nodeId);
+        return nodeSeries != null ? nodeSeries.get(sensorType) : null;
+    }
+
+    /**
+     * Aggregates the history of one sensor type of one node in buckets of a fixed size, reading the coarsest
+     * tier which satisfies the bucket size. See {@link SensorSeries#query(long, long, long)}.
+     *
+     * @param nodeId       The node
+     * @param sensorType   The sensor type
+     * @param from         The start of the range, inclusive, in milliseconds since the epoch
+     * @param to           The end of the range, exclusive
+     * @param bucketMillis The bucket size, in milliseconds
+     * @return The buckets holding samples, oldest first; empty if there is no such series
+     */
+    public List<HistoryBucket> query(int nodeId, String sensorType, long from, long to, long bucketMillis) {
+        SensorSeries series = getSeries(nodeId, sensorType);
+        return series != null ? series.query(from, to, bucketMillis) : List.of();
+    }
+
+    /**
+     * Performs an action for every series.
+     *
+     * @param action The action
+     */
+    void forEachSeries(Consumer<SensorSeries> action) {
+        for (Map<String, SensorSeries> nodeSeries : nodes.values()) {
+            nodeSeries.values().forEach(action);
+        }
+    }
+
+    /**
+     * Get the nodes which have a history.
+     *
+     * @return The node IDs
+     */
+    public Set<Integer> getNodeIds() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    /**
+     * Get the sensor types a node has a history for.
+     *
+     * @param nodeId The node
+     * @return The sensor types, empty if the node has no history
+     */
+    public Set<String> getSensorTypes(int nodeId) {
+        Map<String, SensorSeries> nodeSeries = nodes.get(nodeId);
+        return nodeSeries != null ? Collections.unmodifiableSet(nodeSeries.keySet()) : Set.of();
+    }
+
+    /**
+     * Get the number of samples stored.
+     *
+     * @return The number of samples, over all the series
+     */
+    public long getSampleCount() {
+        long count = 0;
+        for (Map<String, SensorSeries> nodeSeries : nodes.values()) {
+            for (SensorSeries series : nodeSeries.values()) {
+                count += series.getSampleCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the size of the compressed samples.
+     *
+     * @return The size, in bytes, over all the series
+     */
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Map<String, SensorSeries> nodeSeries : nodes.values()) {
+            for (SensorSeries series : nodeSeries.values()) {
+                size += series.getSizeInBytes();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,242 @@
+package no.ntnu.network.server.history;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The history of one sensor type of one node, stored as a column of compressed blocks. Samples are
+ * appended to an open block, which is sealed once it holds BLOCK_SIZE samples.
+ * The compaction rolls the raw samples up into one-minute rollups, and those into one-hour rollups. Each
+ * tier has a watermark: all the samples before it are rolled up into the tier, none after it. A sample
+ * appended late, with a timestamp below a watermark, is added to the rollup of its bucket at once, so it is
+ * never left out of the rollups. Expired samples and rollups are only ever removed below the watermark of the
+ * next coarser tier.
+ * Appending, querying and compaction may be done from different threads; queries see the samples
+ * appended before they started.
+ */
+public class SensorSeries {
+
+    /**
+     * The number of samples in a sealed block.
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    private final List<HistoryBlock> sealedBlocks = new ArrayList<>();
+    private BlockEncoder openBlock = new BlockEncoder();
+    private long sampleCount = 0;
+
+    private final RollupColumn minuteRollups = new RollupColumn();
+    private final RollupColumn hourRollups = new RollupColumn();
+    // Only the compaction moves the watermarks, holding the lock of the series, queries read them
+    private volatile long minuteWatermark = Long.MIN_VALUE;
+    private volatile long hourWatermark = Long.MIN_VALUE;
+
+    /**
+     * Appends a sample. A sample older than the watermark of a tier, for example one whose receive time was
+     * taken just before the compaction, is rolled up into that tier as well.
+     *
+     * @param timestamp When the value was received, in milliseconds since the epoch
+     * @param value     The value
+     */
+    public synchronized void append(long timestamp, double value) {
+        if (timestamp < minuteWatermark) {
+            long minuteMillis = HistoryTier.MINUTE.getBucketMillis();
+            minuteRollups.add(Math.floorDiv(timestamp, minuteMillis) * minuteMillis, value);
+            if (timestamp < hourWatermark) {
+                long hourMillis = HistoryTier.HOUR.getBucketMillis();
+                hourRollups.add(Math.floorDiv(timestamp, hourMillis) * hourMillis, value);
+            }
+        }
+        openBlock.append(timestamp, value);
+        ++sampleCount;
+        if (openBlock.getCount() >= BLOCK_SIZE) {
+            sealedBlocks.add(openBlock.toBlock());
+            openBlock = new BlockEncoder();
+        }
+    }
+
+    /**
+     * Get the blocks currently stored, including a copy of the open block.
+     *
+     * @return The blocks, oldest first
+     */
+    public synchronized List<HistoryBlock> getBlocks() {
+        List<HistoryBlock> blocks = new ArrayList<>(sealedBlocks.size() + 1);
+        blocks.addAll(sealedBlocks);
+        if (openBlock.getCount() > 0) {
+            blocks.add(openBlock.toBlock());
+        }
+        return blocks;
+    }
+
+    /**
+     * Get the samples in a time range.
+     *
+     * @param from The start of the range, inclusive, in milliseconds since the epoch
+     * @param to   The end of the range, exclusive
+     * @return A cursor over the samples
+     */
+    public HistoryCursor query(long from, long to) {
+        return new HistoryCursor(getBlocks(), from, to);
+    }
+
+    /**
+     * Aggregates the samples in a time range. Only the blocks partially overlapping the range are
+     * decompressed, the others are summarized from their headers.
+     *
+     * @param from The start of the range, inclusive, in milliseconds since the epoch
+     * @param to   The end of the range, exclusive
+     * @return The aggregate of the samples
+     */
+    public HistoryAggregate aggregate(long from, long to) {
+        HistoryAggregate aggregate = new HistoryAggregate();
+        for (HistoryBlock block : getBlocks()) {
+            if (block.isInside(from, to)) {
+                aggregate.add(block);
+            } else if (block.overlaps(from, to)) {
+                BlockDecoder decoder = new BlockDecoder(block);
+                while (decoder.next()) {
+                    if (decoder.getTimestamp() >= from && decoder.getTimestamp() < to) {
+                        aggregate.add(decoder.getValue());
+                    }
+                }
+            }
+        }
+        return aggregate;
+    }
+
+    /**
+     * Aggregates the history in buckets of a fixed size, reading the coarsest tier whose buckets divide the
+     * requested bucket size. The parts of the range which are not rolled up into that tier yet are read from
+     * the finer tiers. The range is widened to whole buckets, aligned to multiples of the bucket size since
+     * the epoch.
+     *
+     * @param from         The start of the range, inclusive, in milliseconds since the epoch
+     * @param to           The end of the range, exclusive
+     * @param bucketMillis The bucket size, in milliseconds
+     * @return The buckets holding samples, oldest first
+     */
+    public List<HistoryBucket> query(long from, long to, long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketMillis);
+        }
+        from = Math.floorDiv(from, bucketMillis) * bucketMillis;
+        long alignedTo = Math.floorDiv(to, bucketMillis) * bucketMillis;
+        to = alignedTo < to && alignedTo <= Long.MAX_VALUE - bucketMillis ? alignedTo + bucketMillis : alignedTo;
+        HistoryTier tier = HistoryTier.forBucketSize(bucketMillis);
+        BucketCollector buckets = new BucketCollector(bucketMillis);
+        long covered = from;
+        if (tier == HistoryTier.HOUR) {
+            long watermark = hourWatermark;
+            hourRollups.collect(covered, Math.min(to, watermark), buckets);
+            covered = Math.max(covered, watermark);
+        }
+        if (tier != HistoryTier.RAW && covered < to) {
+            long watermark = minuteWatermark;
+            minuteRollups.collect(covered, Math.min(to, watermark), buckets);
+            covered = Math.max(covered, watermark);
+        }
+        if (covered < to) {
+            HistoryCursor cursor = query(covered, to);
+            while (cursor.next()) {
+                buckets.add(cursor.getTimestamp(), cursor.getValue());
+            }
+        }
+        return buckets.getBuckets();
+    }
+
+    /**
+     * Rolls up the samples of all the buckets which ended before a point in time and were not rolled up yet.
+     * Appending waits for the compaction, so a sample is either rolled up here or by its append.
+     *
+     * @param now The current time, in milliseconds since the epoch
+     */
+    synchronized void compact(long now) {
+        long minuteCutoff = Math.floorDiv(now, HistoryTier.MINUTE.getBucketMillis())
+                * HistoryTier.MINUTE.getBucketMillis();
+        if (minuteCutoff > minuteWatermark) {
+            BucketCollector minutes = new BucketCollector(HistoryTier.MINUTE.getBucketMillis());
+            HistoryCursor cursor = query(minuteWatermark, minuteCutoff);
+            while (cursor.next()) {
+                minutes.add(cursor.getTimestamp(), cursor.getValue());
+            }
+            for (HistoryBucket minute : minutes.getBuckets()) {
+                minuteRollups.append(minute.getStart(), minute);
+            }
+            minuteWatermark = minuteCutoff;
+        }
+        long hourCutoff = Math.floorDiv(now, HistoryTier.HOUR.getBucketMillis())
+                * HistoryTier.HOUR.getBucketMillis();
+        if (hourCutoff > hourWatermark) {
+            BucketCollector hours = new BucketCollector(HistoryTier.HOUR.getBucketMillis());
+            minuteRollups.collect(hourWatermark, hourCutoff, hours);
+            for (HistoryBucket hour : hours.getBuckets()) {
+                hourRollups.append(hour.getStart(), hour);
+            }
+            hourWatermark = hourCutoff;
+        }
+    }
+
+    /**
+     * Removes the expired samples and rollups. Nothing is removed before it is rolled up into the next tier.
+     *
+     * @param rawCutoff    The oldest raw sample to keep, in milliseconds since the epoch
+     * @param minuteCutoff The oldest one-minute rollup to keep
+     * @param hourCutoff   The oldest one-hour rollup to keep
+     * @return The number of removed blocks and rollups
+     */
+    int purge(long rawCutoff, long minuteCutoff, long hourCutoff) {
+        int removed = purgeBlocks(Math.min(rawCutoff, minuteWatermark));
+        removed += minuteRollups.purge(Math.min(minuteCutoff, hourWatermark), HistoryTier.MINUTE.getBucketMillis());
+        removed += hourRollups.purge(hourCutoff, HistoryTier.HOUR.getBucketMillis());
+        return removed;
+    }
+
+    private synchronized int purgeBlocks(long cutoff) {
+        int expired = 0;
+        while (expired < sealedBlocks.size() && sealedBlocks.get(expired).getMaxTimestamp() < cutoff) {
+            ++expired;
+        }
+        sealedBlocks.subList(0, expired).clear();
+        return expired;
+    }
+
+    /**
+     * Get the number of rollups stored in a tier.
+     *
+     * @param tier The tier, MINUTE or HOUR
+     * @return The number of rollups
+     */
+    public int getRollupCount(HistoryTier tier) {
+        switch (tier) {
+            case MINUTE:
+                return minuteRollups.getRowCount();
+            case HOUR:
+                return hourRollups.getRowCount();
+            default:
+                throw new IllegalArgumentException("No rollups at tier " + tier);
+        }
+    }
+
+    /**
+     * Get the number of samples appended so far.
+     *
+     * @return The number of samples
+     */
+    public synchronized long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Get the size of the compressed samples.
+     *
+     * @return The size, in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        long size = (openBlock.getBitCount() + 7) / 8;
+        for (HistoryBlock block : sealedBlocks) {
+            size += block.getSizeInBytes();
+        }
+        return size;
+    }
+}
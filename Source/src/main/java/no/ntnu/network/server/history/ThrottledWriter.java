@@ -0,0 +1,64 @@
+package no.ntnu.network.server.history;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A writer which limits the rate at which characters are passed on, sleeping when it is ahead of the rate.
+ * Used for bulk exports, so that they don't take the bandwidth and disk away from live traffic.
+ */
+public class ThrottledWriter extends FilterWriter {
+
+    // Sleeping for shorter than this costs more than it saves, the writer runs a bit ahead instead
+    private static final long MIN_SLEEP_NANOS = 1_000_000;
+
+    private final long charsPerSecond;
+    private final long startNanos = System.nanoTime();
+    private long writtenChars = 0;
+
+    /**
+     * Creates a throttled writer.
+     *
+     * @param out            The writer to pass the characters on to
+     * @param charsPerSecond The maximum average rate
+     */
+    public ThrottledWriter(Writer out, long charsPerSecond) {
+        super(out);
+        if (charsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + charsPerSecond);
+        }
+        this.charsPerSecond = charsPerSecond;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        super.write(c);
+        throttle(1);
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int length) throws IOException {
+        super.write(buffer, offset, length);
+        throttle(length);
+    }
+
+    @Override
+    public void write(String text, int offset, int length) throws IOException {
+        super.write(text, offset, length);
+        throttle(length);
+    }
+
+    private void throttle(int chars) throws IOException {
+        writtenChars += chars;
+        long dueNanos = startNanos + (long) (writtenChars * 1e9 / charsPerSecond);
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos >= MIN_SLEEP_NANOS) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.interrupted()) {
+                throw new IOException("Export interrupted");
+            }
+        }
+    }
+}
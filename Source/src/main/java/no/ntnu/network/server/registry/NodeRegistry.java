@@ -0,0 +1,145 @@
+package no.ntnu.network.server.registry;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last known state of every sensor/actuator node which has connected to the server, kept when the node
+ * disconnects and, through a RegistrySnapshot, when the server restarts.
+ * State versions are taken from one counter shared by all the nodes, which starts above the current time in
+ * microseconds when the server starts. A version handed out before a restart is therefore never handed out
+ * again for another state after the restart, so a matching version always means the same state.
+ */
+public class NodeRegistry {
+
+    private final Map<Integer, NodeState> nodes = new ConcurrentHashMap<>();
+    private final AtomicLong versionCounter = new AtomicLong(System.currentTimeMillis() * 1000);
+    // Counts every update, including sensor values, to tell whether a checkpoint is needed
+    private final AtomicLong changeCount = new AtomicLong();
+
+    /**
+     * Registers a node connecting with its full state. Creates the node if it is new.
+     *
+     * @param nodeId       The node
+     * @param actuatorId   The actuator the node registers with
+     * @param actuatorType The type of the actuator
+     * @param isOn         The state of the actuator
+     * @param sensorType   The sensor type the node registers with
+     * @param sensorValue  The current value of the sensor
+     * @return The state of the node
+     */
+    public NodeState register(int nodeId, int actuatorId, String actuatorType, boolean isOn, String sensorType,
+                              double sensorValue) {
+        long now = System.currentTimeMillis();
+        NodeState node = nodes.computeIfAbsent(nodeId, id -> new NodeState(id, versionCounter.incrementAndGet()));
+        synchronized (node) {
+            if (node.setActuator(actuatorId, actuatorType, isOn, now)) {
+                node.setVersion(versionCounter.incrementAndGet());
+            }
+            node.setSensorValue(sensorType, sensorValue, now);
+        }
+        changeCount.incrementAndGet();
+        return node;
+    }
+
+    /**
+     * Updates the last sensor values of a node. Unknown nodes are ignored, they are created when they
+     * register.
+     *
+     * @param nodeId    The node
+     * @param timestamp When the readings were received, in milliseconds since the epoch
+     * @param readings  The readings
+     */
+    public void updateSensorValues(int nodeId, long timestamp, List<SensorReading> readings) {
+        NodeState node = nodes.get(nodeId);
+        if (node != null) {
+            synchronized (node) {
+                for (SensorReading reading : readings) {
+                    node.setSensorValue(reading.getType(), reading.getValue(), timestamp);
+                }
+            }
+            changeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Updates the state of an actuator of a node. The version of the node stays the same.
+     *
+     * @param nodeId     The node
+     * @param actuatorId The actuator
+     * @param isOn       The current state of the actuator
+     */
+    public void updateActuatorState(int nodeId, int actuatorId, boolean isOn) {
+        NodeState node = nodes.get(nodeId);
+        if (node != null) {
+            synchronized (node) {
+                node.setActuatorState(actuatorId, isOn, System.currentTimeMillis());
+            }
+            changeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Updates the states of several actuators of a node at once. The version of the node stays the same.
+     *
+     * @param nodeId      The node
+     * @param actuatorIds The actuators
+     * @param states      The current states of the actuators, in the same order
+     */
+    public void updateActuatorStates(int nodeId, int[] actuatorIds, boolean[] states) {
+        NodeState node = nodes.get(nodeId);
+        if (node != null) {
+            long now = System.currentTimeMillis();
+            synchronized (node) {
+                for (int i = 0; i < actuatorIds.length; ++i) {
+                    node.setActuatorState(actuatorIds[i], states[i], now);
+                }
+            }
+            changeCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get the last known state of a node.
+     *
+     * @param nodeId The node
+     * @return The state, or null if the node never registered
+     */
+    public NodeState get(int nodeId) {
+        return nodes.get(nodeId);
+    }
+
+    /**
+     * Get all the known nodes.
+     *
+     * @return The states of the nodes
+     */
+    public Collection<NodeState> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+    /**
+     * Get the number of updates since the server started, to find out whether anything changed.
+     *
+     * @return The update count
+     */
+    public long getChangeCount() {
+        return changeCount.get();
+    }
+
+    /**
+     * Adds a node restored from a snapshot, replacing any current state of the node.
+     *
+     * @param node The restored node
+     */
+    void restore(NodeState node) {
+        nodes.put(node.getNodeId(), node);
+        versionCounter.accumulateAndGet(node.getVersion(), Math::max);
+    }
+}
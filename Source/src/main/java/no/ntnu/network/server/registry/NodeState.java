@@ -0,0 +1,130 @@
+package no.ntnu.network.server.registry;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The last known state of one sensor/actuator node, kept by the server across disconnections and restarts:
+ * the registered actuators with their states, and the last value of each sensor type.
+ * The version only covers the topology of the node: it changes when an actuator is registered or changes type.
+ * Actuator states and sensor values are kept up to date but don't change the version, since the node reports
+ * them again whenever they change, so a node can resume with the version it got when it registered.
+ */
+public class NodeState {
+
+    private final int nodeId;
+    private long version;
+    private long lastSeen;
+    private final Map<String, Double> sensorValues = new LinkedHashMap<>();
+    private final Map<Integer, String> actuatorTypes = new LinkedHashMap<>();
+    private final Map<Integer, Boolean> actuatorStates = new LinkedHashMap<>();
+
+    NodeState(int nodeId, long version) {
+        this.nodeId = nodeId;
+        this.version = version;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the last time the node reported anything.
+     *
+     * @return The time, in milliseconds since the epoch
+     */
+    public synchronized long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * Get the last value of a sensor type.
+     *
+     * @param sensorType The sensor type
+     * @return The value, or null if the node never reported that sensor type
+     */
+    public synchronized Double getSensorValue(String sensorType) {
+        return sensorValues.get(sensorType);
+    }
+
+    /**
+     * Get the last values of all the sensor types of the node.
+     *
+     * @return A copy of the values by sensor type, in the order the types were first reported
+     */
+    public synchronized Map<String, Double> getSensorValues() {
+        return new LinkedHashMap<>(sensorValues);
+    }
+
+    /**
+     * Get the types of the registered actuators.
+     *
+     * @return A copy of the types by actuator ID, in registration order
+     */
+    public synchronized Map<Integer, String> getActuatorTypes() {
+        return new LinkedHashMap<>(actuatorTypes);
+    }
+
+    /**
+     * Get the states of the registered actuators.
+     *
+     * @return A copy of the states by actuator ID, in registration order
+     */
+    public synchronized Map<Integer, Boolean> getActuatorStates() {
+        return new LinkedHashMap<>(actuatorStates);
+    }
+
+    /**
+     * Get the state of an actuator.
+     *
+     * @param actuatorId The actuator
+     * @return True if on, false if off, null if the actuator is not registered
+     */
+    public synchronized Boolean getActuatorState(int actuatorId) {
+        return actuatorStates.get(actuatorId);
+    }
+
+    synchronized void setSensorValue(String sensorType, double value, long timestamp) {
+        sensorValues.put(sensorType, value);
+        lastSeen = timestamp;
+    }
+
+    /**
+     * Registers or updates an actuator.
+     *
+     * @return True if the actuator is new or changed type
+     */
+    synchronized boolean setActuator(int actuatorId, String actuatorType, boolean isOn, long timestamp) {
+        lastSeen = timestamp;
+        String previousType = actuatorTypes.put(actuatorId, actuatorType);
+        actuatorStates.put(actuatorId, isOn);
+        return !actuatorType.equals(previousType);
+    }
+
+    /**
+     * Updates the state of a registered actuator.
+     *
+     * @return True if the actuator is registered and its state changed
+     */
+    synchronized boolean setActuatorState(int actuatorId, boolean isOn, long timestamp) {
+        lastSeen = timestamp;
+        Boolean previousState = actuatorStates.get(actuatorId);
+        if (previousState == null || previousState == isOn) {
+            return false;
+        }
+        actuatorStates.put(actuatorId, isOn);
+        return true;
+    }
+
+    synchronized void setVersion(long version) {
+        this.version = version;
+    }
+
+    synchronized void setLastSeen(long lastSeen) {
+        this.lastSeen = lastSeen;
+    }
+}
@@ -0,0 +1,87 @@
+package no.ntnu.network.server.registry;
+
+import no.ntnu.tools.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a snapshot file of the node registry: loads it when started, writes it periodically while anything
+ * changed, and once more when stopped.
+ */
+public class RegistryCheckpointer {
+
+    private static final long CHECKPOINT_PERIOD = TimeUnit.SECONDS.toMillis(30);
+
+    private final NodeRegistry registry;
+    private final Path file;
+    private ScheduledExecutorService executor;
+    private long checkpointedChangeCount = -1;
+
+    /**
+     * Creates a checkpointer.
+     *
+     * @param registry The registry to checkpoint
+     * @param file     The snapshot file
+     */
+    public RegistryCheckpointer(NodeRegistry registry, Path file) {
+        this.registry = registry;
+        this.file = file;
+    }
+
+    /**
+     * Restores the registry from the snapshot file, if there is one, then starts checkpointing periodically.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        if (Files.exists(file)) {
+            try {
+                int nodeCount = RegistrySnapshot.read(registry, file);
+                Logger.info("Restored " + nodeCount + " nodes from the registry snapshot " + file);
+            } catch (IOException e) {
+                Logger.error("Error restoring the registry snapshot, starting empty: " + e.getMessage());
+            }
+        }
+        checkpointedChangeCount = registry.getChangeCount();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registry-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_PERIOD, CHECKPOINT_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops checkpointing periodically, and writes a last checkpoint.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes a checkpoint now, unless nothing changed since the last one.
+     */
+    public synchronized void checkpoint() {
+        long changeCount = registry.getChangeCount();
+        if (changeCount == checkpointedChangeCount) {
+            return;
+        }
+        try {
+            RegistrySnapshot.write(registry, file);
+            checkpointedChangeCount = changeCount;
+        } catch (IOException e) {
+            Logger.error("Error writing the registry snapshot: " + e.getMessage());
+        }
+    }
+}
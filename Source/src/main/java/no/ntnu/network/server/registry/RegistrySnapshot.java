@@ -0,0 +1,127 @@
+package no.ntnu.network.server.registry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves the node registry to a compact binary file and loads it back. The file is written next to the
+ * snapshot and then moved over it, so a crash while checkpointing leaves the previous snapshot intact.
+ * Layout (big endian, as written by DataOutputStream):
+ * [int magic] [int version] [long createdAt] [int nodeCount], then per node:
+ * [int nodeId] [long stateVersion] [long lastSeen]
+ * [short sensorCount] ([UTF sensorType] [double value]) ...
+ * [short actuatorCount] ([int actuatorId] [UTF actuatorType] [boolean isOn]) ...
+ */
+public class RegistrySnapshot {
+
+    private static final int MAGIC = 0x53524547; // "SREG"
+    private static final int VERSION = 1;
+
+    /**
+     * Not allowed to create instances of this class.
+     */
+    private RegistrySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the registry.
+     *
+     * @param registry The registry
+     * @param file     The snapshot file, replaced atomically
+     * @return The number of nodes written
+     * @throws IOException If writing fails
+     */
+    public static int write(NodeRegistry registry, Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        // Copy first, the node count must be known before the nodes are written
+        List<NodeState> nodes = new ArrayList<>(registry.getNodes());
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temporaryFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(nodes.size());
+            for (NodeState node : nodes) {
+                writeNode(node, out);
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return nodes.size();
+    }
+
+    private static void writeNode(NodeState node, DataOutputStream out) throws IOException {
+        Map<String, Double> sensorValues;
+        Map<Integer, String> actuatorTypes;
+        Map<Integer, Boolean> actuatorStates;
+        long version;
+        long lastSeen;
+        synchronized (node) {
+            version = node.getVersion();
+            lastSeen = node.getLastSeen();
+            sensorValues = node.getSensorValues();
+            actuatorTypes = node.getActuatorTypes();
+            actuatorStates = node.getActuatorStates();
+        }
+        out.writeInt(node.getNodeId());
+        out.writeLong(version);
+        out.writeLong(lastSeen);
+        out.writeShort(sensorValues.size());
+        for (Map.Entry<String, Double> sensor : sensorValues.entrySet()) {
+            out.writeUTF(sensor.getKey());
+            out.writeDouble(sensor.getValue());
+        }
+        out.writeShort(actuatorTypes.size());
+        for (Map.Entry<Integer, String> actuator : actuatorTypes.entrySet()) {
+            out.writeInt(actuator.getKey());
+            out.writeUTF(actuator.getValue());
+            out.writeBoolean(actuatorStates.get(actuator.getKey()));
+        }
+    }
+
+    /**
+     * Loads a snapshot into the registry.
+     *
+     * @param registry The registry to restore the nodes into
+     * @param file     The snapshot file
+     * @return The number of nodes restored
+     * @throws IOException If reading fails or the file is not a registry snapshot
+     */
+    public static int read(NodeRegistry registry, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a registry snapshot, or an unsupported version: " + file);
+            }
+            in.readLong(); // When the snapshot was created
+            int nodeCount = in.readInt();
+            for (int i = 0; i < nodeCount; ++i) {
+                registry.restore(readNode(in));
+            }
+            return nodeCount;
+        }
+    }
+
+    private static NodeState readNode(DataInputStream in) throws IOException {
+        int nodeId = in.readInt();
+        NodeState node = new NodeState(nodeId, in.readLong());
+        long lastSeen = in.readLong();
+        int sensorCount = in.readUnsignedShort();
+        for (int i = 0; i < sensorCount; ++i) {
+            node.setSensorValue(in.readUTF(), in.readDouble(), lastSeen);
+        }
+        int actuatorCount = in.readUnsignedShort();
+        for (int i = 0; i < actuatorCount; ++i) {
+            node.setActuator(in.readInt(), in.readUTF(), in.readBoolean(), lastSeen);
+        }
+        node.setLastSeen(lastSeen);
+        return node;
+    }
+}
@@ -0,0 +1,76 @@
+package no.ntnu.network.server.rules;
+
+import java.util.function.DoublePredicate;
+
+/**
+ * The comparison of a rule between a sensor value and the threshold of the rule.
+ */
+public enum Comparison {
+    LESS_THAN("<"),
+    LESS_OR_EQUAL("<="),
+    GREATER_THAN(">"),
+    GREATER_OR_EQUAL(">=");
+
+    private final String symbol;
+
+    Comparison(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Compiles the comparison with a threshold into a predicate over sensor values.
+     *
+     * @param threshold The threshold
+     * @return A predicate which is true for the values the comparison holds for
+     */
+    public DoublePredicate compile(double threshold) {
+        switch (this) {
+            case LESS_THAN:
+                return value -> value < threshold;
+            case LESS_OR_EQUAL:
+                return value -> value <= threshold;
+            case GREATER_THAN:
+                return value -> value > threshold;
+            default:
+                return value -> value >= threshold;
+        }
+    }
+
+    /**
+     * Compiles the release condition of a hysteresis rule: the value has moved back past the threshold by at
+     * least the hysteresis, on the other side.
+     *
+     * @param threshold  The threshold
+     * @param hysteresis The width of the band past the threshold, not negative
+     * @return A predicate which is true for the values the rule releases at
+     */
+    public DoublePredicate compileRelease(double threshold, double hysteresis) {
+        switch (this) {
+            case LESS_THAN:
+            case LESS_OR_EQUAL:
+                return value -> value >= threshold + hysteresis;
+            default:
+                return value -> value <= threshold - hysteresis;
+        }
+    }
+
+    /**
+     * Finds the comparison with the given symbol.
+     *
+     * @param symbol The symbol, for example "<="
+     * @return The comparison
+     * @throws IllegalArgumentException If no comparison has that symbol
+     */
+    public static Comparison fromSymbol(String symbol) {
+        for (Comparison comparison : values()) {
+            if (comparison.symbol.equals(symbol)) {
+                return comparison;
+            }
+        }
+        throw new IllegalArgumentException("Unknown comparison: " + symbol);
+    }
+}
@@ -0,0 +1,154 @@
+package no.ntnu.network.server.rules;
+
+import java.util.Locale;
+import java.util.function.DoublePredicate;
+
+/**
+ * A closed-loop control rule: when a sensor type of a node passes a threshold, switch an actuator, for example
+ * "temperature on node 4 &lt; 18 -&gt; heater on".
+ * A threshold rule switches the actuator when the condition starts to hold, and fires again only after the
+ * condition stopped holding in between. A hysteresis rule also switches the actuator back when the value has
+ * moved past the threshold by the hysteresis the other way, so the actuator doesn't flap around the threshold.
+ * The condition is compiled to predicates when the rule is created, so a reading is checked without any
+ * lookups.
+ */
+public class Rule {
+
+    private volatile int ruleId;
+    private final int nodeId;
+    private final String sensorType;
+    private final Comparison comparison;
+    private final double threshold;
+    private final double hysteresis;
+    private final int targetNodeId;
+    private final int actuatorId;
+    private final boolean isOn;
+    private final DoublePredicate trigger;
+    private final DoublePredicate release;
+    // Read without locking, changed only while holding the lock of the rule
+    private volatile boolean triggered;
+
+    /**
+     * Creates a rule.
+     *
+     * @param nodeId       The node whose readings the rule checks
+     * @param sensorType   The sensor type the rule checks
+     * @param comparison   The comparison of the value with the threshold
+     * @param threshold    The threshold
+     * @param hysteresis   The hysteresis of a hysteresis rule, or NaN for a threshold rule
+     * @param targetNodeId The node of the actuator to switch
+     * @param actuatorId   The actuator to switch, or -1 for the actuator the target node registered with
+     * @param isOn         The state to switch the actuator to when the condition starts to hold
+     * @throws IllegalArgumentException If the hysteresis is negative
+     */
+    public Rule(int nodeId, String sensorType, Comparison comparison, double threshold, double hysteresis,
+                int targetNodeId, int actuatorId, boolean isOn) {
+        if (hysteresis < 0) {
+            throw new IllegalArgumentException("Negative hysteresis: " + hysteresis);
+        }
+        this.nodeId = nodeId;
+        this.sensorType = sensorType.toLowerCase(Locale.ROOT);
+        this.comparison = comparison;
+        this.threshold = threshold;
+        this.hysteresis = hysteresis;
+        this.targetNodeId = targetNodeId;
+        this.actuatorId = actuatorId;
+        this.isOn = isOn;
+        this.trigger = comparison.compile(threshold);
+        this.release = isHysteresisRule() ? comparison.compileRelease(threshold, hysteresis) : trigger.negate();
+    }
+
+    /**
+     * Checks a reading against the rule, and tells which command to send, if any.
+     * Most readings leave the state of the rule as it is, and are checked without locking. A reading which changes
+     * it takes the lock of the rule, and hands over the command before releasing it, so the commands of a rule
+     * reach the actions in the order of the state changes, even when readings are checked on several threads.
+     *
+     * @param value   The value of the reading
+     * @param actions Where to send the command
+     */
+    void evaluate(double value, RuleAction actions) {
+        boolean holds = trigger.test(value);
+        if (holds == triggered || !holds && !release.test(value)) {
+            return;
+        }
+        synchronized (this) {
+            if (holds) {
+                if (!triggered) {
+                    triggered = true;
+                    actions.execute(this, isOn);
+                }
+            } else if (triggered) {
+                triggered = false;
+                if (isHysteresisRule()) {
+                    actions.execute(this, !isOn);
+                }
+            }
+        }
+    }
+
+    public int getRuleId() {
+        return ruleId;
+    }
+
+    void setRuleId(int ruleId) {
+        this.ruleId = ruleId;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public String getSensorType() {
+        return sensorType;
+    }
+
+    public Comparison getComparison() {
+        return comparison;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Get the hysteresis of the rule.
+     *
+     * @return The hysteresis, or NaN for a threshold rule
+     */
+    public double getHysteresis() {
+        return hysteresis;
+    }
+
+    public boolean isHysteresisRule() {
+        return !Double.isNaN(hysteresis);
+    }
+
+    public int getTargetNodeId() {
+        return targetNodeId;
+    }
+
+    public int getActuatorId() {
+        return actuatorId;
+    }
+
+    public boolean isOn() {
+        return isOn;
+    }
+
+    /**
+     * Tells whether the condition of the rule held at the last reading which changed it.
+     *
+     * @return True if the rule fired and has not released since
+     */
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    @Override
+    public String toString() {
+        return "rule " + ruleId + ": " + sensorType + " on node " + nodeId + " " + comparison.getSymbol() + " "
+                + threshold + (isHysteresisRule() ? " (hysteresis " + hysteresis + ")" : "") + " -> node "
+                + targetNodeId + " actuator " + actuatorId + (isOn ? " on" : " off");
+    }
+}
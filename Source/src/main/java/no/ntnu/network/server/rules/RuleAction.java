@@ -0,0 +1,16 @@
+package no.ntnu.network.server.rules;
+
+/**
+ * Carries out the commands of the rules which fire.
+ */
+@FunctionalInterface
+public interface RuleAction {
+
+    /**
+     * Switches the actuator of a rule.
+     *
+     * @param rule The rule which fired
+     * @param isOn The state to switch the actuator of the rule to
+     */
+    void execute(Rule rule, boolean isOn);
+}
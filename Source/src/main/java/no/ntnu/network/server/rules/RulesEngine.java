@@ -0,0 +1,132 @@
+package no.ntnu.network.server.rules;
+
+import no.ntnu.greenhouse.SensorReading;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks every incoming sensor reading against the control rules, and sends the commands of the rules which fire.
+ * Rules are indexed by node and sensor type, so a reading is only checked against the rules on its own node and
+ * sensor type, however many rules there are in total. The rules of one node and sensor type are kept in an
+ * array which is replaced when a rule is added or removed, so readings are checked without any locking.
+ */
+public class RulesEngine {
+
+    private static final Rule[] NO_RULES = new Rule[0];
+
+    private final RuleAction actions;
+    // Node ID -> sensor type -> rules
+    private final Map<Integer, Map<String, Rule[]>> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Rule> rules = new ConcurrentHashMap<>();
+    private int nextRuleId = 1;
+
+    /**
+     * Creates a rules engine.
+     *
+     * @param actions Carries out the commands of the rules which fire. Called on the thread which handles the
+     *                reading, while the rule is locked, so it should hand the command over to a single other
+     *                thread, which then gets the commands of each rule in order
+     */
+    public RulesEngine(RuleAction actions) {
+        this.actions = actions;
+    }
+
+    /**
+     * Adds a rule. It is checked from the next reading on.
+     *
+     * @param rule The rule
+     * @return The ID given to the rule
+     */
+    public synchronized int add(Rule rule) {
+        int ruleId = nextRuleId++;
+        rule.setRuleId(ruleId);
+        Map<String, Rule[]> sensorTypes = index.computeIfAbsent(rule.getNodeId(),
+                nodeId -> new ConcurrentHashMap<>());
+        Rule[] current = sensorTypes.getOrDefault(rule.getSensorType(), NO_RULES);
+        Rule[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = rule;
+        sensorTypes.put(rule.getSensorType(), updated);
+        rules.put(ruleId, rule);
+        return ruleId;
+    }
+
+    /**
+     * Removes a rule.
+     *
+     * @param ruleId The ID of the rule
+     * @return The removed rule, or null if there is no rule with that ID
+     */
+    public synchronized Rule remove(int ruleId) {
+        Rule rule = rules.remove(ruleId);
+        if (rule != null) {
+            Map<String, Rule[]> sensorTypes = index.get(rule.getNodeId());
+            Rule[] current = sensorTypes.get(rule.getSensorType());
+            List<Rule> remaining = new ArrayList<>(Arrays.asList(current));
+            remaining.remove(rule);
+            if (remaining.isEmpty()) {
+                sensorTypes.remove(rule.getSensorType());
+            } else {
+                sensorTypes.put(rule.getSensorType(), remaining.toArray(NO_RULES));
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Get a rule.
+     *
+     * @param ruleId The ID of the rule
+     * @return The rule, or null if there is no rule with that ID
+     */
+    public Rule get(int ruleId) {
+        return rules.get(ruleId);
+    }
+
+    /**
+     * Get all the rules.
+     *
+     * @return The rules, in no particular order
+     */
+    public Collection<Rule> getRules() {
+        return new ArrayList<>(rules.values());
+    }
+
+    /**
+     * Checks the readings of a node against the rules on that node and the sensor types of the readings.
+     * The readings of one sensor type, from several sensors of that type on the node, are averaged and checked as
+     * one value, so that two sensors on either side of a threshold don't switch the actuator back and forth.
+     *
+     * @param nodeId   The node which reported the readings
+     * @param readings The readings
+     */
+    public void evaluate(int nodeId, List<SensorReading> readings) {
+        Map<String, Rule[]> sensorTypes = index.get(nodeId);
+        if (sensorTypes == null) {
+            return;
+        }
+        // A node has rules on a few of its sensor types, so the readings are scanned once per type with rules
+        for (Map.Entry<String, Rule[]> entry : sensorTypes.entrySet()) {
+            String sensorType = entry.getKey();
+            double sum = 0;
+            int count = 0;
+            for (int i = 0; i < readings.size(); ++i) {
+                SensorReading reading = readings.get(i);
+                if (sensorType.equalsIgnoreCase(reading.getType())) {
+                    sum += reading.getValue();
+                    ++count;
+                }
+            }
+            if (count > 0) {
+                double value = sum / count;
+                for (Rule rule : entry.getValue()) {
+                    rule.evaluate(value, actions);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package no.ntnu.network.server.schedule;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Starts at the minutes matching a cron expression, in local time: minute (0-59), hour (0-23), day of month
+ * (1-31), month (1-12) and day of week (0-7, where both 0 and 7 are Sunday).
+ * Each field is * for any value, or a comma separated list of values, ranges like 1-5 and steps like *&#47;15 or
+ * 8-18/2. As in cron, when both the day of month and the day of week are restricted, a day matching either
+ * matches.
+ */
+public class CronExpression implements Recurrence {
+
+    // Give up after this many years without a match, like for "0 0 30 2 *"
+    private static final int MAX_SEARCH_YEARS = 5;
+
+    private final String expression;
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+    private final ZoneId zone;
+
+    /**
+     * Creates a cron expression from its fields, in the default time zone.
+     *
+     * @param minute     The minute field
+     * @param hour       The hour field
+     * @param dayOfMonth The day of month field
+     * @param month      The month field
+     * @param dayOfWeek  The day of week field
+     * @throws IllegalArgumentException If a field is invalid
+     */
+    public CronExpression(String minute, String hour, String dayOfMonth, String month, String dayOfWeek) {
+        this(minute, hour, dayOfMonth, month, dayOfWeek, ZoneId.systemDefault());
+    }
+
+    CronExpression(String minute, String hour, String dayOfMonth, String month, String dayOfWeek, ZoneId zone) {
+        this.expression = minute + " " + hour + " " + dayOfMonth + " " + month + " " + dayOfWeek;
+        this.minutes = parseField(minute, 0, 59);
+        this.hours = parseField(hour, 0, 23);
+        this.daysOfMonth = parseField(dayOfMonth, 1, 31);
+        this.months = parseField(month, 1, 12);
+        long days = parseField(dayOfWeek, 0, 7);
+        // Sunday is both 0 and 7
+        this.daysOfWeek = (days & (1L << 7)) != 0 ? days | 1 : days;
+        // As in cron, a field starting with * is unrestricted, even with a step like */1
+        this.anyDayOfMonth = dayOfMonth.startsWith("*");
+        this.anyDayOfWeek = dayOfWeek.startsWith("*");
+        this.zone = zone;
+    }
+
+    /**
+     * Parses a cron expression of five fields separated by spaces.
+     *
+     * @param expression The expression, for example "0 22 * * 1-5"
+     * @return The cron expression
+     * @throws IllegalArgumentException If the expression is invalid
+     */
+    public static CronExpression parse(String expression) {
+        return parse(expression, ZoneId.systemDefault());
+    }
+
+    static CronExpression parse(String expression, ZoneId zone) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("A cron expression has five fields: " + expression);
+        }
+        return new CronExpression(fields[0], fields[1], fields[2], fields[3], fields[4], zone);
+    }
+
+    private static long parseField(String field, int min, int max) {
+        long bits = 0;
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, max, field);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                from = parseValue(dash >= 0 ? part.substring(0, dash) : part, min, max, field);
+                to = dash >= 0 ? parseValue(part.substring(dash + 1), from, max, field) : from;
+                if (slash >= 0 && dash < 0) {
+                    to = max;
+                }
+            }
+            for (int value = from; value <= to; value += step) {
+                bits |= 1L << value;
+            }
+        }
+        return bits;
+    }
+
+    private static int parseValue(String text, int min, int max, String field) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value < min || value > max) {
+                throw new IllegalArgumentException("Value out of range in cron field: " + field);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron field: " + field);
+        }
+    }
+
+    @Override
+    public long nextAfter(long timeMillis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timeMillis), zone)
+                .truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int lastYear = time.getYear() + MAX_SEARCH_YEARS;
+        while (time.getYear() <= lastYear) {
+            if (!matches(months, time.getMonthValue())) {
+                time = time.toLocalDate().withDayOfMonth(1).plusMonths(1).atStartOfDay();
+            } else if (!matchesDay(time.toLocalDate())) {
+                time = time.toLocalDate().plusDays(1).atStartOfDay();
+            } else if (!matches(hours, time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!matches(minutes, time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                long start = time.atZone(zone).toInstant().toEpochMilli();
+                // When the clocks go back, a local time after the given time can come before it
+                if (start > timeMillis) {
+                    return start;
+                }
+                time = time.plusMinutes(1);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private boolean matchesDay(LocalDate date) {
+        boolean dayOfMonth = matches(daysOfMonth, date.getDayOfMonth());
+        // DayOfWeek counts Monday to Sunday as 1 to 7, cron counts Sunday as 0
+        boolean dayOfWeek = matches(daysOfWeek, date.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static boolean matches(long bits, int value) {
+        return (bits & (1L << value)) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,48 @@
+package no.ntnu.network.server.schedule;
+
+/**
+ * Starts at a fixed period, counted from a first start.
+ */
+public class FixedRate implements Recurrence {
+
+    private final long firstStart;
+    private final long period;
+
+    /**
+     * Creates a fixed rate recurrence.
+     *
+     * @param firstStart The first start, in milliseconds since the epoch
+     * @param period     The time between two starts, in milliseconds
+     * @throws IllegalArgumentException If the period is not positive
+     */
+    public FixedRate(long firstStart, long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("The period must be positive: " + period);
+        }
+        this.firstStart = firstStart;
+        this.period = period;
+    }
+
+    public long getPeriod() {
+        return period;
+    }
+
+    @Override
+    public long nextAfter(long timeMillis) {
+        if (timeMillis < firstStart) {
+            return firstStart;
+        }
+        try {
+            long periods = Math.subtractExact(timeMillis, firstStart) / period + 1;
+            return Math.addExact(firstStart, Math.multiplyExact(periods, period));
+        } catch (ArithmeticException e) {
+            // The next start is past the end of time
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "every " + period + " ms";
+    }
+}
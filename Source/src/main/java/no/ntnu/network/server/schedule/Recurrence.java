@@ -0,0 +1,15 @@
+package no.ntnu.network.server.schedule;
+
+/**
+ * When a schedule starts: a series of points in time.
+ */
+public interface Recurrence {
+
+    /**
+     * Finds the first start after a point in time.
+     *
+     * @param timeMillis The point in time, in milliseconds since the epoch
+     * @return The first start after it, or Long.MAX_VALUE if there is none
+     */
+    long nextAfter(long timeMillis);
+}
@@ -0,0 +1,93 @@
+package no.ntnu.network.server.schedule;
+
+/**
+ * A recurring actuator program: at every start of its recurrence the actuator is switched, and when the
+ * schedule has a duration it is switched back after that long, for example an irrigation window every morning
+ * or ventilation at night.
+ */
+public class Schedule {
+
+    private volatile int scheduleId;
+    private final int nodeId;
+    private final int actuatorId;
+    private final boolean isOn;
+    private final Recurrence recurrence;
+    private final long duration;
+    // Guarded by this, managed by the ScheduleService
+    WheelTimeout startTimeout;
+    WheelTimeout endTimeout;
+    boolean cancelled;
+    private volatile long nextStart = Long.MAX_VALUE;
+
+    /**
+     * Creates a schedule.
+     *
+     * @param nodeId     The node of the actuator to switch
+     * @param actuatorId The actuator to switch, or -1 for the actuator the node registered with
+     * @param isOn       The state to switch the actuator to at every start
+     * @param recurrence When the schedule starts
+     * @param duration   How long after every start to switch the actuator back, in milliseconds, or 0 to leave
+     *                   it
+     * @throws IllegalArgumentException If the duration is negative, or not shorter than a fixed rate period
+     */
+    public Schedule(int nodeId, int actuatorId, boolean isOn, Recurrence recurrence, long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Negative duration: " + duration);
+        }
+        if (recurrence instanceof FixedRate && duration >= ((FixedRate) recurrence).getPeriod()) {
+            throw new IllegalArgumentException("The duration must be shorter than the period: " + duration);
+        }
+        this.nodeId = nodeId;
+        this.actuatorId = actuatorId;
+        this.isOn = isOn;
+        this.recurrence = recurrence;
+        this.duration = duration;
+    }
+
+    public int getScheduleId() {
+        return scheduleId;
+    }
+
+    void setScheduleId(int scheduleId) {
+        this.scheduleId = scheduleId;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getActuatorId() {
+        return actuatorId;
+    }
+
+    public boolean isOn() {
+        return isOn;
+    }
+
+    public Recurrence getRecurrence() {
+        return recurrence;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Get the next start of the schedule.
+     *
+     * @return The next start, in milliseconds since the epoch, or Long.MAX_VALUE if there is none
+     */
+    public long getNextStart() {
+        return nextStart;
+    }
+
+    void setNextStart(long nextStart) {
+        this.nextStart = nextStart;
+    }
+
+    @Override
+    public String toString() {
+        return "schedule " + scheduleId + ": " + recurrence + " -> node " + nodeId + " actuator " + actuatorId
+                + (isOn ? " on" : " off") + (duration > 0 ? " for " + duration + " ms" : "");
+    }
+}
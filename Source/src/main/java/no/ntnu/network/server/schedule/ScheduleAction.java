@@ -0,0 +1,16 @@
+package no.ntnu.network.server.schedule;
+
+/**
+ * Carries out the commands of the schedules.
+ */
+@FunctionalInterface
+public interface ScheduleAction {
+
+    /**
+     * Switches the actuator of a schedule.
+     *
+     * @param schedule The schedule which starts or ends
+     * @param isOn     The state to switch the actuator of the schedule to
+     */
+    void execute(Schedule schedule, boolean isOn);
+}
@@ -0,0 +1,155 @@
+package no.ntnu.network.server.schedule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the recurring actuator programs of the server. All the schedules share one TimingWheel, so adding and
+ * cancelling a schedule takes constant time, and any number of schedules run on a single thread.
+ * Each schedule has at most two tasks waiting in the wheel: its next start, and the end of its current window.
+ * When a schedule starts again before its window has ended, the windows merge: the actuator stays switched until
+ * the end of the last one.
+ */
+public class ScheduleService {
+
+    private final TimingWheel wheel;
+    private final ScheduleAction actions;
+    private final Map<Integer, Schedule> schedules = new ConcurrentHashMap<>();
+    private final AtomicInteger nextScheduleId = new AtomicInteger(1);
+
+    /**
+     * Creates a schedule service. Its thread is started by start().
+     *
+     * @param actions Carries out the commands of the schedules. Called on the thread of the wheel, so it should
+     *                hand slow work over to another thread
+     */
+    public ScheduleService(ScheduleAction actions) {
+        this(actions, new TimingWheel("schedule-wheel"));
+    }
+
+    ScheduleService(ScheduleAction actions, TimingWheel wheel) {
+        this.actions = actions;
+        this.wheel = wheel;
+    }
+
+    /**
+     * Starts running the schedules.
+     */
+    public void start() {
+        wheel.start();
+    }
+
+    /**
+     * Stops running the schedules. Starts which are missed while stopped run when started again.
+     */
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Adds a schedule. It runs from its next start on.
+     *
+     * @param schedule The schedule
+     * @return The ID given to the schedule
+     */
+    public int add(Schedule schedule) {
+        int scheduleId = nextScheduleId.getAndIncrement();
+        schedule.setScheduleId(scheduleId);
+        schedules.put(scheduleId, schedule);
+        synchronized (schedule) {
+            scheduleStart(schedule, schedule.getRecurrence().nextAfter(System.currentTimeMillis() - 1));
+        }
+        return scheduleId;
+    }
+
+    /**
+     * Cancels a schedule. If a window of the schedule is open, the actuator is switched back at once.
+     *
+     * @param scheduleId The ID of the schedule
+     * @return The cancelled schedule, or null if there is no schedule with that ID
+     */
+    public Schedule cancel(int scheduleId) {
+        Schedule schedule = schedules.remove(scheduleId);
+        if (schedule != null) {
+            synchronized (schedule) {
+                schedule.cancelled = true;
+                schedule.setNextStart(Long.MAX_VALUE);
+                if (schedule.startTimeout != null) {
+                    schedule.startTimeout.cancel();
+                }
+                if (schedule.endTimeout != null) {
+                    schedule.endTimeout.cancel();
+                    schedule.endTimeout = null;
+                    actions.execute(schedule, !schedule.isOn());
+                }
+            }
+        }
+        return schedule;
+    }
+
+    /**
+     * Get a schedule.
+     *
+     * @param scheduleId The ID of the schedule
+     * @return The schedule, or null if there is no schedule with that ID
+     */
+    public Schedule get(int scheduleId) {
+        return schedules.get(scheduleId);
+    }
+
+    /**
+     * Get all the schedules.
+     *
+     * @return The schedules, in no particular order
+     */
+    public Collection<Schedule> getSchedules() {
+        return new ArrayList<>(schedules.values());
+    }
+
+    /**
+     * Get the number of starts and window ends waiting to run.
+     *
+     * @return The number of waiting tasks
+     */
+    public int getPendingCount() {
+        return wheel.getTimeoutCount();
+    }
+
+    private void scheduleStart(Schedule schedule, long startTime) {
+        schedule.setNextStart(startTime);
+        schedule.startTimeout = startTime == Long.MAX_VALUE
+                ? null : wheel.schedule(() -> start(schedule, startTime), startTime);
+    }
+
+    private void start(Schedule schedule, long startTime) {
+        synchronized (schedule) {
+            if (schedule.cancelled) {
+                return;
+            }
+            actions.execute(schedule, schedule.isOn());
+            if (schedule.endTimeout != null) {
+                // The previous window is still open, as a cron schedule can start again within its duration.
+                // The new window extends it, so only the end of the new window switches the actuator back
+                schedule.endTimeout.cancel();
+                schedule.endTimeout = null;
+            }
+            if (schedule.getDuration() > 0) {
+                schedule.endTimeout = wheel.schedule(() -> end(schedule), startTime + schedule.getDuration());
+            }
+            // Count from the planned start, so a late run doesn't shift the next ones
+            scheduleStart(schedule, schedule.getRecurrence().nextAfter(startTime));
+        }
+    }
+
+    private void end(Schedule schedule) {
+        synchronized (schedule) {
+            if (!schedule.cancelled) {
+                schedule.endTimeout = null;
+                actions.execute(schedule, !schedule.isOn());
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package no.ntnu.network.server.schedule;
+
+import no.ntnu.tools.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs timed tasks on a single thread, using a hierarchical timing wheel: LEVELS wheels of SLOTS slots each, where
+ * a slot of the first wheel spans one TICK, and a slot of each next wheel spans a whole turn of the wheel below it.
+ * A task goes into the slot of the lowest wheel which reaches its deadline. When a wheel comes round to a slot,
+ * the tasks in it are moved down into the wheel below, until they reach the first wheel and run.
+ * Adding and cancelling a task takes constant time however many tasks are waiting, and each tick only touches
+ * the slots which come round, so hundreds of thousands of tasks can wait on one thread.
+ * Deadlines more than SLOTS^LEVELS ticks ahead (over two years) wait in the top wheel until they come in reach.
+ */
+public class TimingWheel {
+
+    /**
+     * The resolution of the wheel, in milliseconds. Tasks run within one tick after their deadline.
+     */
+    public static final long TICK = 10;
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 6;
+    private static final long MAX_DELAY_TICKS = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long origin;
+    // Each slot is a circular list around a sentinel timeout, which has no task
+    private final WheelTimeout[][] slots = new WheelTimeout[LEVELS][SLOTS];
+    private final List<WheelTimeout> expired = new ArrayList<>();
+    private final String threadName;
+    // Guarded by this: the next tick to process
+    private long nextTick;
+    private int timeoutCount;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Creates a timing wheel. Its thread is started by start().
+     *
+     * @param threadName The name of the thread of the wheel
+     */
+    public TimingWheel(String threadName) {
+        this(threadName, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a timing wheel with its first tick at a given time.
+     *
+     * @param threadName The name of the thread of the wheel
+     * @param origin     The time of tick 0, in milliseconds since the epoch
+     */
+    TimingWheel(String threadName, long origin) {
+        this.threadName = threadName;
+        this.origin = origin;
+        for (int level = 0; level < LEVELS; ++level) {
+            for (int slot = 0; slot < SLOTS; ++slot) {
+                WheelTimeout sentinel = new WheelTimeout(this, null, 0);
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+                slots[level][slot] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * Starts the thread of the wheel.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this::run, threadName);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops the thread of the wheel. Waiting tasks are kept, but don't run until the wheel is started again.
+     */
+    public void stop() {
+        Thread stoppedThread;
+        synchronized (this) {
+            running = false;
+            stoppedThread = thread;
+            thread = null;
+        }
+        if (stoppedThread != null) {
+            LockSupport.unpark(stoppedThread);
+        }
+    }
+
+    /**
+     * Schedules a task to run once, on the thread of the wheel. Tasks should be short, since they hold up the
+     * tasks after them.
+     *
+     * @param task       The task
+     * @param timeMillis When to run the task, in milliseconds since the epoch. A time in the past runs the task
+     *                   at the next tick
+     * @return A handle to cancel the task with
+     */
+    public WheelTimeout schedule(Runnable task, long timeMillis) {
+        long deadlineTick = Math.floorDiv(timeMillis - origin + TICK - 1, TICK);
+        WheelTimeout timeout = new WheelTimeout(this, task, deadlineTick);
+        synchronized (this) {
+            insert(timeout);
+            ++timeoutCount;
+        }
+        return timeout;
+    }
+
+    /**
+     * Get the number of tasks waiting to run.
+     *
+     * @return The number of tasks
+     */
+    public synchronized int getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    synchronized void remove(WheelTimeout timeout) {
+        if (timeout.queued) {
+            unlink(timeout);
+            --timeoutCount;
+        }
+    }
+
+    /**
+     * Puts a timeout into the slot of the lowest wheel which reaches its deadline, counting from nextTick.
+     */
+    private void insert(WheelTimeout timeout) {
+        long deadline = timeout.deadlineTick;
+        long delay = deadline - nextTick;
+        if (delay < 0) {
+            deadline = nextTick;
+            delay = 0;
+        } else if (delay > MAX_DELAY_TICKS) {
+            deadline = nextTick + MAX_DELAY_TICKS;
+            delay = MAX_DELAY_TICKS;
+        }
+        int level = 0;
+        while (delay >= 1L << (SLOT_BITS * (level + 1))) {
+            ++level;
+        }
+        int slot = (int) (deadline >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        WheelTimeout sentinel = slots[level][slot];
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+        timeout.queued = true;
+    }
+
+    private static void unlink(WheelTimeout timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.queued = false;
+    }
+
+    /**
+     * Processes one tick: moves the tasks of the slots which come round in the upper wheels down, highest wheel
+     * first, then takes out the tasks of the slot of the first wheel, which are due.
+     */
+    private void processTick(long tick) {
+        for (int level = LEVELS - 1; level > 0; --level) {
+            WheelTimeout sentinel = slots[level][(int) (tick >>> (SLOT_BITS * level)) & (SLOTS - 1)];
+            if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0 && sentinel.next != sentinel) {
+                // Detach the whole list first, tasks a full turn of this wheel ahead go back into the same slot
+                WheelTimeout timeout = sentinel.next;
+                sentinel.previous.next = null;
+                sentinel.next = sentinel;
+                sentinel.previous = sentinel;
+                while (timeout != null) {
+                    WheelTimeout next = timeout.next;
+                    insert(timeout);
+                    timeout = next;
+                }
+            }
+        }
+        WheelTimeout sentinel = slots[0][(int) tick & (SLOTS - 1)];
+        while (sentinel.next != sentinel) {
+            WheelTimeout timeout = sentinel.next;
+            unlink(timeout);
+            --timeoutCount;
+            expired.add(timeout);
+        }
+    }
+
+    /**
+     * Processes the ticks up to and including a tick, and runs the tasks which are due, on the calling thread.
+     * Called by the thread of the wheel, or directly by tests on a wheel which is not started.
+     *
+     * @param currentTick The last tick to process
+     * @return The time of the next tick to process, in milliseconds since the epoch
+     */
+    long advanceTo(long currentTick) {
+        long wakeUpTime;
+        synchronized (this) {
+            while (nextTick <= currentTick) {
+                processTick(nextTick);
+                ++nextTick;
+            }
+            wakeUpTime = origin + nextTick * TICK;
+        }
+        for (int i = 0; i < expired.size(); ++i) {
+            try {
+                expired.get(i).run();
+            } catch (RuntimeException e) {
+                Logger.error("Error in a timed task: " + e.getMessage());
+            }
+        }
+        expired.clear();
+        return wakeUpTime;
+    }
+
+    private void run() {
+        while (running) {
+            long wakeUpTime = advanceTo(Math.floorDiv(System.currentTimeMillis() - origin, TICK));
+            long sleepTime = wakeUpTime - System.currentTimeMillis();
+            if (sleepTime > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleepTime));
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package no.ntnu.network.server.schedule;
+
+/**
+ * A task waiting in a TimingWheel. Timeouts are kept in doubly linked lists, one per slot of the wheel, so a
+ * timeout is added and cancelled in constant time.
+ */
+public class WheelTimeout {
+
+    private final TimingWheel wheel;
+    private final Runnable task;
+    final long deadlineTick;
+    // Guarded by the wheel: the slot list the timeout is in, or null when it is not in any
+    WheelTimeout previous;
+    WheelTimeout next;
+    boolean queued;
+    private volatile boolean cancelled;
+
+    WheelTimeout(TimingWheel wheel, Runnable task, long deadlineTick) {
+        this.wheel = wheel;
+        this.task = task;
+        this.deadlineTick = deadlineTick;
+    }
+
+    /**
+     * Cancels the task. A task which has already started is completed.
+     */
+    public void cancel() {
+        cancelled = true;
+        wheel.remove(this);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void run() {
+        if (!cancelled) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package no.ntnu.network.server.wal;
+
+import no.ntnu.tools.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, write-ahead log of actuator commands, kept as an audit trail of who switched which actuator
+ * when. A command is appended, and forced to disk, before it is forwarded to its node.
+ * Appends are group committed: every append adds its record to a shared buffer and waits, while a single writer
+ * thread writes the buffer and forces it to disk. Records appended while a force is running wait in the other
+ * buffer and go to disk together in the next force, so concurrent commands share the cost of one force instead
+ * of queueing for one each. An append returns only when its record is on disk, or the log has failed; a command
+ * whose append fails must not be forwarded, so that every command which reaches a node is in the log.
+ * An asynchronous append returns at once, with a future completed by the writer thread when the record is on
+ * disk. The futures are completed in the order the records were appended.
+ * Layout: [int magic] [int version], then per record:
+ * [int length] ([long sequenceNumber] [long timestamp] [int nodeId] [int actuatorId] [byte isOn]
+ * [short length] [command UTF-8] [short length] [source UTF-8]) [int CRC32 of the bracketed part].
+ * When the log is opened again, a record left incomplete by a crash is cut off, and numbering continues after
+ * the last complete record.
+ */
+public class CommandLog implements Closeable {
+
+    static final int MAGIC = 0x53434d44; // "SCMD"
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+    // The length before and the checksum after the body of a record
+    static final int RECORD_OVERHEAD = 8;
+    static final int MAX_TEXT_LENGTH = 1024;
+    static final int MIN_BODY_LENGTH = 8 + 8 + 4 + 4 + 1 + 2 + 2;
+    static final int MAX_BODY_LENGTH = MIN_BODY_LENGTH + 2 * MAX_TEXT_LENGTH;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final CRC32 checksum = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsPending = lock.newCondition();
+    // Guarded by lock: the appends waiting for their records to reach the disk, in sequence number order
+    private final Queue<PendingAppend> waitingAppends = new ArrayDeque<>();
+    private final Thread writerThread;
+    // Guarded by lock: records are appended to pending while the writer thread writes the other buffer
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+    private long nextSequenceNumber;
+    private long durableSequenceNumber;
+    private IOException failure;
+    private boolean closed;
+    private long forceCount;
+
+    private CommandLog(FileChannel channel, long lastSequenceNumber) {
+        this.channel = channel;
+        this.nextSequenceNumber = lastSequenceNumber + 1;
+        this.durableSequenceNumber = lastSequenceNumber;
+        writerThread = new Thread(this::writeRecords, "command-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Opens a command log for appending, creating it if it does not exist.
+     *
+     * @param file The command log
+     * @return The opened log
+     * @throws IOException If the file can not be opened or is not a command log
+     */
+    public static CommandLog open(Path file) throws IOException {
+        long lastSequenceNumber = 0;
+        long validLength = 0;
+        long existingLength = Files.exists(file) ? Files.size(file) : 0;
+        if (existingLength > 0 && existingLength < HEADER_LENGTH) {
+            // A crash while the header was written, before any record
+            Logger.info("The command log " + file + " is shorter than its header, starting it over");
+        } else if (existingLength > 0) {
+            try (CommandLogReader reader = new CommandLogReader(file)) {
+                for (CommandRecord record = reader.next(); record != null; record = reader.next()) {
+                    lastSequenceNumber = record.getSequenceNumber();
+                }
+                validLength = reader.getValidLength();
+            }
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (validLength == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                validLength = HEADER_LENGTH;
+            } else if (channel.size() > validLength) {
+                Logger.info("Cutting an incomplete record off the end of the command log " + file);
+                channel.truncate(validLength);
+            }
+            channel.force(true);
+            channel.position(validLength);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CommandLog(channel, lastSequenceNumber);
+    }
+
+    /**
+     * Appends a command to the log, and waits until it is on disk.
+     *
+     * @param command    The command which switches the actuator
+     * @param source     Who sent the command
+     * @param nodeId     The node the command is sent to
+     * @param actuatorId The actuator to switch, or -1 for the actuator the node registered with
+     * @param isOn       The state to switch the actuator to
+     * @return True if the command is on disk, false if the log is closed or failed, or the thread was
+     *         interrupted while waiting
+     */
+    public boolean append(String command, String source, int nodeId, int actuatorId, boolean isOn) {
+        try {
+            return appendAsync(command, source, nodeId, actuatorId, isOn).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends a command to the log without waiting for the disk. The returned future is completed on the writer
+     * thread, so what depends on it should be quick, or run on another thread.
+     *
+     * @param command    The command which switches the actuator
+     * @param source     Who sent the command
+     * @param nodeId     The node the command is sent to
+     * @param actuatorId The actuator to switch, or -1 for the actuator the node registered with
+     * @param isOn       The state to switch the actuator to
+     * @return A future completed with true when the command is on disk, or with false if the log is closed or
+     *         failed
+     */
+    public CompletableFuture<Boolean> appendAsync(String command, String source, int nodeId, int actuatorId,
+                                                  boolean isOn) {
+        byte[] commandText = encodeText(command);
+        byte[] sourceText = encodeText(source);
+        lock.lock();
+        try {
+            if (closed || failure != null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            long sequenceNumber = nextSequenceNumber++;
+            writeRecord(sequenceNumber, nodeId, actuatorId, isOn, commandText, sourceText);
+            PendingAppend pendingAppend = new PendingAppend(sequenceNumber);
+            waitingAppends.add(pendingAppend);
+            recordsPending.signal();
+            return pendingAppend.durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static byte[] encodeText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_LENGTH) {
+            // Cut before the character the limit falls in, UTF-8 continuation bytes are 10xxxxxx
+            int length = MAX_TEXT_LENGTH;
+            while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                --length;
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+        return bytes;
+    }
+
+    private void writeRecord(long sequenceNumber, int nodeId, int actuatorId, boolean isOn, byte[] commandText,
+                             byte[] sourceText) {
+        int bodyLength = MIN_BODY_LENGTH + commandText.length + sourceText.length;
+        if (pending.remaining() < RECORD_OVERHEAD + bodyLength) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                    pending.position() + RECORD_OVERHEAD + bodyLength));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        int start = pending.position();
+        pending.putInt(bodyLength)
+                .putLong(sequenceNumber)
+                .putLong(System.currentTimeMillis())
+                .putInt(nodeId)
+                .putInt(actuatorId)
+                .put((byte) (isOn ? 1 : 0))
+                .putShort((short) commandText.length)
+                .put(commandText)
+                .putShort((short) sourceText.length)
+                .put(sourceText);
+        checksum.reset();
+        checksum.update(pending.array(), pending.arrayOffset() + start + 4, bodyLength);
+        pending.putInt((int) checksum.getValue());
+    }
+
+    /**
+     * The writer thread: swaps the buffers, writes and forces the records appended so far, and completes the
+     * appends waiting for them. Stops when the log is closed and everything appended is on disk.
+     */
+    private void writeRecords() {
+        while (true) {
+            long lastSequenceNumber;
+            ByteBuffer records;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    recordsPending.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                records = pending;
+                pending = writing;
+                writing = records;
+                lastSequenceNumber = nextSequenceNumber - 1;
+            } finally {
+                lock.unlock();
+            }
+            IOException error = null;
+            try {
+                records.flip();
+                while (records.hasRemaining()) {
+                    channel.write(records);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            records.clear();
+            List<PendingAppend> completed = new ArrayList<>();
+            lock.lock();
+            try {
+                if (error != null) {
+                    Logger.error("Error writing the command log, commands are no longer logged: "
+                            + error.getMessage());
+                    failure = error;
+                } else {
+                    durableSequenceNumber = lastSequenceNumber;
+                    ++forceCount;
+                }
+                while (!waitingAppends.isEmpty()
+                        && (error != null || waitingAppends.peek().sequenceNumber <= lastSequenceNumber)) {
+                    completed.add(waitingAppends.remove());
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Outside the lock, the futures run what depends on them
+            for (PendingAppend pendingAppend : completed) {
+                pendingAppend.durable.complete(error == null);
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the sequence number of the last record on disk.
+     *
+     * @return The sequence number, 0 if the log is empty
+     */
+    public long getDurableSequenceNumber() {
+        lock.lock();
+        try {
+            return durableSequenceNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of times the log was forced to disk since it was opened. Compared with the number of
+     * records appended, this tells how many records share a force on average.
+     *
+     * @return The number of forces
+     */
+    public long getForceCount() {
+        lock.lock();
+        try {
+            return forceCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the log, after writing all the records appended so far.
+     *
+     * @throws IOException If closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            recordsPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * An append waiting for its record to reach the disk.
+     */
+    private static class PendingAppend {
+        private final long sequenceNumber;
+        private final CompletableFuture<Boolean> durable = new CompletableFuture<>();
+
+        PendingAppend(long sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+        }
+    }
+}
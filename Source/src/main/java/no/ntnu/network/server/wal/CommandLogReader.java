@@ -0,0 +1,111 @@
+package no.ntnu.network.server.wal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the records of a command log in the order they were logged.
+ * Reading stops at the first record which is incomplete or fails its checksum: that is where the server stopped,
+ * in the middle of a write, and nothing after it was ever acknowledged.
+ */
+public class CommandLogReader implements Closeable {
+
+    private final DataInputStream in;
+    private final CRC32 checksum = new CRC32();
+    private byte[] body = new byte[256];
+    private long validLength = CommandLog.HEADER_LENGTH;
+    private boolean done;
+
+    /**
+     * Opens a command log for reading.
+     *
+     * @param file The command log
+     * @throws IOException If the file can not be read or is not a command log
+     */
+    public CommandLogReader(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (in.readInt() != CommandLog.MAGIC || in.readInt() != CommandLog.VERSION) {
+                throw new IOException("Not a command log, or an unsupported version: " + file);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e instanceof EOFException ? new IOException("Not a command log: " + file) : e;
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record, or null at the end of the log
+     * @throws IOException If reading fails
+     */
+    public CommandRecord next() throws IOException {
+        if (done) {
+            return null;
+        }
+        try {
+            int length = in.readInt();
+            if (length < CommandLog.MIN_BODY_LENGTH || length > CommandLog.MAX_BODY_LENGTH) {
+                done = true;
+                return null;
+            }
+            if (body.length < length) {
+                body = new byte[Math.max(length, body.length * 2)];
+            }
+            in.readFully(body, 0, length);
+            int expectedChecksum = in.readInt();
+            checksum.reset();
+            checksum.update(body, 0, length);
+            if ((int) checksum.getValue() != expectedChecksum) {
+                done = true;
+                return null;
+            }
+            validLength += CommandLog.RECORD_OVERHEAD + length;
+            return decode(length);
+        } catch (EOFException e) {
+            done = true;
+            return null;
+        }
+    }
+
+    private CommandRecord decode(int length) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(body, 0, length));
+        long sequenceNumber = record.readLong();
+        long timestamp = record.readLong();
+        int nodeId = record.readInt();
+        int actuatorId = record.readInt();
+        boolean isOn = record.readBoolean();
+        String command = readText(record);
+        String source = readText(record);
+        return new CommandRecord(sequenceNumber, timestamp, nodeId, actuatorId, isOn, command, source);
+    }
+
+    private static String readText(DataInputStream record) throws IOException {
+        byte[] text = new byte[record.readUnsignedShort()];
+        record.readFully(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the length of the log up to the end of the last complete record read.
+     *
+     * @return The length, in bytes
+     */
+    public long getValidLength() {
+        return validLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
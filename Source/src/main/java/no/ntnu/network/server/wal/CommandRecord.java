@@ -0,0 +1,72 @@
+package no.ntnu.network.server.wal;
+
+/**
+ * One actuator command in the command log: which actuator of which node was switched, on or off, when, by what
+ * command and from where.
+ */
+public class CommandRecord {
+
+    private final long sequenceNumber;
+    private final long timestamp;
+    private final int nodeId;
+    private final int actuatorId;
+    private final boolean isOn;
+    private final String command;
+    private final String source;
+
+    /**
+     * Creates a command record.
+     *
+     * @param sequenceNumber The position of the command in the log, counting from 1
+     * @param timestamp      When the command was logged, in milliseconds since the epoch
+     * @param nodeId         The node the command was sent to
+     * @param actuatorId     The actuator the command switched, or -1 for the actuator the node registered with
+     * @param isOn           The state the actuator was switched to
+     * @param command        The command which switched the actuator
+     * @param source         Who sent the command
+     */
+    public CommandRecord(long sequenceNumber, long timestamp, int nodeId, int actuatorId, boolean isOn,
+                         String command, String source) {
+        this.sequenceNumber = sequenceNumber;
+        this.timestamp = timestamp;
+        this.nodeId = nodeId;
+        this.actuatorId = actuatorId;
+        this.isOn = isOn;
+        this.command = command;
+        this.source = source;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int getActuatorId() {
+        return actuatorId;
+    }
+
+    public boolean isOn() {
+        return isOn;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequenceNumber + " " + timestamp + " " + command + " node " + nodeId + " actuator "
+                + actuatorId + (isOn ? " on" : " off") + " from " + source;
+    }
+}
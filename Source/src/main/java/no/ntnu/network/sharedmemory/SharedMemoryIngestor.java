@@ -0,0 +1,130 @@
+package no.ntnu.network.sharedmemory;
+
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrame;
+import no.ntnu.network.server.SmartFarmingServer;
+import no.ntnu.tools.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The server side of the shared-memory transport. An event loop which polls a SharedMemoryRingBuffer and feeds
+ * the frames into the same ingest path as sensor data received over a socket. Consecutive frames of one node
+ * taken at the same time, the sensors of one node in one step, are handed over together, like one sensor data
+ * message.
+ * While the ring buffer is empty the loop spins for a short while, then backs off to short sleeps.
+ */
+public class SharedMemoryIngestor implements Runnable {
+
+    private static final int BATCH_SIZE = 256;
+    private static final int SPINS_BEFORE_SLEEP = 100;
+    private static final long IDLE_SLEEP_NANOS = 50_000;
+
+    private final SharedMemoryRingBuffer ringBuffer;
+    private final SensorDataHandler sensorDataHandler;
+    private volatile boolean running = true;
+    private long ingestedFrames = 0;
+    // The readings of the frames taken but not yet handed over, all of one node at one time
+    private final List<SensorReading> pendingReadings = new ArrayList<>();
+    private int pendingNodeId;
+    private long pendingTimestamp;
+
+    /**
+     * Takes the readings of one group of frames.
+     */
+    interface SensorDataHandler {
+        void handle(int nodeId, long timestamp, List<SensorReading> readings);
+    }
+
+    /**
+     * Creates a new ingestor, handing the readings over to the server.
+     *
+     * @param ringBuffer The ring buffer to consume; the ingestor must be its only consumer
+     */
+    public SharedMemoryIngestor(SharedMemoryRingBuffer ringBuffer) {
+        this(ringBuffer, SmartFarmingServer::handleSensorData);
+    }
+
+    /**
+     * Creates a new ingestor.
+     *
+     * @param ringBuffer        The ring buffer to consume; the ingestor must be its only consumer
+     * @param sensorDataHandler Gets the node ID, the time and the readings of each group of frames
+     */
+    SharedMemoryIngestor(SharedMemoryRingBuffer ringBuffer, SensorDataHandler sensorDataHandler) {
+        this.ringBuffer = ringBuffer;
+        this.sensorDataHandler = sensorDataHandler;
+    }
+
+    /**
+     * Runs the event loop until stopped.
+     */
+    @Override
+    public void run() {
+        Logger.info("Shared-memory ingestion started, capacity " + ringBuffer.getCapacity() + " frames");
+        int idleSpins = 0;
+        while (running) {
+            int count = pollOnce();
+            if (count > 0) {
+                ingestedFrames += count;
+                idleSpins = 0;
+            } else if (idleSpins < SPINS_BEFORE_SLEEP) {
+                ++idleSpins;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(IDLE_SLEEP_NANOS);
+            }
+        }
+        Logger.info("Shared-memory ingestion stopped after " + ingestedFrames + " frames");
+    }
+
+    /**
+     * Takes one batch of frames out of the ring buffer and hands their readings over.
+     *
+     * @return The number of slots taken
+     */
+    int pollOnce() {
+        int count;
+        try {
+            count = ringBuffer.poll(this::ingest, BATCH_SIZE);
+        } catch (RuntimeException e) {
+            // Keep the loop alive, the next poll starts after the frames already taken
+            Logger.error("Error polling the shared-memory ring buffer: " + e.getMessage());
+            count = 0;
+        }
+        flush();
+        return count;
+    }
+
+    private void ingest(SensorFrame frame) {
+        if (!pendingReadings.isEmpty()
+                && (frame.getNodeId() != pendingNodeId || frame.getTimestamp() != pendingTimestamp)) {
+            flush();
+        }
+        pendingNodeId = frame.getNodeId();
+        pendingTimestamp = frame.getTimestamp();
+        pendingReadings.add(frame.getReading());
+    }
+
+    private void flush() {
+        if (pendingReadings.isEmpty()) {
+            return;
+        }
+        try {
+            // The server keeps the list, so it gets a copy
+            sensorDataHandler.handle(pendingNodeId, pendingTimestamp, List.copyOf(pendingReadings));
+        } catch (Exception e) {
+            Logger.error("Error handling shared-memory sensor data: " + e.getMessage());
+        }
+        pendingReadings.clear();
+    }
+
+    /**
+     * Stops the event loop after the current batch.
+     */
+    public void stop() {
+        running = false;
+    }
+}
@@ -0,0 +1,206 @@
+package no.ntnu.network.sharedmemory;
+
+import no.ntnu.network.message.SensorFrame;
+import no.ntnu.network.message.SensorFrameCodec;
+import no.ntnu.tools.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A single-producer/single-consumer queue of sensor frames in a memory-mapped file, used to pass sensor
+ * readings between two processes on the same host without any system call per message.
+ * The file starts with a header holding the capacity and the two sequence counters, each on its own cache
+ * line, followed by the slots. Each slot holds one frame encoded with the SensorFrameCodec.
+ * The producer publishes a frame by advancing the producer sequence after the slot is written; the consumer
+ * frees slots by advancing the consumer sequence after they are read.
+ * Only one thread (in one process) may offer, and only one thread may poll, at any time.
+ */
+public class SharedMemoryRingBuffer implements Closeable {
+
+    private static final int SLOT_SIZE = SensorFrameCodec.MAX_FRAME_LENGTH;
+    private static final int CACHE_LINE = 64;
+    private static final int CAPACITY_OFFSET = 0;
+    private static final int PRODUCER_SEQUENCE_OFFSET = CACHE_LINE;
+    private static final int CONSUMER_SEQUENCE_OFFSET = 2 * CACHE_LINE;
+    private static final int SLOTS_OFFSET = 3 * CACHE_LINE;
+
+    private static final VarHandle SEQUENCE =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int mask;
+
+    // Each side keeps a local copy of the other side's sequence to avoid reading it on every call
+    private long cachedConsumerSequence;
+    private long cachedProducerSequence;
+
+    private SharedMemoryRingBuffer(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Creates an empty ring buffer in the given file, for the consumer (the server), which should do so before
+     * the producer opens the file. A ring buffer left in the file by a previous run is reset, so frames it
+     * still holds are not handled again, and its sequences don't carry over.
+     *
+     * @param file     The file to map, created if it does not exist
+     * @param capacity The number of slots, must be a power of two
+     * @return The created ring buffer
+     * @throws IOException If the file can't be opened or mapped
+     */
+    public static SharedMemoryRingBuffer create(Path file, int capacity) throws IOException {
+        return map(file, capacity, true);
+    }
+
+    /**
+     * Opens the ring buffer in the given file, for the producer. The file is initialised if it does not hold
+     * a ring buffer of the requested capacity, otherwise the ring buffer is used as the consumer left it.
+     *
+     * @param file     The file to map
+     * @param capacity The number of slots, must be a power of two
+     * @return The opened ring buffer
+     * @throws IOException If the file can't be opened or mapped
+     */
+    public static SharedMemoryRingBuffer open(Path file, int capacity) throws IOException {
+        return map(file, capacity, false);
+    }
+
+    private static SharedMemoryRingBuffer map(Path file, int capacity, boolean reset) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        long size = SLOTS_OFFSET + (long) capacity * SLOT_SIZE;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer;
+        try {
+            if (channel.size() != size) {
+                channel.truncate(0);
+                reset = true;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (reset || buffer.getInt(CAPACITY_OFFSET) != capacity) {
+            SEQUENCE.setRelease(buffer, CONSUMER_SEQUENCE_OFFSET, 0L);
+            SEQUENCE.setRelease(buffer, PRODUCER_SEQUENCE_OFFSET, 0L);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+        }
+        SharedMemoryRingBuffer ringBuffer = new SharedMemoryRingBuffer(channel, buffer, capacity);
+        ringBuffer.cachedConsumerSequence = ringBuffer.consumerSequence();
+        ringBuffer.cachedProducerSequence = ringBuffer.producerSequence();
+        return ringBuffer;
+    }
+
+    /**
+     * Publishes one sensor reading. Must only be called from the producer thread.
+     *
+     * @param nodeId    The node the reading belongs to
+     * @param timestamp When the reading was taken, in milliseconds since the epoch
+     * @param type      The type of the sensor
+     * @param value     The value of the reading
+     * @param unit      The unit of the reading
+     * @return true if the reading was published, false if the ring buffer is full
+     */
+    public boolean offer(int nodeId, long timestamp, String type, double value, String unit) {
+        long sequence = producerSequencePlain();
+        if (sequence - cachedConsumerSequence >= capacity) {
+            cachedConsumerSequence = consumerSequence();
+            if (sequence - cachedConsumerSequence >= capacity) {
+                return false;
+            }
+        }
+        ByteBuffer slot = slot(sequence);
+        SensorFrameCodec.encode(slot, nodeId, timestamp, type, value, unit);
+        SEQUENCE.setRelease(buffer, PRODUCER_SEQUENCE_OFFSET, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Takes up to a limited number of frames out of the ring buffer. Must only be called from the consumer thread.
+     * A slot which can't be decoded is logged and skipped.
+     *
+     * @param handler Receives the frames, in the order they were published
+     * @param limit   The maximum number of frames to take
+     * @return The number of slots taken, including skipped ones, 0 when the ring buffer is empty
+     */
+    public int poll(Consumer<SensorFrame> handler, int limit) {
+        long sequence = consumerSequencePlain();
+        if (sequence >= cachedProducerSequence) {
+            cachedProducerSequence = producerSequence();
+            if (sequence >= cachedProducerSequence) {
+                return 0;
+            }
+        }
+        int count = (int) Math.min(limit, cachedProducerSequence - sequence);
+        for (int i = 0; i < count; ++i) {
+            SensorFrame frame;
+            try {
+                frame = SensorFrameCodec.decode(slot(sequence + i));
+            } catch (RuntimeException e) {
+                // A corrupt slot must not stop the frames behind it, it is freed with the others
+                Logger.error("Skipping corrupt shared-memory frame " + (sequence + i) + ": " + e);
+                continue;
+            }
+            handler.accept(frame);
+        }
+        SEQUENCE.setRelease(buffer, CONSUMER_SEQUENCE_OFFSET, sequence + count);
+        return count;
+    }
+
+    /**
+     * Get the number of frames published but not yet taken.
+     *
+     * @return The number of frames waiting in the ring buffer
+     */
+    public long size() {
+        return producerSequence() - consumerSequence();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private ByteBuffer slot(long sequence) {
+        int offset = SLOTS_OFFSET + (int) (sequence & mask) * SLOT_SIZE;
+        return buffer.slice(offset, SLOT_SIZE);
+    }
+
+    private long producerSequence() {
+        return (long) SEQUENCE.getAcquire(buffer, PRODUCER_SEQUENCE_OFFSET);
+    }
+
+    private long consumerSequence() {
+        return (long) SEQUENCE.getAcquire(buffer, CONSUMER_SEQUENCE_OFFSET);
+    }
+
+    private long producerSequencePlain() {
+        return (long) SEQUENCE.getOpaque(buffer, PRODUCER_SEQUENCE_OFFSET);
+    }
+
+    private long consumerSequencePlain() {
+        return (long) SEQUENCE.getOpaque(buffer, CONSUMER_SEQUENCE_OFFSET);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
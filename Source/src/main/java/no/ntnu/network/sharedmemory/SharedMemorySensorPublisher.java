@@ -0,0 +1,72 @@
+package no.ntnu.network.sharedmemory;
+
+import no.ntnu.greenhouse.Sensor;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.greenhouse.SimulationScheduler;
+import no.ntnu.listeners.greenhouse.SensorListener;
+import no.ntnu.tools.Logger;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The simulator side of the shared-memory transport. Publishes the sensor readings of one node into a
+ * SharedMemoryRingBuffer every time they are updated.
+ * The ring buffer has a single producer, while every node updates its sensors on its own thread. The publishers
+ * sharing one ring buffer therefore take turns by locking on it.
+ */
+public class SharedMemorySensorPublisher implements SensorListener {
+
+    private final SharedMemoryRingBuffer ringBuffer;
+    private final int nodeId;
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * Creates a publisher for one node.
+     *
+     * @param ringBuffer The ring buffer to publish to
+     * @param nodeId     The node whose sensors are published
+     */
+    public SharedMemorySensorPublisher(SharedMemoryRingBuffer ringBuffer, int nodeId) {
+        this.ringBuffer = ringBuffer;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void sensorsUpdated(List<Sensor> sensors) {
+        BitSet all = new BitSet(sensors.size());
+        all.set(0, sensors.size());
+        sensorsChanged(sensors, all);
+    }
+
+    /**
+     * Publishes only the readings which have changed since the previous update.
+     */
+    @Override
+    public void sensorsChanged(List<Sensor> sensors, BitSet changed) {
+        long timestamp = SimulationScheduler.currentTimeMillis();
+        int dropped = 0;
+        synchronized (ringBuffer) {
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                SensorReading reading = sensors.get(i).getReading();
+                if (!ringBuffer.offer(nodeId, timestamp, reading.getType(), reading.getValue(), reading.getUnit())) {
+                    ++dropped;
+                }
+            }
+        }
+        if (dropped > 0) {
+            droppedFrames.addAndGet(dropped);
+            Logger.warning("Shared-memory ring buffer full, dropped " + dropped + " readings of node " + nodeId);
+        }
+    }
+
+    /**
+     * Get the number of readings dropped because the ring buffer was full.
+     *
+     * @return The number of dropped readings
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+}
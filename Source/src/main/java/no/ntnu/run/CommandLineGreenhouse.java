@@ -1,18 +1,37 @@
 package no.ntnu.run;
 
+import static no.ntnu.tools.Parser.parseIntegerOrError;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import no.ntnu.greenhouse.GreenhouseSimulator;
+import no.ntnu.greenhouse.SensorActuatorNode;
+import no.ntnu.greenhouse.SimulationScheduler;
+import no.ntnu.greenhouse.VirtualClockScheduler;
+import no.ntnu.network.server.SmartFarmingServer;
+import no.ntnu.network.sharedmemory.SharedMemoryRingBuffer;
+import no.ntnu.network.sharedmemory.SharedMemorySensorPublisher;
 import no.ntnu.tools.Logger;
 
 /**
  * Run a greenhouse simulation using command-line interface (no GUI).
  */
 public class CommandLineGreenhouse {
+  private static final int DEFAULT_VIRTUAL_DAYS = 7;
+  private static final long MILLISECONDS_PER_DAY = 24L * 60 * 60 * 1000;
+
   /**
    * Application entrypoint for the command-line version of the simulator.
    *
    * @param args Command line arguments, only the first one of them used: when it is "fake",
    *             emulate fake events, when it is either something else or not present,
-   *             use real socket communication.
+   *             use real socket communication. With the two arguments "shm [file]", the
+   *             sensor readings are also published into a shared-memory ring buffer in the file.
+   *             When it is "parallel", all the nodes are stepped together in parallel ticks.
+   *             With the arguments "virtual [days]", the given number of days (default 7) is
+   *             simulated on a virtual clock as fast as possible, and the application exits.
+   *             With the arguments "scenario [file]", the greenhouse is loaded from a scenario
+   *             file instead of the built-in topology.
    */
   public static void main(String[] args) {
     Logger.info("Running greenhouse simulator in command line (without GUI)...");
@@ -22,7 +41,55 @@ public class CommandLineGreenhouse {
       Logger.info("Using FAKE events");
     }
     GreenhouseSimulator simulator = new GreenhouseSimulator(fake);
-    simulator.initialize();
+    if (args.length == 2 && "scenario".equals(args[0])) {
+      try {
+        simulator.initialize(Path.of(args[1]));
+      } catch (IOException | IllegalArgumentException e) {
+        Logger.error("Could not load the scenario: " + e.getMessage());
+        return;
+      }
+    } else {
+      simulator.initialize();
+    }
+    if (args.length == 1 && "parallel".equals(args[0])) {
+      Logger.info("Using parallel stepping");
+      simulator.enableParallelStepping();
+    }
+    if (args.length == 2 && "shm".equals(args[0])) {
+      publishToSharedMemory(simulator, Path.of(args[1]));
+    }
+    if (args.length >= 1 && "virtual".equals(args[0])) {
+      int days = args.length == 2
+          ? parseIntegerOrError(args[1], "Invalid number of days: " + args[1])
+          : DEFAULT_VIRTUAL_DAYS;
+      runOnVirtualClock(simulator, days);
+    } else {
+      simulator.start();
+    }
+  }
+
+  private static void runOnVirtualClock(GreenhouseSimulator simulator, int days) {
+    VirtualClockScheduler clock = SimulationScheduler.useVirtualClock(System.currentTimeMillis());
+    Logger.info("Simulating " + days + " days on a virtual clock");
+    long startedAt = System.nanoTime();
     simulator.start();
+    clock.runFor(days * MILLISECONDS_PER_DAY);
+    simulator.stop();
+    long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+    Logger.info("Simulated " + days + " days (" + clock.getExecutedCount() + " events) in "
+        + elapsedMs + " ms");
+  }
+
+  private static void publishToSharedMemory(GreenhouseSimulator simulator, Path file) {
+    try {
+      SharedMemoryRingBuffer ringBuffer = SharedMemoryRingBuffer.open(file,
+          SmartFarmingServer.SHARED_MEMORY_CAPACITY);
+      for (SensorActuatorNode node : simulator.getNodes()) {
+        node.addSensorListener(new SharedMemorySensorPublisher(ringBuffer, node.getId()));
+      }
+      Logger.info("Publishing sensor readings to shared memory in " + file);
+    } catch (IOException e) {
+      Logger.error("Could not open the shared-memory ring buffer: " + e.getMessage());
+    }
   }
 }
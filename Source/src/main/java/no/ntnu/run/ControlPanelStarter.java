@@ -3,7 +3,10 @@ package no.ntnu.run;
 import no.ntnu.controlpanel.CommunicationChannel;
 import no.ntnu.controlpanel.ControlPanelLogic;
 import no.ntnu.controlpanel.FakeCommunicationChannel;
+import no.ntnu.greenhouse.GreenhouseSimulator;
 import no.ntnu.gui.controlpanel.ControlPanelApplication;
+import no.ntnu.network.client.InProcessCommunicationChannel;
+import no.ntnu.network.server.SmartFarmingServer;
 import no.ntnu.tools.Logger;
 
 /**
@@ -13,25 +16,46 @@ import no.ntnu.tools.Logger;
  */
 public class ControlPanelStarter {
   private final boolean fake;
+  private final boolean embedded;
+  private GreenhouseSimulator embeddedSimulator;
+  private InProcessCommunicationChannel embeddedChannel;
 
   public ControlPanelStarter(boolean fake) {
+    this(fake, false);
+  }
+
+  /**
+   * Create a control panel starter.
+   *
+   * @param fake     When true, emulate fake events
+   * @param embedded When true, run a greenhouse simulator in the same process and connect it
+   *                 through an in-process channel instead of sockets
+   */
+  public ControlPanelStarter(boolean fake, boolean embedded) {
     this.fake = fake;
+    this.embedded = embedded;
   }
 
   /**
    * Entrypoint for the application.
    *
    * @param args Command line arguments, only the first one of them used: when it is "fake",
-   *             emulate fake events, when it is either something else or not present,
+   *             emulate fake events, when it is "embedded", run the greenhouse in the same
+   *             process, when it is either something else or not present,
    *             use real socket communication.
    */
   public static void main(String[] args) {
     boolean fake = false;
+    boolean embedded = false;
     if (args.length == 1 && "fake".equals(args[0])) {
       fake = true;
       Logger.info("Using FAKE events");
     }
-    ControlPanelStarter starter = new ControlPanelStarter(fake);
+    if (args.length == 1 && "embedded".equals(args[0])) {
+      embedded = true;
+      Logger.info("Using an EMBEDDED greenhouse");
+    }
+    ControlPanelStarter starter = new ControlPanelStarter(fake, embedded);
     starter.start();
   }
 
@@ -48,6 +72,8 @@ public class ControlPanelStarter {
     CommunicationChannel channel;
     if (fake) {
       channel = initiateFakeSpawner(logic);
+    } else if (embedded) {
+      channel = initiateEmbeddedCommunication(logic);
     } else {
       channel = initiateSocketCommunication(logic);
     }
@@ -61,6 +87,21 @@ public class ControlPanelStarter {
     return null;
   }
 
+  private CommunicationChannel initiateEmbeddedCommunication(ControlPanelLogic logic) {
+    // The greenhouse runs in this process, messages are routed by the server logic without sockets
+    SmartFarmingServer.startServices();
+    embeddedSimulator = new GreenhouseSimulator(false);
+    embeddedSimulator.initialize();
+    embeddedChannel = new InProcessCommunicationChannel(0, logic);
+    embeddedSimulator.getNodes().forEach(embeddedChannel::addNode);
+    logic.setCommunicationChannel(embeddedChannel);
+    // Open before the nodes start, so their first readings are routed. The application opens it again once
+    // its window listens to the logic, which announces the nodes to the window.
+    embeddedChannel.open("CONTROL_PANEL");
+    embeddedSimulator.start();
+    return embeddedChannel;
+  }
+
   private CommunicationChannel initiateFakeSpawner(ControlPanelLogic logic) {
     // Here we pretend that some events will be received with a given delay
     FakeCommunicationChannel spawner = new FakeCommunicationChannel(logic);
@@ -89,6 +130,11 @@ public class ControlPanelStarter {
   }
 
   private void stopCommunication() {
+    if (embeddedSimulator != null) {
+      embeddedSimulator.stop();
+      embeddedChannel.close();
+      SmartFarmingServer.stopServices();
+    }
     // TODO - here you stop the TCP/UDP socket communication
   }
 }
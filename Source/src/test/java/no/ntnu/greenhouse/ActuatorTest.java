@@ -0,0 +1,48 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Actuator}.
+ */
+public class ActuatorTest {
+
+  /**
+   * Get the change in temperature when an actuator is applied, switched on, to a fresh node.
+   */
+  private static double temperatureImpact(Actuator actuator) {
+    SensorActuatorNode node = new SensorActuatorNode(1);
+    node.addSensors(new Sensor("temperature", -1000, 1000, 20, "°C"), 1);
+    Sensor sensor = node.getSensors().get(0);
+    double before = sensor.getReading().getValue();
+    actuator.set(true);
+    actuator.applyImpact(node);
+    return sensor.getReading().getValue() - before;
+  }
+
+  @Test
+  public void changingTheImpactOfTheOriginalKeepsTheClone() {
+    Actuator heater = new Actuator("heater", 1);
+    heater.setImpact("temperature", 4);
+    Actuator clone = heater.createClone();
+
+    heater.setImpact("temperature", 10);
+
+    assertEquals(4, temperatureImpact(clone), 1e-9);
+    assertEquals(10, temperatureImpact(heater), 1e-9);
+  }
+
+  @Test
+  public void changingTheImpactOfTheCloneKeepsTheOriginal() {
+    Actuator heater = new Actuator("heater", 1);
+    heater.setImpact("temperature", 4);
+    Actuator clone = heater.createClone();
+
+    clone.setImpact("temperature", -3);
+
+    assertEquals(4, temperatureImpact(heater), 1e-9);
+    assertEquals(-3, temperatureImpact(clone), 1e-9);
+  }
+}
@@ -0,0 +1,80 @@
+package no.ntnu.greenhouse;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the scalar and the Vector API noise kernels on one bank of sensors. The kernel
+ * benchmark only runs the kernel, the step benchmark also draws the random numbers, like
+ * SensorBank.addRandomNoise does. A node of the built-in greenhouse has 3-5 sensors.
+ * The vector kernel must be compiled: {@code mvn -Pvector test-compile}, then run with
+ * {@code org.openjdk.jmh.Main NoiseKernelBenchmark}, see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NoiseKernelBenchmark {
+
+  @Param({"4", "64", "1024", "65536"})
+  public int size;
+
+  @Param({"scalar", "vector"})
+  public String kernelName;
+
+  private NoiseKernel kernel;
+  private double[] values;
+  private double[] uniform;
+  private double[] mins;
+  private double[] maxs;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    kernel = "vector".equals(kernelName) ? NoiseKernels.vector() : new ScalarNoiseKernel();
+    if (kernel == null) {
+      throw new IllegalStateException("The vector kernel is not compiled, use -Pvector");
+    }
+    Random random = new Random(33);
+    values = new double[size];
+    uniform = new double[size];
+    mins = new double[size];
+    maxs = new double[size];
+    for (int i = 0; i < size; ++i) {
+      mins[i] = random.nextInt(50);
+      maxs[i] = mins[i] + 10 + random.nextInt(90);
+      values[i] = mins[i] + random.nextDouble() * (maxs[i] - mins[i]);
+      uniform[i] = random.nextDouble();
+    }
+  }
+
+  @Benchmark
+  public double[] kernel() {
+    kernel.addNoise(values, uniform, mins, maxs, size);
+    return values;
+  }
+
+  @Benchmark
+  public double[] step() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < size; ++i) {
+      uniform[i] = random.nextDouble();
+    }
+    kernel.addNoise(values, uniform, mins, maxs, size);
+    return values;
+  }
+}
@@ -0,0 +1,107 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeNotNull;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link NoiseKernel} implementations. The Vector API kernel is only tested when it
+ * is compiled and its module is available: {@code mvn -Pvector test}.
+ */
+public class NoiseKernelTest {
+  private static final int SIZE = 1003;
+
+  @Test
+  public void scalarKernelRoundsAndClamps() {
+    double[] values = {22.456, 14.0, 41.0, -0.004, 0.125};
+    double[] mins = {15, 15, 15, -1, 0};
+    double[] maxs = {40, 40, 40, 1, 1};
+    double[] uniform = new double[values.length];
+    // A uniform number of 0.5 gives a noise of exactly 0
+    Arrays.fill(uniform, 0.5);
+
+    new ScalarNoiseKernel().addNoise(values, uniform, mins, maxs, values.length);
+
+    assertEquals(22.46, values[0], 0);
+    assertEquals(15, values[1], 0);
+    assertEquals(40, values[2], 0);
+    assertEquals(0.0, values[3], 0);
+    assertEquals(0.13, values[4], 0);
+  }
+
+  @Test
+  public void vectorKernelMatchesScalarKernel() {
+    NoiseKernel vector = NoiseKernels.vector();
+    assumeNotNull(vector);
+    Random random = new Random(33);
+    double[] mins = new double[SIZE];
+    double[] maxs = new double[SIZE];
+    double[] values = new double[SIZE];
+    double[] uniform = new double[SIZE];
+    for (int i = 0; i < SIZE; ++i) {
+      mins[i] = random.nextInt(200) - 100;
+      maxs[i] = mins[i] + random.nextInt(200);
+      values[i] = mins[i] + random.nextDouble() * (maxs[i] - mins[i]);
+      uniform[i] = random.nextDouble();
+    }
+
+    for (int step = 0; step < 100; ++step) {
+      assertSameResults(vector, values, uniform, mins, maxs);
+      for (int i = 0; i < SIZE; ++i) {
+        uniform[i] = random.nextDouble();
+      }
+    }
+  }
+
+  @Test
+  public void vectorKernelRoundsTiesLikeMathRound() {
+    NoiseKernel vector = NoiseKernels.vector();
+    assumeNotNull(vector);
+    double[] mins = new double[SIZE];
+    double[] maxs = new double[SIZE];
+    double[] values = new double[SIZE];
+    double[] uniform = new double[SIZE];
+    Arrays.fill(mins, -1000);
+    Arrays.fill(maxs, 1000);
+    Arrays.fill(uniform, 0.5);
+    double nearlyHalf = Math.nextDown(0.5);
+    values[0] = scaledBy100(nearlyHalf);
+    values[1] = scaledBy100(-nearlyHalf);
+    values[2] = scaledBy100(Math.nextUp(-0.5));
+    for (int i = 3; i < SIZE; ++i) {
+      // Ties and their neighbours, positive and negative
+      double tie = (i / 6 - 80) + 0.5;
+      double scaled = i % 3 == 0 ? tie : i % 3 == 1 ? Math.nextUp(tie) : Math.nextDown(tie);
+      values[i] = i % 2 == 0 ? scaled / 100.0 : -scaled / 100.0;
+    }
+
+    assertSameResults(vector, values, uniform, mins, maxs);
+    assertEquals(0.0, values[0], 0);
+  }
+
+  /**
+   * Find a value which gives exactly x when multiplied by 100, as the kernels do.
+   */
+  private static double scaledBy100(double x) {
+    double value = x / 100.0;
+    for (int i = 0; i < 8 && value * 100.0 != x; ++i) {
+      value = value * 100.0 < x ? Math.nextUp(value) : Math.nextDown(value);
+    }
+    assertEquals(x, value * 100.0, 0);
+    return value;
+  }
+
+  private static void assertSameResults(NoiseKernel vector, double[] values, double[] uniform,
+                                        double[] mins, double[] maxs) {
+    double[] expected = values.clone();
+    new ScalarNoiseKernel().addNoise(expected, uniform, mins, maxs, SIZE);
+    vector.addNoise(values, uniform, mins, maxs, SIZE);
+    for (int i = 0; i < SIZE; ++i) {
+      assertEquals("sensor " + i, Double.doubleToRawLongBits(expected[i]),
+          Double.doubleToRawLongBits(values[i]));
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import no.ntnu.listeners.greenhouse.SensorListener;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ParallelStepper}.
+ */
+public class ParallelStepperTest {
+
+  private static final int NODE_COUNT = 2000;
+
+  /**
+   * A listener shared by all the nodes, which tells whether it was ever called concurrently.
+   */
+  private static class SharedListener implements SensorListener {
+    private final AtomicInteger active = new AtomicInteger();
+    private final Thread expectedThread = Thread.currentThread();
+    private volatile boolean overlapped;
+    private volatile boolean otherThread;
+    private int calls;
+
+    @Override
+    public void sensorsUpdated(List<Sensor> sensors) {
+      if (active.incrementAndGet() > 1) {
+        overlapped = true;
+      }
+      if (Thread.currentThread() != expectedThread) {
+        otherThread = true;
+      }
+      ++calls;
+      active.decrementAndGet();
+    }
+  }
+
+  @Test
+  public void listenersAreNotifiedOneAtATimeOnTheSteppingThread() {
+    SharedListener listener = new SharedListener();
+    List<SensorActuatorNode> nodes = new ArrayList<>();
+    for (int i = 0; i < NODE_COUNT; ++i) {
+      SensorActuatorNode node = new SensorActuatorNode(i + 1);
+      node.addSensors(DeviceFactory.createTemperatureSensor(), 2);
+      node.addSensorListener(listener);
+      nodes.add(node);
+    }
+    ParallelStepper stepper = new ParallelStepper(nodes, SensorActuatorNode.SENSING_DELAY);
+    nodes.forEach(SensorActuatorNode::start);
+
+    for (int tick = 0; tick < 5; ++tick) {
+      stepper.step();
+    }
+
+    assertEquals(5, stepper.getTickCount());
+    assertTrue(listener.calls > 0);
+    assertFalse("listener called concurrently", listener.overlapped);
+    assertFalse("listener called on a pool thread", listener.otherThread);
+  }
+}
@@ -0,0 +1,59 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RealTimeScheduler}.
+ */
+public class RealTimeSchedulerTest {
+
+  @Test
+  public void idleThreadsOutliveTheLongestPeriod() {
+    RealTimeScheduler scheduler = new RealTimeScheduler();
+    ScheduledTask slow = scheduler.scheduleAtFixedRate(() -> { }, 60_000, 5000);
+    ScheduledTask fast = scheduler.scheduleAtFixedRate(() -> { }, 60_000, 100);
+
+    assertEquals(10_000, scheduler.getIdleThreadTimeout());
+    slow.cancel();
+    fast.cancel();
+  }
+
+  @Test
+  public void shortPeriodsKeepTheDefaultTimeout() {
+    RealTimeScheduler scheduler = new RealTimeScheduler();
+    ScheduledTask task = scheduler.scheduleAtFixedRate(() -> { }, 60_000, 100);
+
+    assertEquals(1000, scheduler.getIdleThreadTimeout());
+    task.cancel();
+  }
+
+  @Test
+  public void failingTaskKeepsRunning() throws InterruptedException {
+    RealTimeScheduler scheduler = new RealTimeScheduler();
+    CountDownLatch runs = new CountDownLatch(3);
+    AtomicInteger failures = new AtomicInteger();
+    ScheduledTask task = scheduler.scheduleAtFixedRate(() -> {
+      failures.incrementAndGet();
+      runs.countDown();
+      throw new IllegalStateException("failed on purpose");
+    }, 0, 10);
+
+    assertTrue(runs.await(5, TimeUnit.SECONDS));
+    task.cancel();
+    assertTrue(failures.get() >= 3);
+  }
+
+  @Test
+  public void delayedTaskRunsOnce() throws InterruptedException {
+    CountDownLatch ran = new CountDownLatch(1);
+    new RealTimeScheduler().schedule(ran::countDown, 10);
+
+    assertTrue(ran.await(5, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,139 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScenarioLoader}.
+ */
+public class ScenarioLoaderTest {
+  private static final String TEMPLATES = String.join("\n",
+      "# Templates",
+      "sensor temperature temperature 15 40 27 1 °C",
+      "sensor humidity humidity 50 100 80 5 %",
+      "",
+      "actuator window window temperature=-5 humidity=-10",
+      "actuator heater heater temperature=4");
+
+  private static int load(GreenhouseSimulator simulator, String scenario) throws IOException {
+    return new ScenarioLoader(simulator).load(new BufferedReader(new StringReader(scenario)));
+  }
+
+  private static List<SensorActuatorNode> sortedNodes(GreenhouseSimulator simulator) {
+    List<SensorActuatorNode> nodes = new ArrayList<>(simulator.getNodes());
+    nodes.sort(Comparator.comparingInt(SensorActuatorNode::getId));
+    return nodes;
+  }
+
+  @Test
+  public void loadsNodesFromTemplates() throws IOException {
+    GreenhouseSimulator simulator = new GreenhouseSimulator(false);
+
+    int nodeCount = load(simulator, TEMPLATES + "\n"
+        + "node 2 temperature:1 humidity:2 window:1\n"
+        + "node 1 heater:3\n");
+
+    assertEquals(3, nodeCount);
+    List<SensorActuatorNode> nodes = sortedNodes(simulator);
+    for (SensorActuatorNode node : nodes.subList(0, 2)) {
+      assertEquals(3, node.getSensors().size());
+      assertEquals(1, node.getActuators().size());
+      Actuator window = node.getActuators().findFirstOfType("window");
+      assertEquals(node.getId(), window.getNodeId());
+    }
+    assertEquals(0, nodes.get(2).getSensors().size());
+    assertEquals(3, nodes.get(2).getActuators().size());
+  }
+
+  @Test
+  public void initialValuesAreWithinTheSpread() throws IOException {
+    GreenhouseSimulator simulator = new GreenhouseSimulator(false);
+
+    load(simulator, TEMPLATES + "\nnode 20 temperature:1 humidity:1\n");
+
+    for (SensorActuatorNode node : simulator.getNodes()) {
+      for (Sensor sensor : node.getSensors()) {
+        double value = sensor.getReading().getValue();
+        if (sensor.getType().equals("temperature")) {
+          assertTrue(value >= 26 && value <= 28);
+        } else {
+          assertTrue(value >= 75 && value <= 85);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void switchesReferToLoadedNodes() throws IOException {
+    GreenhouseSimulator simulator = new GreenhouseSimulator(false);
+    load(simulator, TEMPLATES + "\nnode 1 window:1\n");
+    int nodeId = sortedNodes(simulator).get(0).getId();
+
+    load(simulator, "switch WindowDJ " + nodeId + " window 20000");
+    assertLoadFails(simulator, "switch HeaterDJ " + nodeId + " heater 8000",
+        "Scenario line 1: No heater on node " + nodeId);
+    assertLoadFails(simulator, "switch WindowDJ -1 window 20000",
+        "Scenario line 1: Unknown node: -1");
+  }
+
+  @Test
+  public void errorsTellTheLine() {
+    GreenhouseSimulator simulator = new GreenhouseSimulator(false);
+    assertLoadFails(simulator, TEMPLATES + "\nnode 1 cactus:1",
+        "Scenario line 7: Unknown template: cactus");
+    assertLoadFails(simulator, "\n\nsensor t temperature 15 40 27 1",
+        "Scenario line 3: Expected 7 values after sensor, got 6");
+    assertLoadFails(simulator, "sensor t temperature 40 15 27 1 °C",
+        "Scenario line 1: Minimum is larger than maximum");
+    assertLoadFails(simulator, "sensor t temperature low 40 27 1 °C",
+        "Scenario line 1: Invalid minimum: low");
+    assertLoadFails(simulator, "actuator fan fan temperature:-1",
+        "Scenario line 1: Invalid impact: temperature:-1");
+    assertLoadFails(simulator, "actuator fan fan\nactuator fan fan",
+        "Scenario line 2: Template declared twice: fan");
+    assertLoadFails(simulator, "greenhouse 1", "Scenario line 1: Unknown declaration: greenhouse");
+    assertTrue(simulator.getNodes().isEmpty());
+  }
+
+  @Test
+  public void valuesOutOfRangeAreRejected() throws IOException {
+    GreenhouseSimulator simulator = new GreenhouseSimulator(false);
+    assertLoadFails(simulator, "sensor t temperature 15 40 45 1 °C",
+        "Scenario line 1: Initial value 45 is outside [15, 40]");
+    assertLoadFails(simulator, "sensor t temperature 15 40 14.5 1 °C",
+        "Scenario line 1: Initial value 14.5 is outside [15, 40]");
+    assertLoadFails(simulator, "sensor t temperature 15 40 27 -1 °C",
+        "Scenario line 1: Negative spread: -1");
+    assertLoadFails(simulator, TEMPLATES + "\nnode -1 heater:1",
+        "Scenario line 7: Invalid node count: -1");
+    assertLoadFails(simulator, TEMPLATES + "\nnode 1 heater:-2",
+        "Scenario line 7: Invalid device count: heater:-2");
+    assertTrue(simulator.getNodes().isEmpty());
+
+    load(simulator, TEMPLATES + "\nnode 1 window:1\n");
+    int nodeId = sortedNodes(simulator).get(0).getId();
+    assertLoadFails(simulator, "\nswitch WindowDJ " + nodeId + " window 0",
+        "Scenario line 2: The period must be positive: 0");
+    assertLoadFails(simulator, "switch WindowDJ " + nodeId + " window -20000",
+        "Scenario line 1: The period must be positive: -20000");
+  }
+
+  private static void assertLoadFails(GreenhouseSimulator simulator, String scenario,
+                                      String expectedMessage) {
+    try {
+      load(simulator, scenario);
+      fail("Expected an error: " + expectedMessage);
+    } catch (IllegalArgumentException | IOException e) {
+      assertEquals(expectedMessage, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import no.ntnu.listeners.greenhouse.SensorListener;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SensorActuatorNode}.
+ */
+public class SensorActuatorNodeTest {
+
+  /**
+   * Records a copy of the changed sensors of every event.
+   */
+  private static class ChangeRecorder implements SensorListener {
+    private final List<BitSet> events = new ArrayList<>();
+
+    @Override
+    public void sensorsUpdated(List<Sensor> sensors) {
+    }
+
+    @Override
+    public void sensorsChanged(List<Sensor> sensors, BitSet changed) {
+      events.add((BitSet) changed.clone());
+    }
+  }
+
+  @Test
+  public void listenersAreToldWhichSensorsChanged() {
+    SensorActuatorNode node = new SensorActuatorNode(40);
+    node.addSensors(new Sensor("temperature", 15, 40, 20, "°C"), 2);
+    node.addSensors(new Sensor("humidity", 50, 85, 60, "%"), 1);
+    ChangeRecorder recorder = new ChangeRecorder();
+    node.addSensorListener(recorder);
+
+    node.publishSensorValues();
+    node.publishSensorValues();
+    node.getSensors().get(2).applyImpact(5);
+    node.publishSensorValues();
+
+    assertEquals(List.of(BitSet.valueOf(new long[] {0b111}), new BitSet(),
+        BitSet.valueOf(new long[] {0b100})), recorder.events);
+  }
+
+  @Test
+  public void plainListenersStillGetEveryUpdate() {
+    SensorActuatorNode node = new SensorActuatorNode(41);
+    node.addSensors(new Sensor("temperature", 15, 40, 20, "°C"), 2);
+    List<Integer> updates = new ArrayList<>();
+    node.addSensorListener(sensors -> updates.add(sensors.size()));
+
+    node.publishSensorValues();
+    node.publishSensorValues();
+
+    assertEquals(List.of(2, 2), updates);
+  }
+}
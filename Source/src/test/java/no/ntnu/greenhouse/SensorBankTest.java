@@ -0,0 +1,173 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SensorBank}.
+ */
+public class SensorBankTest {
+  private static final int TEMPERATURE = TypeRegistry.sensorTypeId("temperature");
+  private static final int HUMIDITY = TypeRegistry.sensorTypeId("humidity");
+  private static final int CELSIUS = TypeRegistry.unitId("°C");
+  private static final int PERCENT = TypeRegistry.unitId("%");
+
+  @Test
+  public void addedValuesAreRoundedAndClamped() {
+    SensorBank bank = new SensorBank();
+    int rounded = bank.add(TEMPERATURE, 15, 40, 22.456, CELSIUS);
+    int tooLow = bank.add(TEMPERATURE, 15, 40, 3, CELSIUS);
+    int tooHigh = bank.add(HUMIDITY, 50, 85, 99, PERCENT);
+
+    assertEquals(22.46, bank.getValue(rounded), 0);
+    assertEquals(15, bank.getValue(tooLow), 0);
+    assertEquals(85, bank.getValue(tooHigh), 0);
+    assertEquals(3, bank.size());
+  }
+
+  @Test
+  public void growingKeepsEverySlot() {
+    SensorBank bank = new SensorBank();
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i, bank.add(i % 2 == 0 ? TEMPERATURE : HUMIDITY, 0, 1000, i, CELSIUS));
+    }
+
+    assertEquals(100, bank.size());
+    for (int i = 0; i < 100; ++i) {
+      assertEquals(i, bank.getValue(i), 0);
+      assertEquals(i % 2 == 0 ? TEMPERATURE : HUMIDITY, bank.getTypeId(i));
+      assertEquals(0, bank.getMin(i), 0);
+      assertEquals(1000, bank.getMax(i), 0);
+      assertEquals(CELSIUS, bank.getUnitId(i));
+    }
+  }
+
+  @Test
+  public void impactOnlyChangesSensorsOfThatType() {
+    SensorBank bank = new SensorBank();
+    int temperature = bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+    int humidity = bank.add(HUMIDITY, 50, 85, 60, PERCENT);
+    int secondTemperature = bank.add(TEMPERATURE, 15, 40, 39.5, CELSIUS);
+
+    bank.applyTypeImpact(TEMPERATURE, 1.25);
+
+    assertEquals(21.25, bank.getValue(temperature), 0);
+    assertEquals(60, bank.getValue(humidity), 0);
+    assertEquals(40, bank.getValue(secondTemperature), 0);
+  }
+
+  @Test
+  public void noiseStaysWithinOnePercentOfTheRange() {
+    SensorBank bank = new SensorBank();
+    for (int i = 0; i < 50; ++i) {
+      bank.add(HUMIDITY, 0, 100, i % 2 == 0 ? 0 : 50, PERCENT);
+    }
+
+    bank.addRandomNoise();
+
+    for (int i = 0; i < 50; ++i) {
+      double value = bank.getValue(i);
+      assertTrue(value >= 0 && value <= 100);
+      assertEquals(i % 2 == 0 ? 0 : 50, value, 1.0);
+    }
+  }
+
+  @Test
+  public void sensorIsAViewOnItsSlot() {
+    SensorBank bank = new SensorBank();
+    bank.add(HUMIDITY, 50, 85, 60, PERCENT);
+    Sensor sensor = new Sensor(bank, bank.add(TEMPERATURE, 15, 40, 20, CELSIUS));
+
+    sensor.applyImpact(2);
+    assertEquals(22, bank.getValue(1), 0);
+    bank.setValue(1, 30);
+
+    assertEquals(new SensorReading("temperature", 30, "°C"), sensor.getReading());
+    assertEquals("temperature", sensor.getType());
+  }
+
+  @Test
+  public void cloneHasItsOwnSlot() {
+    Sensor sensor = new Sensor("temperature", 15, 40, 20, "°C");
+    Sensor clone = sensor.createClone();
+
+    clone.applyImpact(5);
+
+    assertEquals(20, sensor.getReading().getValue(), 0);
+    assertEquals(25, clone.getReading().getValue(), 0);
+  }
+
+  @Test
+  public void changesAreCollectedOnce() {
+    SensorBank bank = new SensorBank();
+    bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+    bank.add(HUMIDITY, 50, 85, 60, PERCENT);
+    bank.add(TEMPERATURE, 15, 40, 25, CELSIUS);
+    BitSet changed = new BitSet();
+
+    bank.collectChanges(changed);
+    assertEquals(BitSet.valueOf(new long[] {0b111}), changed);
+
+    bank.collectChanges(changed);
+    assertTrue(changed.isEmpty());
+
+    bank.applyTypeImpact(TEMPERATURE, 1);
+    bank.setValue(1, 60);
+    bank.collectChanges(changed);
+    assertEquals(BitSet.valueOf(new long[] {0b101}), changed);
+  }
+
+  @Test
+  public void newSensorCountsAsChanged() {
+    SensorBank bank = new SensorBank();
+    bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+    BitSet changed = new BitSet();
+    bank.collectChanges(changed);
+
+    bank.add(HUMIDITY, 50, 85, 60, PERCENT);
+    bank.collectChanges(changed);
+
+    assertEquals(BitSet.valueOf(new long[] {0b10}), changed);
+  }
+
+  @Test
+  public void updatesArePublishedOnceForTheNextReader() {
+    SensorBank bank = new SensorBank();
+    for (int i = 0; i < 100; ++i) {
+      bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+      bank.setValue(i, 20 + i / 10.0);
+    }
+
+    SensorSnapshot snapshot = bank.getSnapshot();
+    assertEquals(100, snapshot.size());
+    assertEquals(29.9, snapshot.getValue(99), 0);
+    assertSame(snapshot, bank.getSnapshot());
+
+    bank.applyImpact(99, 0.1);
+    assertEquals(30, bank.getSnapshot().getValue(99), 0);
+  }
+
+  @Test
+  public void concurrentImpactsOnASensorAreNotLost() throws InterruptedException {
+    SensorBank bank = new SensorBank();
+    Sensor sensor = new Sensor(bank, bank.add(TEMPERATURE, 0, 1000, 0, CELSIUS));
+    Runnable impacts = () -> {
+      for (int i = 0; i < 10000; ++i) {
+        sensor.applyImpact(0.01);
+      }
+    };
+    Thread first = new Thread(impacts);
+    Thread second = new Thread(impacts);
+
+    first.start();
+    second.start();
+    first.join();
+    second.join();
+
+    assertEquals(200, sensor.getReading().getValue(), 1e-9);
+  }
+}
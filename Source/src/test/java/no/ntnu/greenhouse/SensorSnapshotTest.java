@@ -0,0 +1,97 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SensorSnapshot}s published by a {@link SensorBank}.
+ */
+public class SensorSnapshotTest {
+  private static final int TEMPERATURE = TypeRegistry.sensorTypeId("temperature");
+  private static final int CELSIUS = TypeRegistry.unitId("°C");
+
+  @Test
+  public void snapshotNeverChanges() {
+    SensorBank bank = new SensorBank();
+    bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+    SensorSnapshot before = bank.getSnapshot();
+
+    bank.setValue(0, 30);
+    bank.add(TEMPERATURE, 15, 40, 25, CELSIUS);
+
+    assertEquals(1, before.size());
+    assertEquals(20, before.getValue(0), 0);
+    assertEquals("temperature", before.getType(0));
+    assertEquals("°C", before.getUnit(0));
+    SensorSnapshot after = bank.getSnapshot();
+    assertEquals(2, after.size());
+    assertEquals(30, after.getValue(0), 0);
+    assertTrue(after.getVersion() > before.getVersion());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void sensorAddedLaterIsNotInTheSnapshot() {
+    SensorBank bank = new SensorBank();
+    bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+    SensorSnapshot snapshot = bank.getSnapshot();
+    bank.add(TEMPERATURE, 15, 40, 20, CELSIUS);
+
+    snapshot.getValue(1);
+  }
+
+  @Test
+  public void noiseIsPublishedWhenTheChangesAreCollected() {
+    SensorBank bank = new SensorBank();
+    for (int i = 0; i < 10; ++i) {
+      bank.add(TEMPERATURE, 0, 100, 50, CELSIUS);
+    }
+    BitSet changed = new BitSet();
+    bank.collectChanges(changed);
+    SensorSnapshot before = bank.getSnapshot();
+
+    bank.addRandomNoise();
+    assertSame(before, bank.getSnapshot());
+    bank.collectChanges(changed);
+
+    SensorSnapshot after = bank.getSnapshot();
+    for (int i = 0; i < 10; ++i) {
+      assertEquals(bank.getValue(i), after.getValue(i), 0);
+    }
+  }
+
+  @Test
+  public void readersSeeEverySensorFromTheSameMoment() throws InterruptedException {
+    SensorBank bank = new SensorBank();
+    for (int i = 0; i < 64; ++i) {
+      bank.add(TEMPERATURE, -1e9, 1e9, 0, CELSIUS);
+    }
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicBoolean torn = new AtomicBoolean(false);
+    Thread reader = new Thread(() -> {
+      while (running.get()) {
+        SensorSnapshot snapshot = bank.getSnapshot();
+        for (int i = 1; i < snapshot.size(); ++i) {
+          if (snapshot.getValue(i) != snapshot.getValue(0)) {
+            torn.set(true);
+          }
+        }
+      }
+    });
+    reader.start();
+
+    for (int step = 0; step < 20_000; ++step) {
+      bank.applyTypeImpact(TEMPERATURE, 1);
+    }
+    running.set(false);
+    reader.join();
+
+    assertFalse("a snapshot mixed values of two updates", torn.get());
+    assertEquals(20_000, bank.getSnapshot().getValue(63), 0);
+  }
+}
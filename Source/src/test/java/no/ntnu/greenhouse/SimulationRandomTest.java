@@ -0,0 +1,55 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SimulationRandom}.
+ */
+public class SimulationRandomTest {
+
+  @Test
+  public void sameSeedGivesSameSensorValues() {
+    assertEquals(simulate(1234), simulate(1234));
+  }
+
+  @Test
+  public void differentSeedsGiveDifferentSensorValues() {
+    assertNotEquals(simulate(1234), simulate(1235));
+  }
+
+  @Test
+  public void nodeStreamDoesNotDependOnOtherNodes() {
+    SimulationRandom.setSeed(34);
+    long first = SimulationRandom.forNode(5).nextLong();
+    SimulationRandom.forNode(4).nextLong();
+    SimulationRandom.forNode(6).nextLong();
+
+    assertEquals(first, SimulationRandom.forNode(5).nextLong());
+    assertNotEquals(first, SimulationRandom.forNode(6).nextLong());
+  }
+
+  /**
+   * Create a node with a temperature and two humidity sensors, and step it a few times.
+   *
+   * @return The values of the sensors after each step
+   */
+  private static List<Double> simulate(long seed) {
+    SimulationRandom.setSeed(seed);
+    SensorActuatorNode node = new SensorActuatorNode(7);
+    node.addSensors(DeviceFactory.createTemperatureSensor(), 1);
+    node.addSensors(DeviceFactory.createHumiditySensor(), 2);
+    List<Double> values = new ArrayList<>();
+    for (int step = 0; step < 20; ++step) {
+      node.generateNewSensorValues();
+      for (Sensor sensor : node.getSensors()) {
+        values.add(sensor.getReading().getValue());
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,101 @@
+package no.ntnu.greenhouse;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link VirtualClockScheduler}.
+ */
+public class VirtualClockSchedulerTest {
+  private static final long START = 1_000_000;
+
+  @Test
+  public void eventsRunInTimeOrderAtTheirVirtualTime() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<String> runs = new ArrayList<>();
+    scheduler.schedule(() -> runs.add("c@" + scheduler.currentTimeMillis()), 300);
+    scheduler.schedule(() -> runs.add("a@" + scheduler.currentTimeMillis()), 100);
+    scheduler.schedule(() -> runs.add("b@" + scheduler.currentTimeMillis()), 200);
+
+    scheduler.runFor(1000);
+
+    assertEquals(List.of("a@" + (START + 100), "b@" + (START + 200), "c@" + (START + 300)), runs);
+    assertEquals(START + 1000, scheduler.currentTimeMillis());
+  }
+
+  @Test
+  public void eventsAtTheSameTimeRunInSchedulingOrder() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<Integer> runs = new ArrayList<>();
+    for (int i = 0; i < 10; ++i) {
+      int n = i;
+      scheduler.schedule(() -> runs.add(n), 50);
+    }
+
+    scheduler.runFor(50);
+
+    assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), runs);
+  }
+
+  @Test
+  public void periodicTaskRunsOncePerPeriod() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<Long> times = new ArrayList<>();
+    scheduler.scheduleAtFixedRate(() -> times.add(scheduler.currentTimeMillis()), 10, 5000);
+
+    scheduler.runFor(7 * 24 * 3600 * 1000L);
+
+    assertEquals(7 * 24 * 3600 / 5, times.size());
+    for (int i = 0; i < times.size(); ++i) {
+      assertEquals(START + 10 + i * 5000L, (long) times.get(i));
+    }
+  }
+
+  @Test
+  public void clockStopsAtTheEndTime() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<Long> times = new ArrayList<>();
+    scheduler.scheduleAtFixedRate(() -> times.add(scheduler.currentTimeMillis()), 0, 1000);
+
+    scheduler.runUntil(START + 2500);
+    assertEquals(List.of(START, START + 1000, START + 2000), times);
+    assertEquals(START + 2500, scheduler.currentTimeMillis());
+
+    scheduler.runUntil(START + 3000);
+    assertEquals(START + 3000, (long) times.get(3));
+  }
+
+  @Test
+  public void cancelledTaskDoesNotRunAgain() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<Long> times = new ArrayList<>();
+    ScheduledTask[] task = new ScheduledTask[1];
+    task[0] = scheduler.scheduleAtFixedRate(() -> {
+      times.add(scheduler.currentTimeMillis());
+      if (times.size() == 3) {
+        task[0].cancel();
+      }
+    }, 0, 100);
+
+    scheduler.runFor(10_000);
+
+    assertEquals(3, times.size());
+    assertEquals(0, scheduler.getPendingCount());
+  }
+
+  @Test
+  public void taskScheduledByATaskRunsLaterInTheSameRun() {
+    VirtualClockScheduler scheduler = new VirtualClockScheduler(START);
+    List<Long> times = new ArrayList<>();
+    scheduler.schedule(() -> scheduler.schedule(() -> times.add(scheduler.currentTimeMillis()), 400),
+        100);
+
+    scheduler.runFor(1000);
+
+    assertEquals(List.of(START + 500), times);
+    assertEquals(2, scheduler.getExecutedCount());
+  }
+}
@@ -0,0 +1,118 @@
+package no.ntnu.network.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.controlpanel.ControlPanelLogic;
+import no.ntnu.controlpanel.SensorActuatorNodeInfo;
+import no.ntnu.greenhouse.Actuator;
+import no.ntnu.greenhouse.SensorActuatorNode;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.listeners.controlpanel.GreenhouseEventListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link InProcessCommunicationChannel}, routing through the static state of the server.
+ */
+public class InProcessCommunicationChannelTest {
+
+    // Far from the IDs handed out by the device factory and other tests
+    private static final int CONTROL_PANEL_ID = 26_001;
+    private static final int NODE_ID = 26_002;
+
+    private final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private InProcessCommunicationChannel channel;
+    private SensorActuatorNode node;
+    private Actuator fan;
+
+    /**
+     * Records the events reaching the control panel logic.
+     */
+    private class RecordingListener implements GreenhouseEventListener {
+        @Override
+        public void onNodeAdded(SensorActuatorNodeInfo nodeInfo) {
+            events.add(nodeInfo);
+        }
+
+        @Override
+        public void onNodeRemoved(int nodeId) {
+        }
+
+        @Override
+        public void onSensorData(int nodeId, List<SensorReading> sensors) {
+            events.add(sensors);
+        }
+
+        @Override
+        public void onActuatorStateChanged(int nodeId, int actuatorId, boolean isOn) {
+            events.add(actuatorId + "=" + isOn);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ControlPanelLogic logic = new ControlPanelLogic();
+        logic.addListener(new RecordingListener());
+        channel = new InProcessCommunicationChannel(CONTROL_PANEL_ID, logic);
+        logic.setCommunicationChannel(channel);
+        logic.setCommunicationChannelListener(closed::countDown);
+        node = new SensorActuatorNode(NODE_ID);
+        fan = new Actuator("fan", NODE_ID);
+        node.addActuator(fan);
+        channel.addNode(node);
+        channel.open("CONTROL_PANEL");
+        SensorActuatorNodeInfo added = (SensorActuatorNodeInfo) events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(added);
+        assertEquals(NODE_ID, added.getId());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.close();
+        // The next test registers the same IDs, the clients of this one must be gone first
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void sensorDataReachesTheControlPanel() throws Exception {
+        channel.sendSensorData(NODE_ID, fan.getId(), "fan", false, "temperature", 21.5);
+
+        assertEquals(List.of(new SensorReading("temperature", 21.5, "")), events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void actuatorChangeOfTheNodeReachesTheControlPanel() throws Exception {
+        node.setActuator(fan.getId(), true);
+
+        assertEquals(fan.getId() + "=true", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void commandOfTheControlPanelSwitchesTheActuator() throws Exception {
+        channel.sendActuatorChange(NODE_ID, fan.getId(), true);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!fan.isOn() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(fan.isOn());
+    }
+
+    @Test
+    public void openingAgainAnnouncesTheNodesAgain() throws Exception {
+        channel.open("CONTROL_PANEL");
+
+        SensorActuatorNodeInfo added = (SensorActuatorNodeInfo) events.poll(5, TimeUnit.SECONDS);
+        assertNotNull(added);
+        assertEquals(NODE_ID, added.getId());
+    }
+}
@@ -0,0 +1,41 @@
+package no.ntnu.network.client;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SocketSensorActuatorCommunicationChannel}.
+ */
+public class SocketSensorActuatorCommunicationChannelTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keepsTheLastStateVersionForTheNextRun() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("node-7.version");
+        SocketSensorActuatorCommunicationChannel firstRun =
+                new SocketSensorActuatorCommunicationChannel("localhost", 0);
+        assertEquals(0, firstRun.keepStateVersionIn(file));
+
+        firstRun.stateVersionReceived(1792402262905002L, false);
+        firstRun.stateVersionReceived(1792402262905009L, true);
+
+        SocketSensorActuatorCommunicationChannel nextRun =
+                new SocketSensorActuatorCommunicationChannel("localhost", 0);
+        assertEquals(1792402262905009L, nextRun.keepStateVersionIn(file));
+    }
+
+    @Test
+    public void unreadableStateVersionMeansFullRegistration() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("node-8.version");
+        Files.writeString(file, "garbage");
+
+        assertEquals(0, new SocketSensorActuatorCommunicationChannel("localhost", 0).keepStateVersionIn(file));
+    }
+}
@@ -0,0 +1,25 @@
+package no.ntnu.network.client.clientinfo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ControlPanelClientInfo}.
+ */
+public class ControlPanelClientInfoTest {
+
+    @Test
+    public void actuatorBatchIsDeliveredAsOneMessage() {
+        StringWriter sent = new StringWriter();
+        ControlPanelClientInfo controlPanel = new ControlPanelClientInfo(1, "localhost", 0, new PrintWriter(sent));
+
+        controlPanel.deliverActuatorStates(3, new int[] {1, 2, 5}, new boolean[] {true, false, true});
+
+        assertEquals("{\"type\":\"actuator_states\",\"nodeid\":3,\"actuators\":[{\"actuatorid\":1,\"ison\":true},"
+                + "{\"actuatorid\":2,\"ison\":false},{\"actuatorid\":5,\"ison\":true}]}" + System.lineSeparator(),
+                sent.toString());
+    }
+}
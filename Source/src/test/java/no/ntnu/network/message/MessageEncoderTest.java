@@ -0,0 +1,96 @@
+package no.ntnu.network.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MessageEncoder}.
+ */
+public class MessageEncoderTest {
+
+    private static final int WARM_UP_MESSAGES = 200_000;
+    private static final int MEASURED_MESSAGES = 100_000;
+
+    /**
+     * An output stream which drops the bytes, so only the encoder can allocate.
+     */
+    private static class DiscardingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    private static void encodeSensorData(MessageEncoder encoder, OutputStream out, int i) throws Exception {
+        encoder.beginMessage("sensor_data")
+                .field("nodeid", i & 7)
+                .field("sensortype", "temperature")
+                .field("value", 20.0 + (i & 255) / 16.0)
+                .field("unit", "°C")
+                .field("ison", (i & 1) == 0)
+                .endMessage()
+                .writeTo(out);
+    }
+
+    @Test
+    public void encodesOneLineOfJson() {
+        String message = MessageEncoder.forCurrentThread()
+                .beginMessage("sensor_data")
+                .field("nodeid", 3)
+                .field("value", 21.5)
+                .field("unit", "°C \"x\"")
+                .field("ison", true)
+                .field("name", (String) null)
+                .endMessage()
+                .toString();
+        assertEquals("{\"type\":\"sensor_data\",\"nodeid\":3,\"value\":21.5,\"unit\":\"°C \\\"x\\\"\","
+                + "\"ison\":true,\"name\":null}", message);
+        // The line ends with a newline when sent, which toString() leaves out
+        assertEquals(message.getBytes(StandardCharsets.UTF_8).length + 1,
+                MessageEncoder.forCurrentThread().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonFiniteNumbers() {
+        MessageEncoder.forCurrentThread().beginMessage("sensor_data").field("value", Double.NaN);
+    }
+
+    @Test
+    public void steadyStateEncodingAllocatesNothing() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+        MessageEncoder encoder = MessageEncoder.forCurrentThread();
+        DiscardingOutputStream out = new DiscardingOutputStream();
+
+        for (int i = 0; i < WARM_UP_MESSAGES; ++i) {
+            encodeSensorData(encoder, out, i);
+        }
+        // The cost of reading the counter itself, subtracted from the measurement
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_MESSAGES; ++i) {
+            encodeSensorData(encoder, out, i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+
+        assertEquals("Bytes allocated by " + MEASURED_MESSAGES + " messages", 0, allocated);
+    }
+}
@@ -0,0 +1,100 @@
+package no.ntnu.network.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import no.ntnu.greenhouse.SensorReading;
+import org.junit.Test;
+
+/**
+ * Tests for the streaming decoding in {@link MessageHandler}.
+ */
+public class MessageHandlerTest {
+
+    @Test
+    public void parsesBatchOfReadings() {
+        String message = MessageHandler.validateMessageFormat("{\"type\": \"sensor_data\", \"nodeId\": 3, "
+                + "\"sensorData\": [{\"type\": \"temperature\", \"value\": 27.4, \"unit\": \"°C\"}, "
+                + "{\"type\": \"humidity\", \"value\": 60, \"unit\": \"%\"}]}");
+
+        SensorDataMessage sensorData = MessageHandler.parseSensorData(message);
+
+        assertEquals(3, sensorData.getNodeId());
+        assertEquals(List.of(new SensorReading("temperature", 27.4, "°c"), new SensorReading("humidity", 60, "%")),
+                sensorData.getReadings());
+    }
+
+    @Test
+    public void parsesSingleReading() {
+        String message = MessageHandler.validateMessageFormat(
+                "{\"type\":\"sensor_data\",\"sensorType\":\"temperature\",\"sensorValue\":21.5,\"nodeId\":7}");
+
+        SensorDataMessage sensorData = MessageHandler.parseSensorData(message);
+
+        assertEquals(7, sensorData.getNodeId());
+        assertEquals(List.of(new SensorReading("temperature", 21.5, "")), sensorData.getReadings());
+    }
+
+    @Test
+    public void parsesTimeOfReadings() {
+        String message = MessageHandler.validateMessageFormat(
+                "{\"type\":\"sensor_data\",\"sensorType\":\"temperature\",\"sensorValue\":21.5,\"nodeId\":7,"
+                        + "\"timestamp\":1700000000000}");
+
+        assertEquals(1700000000000L, MessageHandler.parseSensorData(message).getTimestamp());
+    }
+
+    @Test
+    public void sensorDataWithoutTimeHasNoTimestamp() {
+        assertEquals(SensorDataMessage.NO_TIMESTAMP,
+                MessageHandler.parseSensorData("{\"type\":\"sensor_data\",\"nodeid\":2}").getTimestamp());
+    }
+
+    @Test
+    public void sensorDataWithoutNodeIsIgnored() {
+        assertNull(MessageHandler.parseSensorData("{\"type\":\"sensor_data\",\"sensordata\":[]}"));
+    }
+
+    @Test
+    public void sensorDataWithoutReadingsIsEmpty() {
+        assertTrue(MessageHandler.parseSensorData("{\"type\":\"sensor_data\",\"nodeid\":2}").getReadings().isEmpty());
+    }
+
+    @Test
+    public void findsTypeAfterOtherFields() {
+        assertEquals("sensor_data",
+                MessageHandler.getMessageType("{\"nodeid\":2,\"sensordata\":[{\"type\":\"x\"}],\"type\":\"sensor_data\"}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void messageWithoutTypeIsRejected() {
+        MessageHandler.getMessageType("{\"nodeid\":2}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedMessageIsRejected() {
+        MessageHandler.validateMessageFormat("{\"type\":\"sensor_data\",\"nodeid\":");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trailingDataIsRejected() {
+        MessageHandler.validateMessageFormat("{\"type\":\"sensor_data\"}{\"type\":\"sensor_data\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericNodeIsRejected() {
+        MessageHandler.parseSensorData("{\"type\":\"sensor_data\",\"nodeid\":\"three\"}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readingWithoutTypeIsRejected() {
+        MessageHandler.parseSensorData("{\"type\":\"sensor_data\",\"nodeid\":2,\"sensordata\":[{\"value\":1}]}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericActuatorIsRejected() {
+        MessageHandler.parseControlCommand("{\"type\":\"actuator_control\",\"nodeid\":2,\"actuatorid\":\"one\"}");
+    }
+}
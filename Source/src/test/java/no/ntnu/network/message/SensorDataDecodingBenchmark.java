@@ -0,0 +1,85 @@
+package no.ntnu.network.message;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.greenhouse.SensorReading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to decode one sensor data message from a node, the way the client handler does it: validate
+ * the message, find its type and decode the readings. The tree benchmark is the earlier decoding, which parsed
+ * the message into a JsonObject for each of these steps, kept here for comparison.
+ * Run with {@code org.openjdk.jmh.Main SensorDataDecodingBenchmark}, see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorDataDecodingBenchmark {
+
+    private static final String[] SENSOR_TYPES = {"temperature", "humidity", "light", "co2", "soil"};
+
+    @Param({"1", "5"})
+    public int readingCount;
+
+    private final Gson gson = new Gson();
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder readings = new StringBuilder();
+        for (int i = 0; i < readingCount; ++i) {
+            if (i > 0) {
+                readings.append(", ");
+            }
+            readings.append("{\"type\": \"").append(SENSOR_TYPES[i]).append("\", \"value\": ").append(20.5 + i)
+                    .append(", \"unit\": \"u\"}");
+        }
+        message = "{\"type\": \"sensor_data\", \"nodeId\": 3, \"sensorData\": [" + readings + "]}";
+    }
+
+    /**
+     * The streaming decoding used by the client handler.
+     */
+    @Benchmark
+    public int streaming() {
+        String clientMessage = MessageHandler.validateMessageFormat(message);
+        if (!"sensor_data".equals(MessageHandler.getMessageType(clientMessage))) {
+            throw new IllegalStateException();
+        }
+        SensorDataMessage sensorData = MessageHandler.parseSensorData(clientMessage);
+        return sensorData.getNodeId() + sensorData.getReadings().size();
+    }
+
+    /**
+     * The earlier decoding, which built a JsonObject to validate, to find the type and to find the node.
+     */
+    @Benchmark
+    public int tree() {
+        String clientMessage = message.toLowerCase().replaceAll("\\s", "");
+        gson.fromJson(clientMessage, JsonObject.class);
+        String type = gson.fromJson(clientMessage, JsonObject.class).get("type").getAsString();
+        if (!"sensor_data".equals(type)) {
+            throw new IllegalStateException();
+        }
+        JsonObject sensorDataObject = gson.fromJson(clientMessage, JsonObject.class);
+        int nodeId = sensorDataObject.getAsJsonPrimitive("nodeid").getAsInt();
+        List<SensorReading> readings = MessageHandler.parseSensorDataMessage(clientMessage);
+        return nodeId + readings.size();
+    }
+}
@@ -0,0 +1,84 @@
+package no.ntnu.network.recording;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.message.SensorFrame;
+import no.ntnu.network.message.SensorFrameCodec;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SensorRecorder}.
+ */
+public class SensorRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesTheRecordedFramesInOrder() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sensors.rec");
+        SensorRecorder recorder = SensorRecorder.create(file);
+        for (int i = 0; i < 1000; ++i) {
+            recorder.record(i % 3, 1000L + i, List.of(new SensorReading("temperature", i, "°C"),
+                    new SensorReading("humidity", 50, "%")));
+        }
+        recorder.close();
+
+        List<SensorFrame> frames = readFrames(file);
+        assertEquals(2000, frames.size());
+        assertEquals(2000, recorder.getRecordedFrames());
+        for (int i = 0; i < 1000; ++i) {
+            SensorFrame frame = frames.get(2 * i);
+            assertEquals(i % 3, frame.getNodeId());
+            assertEquals(1000L + i, frame.getTimestamp());
+            assertEquals(i, frame.getReading().getValue(), 0);
+        }
+    }
+
+    @Test
+    public void skipsReadingsWhichDontFitInAFrame() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sensors.rec");
+        SensorRecorder recorder = SensorRecorder.create(file);
+        String longType = "a-sensor-type-name-far-too-long-to-fit-in-one-binary-sensor-frame";
+        recorder.record(1, 1000, List.of(new SensorReading("temperature", 20, "°C"),
+                new SensorReading(longType, 1, "x"), new SensorReading("humidity", 60, "%")));
+        recorder.close();
+
+        List<SensorFrame> frames = readFrames(file);
+        assertEquals(2, frames.size());
+        assertEquals("temperature", frames.get(0).getReading().getType());
+        assertEquals("humidity", frames.get(1).getReading().getType());
+        assertEquals(1, recorder.getSkippedFrames());
+    }
+
+    @Test
+    public void copiesTheReadingsBeforeReturning() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("sensors.rec");
+        SensorRecorder recorder = SensorRecorder.create(file);
+        SensorReading reading = new SensorReading("temperature", 20, "°C");
+        recorder.record(1, 1000, List.of(reading));
+        reading.setValue(30);
+        recorder.close();
+
+        assertEquals(20, readFrames(file).get(0).getReading().getValue(), 0);
+    }
+
+    private static List<SensorFrame> readFrames(Path file) throws Exception {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(SensorRecorder.MAGIC, buffer.getInt());
+        assertEquals(SensorRecorder.VERSION, buffer.getInt());
+        List<SensorFrame> frames = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            frames.add(SensorFrameCodec.decode(buffer));
+        }
+        return frames;
+    }
+}
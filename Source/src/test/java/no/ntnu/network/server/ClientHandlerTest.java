@@ -0,0 +1,101 @@
+package no.ntnu.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.client.clientinfo.ControlPanelClientInfo;
+import no.ntnu.network.client.clientinfo.SensorActuatorClientInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ClientHandler}, with a sensor/actuator client connected over a loopback socket.
+ */
+public class ClientHandlerTest {
+
+    // Far from the IDs handed out by the device factory and other tests
+    private static final int NODE_ID = 29_001;
+    private static final int OTHER_NODE_ID = 29_002;
+    private static final int CONTROL_PANEL_ID = 29_003;
+
+    private final BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+    private ServerSocket serverSocket;
+    private Socket client;
+    private PrintWriter out;
+    private BufferedReader in;
+
+    @Before
+    public void setUp() throws Exception {
+        SmartFarmingServer.registerControlPanelClient(new ControlPanelClientInfo(CONTROL_PANEL_ID, "test", 0, null) {
+            @Override
+            public void deliverSensorData(int nodeId, List<SensorReading> readings) {
+                delivered.add(nodeId + ":" + readings.get(0).getValue());
+            }
+        });
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        Socket accepted = serverSocket.accept();
+        PrintWriter acceptedWriter = new PrintWriter(accepted.getOutputStream(), true);
+        SmartFarmingServer.sensorActuatorClientInfoMap.put(accepted.getPort(), new SensorActuatorClientInfo(NODE_ID,
+                1, "fan", false, "temperature", 20, "test", accepted.getPort(), acceptedWriter));
+        Thread handler = new Thread(new ClientHandler(accepted, acceptedWriter, "SENSOR_ACTUATOR"));
+        handler.setDaemon(true);
+        handler.start();
+        out = new PrintWriter(client.getOutputStream(), true);
+        in = new BufferedReader(new InputStreamReader(client.getInputStream()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        serverSocket.close();
+        SmartFarmingServer.removeControlPanelClient(CONTROL_PANEL_ID);
+        SmartFarmingServer.removeSensorActuatorClient(NODE_ID);
+    }
+
+    @Test
+    public void sensorDataIsStoredForTheNodeOfTheConnection() throws Exception {
+        out.println("{\"type\":\"sensor_data\",\"nodeid\":" + OTHER_NODE_ID
+                + ",\"sensordata\":[{\"type\":\"temperature\",\"value\":21.5,\"unit\":\"C\"}]}");
+
+        assertEquals(NODE_ID + ":21.5", delivered.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readingWithoutTypeIsAnsweredWithAWarning() throws Exception {
+        out.println("{\"type\":\"sensor_data\",\"nodeid\":" + NODE_ID + ",\"sensordata\":[{\"value\":21.5}]}");
+
+        assertNotNull(readWarning());
+        assertEquals(0, delivered.size());
+    }
+
+    @Test
+    public void invalidActuatorIdIsAnsweredWithAWarning() throws Exception {
+        out.println("{\"type\":\"actuator_control\",\"nodeid\":" + NODE_ID + ",\"actuatorid\":\"one\",\"ison\":true}");
+
+        assertNotNull(readWarning());
+    }
+
+    private String readWarning() throws Exception {
+        client.setSoTimeout(5000);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.contains("\"WARNING\"")) {
+                return line;
+            }
+        }
+        return null;
+    }
+}
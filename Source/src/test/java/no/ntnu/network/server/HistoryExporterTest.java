@@ -0,0 +1,98 @@
+package no.ntnu.network.server;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.server.history.ExportFormat;
+import no.ntnu.network.server.history.HistoryExport;
+import no.ntnu.network.server.history.SensorHistory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link HistoryExporter}.
+ */
+public class HistoryExporterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SensorHistory history = new SensorHistory();
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private HistoryExporter exporter;
+
+    /**
+     * A client connection which stops taking text once armed, like a client which stopped reading.
+     */
+    private class StalledClient extends Writer {
+        private volatile boolean armed;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            if (armed) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        exporter = new HistoryExporter(folder.newFolder("exports").toPath());
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 100; ++i) {
+            history.append(1, now + i, List.of(new SensorReading("temperature", 20 + i % 5, "°C")));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        unblock.countDown();
+        exporter.stop();
+    }
+
+    private HistoryExport newExport() {
+        return new HistoryExport(history, List.of(), Long.MIN_VALUE, Long.MAX_VALUE, ExportFormat.CSV);
+    }
+
+    @Test
+    public void stalledClientDoesNotHoldUpOtherClients() throws Exception {
+        StalledClient stalled = new StalledClient();
+        exporter.exportToClient(newExport(), new PrintWriter(stalled));
+        stalled.armed = true;
+
+        StringWriter received = new StringWriter();
+        PrintWriter client = new PrintWriter(received);
+        exporter.exportToClient(newExport(), client);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!received.toString().contains("export_end") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(received.toString().contains("\"type\":\"export_end\",\"exportid\":2,\"rows\":100"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fileOutsideExportDirectoryIsRejected() {
+        exporter.exportToFile(newExport(), "../day1.csv", new PrintWriter(new StringWriter()));
+    }
+}
@@ -0,0 +1,79 @@
+package no.ntnu.network.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the sequence window of {@link UdpTelemetryListener.UdpSession}.
+ */
+public class UdpSessionTest {
+
+    @Test
+    public void acceptsDatagramsInOrder() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        for (int sequence = 0; sequence < 200; ++sequence) {
+            assertTrue(session.accept(sequence));
+        }
+        assertEquals(200, session.getReceived());
+        assertEquals(0, session.getLost());
+    }
+
+    @Test
+    public void dropsDuplicates() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        assertTrue(session.accept(0));
+        assertTrue(session.accept(1));
+        assertFalse(session.accept(1));
+        assertFalse(session.accept(0));
+        assertEquals(2, session.getDuplicates());
+    }
+
+    @Test
+    public void countsGapsAsLostUntilTheyArrive() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        assertTrue(session.accept(0));
+        assertTrue(session.accept(4));
+        assertEquals(3, session.getLost());
+
+        // Late, but inside the reorder window
+        assertTrue(session.accept(2));
+        assertEquals(2, session.getLost());
+        assertFalse(session.accept(2));
+    }
+
+    @Test
+    public void dropsDatagramsOlderThanTheWindow() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        assertTrue(session.accept(0));
+        assertTrue(session.accept(100));
+        assertFalse(session.accept(10));
+    }
+
+    @Test
+    public void followsSequenceNumbersAcrossTheWrapAround() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        assertTrue(session.accept(-3));
+        assertTrue(session.accept(-2));
+        // The sequence number after -1 (0xffffffff) is 0, so -1 and 0 are missing
+        assertTrue(session.accept(1));
+        assertEquals(2, session.getLost());
+
+        // Late, from before the wrap
+        assertTrue(session.accept(-1));
+        assertEquals(1, session.getLost());
+        assertFalse(session.accept(-2));
+        assertEquals(1, session.getDuplicates());
+    }
+
+    @Test
+    public void followsSequenceNumbersPastTheLargestInt() {
+        UdpTelemetryListener.UdpSession session = new UdpTelemetryListener.UdpSession(1);
+        assertTrue(session.accept(Integer.MAX_VALUE));
+        assertTrue(session.accept(Integer.MIN_VALUE));
+        assertFalse(session.accept(Integer.MAX_VALUE));
+        assertEquals(0, session.getLost());
+    }
+}
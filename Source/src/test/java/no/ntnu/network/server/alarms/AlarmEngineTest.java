@@ -0,0 +1,164 @@
+package no.ntnu.network.server.alarms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.greenhouse.SensorReading;
+import no.ntnu.network.server.rules.Comparison;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AlarmEngine}.
+ */
+public class AlarmEngineTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final AlarmEngine engine = new AlarmEngine(
+            event -> events.add((event.isRaised() ? "raised " : "cleared ") + event.getNodeId() + "@"
+                    + event.getTimestamp()));
+
+    private void humidity(int nodeId, long timestamp, double value) {
+        engine.evaluate(nodeId, timestamp, List.of(new SensorReading("humidity", value, "%")));
+    }
+
+    @Test
+    public void raisesOnlyAfterTheConditionHeldForTheDelay() {
+        engine.add(new AlarmRule("wet", AlarmRule.ANY_NODE, "humidity", Comparison.fromSymbol(">"), 95, 0, 1000));
+
+        humidity(1, 0, 96);
+        humidity(1, 500, 97);
+        assertEquals(List.of(), events);
+        humidity(1, 1000, 96);
+        humidity(1, 1500, 98);
+
+        assertEquals(List.of("raised 1@1000"), events);
+    }
+
+    @Test
+    public void aReadingBelowTheThresholdRestartsTheDelay() {
+        engine.add(new AlarmRule("wet", AlarmRule.ANY_NODE, "humidity", Comparison.fromSymbol(">"), 95, 0, 1000));
+
+        humidity(1, 0, 96);
+        humidity(1, 900, 90);
+        humidity(1, 1000, 96);
+        humidity(1, 1900, 96);
+        assertEquals(List.of(), events);
+        humidity(1, 2000, 96);
+
+        assertEquals(List.of("raised 1@2000"), events);
+    }
+
+    @Test
+    public void clearsOnlyPastTheHysteresis() {
+        engine.add(new AlarmRule("wet", AlarmRule.ANY_NODE, "humidity", Comparison.fromSymbol(">"), 95, 2, 0));
+
+        humidity(1, 0, 96);
+        // Between 93 and 95: the alarm stays raised, however often the value crosses the threshold
+        humidity(1, 1, 94);
+        humidity(1, 2, 95.5);
+        humidity(1, 3, 93.5);
+        assertEquals(List.of("raised 1@0"), events);
+        humidity(1, 4, 93);
+        humidity(1, 5, 92);
+
+        assertEquals(List.of("raised 1@0", "cleared 1@4"), events);
+    }
+
+    @Test
+    public void keepsTheStateOfEachNodeApart() {
+        engine.add(new AlarmRule("wet", AlarmRule.ANY_NODE, "humidity", Comparison.fromSymbol(">"), 95, 0, 100));
+        engine.add(new AlarmRule("wet 2", 2, "humidity", Comparison.fromSymbol(">"), 80, 0, 0));
+
+        humidity(1, 0, 96);
+        humidity(2, 50, 85);
+        humidity(1, 100, 96);
+        humidity(2, 100, 70);
+
+        assertEquals(List.of("raised 2@50", "raised 1@100", "cleared 2@100"), events);
+    }
+
+    @Test
+    public void keepsTheStateOfEachSensorApart() {
+        List<String> sensors = new ArrayList<>();
+        AlarmEngine bySensor = new AlarmEngine(event -> sensors.add(
+                (event.isRaised() ? "raised " : "cleared ") + event.getSensorIndex() + "@" + event.getTimestamp()));
+        bySensor.add(new AlarmRule("wet", 1, "humidity", Comparison.fromSymbol(">"), 95, 2, 100));
+
+        // While the second humidity sensor stays dry, it neither restarts the delay of the first one nor clears it
+        for (long timestamp = 0; timestamp <= 200; timestamp += 50) {
+            bySensor.evaluate(1, timestamp, List.of(new SensorReading("humidity", 96, "%"),
+                    new SensorReading("temperature", 20, "°C"), new SensorReading("humidity", 60, "%")));
+        }
+        for (long timestamp = 250; timestamp <= 350; timestamp += 50) {
+            bySensor.evaluate(1, timestamp, List.of(new SensorReading("humidity", 92, "%"),
+                    new SensorReading("temperature", 20, "°C"), new SensorReading("humidity", 97, "%")));
+        }
+
+        assertEquals(List.of("raised 0@100", "cleared 0@250", "raised 2@350"), sensors);
+        assertEquals(1, bySensor.getActiveAlarms().size());
+        assertEquals(2, bySensor.getActiveAlarms().get(0).getSensorIndex());
+    }
+
+    @Test
+    public void removingARuleClearsItsAlarmsForGood() {
+        int alarmId = engine.add(
+                new AlarmRule("wet", AlarmRule.ANY_NODE, "humidity", Comparison.fromSymbol(">"), 95, 0, 0));
+        humidity(1, 0, 96);
+
+        AlarmRule removed = engine.remove(alarmId);
+        // A reading which was already checking the removed rule doesn't raise it again
+        removed.evaluate(1, 0, 97, 10, event -> events.add("late " + event));
+        humidity(1, 20, 97);
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(1).startsWith("cleared 1@"));
+        assertEquals(List.of(), engine.getActiveAlarms());
+    }
+
+    @Test
+    public void deliversTheEventsOfAnAlarmInOrderThroughTheDispatcher() throws Exception {
+        int threads = 4;
+        int readingsPerThread = 20000;
+        List<Boolean> delivered = new ArrayList<>();
+        ExecutorService dispatcher = Executors.newSingleThreadExecutor();
+        AlarmEngine dispatched = new AlarmEngine(event -> delivered.add(event.isRaised()), dispatcher);
+        dispatched.add(new AlarmRule("wet", 1, "humidity", Comparison.fromSymbol(">"), 95, 0, 0));
+        List<SensorReading> wet = List.of(new SensorReading("humidity", 96, "%"));
+        List<SensorReading> dry = List.of(new SensorReading("humidity", 90, "%"));
+
+        // Every thread flips the alarm back and forth, racing the others
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> ingest = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < readingsPerThread; ++i) {
+                    dispatched.evaluate(1, i, i % 2 == 0 ? wet : dry);
+                }
+            });
+            thread.start();
+            ingest.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : ingest) {
+            thread.join();
+        }
+        dispatcher.shutdown();
+        assertTrue(dispatcher.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(delivered.size() > 0);
+        for (int i = 0; i < delivered.size(); ++i) {
+            assertEquals("Event " + i + " alternates raised and cleared", i % 2 == 0, delivered.get(i));
+        }
+    }
+}
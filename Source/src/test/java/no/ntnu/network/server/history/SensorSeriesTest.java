@@ -0,0 +1,140 @@
+package no.ntnu.network.server.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SensorSeries}.
+ */
+public class SensorSeriesTest {
+
+    private static final long MINUTE = HistoryTier.MINUTE.getBucketMillis();
+    private static final long HOUR = HistoryTier.HOUR.getBucketMillis();
+    private static final long START = 1_700_000_000_000L / HOUR * HOUR;
+
+    @Test
+    public void samplesSurviveCompression() {
+        SensorSeries series = new SensorSeries();
+        Random random = new Random(43);
+        int count = 3 * SensorSeries.BLOCK_SIZE + 17;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+        long timestamp = START;
+        double[] special = {0.0, -0.0, Double.NaN, Double.MAX_VALUE, -Double.MIN_VALUE, 1e300};
+        for (int i = 0; i < count; ++i) {
+            // Mostly a fixed period, sometimes jitter, a long gap or the same time again
+            timestamp += random.nextInt(10) == 0 ? random.nextInt(1_000_000) : 5000;
+            timestamps[i] = timestamp;
+            values[i] = i % 100 == 0 ? special[i / 100 % special.length] : 20 + random.nextGaussian();
+            series.append(timestamps[i], values[i]);
+        }
+
+        HistoryCursor cursor = series.query(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int i = 0; i < count; ++i) {
+            assertTrue(cursor.next());
+            assertEquals(timestamps[i], cursor.getTimestamp());
+            assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(cursor.getValue()));
+        }
+        assertFalse(cursor.next());
+        assertEquals(count, series.getSampleCount());
+        assertEquals(4, series.getBlocks().size());
+    }
+
+    @Test
+    public void queryReturnsOnlyTheRange() {
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < 2 * SensorSeries.BLOCK_SIZE; ++i) {
+            series.append(START + i * 1000L, i);
+        }
+
+        HistoryCursor cursor = series.query(START + 1000_000, START + 1100_000);
+
+        for (int i = 1000; i < 1100; ++i) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.getValue(), 0);
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void aggregateMatchesTheSamples() {
+        SensorSeries series = new SensorSeries();
+        Random random = new Random(44);
+        double[] values = new double[5 * SensorSeries.BLOCK_SIZE];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = Math.round(random.nextDouble() * 10_000) / 100.0;
+            series.append(START + i * 5000L, values[i]);
+        }
+        int first = 700;
+        int last = 4000;
+
+        HistoryAggregate aggregate = series.aggregate(START + first * 5000L, START + last * 5000L);
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = first; i < last; ++i) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+            sum += values[i];
+        }
+        assertEquals(last - first, aggregate.getCount());
+        assertEquals(min, aggregate.getMin(), 0);
+        assertEquals(max, aggregate.getMax(), 0);
+        assertEquals(sum, aggregate.getSum(), 1e-6);
+    }
+
+    @Test
+    public void periodicSlowlyChangingSamplesTakeAFewBits() {
+        SensorSeries series = new SensorSeries();
+        for (int i = 0; i < 10 * SensorSeries.BLOCK_SIZE; ++i) {
+            series.append(START + i * 5000L, 20 + (i / 50) * 0.01);
+        }
+
+        assertTrue(series.getSizeInBytes() < 10 * SensorSeries.BLOCK_SIZE / 2);
+    }
+
+    @Test
+    public void lateSampleIsAddedToItsMinute() {
+        SensorSeries series = new SensorSeries();
+        series.append(START + 1000, 10);
+        series.compact(START + MINUTE + 5);
+        // Received just before the compaction, appended just after it
+        series.append(START + MINUTE - 1, 30);
+        // Expire every raw sample, leaving only the rollups
+        series.purge(START + 2 * MINUTE, Long.MIN_VALUE, Long.MIN_VALUE);
+
+        List<HistoryBucket> minutes = series.query(START, START + MINUTE, MINUTE);
+
+        assertEquals(1, minutes.size());
+        assertEquals(2, minutes.get(0).getCount());
+        assertEquals(10, minutes.get(0).getMin(), 0);
+        assertEquals(30, minutes.get(0).getMax(), 0);
+        assertEquals(40, minutes.get(0).getSum(), 0);
+    }
+
+    @Test
+    public void lateSampleIsAddedToItsHour() {
+        SensorSeries series = new SensorSeries();
+        series.append(START + 1000, 10);
+        series.compact(START + HOUR + 5);
+        series.append(START + 3 * MINUTE, 20);
+        series.append(START + HOUR - 1, 30);
+        series.purge(START + HOUR, Long.MIN_VALUE, Long.MIN_VALUE);
+
+        List<HistoryBucket> minutes = series.query(START, START + HOUR, MINUTE);
+        List<HistoryBucket> hours = series.query(START, START + HOUR, HOUR);
+
+        // The minute of the late sample had no rollup, it is inserted in time order
+        assertEquals(List.of(START, START + 3 * MINUTE, START + HOUR - MINUTE),
+                minutes.stream().map(HistoryBucket::getStart).toList());
+        assertEquals(1, hours.size());
+        assertEquals(3, hours.get(0).getCount());
+        assertEquals(60, hours.get(0).getSum(), 0);
+    }
+}
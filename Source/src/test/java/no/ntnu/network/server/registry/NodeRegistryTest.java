@@ -0,0 +1,83 @@
+package no.ntnu.network.server.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import no.ntnu.greenhouse.SensorReading;
+import org.junit.Test;
+
+/**
+ * Tests for {@link NodeRegistry}.
+ */
+public class NodeRegistryTest {
+
+    @Test
+    public void actuatorStateKeepsVersion() {
+        NodeRegistry registry = new NodeRegistry();
+        NodeState node = registry.register(3, 1, "fan", false, "temperature", 20);
+        long version = node.getVersion();
+
+        registry.updateActuatorState(3, 1, true);
+        registry.register(3, 1, "fan", false, "temperature", 21);
+
+        assertEquals(version, node.getVersion());
+        assertEquals(Boolean.FALSE, node.getActuatorState(1));
+    }
+
+    @Test
+    public void newActuatorChangesVersion() {
+        NodeRegistry registry = new NodeRegistry();
+        NodeState node = registry.register(3, 1, "fan", false, "temperature", 20);
+        long version = node.getVersion();
+
+        registry.register(3, 2, "heater", false, "temperature", 20);
+        long heaterVersion = node.getVersion();
+        registry.register(3, 2, "window", false, "temperature", 20);
+
+        assertTrue(heaterVersion > version);
+        assertTrue(node.getVersion() > heaterVersion);
+    }
+
+    @Test
+    public void sensorValuesKeepVersion() {
+        NodeRegistry registry = new NodeRegistry();
+        NodeState node = registry.register(3, 1, "fan", false, "temperature", 20);
+        long version = node.getVersion();
+        long changes = registry.getChangeCount();
+
+        registry.updateSensorValues(3, 1000, List.of(new SensorReading("temperature", 21, "°C")));
+
+        assertEquals(version, node.getVersion());
+        assertEquals(21, node.getSensorValue("temperature"), 0);
+        assertTrue(registry.getChangeCount() > changes);
+    }
+
+    @Test
+    public void actuatorBatchKeepsVersion() {
+        NodeRegistry registry = new NodeRegistry();
+        NodeState node = registry.register(3, 1, "fan", false, "temperature", 20);
+        long version = node.getVersion();
+
+        registry.updateActuatorStates(3, new int[] {1, 7}, new boolean[] {true, true});
+
+        assertEquals(version, node.getVersion());
+        assertEquals(Boolean.TRUE, node.getActuatorState(1));
+        // Actuators the node never registered are not created by a state change
+        assertNull(node.getActuatorState(7));
+    }
+
+    @Test
+    public void restoredVersionsAreNotHandedOutAgain() {
+        NodeRegistry registry = new NodeRegistry();
+        NodeState restored = new NodeState(5, Long.MAX_VALUE / 2);
+        registry.restore(restored);
+
+        NodeState node = registry.register(6, 1, "fan", false, "temperature", 20);
+
+        assertTrue(node.getVersion() > restored.getVersion());
+        assertNotEquals(restored.getVersion(), node.getVersion());
+    }
+}
@@ -0,0 +1,57 @@
+package no.ntnu.network.server.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link RegistrySnapshot}.
+ */
+public class RegistrySnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register(1, 10, "fan", true, "temperature", 21.5);
+        registry.register(1, 11, "heater", false, "humidity", 60);
+        registry.register(2, 20, "window", false, "temperature", 18);
+        Path file = folder.getRoot().toPath().resolve("registry.snapshot");
+
+        assertEquals(2, RegistrySnapshot.write(registry, file));
+        NodeRegistry restored = new NodeRegistry();
+        assertEquals(2, RegistrySnapshot.read(restored, file));
+
+        for (NodeState node : registry.getNodes()) {
+            NodeState copy = restored.get(node.getNodeId());
+            assertEquals(node.getVersion(), copy.getVersion());
+            assertEquals(node.getSensorValues(), copy.getSensorValues());
+            assertEquals(node.getActuatorTypes(), copy.getActuatorTypes());
+            assertEquals(node.getActuatorStates(), copy.getActuatorStates());
+        }
+        assertFalse(Files.exists(file.resolveSibling("registry.snapshot.tmp")));
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        Path file = folder.newFile("other").toPath();
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+
+        try {
+            RegistrySnapshot.read(new NodeRegistry(), file);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Not a registry snapshot"));
+        }
+    }
+}
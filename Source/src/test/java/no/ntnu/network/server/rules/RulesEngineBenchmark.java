@@ -0,0 +1,76 @@
+package no.ntnu.network.server.rules;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.greenhouse.SensorReading;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to check one sensor data message against the rules, with thousands of rules spread over the
+ * nodes, some of them on the node and sensor types of the message. Half of the messages cross the thresholds of
+ * the matching rules, so their state changes and commands are part of the measurement.
+ * Run with {@code org.openjdk.jmh.Main RulesEngineBenchmark}, see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesEngineBenchmark {
+
+    private static final int NODES = 100;
+    private static final String[] SENSOR_TYPES = {"temperature", "humidity", "light", "co2", "soil"};
+
+    @Param({"1000", "10000"})
+    public int ruleCount;
+
+    private RulesEngine engine;
+    private List<SensorReading> cold;
+    private List<SensorReading> warm;
+    private long messages;
+    private long commands;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new RulesEngine((rule, isOn) -> ++commands);
+        for (int i = 0; i < ruleCount; ++i) {
+            int nodeId = i % NODES;
+            String sensorType = SENSOR_TYPES[(i / NODES) % SENSOR_TYPES.length];
+            engine.add(new Rule(nodeId, sensorType, Comparison.fromSymbol("<"), 18 + i % 5, 1, nodeId, 1, true));
+        }
+        cold = List.of(new SensorReading("temperature", 15, "°C"), new SensorReading("humidity", 15, "%"),
+                new SensorReading("light", 15, "lux"));
+        warm = List.of(new SensorReading("temperature", 30, "°C"), new SensorReading("humidity", 30, "%"),
+                new SensorReading("light", 30, "lux"));
+    }
+
+    /**
+     * A message whose readings don't change the state of any rule, the common case.
+     */
+    @Benchmark
+    public long steadyMessage() {
+        engine.evaluate(7, cold);
+        return commands;
+    }
+
+    /**
+     * A message which flips the state of every matching rule, each sending a command.
+     */
+    @Benchmark
+    public long switchingMessage() {
+        engine.evaluate(7, (++messages & 1) == 0 ? cold : warm);
+        return commands;
+    }
+}
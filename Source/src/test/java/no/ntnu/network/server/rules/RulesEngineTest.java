@@ -0,0 +1,139 @@
+package no.ntnu.network.server.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import no.ntnu.greenhouse.SensorReading;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RulesEngine}.
+ */
+public class RulesEngineTest {
+
+    private final List<String> commands = new ArrayList<>();
+    private final RulesEngine engine = new RulesEngine(
+            (rule, isOn) -> commands.add(rule.getRuleId() + (isOn ? " on" : " off")));
+
+    private void temperature(int nodeId, double value) {
+        engine.evaluate(nodeId, List.of(new SensorReading("temperature", value, "°C")));
+    }
+
+    @Test
+    public void aThresholdRuleFiresOncePerCrossing() {
+        int ruleId = engine.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, Double.NaN, 4, 1, true));
+
+        temperature(4, 20);
+        temperature(4, 17);
+        temperature(4, 16);
+        temperature(4, 19);
+        temperature(4, 17);
+
+        assertEquals(List.of(ruleId + " on", ruleId + " on"), commands);
+    }
+
+    @Test
+    public void aHysteresisRuleSwitchesBackPastTheHysteresis() {
+        int ruleId = engine.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, 2, 4, 1, true));
+
+        temperature(4, 17);
+        temperature(4, 19);
+        temperature(4, 17.5);
+        assertEquals(List.of(ruleId + " on"), commands);
+        temperature(4, 20);
+        temperature(4, 21);
+
+        assertEquals(List.of(ruleId + " on", ruleId + " off"), commands);
+    }
+
+    @Test
+    public void onlyChecksTheRulesOfTheNodeAndSensorType() {
+        engine.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, Double.NaN, 4, 1, true));
+        engine.add(new Rule(5, "humidity", Comparison.fromSymbol("<"), 18, Double.NaN, 5, 1, true));
+
+        temperature(5, 10);
+        engine.evaluate(4, List.of(new SensorReading("humidity", 10, "%")));
+
+        assertEquals(List.of(), commands);
+    }
+
+    @Test
+    public void sensorsOfOneTypeOnANodeAreCheckedTogether() {
+        int ruleId = engine.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, 1, 4, 1, true));
+
+        // One sensor on each side of the threshold and the hysteresis band: the average decides
+        for (int i = 0; i < 3; ++i) {
+            engine.evaluate(4, List.of(new SensorReading("temperature", 16, "°C"),
+                    new SensorReading("humidity", 70, "%"), new SensorReading("Temperature", 21, "°C")));
+        }
+        assertEquals(List.of(), commands);
+
+        engine.evaluate(4, List.of(new SensorReading("temperature", 15, "°C"),
+                new SensorReading("temperature", 20, "°C")));
+        engine.evaluate(4, List.of(new SensorReading("temperature", 16, "°C"),
+                new SensorReading("temperature", 19, "°C")));
+        engine.evaluate(4, List.of(new SensorReading("temperature", 18, "°C"),
+                new SensorReading("temperature", 21, "°C")));
+
+        assertEquals(List.of(ruleId + " on", ruleId + " off"), commands);
+    }
+
+    @Test
+    public void removedRulesDontFire() {
+        int ruleId = engine.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, Double.NaN, 4, 1, true));
+        engine.remove(ruleId);
+
+        temperature(4, 10);
+
+        assertEquals(List.of(), commands);
+        assertEquals(0, engine.getRules().size());
+    }
+
+    @Test
+    public void queuesTheCommandsOfARuleInTheOrderOfItsStateChanges() throws Exception {
+        int threads = 4;
+        int readingsPerThread = 50000;
+        List<Boolean> sent = new ArrayList<>();
+        // Like the server: the engine hands the commands to one command thread
+        ExecutorService commandThread = Executors.newSingleThreadExecutor();
+        RulesEngine queued = new RulesEngine((rule, isOn) -> commandThread.execute(() -> sent.add(isOn)));
+        queued.add(new Rule(4, "temperature", Comparison.fromSymbol("<"), 18, 0, 4, 1, true));
+        List<SensorReading> cold = List.of(new SensorReading("temperature", 15, "°C"));
+        List<SensorReading> warm = List.of(new SensorReading("temperature", 21, "°C"));
+
+        // Every thread flips the rule back and forth, racing the others
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> ingest = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < readingsPerThread; ++i) {
+                    queued.evaluate(4, i % 2 == 0 ? cold : warm);
+                }
+            });
+            thread.start();
+            ingest.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : ingest) {
+            thread.join();
+        }
+        commandThread.shutdown();
+        assertTrue(commandThread.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(sent.size() > 0);
+        for (int i = 0; i < sent.size(); ++i) {
+            assertEquals("Command " + i + " alternates on and off", i % 2 == 0, sent.get(i));
+        }
+    }
+}
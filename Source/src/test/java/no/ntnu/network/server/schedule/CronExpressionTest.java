@@ -0,0 +1,107 @@
+package no.ntnu.network.server.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CronExpression}, in a time zone with daylight saving time.
+ */
+public class CronExpressionTest {
+
+    private static final ZoneId OSLO = ZoneId.of("Europe/Oslo");
+
+    private static long local(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(OSLO).toInstant().toEpochMilli();
+    }
+
+    private static long offset(String dateTime) {
+        return OffsetDateTime.parse(dateTime).toInstant().toEpochMilli();
+    }
+
+    private static long next(String expression, long timeMillis) {
+        return CronExpression.parse(expression, OSLO).nextAfter(timeMillis);
+    }
+
+    @Test
+    public void findsTheNextMinute() {
+        assertEquals(local("2026-05-04T08:15"), next("15 8 * * *", local("2026-05-04T08:00")));
+        assertEquals(local("2026-05-05T08:15"), next("15 8 * * *", local("2026-05-04T08:15")));
+        assertEquals(local("2026-05-04T08:30"), next("*/15 * * * *", local("2026-05-04T08:15:30")));
+    }
+
+    @Test
+    public void rollsOverMonthEnds() {
+        assertEquals(local("2026-02-01T00:00"), next("0 0 1 * *", local("2026-01-31T23:59")));
+        // February and April have no 31st
+        assertEquals(local("2026-03-31T06:00"), next("0 6 31 * *", local("2026-01-31T07:00")));
+        assertEquals(local("2026-05-31T06:00"), next("0 6 31 * *", local("2026-03-31T07:00")));
+        assertEquals(local("2027-01-01T00:00"), next("0 0 * * *", local("2026-12-31T12:00")));
+    }
+
+    @Test
+    public void findsTheNextLeapDay() {
+        assertEquals(local("2028-02-29T12:00"), next("0 12 29 2 *", local("2026-03-01T00:00")));
+    }
+
+    @Test
+    public void givesUpOnDatesWhichNeverCome() {
+        assertEquals(Long.MAX_VALUE, next("0 0 30 2 *", local("2026-01-01T00:00")));
+    }
+
+    @Test
+    public void matchesEitherDayWhenBothAreRestricted() {
+        // 2026-05-01 is a Friday: the 10th comes before the next Monday only if Monday doesn't match first
+        assertEquals(local("2026-05-04T09:00"), next("0 9 10 * 1", local("2026-05-01T12:00")));
+        assertEquals(local("2026-05-10T09:00"), next("0 9 10 * 1", local("2026-05-04T12:00")));
+    }
+
+    @Test
+    public void treatsStarWithAStepAsUnrestricted() {
+        // */1 is every day of the month, so only the day of week restricts the day, like with *
+        assertEquals(local("2026-05-04T09:00"), next("0 9 */1 * 1", local("2026-05-01T12:00")));
+        assertEquals(local("2026-05-11T09:00"), next("0 9 */1 * 1", local("2026-05-04T12:00")));
+        assertEquals(local("2026-05-10T09:00"), next("0 9 10 * */1", local("2026-05-01T12:00")));
+    }
+
+    @Test
+    public void treatsSundayAsBothZeroAndSeven() {
+        // 2026-05-03 is a Sunday
+        assertEquals(local("2026-05-03T09:00"), next("0 9 * * 0", local("2026-05-01T12:00")));
+        assertEquals(local("2026-05-03T09:00"), next("0 9 * * 7", local("2026-05-01T12:00")));
+    }
+
+    @Test
+    public void runsAMissingLocalTimeAfterTheClocksGoForward() {
+        // On 2026-03-29 the clocks go from 02:00 to 03:00, so 02:30 is 03:30 summer time
+        assertEquals(offset("2026-03-29T03:30+02:00"), next("30 2 * * *", local("2026-03-28T12:00")));
+        assertEquals(offset("2026-03-30T02:30+02:00"), next("30 2 * * *", offset("2026-03-29T03:30+02:00")));
+    }
+
+    @Test
+    public void runsARepeatedLocalTimeOnceWhenTheClocksGoBack() {
+        // On 2026-10-25 the clocks go from 03:00 back to 02:00, so 02:30 comes twice
+        long first = next("30 2 * * *", local("2026-10-24T12:00"));
+        assertEquals(offset("2026-10-25T02:30+02:00"), first);
+        assertEquals(offset("2026-10-26T02:30+01:00"), next("30 2 * * *", first));
+        // Asked during the repeated hour, the next start is still after the given time
+        long repeated = offset("2026-10-25T02:15+01:00");
+        assertEquals(offset("2026-10-26T02:30+01:00"), next("30 2 * * *", repeated));
+    }
+
+    @Test
+    public void neverGoesBackInTimeAcrossTheClockChange() {
+        long time = local("2026-10-24T22:00");
+        long end = local("2026-10-26T00:00");
+        while (time < end) {
+            long next = next("*/10 * * * *", time);
+            assertTrue(next > time);
+            assertTrue("At most an hour and ten minutes between starts", next - time <= 70 * 60 * 1000);
+            time = next;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package no.ntnu.network.server.schedule;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ScheduleService}, driving its timing wheel by hand.
+ */
+public class ScheduleServiceTest {
+
+    private final long origin = System.currentTimeMillis();
+    private final TimingWheel wheel = new TimingWheel("test-wheel", origin);
+    private final List<String> commands = new ArrayList<>();
+    private long tick = -1;
+    private final ScheduleService service = new ScheduleService(
+            (schedule, isOn) -> commands.add((isOn ? "on" : "off") + "@" + tick), wheel);
+
+    private void advanceTo(long lastTick) {
+        while (tick < lastTick) {
+            ++tick;
+            wheel.advanceTo(tick);
+        }
+    }
+
+    /**
+     * Starts every second from one second after the origin of the wheel, like a cron schedule every second.
+     */
+    private long everySecond(long timeMillis) {
+        long first = origin + 1000;
+        return timeMillis < first ? first : first + ((timeMillis - first) / 1000 + 1) * 1000;
+    }
+
+    @Test
+    public void switchesOnAndBackAfterTheDuration() {
+        service.add(new Schedule(1, 2, true, new FixedRate(origin + 1000, 1000), 300));
+
+        advanceTo(250);
+
+        assertEquals(List.of("on@100", "off@130", "on@200", "off@230"), commands);
+    }
+
+    @Test
+    public void mergesWindowsLongerThanTheTimeBetweenStarts() {
+        int scheduleId = service.add(new Schedule(1, 2, true, this::everySecond, 1500));
+
+        // The window of every start ends after the next start, so the actuator stays on
+        advanceTo(500);
+        assertEquals(List.of("on@100", "on@200", "on@300", "on@400", "on@500"), commands);
+        assertEquals(2, service.getPendingCount());
+
+        service.cancel(scheduleId);
+        assertEquals("off@500", commands.get(commands.size() - 1));
+        advanceTo(1000);
+        assertEquals(6, commands.size());
+        assertEquals(0, service.getPendingCount());
+    }
+
+    @Test
+    public void endsTheLastWindowWhenThereAreNoMoreStarts() {
+        long last = origin + 2000;
+        Recurrence twice = time -> time < origin + 1000 ? origin + 1000 : time < last ? last : Long.MAX_VALUE;
+        service.add(new Schedule(1, 2, true, twice, 1500));
+
+        advanceTo(400);
+
+        assertEquals(List.of("on@100", "on@200", "off@350"), commands);
+    }
+
+    @Test
+    public void stopsAFixedRateWhoseNextStartIsPastTheEndOfTime() {
+        FixedRate rate = new FixedRate(1000, Long.MAX_VALUE / 2);
+        assertEquals(1000 + Long.MAX_VALUE / 2, rate.nextAfter(1000));
+        assertEquals(Long.MAX_VALUE, rate.nextAfter(1000 + Long.MAX_VALUE / 2));
+        assertEquals(Long.MAX_VALUE, new FixedRate(1000, Long.MAX_VALUE - 10).nextAfter(2000));
+        assertEquals(Long.MAX_VALUE, new FixedRate(Long.MIN_VALUE, 1000).nextAfter(Long.MAX_VALUE - 1));
+    }
+}
@@ -0,0 +1,133 @@
+package no.ntnu.network.server.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimingWheel}. The wheel is not started: the tests advance it tick by tick, with tick 0 at
+ * time 0, so a task scheduled at tick * TICK is due at that tick.
+ */
+public class TimingWheelTest {
+
+    private TimingWheel wheel;
+    private long currentTick;
+
+    @Before
+    public void setUp() {
+        wheel = new TimingWheel("test-wheel", 0);
+        currentTick = -1;
+    }
+
+    private void advanceTo(long tick) {
+        while (currentTick < tick) {
+            ++currentTick;
+            wheel.advanceTo(currentTick);
+        }
+    }
+
+    private WheelTimeout scheduleAt(long tick, long[] ranAt, int index) {
+        return wheel.schedule(() -> ranAt[index] = currentTick, tick * TimingWheel.TICK);
+    }
+
+    @Test
+    public void runsEveryTaskAtItsTickOnEveryLevel() {
+        // Around the boundaries of the first three wheels, and deep into the fourth
+        long[] deadlines = {0, 1, 63, 64, 65, 100, 4095, 4096, 4097, 5000, 262143, 262144, 262145, 300000};
+        long[] ranAt = new long[deadlines.length];
+        Arrays.fill(ranAt, -1);
+        for (int i = 0; i < deadlines.length; ++i) {
+            scheduleAt(deadlines[i], ranAt, i);
+        }
+        assertEquals(deadlines.length, wheel.getTimeoutCount());
+
+        advanceTo(300000);
+
+        assertEquals(Arrays.toString(deadlines), Arrays.toString(ranAt));
+        assertEquals(0, wheel.getTimeoutCount());
+    }
+
+    @Test
+    public void cascadesTasksAddedBetweenTurns() {
+        // Added when the wheels are not at the start of a turn, so the tasks are cascaded from partly turned wheels
+        advanceTo(1234);
+        long[] delays = {1, 30, 64, 1000, 4096, 70000, 262144};
+        long[] ranAt = new long[delays.length];
+        long[] expected = new long[delays.length];
+        for (int i = 0; i < delays.length; ++i) {
+            expected[i] = 1234 + delays[i];
+            scheduleAt(expected[i], ranAt, i);
+        }
+
+        advanceTo(1234 + 262144);
+
+        assertEquals(Arrays.toString(expected), Arrays.toString(ranAt));
+    }
+
+    @Test
+    public void runsTasksInThePastAtTheNextTick() {
+        advanceTo(100);
+        long[] ranAt = {-1};
+        scheduleAt(50, ranAt, 0);
+
+        advanceTo(101);
+
+        assertEquals(101, ranAt[0]);
+    }
+
+    @Test
+    public void cancelledTasksDontRun() {
+        long[] ranAt = {-1, -1, -1};
+        WheelTimeout early = scheduleAt(10, ranAt, 0);
+        WheelTimeout late = scheduleAt(10000, ranAt, 1);
+        scheduleAt(10001, ranAt, 2);
+
+        early.cancel();
+        // By now the late task has cascaded from the second wheel into the first
+        advanceTo(9990);
+        late.cancel();
+        assertEquals(1, wheel.getTimeoutCount());
+        assertTrue(late.isCancelled());
+        advanceTo(20000);
+
+        assertEquals(-1, ranAt[0]);
+        assertEquals(-1, ranAt[1]);
+        assertEquals(10001, ranAt[2]);
+        assertEquals(0, wheel.getTimeoutCount());
+    }
+
+    @Test
+    public void cancellingTwiceOrAfterRunningIsHarmless() {
+        long[] ranAt = {-1};
+        WheelTimeout timeout = scheduleAt(5, ranAt, 0);
+        advanceTo(5);
+        assertEquals(5, ranAt[0]);
+
+        timeout.cancel();
+        timeout.cancel();
+
+        assertEquals(0, wheel.getTimeoutCount());
+        assertFalse(ranAt[0] == -1);
+    }
+
+    @Test
+    public void cancelsATaskWhichIsDueInTheSameTick() {
+        long[] ranAt = {-1, -1};
+        WheelTimeout[] second = new WheelTimeout[1];
+        // The first task cancels the second after both have been taken out of the wheel
+        wheel.schedule(() -> {
+            ranAt[0] = currentTick;
+            second[0].cancel();
+        }, 7 * TimingWheel.TICK);
+        second[0] = scheduleAt(7, ranAt, 1);
+
+        advanceTo(8);
+
+        assertEquals(7, ranAt[0]);
+        assertEquals(-1, ranAt[1]);
+    }
+}
@@ -0,0 +1,66 @@
+package no.ntnu.network.server.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of a durable append, alone and with many appending threads sharing the forces. The
+ * sampled latencies show the percentiles; the log prints how many records shared a force on average.
+ * Run with {@code org.openjdk.jmh.Main CommandLogBenchmark}, see the README. The result depends on the disk the
+ * temporary directory is on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class CommandLogBenchmark {
+
+    private Path directory;
+    private CommandLog log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("command-log-benchmark");
+        log = CommandLog.open(directory.resolve("commands.log"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        long records = log.getDurableSequenceNumber();
+        long forces = Math.max(log.getForceCount(), 1);
+        log.close();
+        System.out.println("\n" + records + " records in " + forces + " forces, " + records / forces
+                + " records per force");
+        Files.delete(directory.resolve("commands.log"));
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean singleAppender() {
+        return log.append("actuator_control", "control_panel 4 /127.0.0.1:51234", 3, 1, true);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean concurrentAppenders() {
+        return log.append("actuator_control", "control_panel 4 /127.0.0.1:51234", 3, 1, true);
+    }
+}
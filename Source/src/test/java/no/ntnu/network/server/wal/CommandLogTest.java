@@ -0,0 +1,188 @@
+package no.ntnu.network.server.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link CommandLog} and {@link CommandLogReader}.
+ */
+public class CommandLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path logFile() {
+        return folder.getRoot().toPath().resolve("commands.log");
+    }
+
+    private static List<CommandRecord> readAll(Path file) throws Exception {
+        List<CommandRecord> records = new ArrayList<>();
+        try (CommandLogReader reader = new CommandLogReader(file)) {
+            for (CommandRecord record = reader.next(); record != null; record = reader.next()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    @Test
+    public void appendsAndReadsBackCommands() throws Exception {
+        try (CommandLog log = CommandLog.open(logFile())) {
+            assertTrue(log.append("actuator_control", "control_panel 4", 3, 1, true));
+            assertTrue(log.append("rule", "rule 7", 3, -1, false));
+            assertEquals(2, log.getDurableSequenceNumber());
+        }
+
+        List<CommandRecord> records = readAll(logFile());
+        assertEquals(2, records.size());
+        assertEquals(1, records.get(0).getSequenceNumber());
+        assertEquals("control_panel 4", records.get(0).getSource());
+        assertTrue(records.get(0).isOn());
+        assertEquals(-1, records.get(1).getActuatorId());
+        assertEquals("rule", records.get(1).getCommand());
+    }
+
+    @Test
+    public void concurrentAppendsShareForcesAndReturnOnlyWhenDurable() throws Exception {
+        int threads = 32;
+        int appendsPerThread = 100;
+        AtomicLong completed = new AtomicLong();
+        AtomicBoolean returnedEarly = new AtomicBoolean();
+        AtomicBoolean failed = new AtomicBoolean();
+        try (CommandLog log = CommandLog.open(logFile())) {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                int nodeId = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < appendsPerThread; ++i) {
+                        // Every append completed before this one started has a lower sequence number
+                        long lowestSequenceNumber = completed.get() + 1;
+                        if (!log.append("actuator_control", "test", nodeId, i, i % 2 == 0)) {
+                            failed.set(true);
+                        }
+                        if (log.getDurableSequenceNumber() < lowestSequenceNumber) {
+                            returnedEarly.set(true);
+                        }
+                        completed.incrementAndGet();
+                    }
+                });
+                thread.start();
+                appenders.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : appenders) {
+                thread.join();
+            }
+
+            assertFalse(failed.get());
+            assertFalse("An append returned before its record was on disk", returnedEarly.get());
+            assertEquals(threads * appendsPerThread, log.getDurableSequenceNumber());
+            assertTrue("Forces: " + log.getForceCount(), log.getForceCount() < threads * appendsPerThread);
+        }
+        assertEquals(threads * appendsPerThread, readAll(logFile()).size());
+    }
+
+    @Test
+    public void continuesNumberingAndCutsOffATornRecord() throws Exception {
+        try (CommandLog log = CommandLog.open(logFile())) {
+            log.append("actuator_control", "test", 1, 1, true);
+            log.append("actuator_control", "test", 1, 1, false);
+        }
+        // A crash in the middle of the next record
+        Files.write(logFile(), new byte[] {0, 0, 0, 40, 0, 0}, StandardOpenOption.APPEND);
+
+        try (CommandLog log = CommandLog.open(logFile())) {
+            assertTrue(log.append("actuator_control", "test", 1, 1, true));
+        }
+
+        List<CommandRecord> records = readAll(logFile());
+        assertEquals(3, records.size());
+        assertEquals(3, records.get(2).getSequenceNumber());
+    }
+
+    @Test
+    public void startsOverAFileShorterThanTheHeader() throws Exception {
+        Files.write(logFile(), new byte[] {0x53, 0x43, 0x4d});
+
+        try (CommandLog log = CommandLog.open(logFile())) {
+            assertTrue(log.append("actuator_control", "test", 1, 1, true));
+        }
+
+        List<CommandRecord> records = readAll(logFile());
+        assertEquals(1, records.size());
+        assertEquals(1, records.get(0).getSequenceNumber());
+    }
+
+    @Test
+    public void truncatesLongTextsAtACharacterBoundary() throws Exception {
+        // 1023 ASCII bytes, then a three byte character across the limit
+        String source = "x".repeat(CommandLog.MAX_TEXT_LENGTH - 1) + "\u20ac" + "tail";
+        byte[] encoded = CommandLog.encodeText(source);
+        assertEquals(CommandLog.MAX_TEXT_LENGTH - 1, encoded.length);
+
+        try (CommandLog log = CommandLog.open(logFile())) {
+            assertTrue(log.append("actuator_control", source, 1, 1, true));
+        }
+        String logged = readAll(logFile()).get(0).getSource();
+        assertEquals("x".repeat(CommandLog.MAX_TEXT_LENGTH - 1), logged);
+        assertEquals(logged, new String(logged.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void refusesAppendsAfterClose() throws Exception {
+        CommandLog log = CommandLog.open(logFile());
+        log.close();
+
+        assertFalse(log.append("actuator_control", "test", 1, 1, true));
+        assertFalse(log.appendAsync("actuator_control", "test", 1, 1, true).get());
+    }
+
+    @Test
+    public void asynchronousAppendsCompleteInOrderOnceDurable() throws Exception {
+        List<Long> completions = new ArrayList<>();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        try (CommandLog log = CommandLog.open(logFile())) {
+            for (int i = 0; i < 1000; ++i) {
+                CompletableFuture<Boolean> future = log.appendAsync("rule", "rule " + i, 3, i, i % 2 == 0);
+                long sequenceNumber = i + 1;
+                futures.add(future.thenApply(logged -> {
+                    // Completed on the writer thread once the record is on disk
+                    assertTrue(log.getDurableSequenceNumber() >= sequenceNumber);
+                    synchronized (completions) {
+                        completions.add(sequenceNumber);
+                    }
+                    return logged;
+                }));
+            }
+            for (CompletableFuture<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        }
+
+        for (int i = 0; i < completions.size(); ++i) {
+            assertEquals(i + 1, (long) completions.get(i));
+        }
+        assertEquals(1000, readAll(logFile()).size());
+    }
+}
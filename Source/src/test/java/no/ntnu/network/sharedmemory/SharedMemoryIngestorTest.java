@@ -0,0 +1,46 @@
+package no.ntnu.network.sharedmemory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.greenhouse.SensorReading;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SharedMemoryIngestor}.
+ */
+public class SharedMemoryIngestorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void groupsConsecutiveFramesOfANodeAndTime() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ring");
+        List<String> calls = new ArrayList<>();
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, 16);
+             SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, 16)) {
+            producer.offer(1, 1000, "temperature", 20, "°C");
+            producer.offer(1, 1000, "humidity", 80, "%");
+            producer.offer(2, 1000, "temperature", 18, "°C");
+            producer.offer(1, 1000, "temperature", 21, "°C");
+            producer.offer(1, 2000, "temperature", 22, "°C");
+            SharedMemoryIngestor ingestor = new SharedMemoryIngestor(consumer, (nodeId, timestamp, readings) -> {
+                StringBuilder call = new StringBuilder().append(nodeId).append('@').append(timestamp).append(':');
+                for (SensorReading reading : readings) {
+                    call.append(' ').append(reading.getType()).append('=').append(reading.getValue());
+                }
+                calls.add(call.toString());
+            });
+
+            assertEquals(5, ingestor.pollOnce());
+        }
+
+        assertEquals(List.of("1@1000: temperature=20.0 humidity=80.0", "2@1000: temperature=18.0",
+                "1@1000: temperature=21.0", "1@2000: temperature=22.0"), calls);
+    }
+}
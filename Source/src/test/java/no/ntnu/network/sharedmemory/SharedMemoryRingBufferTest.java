@@ -0,0 +1,97 @@
+package no.ntnu.network.sharedmemory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import no.ntnu.network.message.SensorFrame;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link SharedMemoryRingBuffer}.
+ */
+public class SharedMemoryRingBufferTest {
+
+    private static final int CAPACITY = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void passesFramesFromProducerToConsumer() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ring");
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, CAPACITY);
+             SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, CAPACITY)) {
+            for (int i = 0; i < CAPACITY; ++i) {
+                assertTrue(producer.offer(1, 1000 + i, "temperature", i, "°C"));
+            }
+            assertFalse("Full", producer.offer(1, 2000, "temperature", 0, "°C"));
+
+            List<SensorFrame> frames = new ArrayList<>();
+            assertEquals(CAPACITY, consumer.poll(frames::add, 100));
+            for (int i = 0; i < CAPACITY; ++i) {
+                assertEquals(1000 + i, frames.get(i).getTimestamp());
+                assertEquals(i, frames.get(i).getReading().getValue(), 0);
+            }
+            assertTrue(producer.offer(1, 2000, "temperature", 0, "°C"));
+        }
+    }
+
+    @Test
+    public void createResetsARingLeftByAPreviousRun() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ring");
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, CAPACITY);
+             SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, CAPACITY)) {
+            producer.offer(1, 1000, "temperature", 20, "°C");
+            producer.offer(1, 1001, "temperature", 21, "°C");
+            consumer.poll(frame -> { }, 1);
+            assertEquals(1, consumer.size());
+        }
+
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, CAPACITY)) {
+            assertEquals(0, consumer.size());
+            assertEquals(0, consumer.poll(frame -> { }, 100));
+        }
+    }
+
+    @Test
+    public void openKeepsTheStateOfTheConsumer() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ring");
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, CAPACITY)) {
+            try (SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, CAPACITY)) {
+                producer.offer(1, 1000, "temperature", 20, "°C");
+            }
+            try (SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, CAPACITY)) {
+                producer.offer(1, 1001, "temperature", 21, "°C");
+            }
+            assertEquals(2, consumer.size());
+        }
+    }
+
+    @Test
+    public void skipsACorruptSlot() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("ring");
+        try (SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.create(file, CAPACITY);
+             SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.open(file, CAPACITY)) {
+            producer.offer(1, 1000, "temperature", 20, "°C");
+            producer.offer(1, 1001, "temperature", 21, "°C");
+            try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+                // The type length of the first slot, after the three header cache lines and the fixed fields
+                raw.seek(3 * 64 + 20);
+                raw.write(0xFF);
+            }
+
+            List<SensorFrame> frames = new ArrayList<>();
+            assertEquals(2, consumer.poll(frames::add, 100));
+            assertEquals(1, frames.size());
+            assertEquals(1001, frames.get(0).getTimestamp());
+            assertEquals(0, consumer.size());
+        }
+    }
+}